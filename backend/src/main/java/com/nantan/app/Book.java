@@ -1,18 +1,32 @@
 package com.nantan.app;
 
 import jakarta.persistence.*;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
 /**
  * Represents a book in the library.
  * This class is now annotated for both JPA (MySQL) and Spring Data MongoDB.
+ * <p>
+ * The secondary indexes behind {@link BookQuery} are declared here once per store; they are created and
+ * checked at startup (see {@link com.nantan.app.query.BookIndexVerifier}). Each ends with the ID, so a filter
+ * on the first column returns its rows in ID order without sorting.
  */
 @Entity // For JPA
-@Table(name = "books") // For JPA
+@Table(name = "books", indexes = { // For JPA
+        @Index(name = Book.AUTHOR_INDEX, columnList = "author, id"),
+        @Index(name = Book.TITLE_INDEX, columnList = "title, id")})
 @Document(collection = "books") // For MongoDB
+@CompoundIndexes({
+        @CompoundIndex(name = Book.AUTHOR_INDEX, def = "{'author': 1, '_id': 1}"),
+        @CompoundIndex(name = Book.TITLE_INDEX, def = "{'title': 1, '_id': 1}")})
 public class Book {
 
+    public static final String AUTHOR_INDEX = "idx_books_author";
+    public static final String TITLE_INDEX = "idx_books_title";
+
     @Id // Common @Id for both JPA and MongoDB
     @Column(name = "id") // For JPA
     @Field("id") // For MongoDB, explicitly map to the 'id' field in the document
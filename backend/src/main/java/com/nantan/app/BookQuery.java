@@ -0,0 +1,116 @@
+package com.nantan.app;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * A filtered listing of books. Every filter is optional; the filters that are given must all match.
+ * Each one can be answered from an index: {@code author} and {@code titlePrefix} from the secondary indexes
+ * declared on {@link Book}, the ID range from the primary key.
+ *
+ * @param author      only books by exactly this author, or null.
+ * @param titlePrefix only books whose title starts with this text (case-sensitive where the store is), or null.
+ * @param minId       the lowest ID to include, or null.
+ * @param maxId       the highest ID to include, or null.
+ * @param order       the order of the results.
+ * @param fields      the fields to read; the ID is always read. Fields left out are null in the results.
+ */
+public record BookQuery(String author, String titlePrefix, Integer minId, Integer maxId, Order order, Set<Field> fields) {
+
+    public BookQuery {
+        if (order == null) {
+            order = Order.ID;
+        }
+        EnumSet<Field> selected = fields == null || fields.isEmpty() ? EnumSet.allOf(Field.class) : EnumSet.copyOf(fields);
+        selected.add(Field.ID);
+        fields = Set.copyOf(selected);
+    }
+
+    /**
+     * Whether the query returns what {@code findPage} would: every book, in ID order, with every field.
+     */
+    public boolean isUnfiltered() {
+        return author == null && titlePrefix == null && minId == null && maxId == null
+                && order == Order.ID && fields.size() == Field.values().length;
+    }
+
+    public boolean includes(Field field) {
+        return fields.contains(field);
+    }
+
+    public enum Field {
+        ID("id"), TITLE("title"), AUTHOR("author");
+
+        private final String property;
+
+        Field(String property) {
+            this.property = property;
+        }
+
+        /**
+         * The property of {@link Book} this field maps to.
+         */
+        public String property() {
+            return property;
+        }
+
+        /**
+         * Parses a comma-separated list of property names, e.g. {@code id,title}.
+         *
+         * @throws IllegalArgumentException for an unknown name.
+         */
+        public static Set<Field> parseList(String names) {
+            EnumSet<Field> fields = EnumSet.noneOf(Field.class);
+            for (String name : names.split(",")) {
+                String trimmed = name.trim();
+                if (!trimmed.isEmpty()) {
+                    fields.add(Arrays.stream(values()).filter(field -> field.property.equals(trimmed)).findFirst()
+                            .orElseThrow(() -> new IllegalArgumentException("Unknown field: " + trimmed)));
+                }
+            }
+            return fields;
+        }
+    }
+
+    /**
+     * The orders that an index can deliver without sorting the whole collection.
+     * Title orders break ties by ID, which the title index holds as its second column.
+     */
+    public enum Order {
+        ID("id", false), ID_DESC("id", true), TITLE("title", false), TITLE_DESC("title", true);
+
+        private final String property;
+        private final boolean descending;
+
+        Order(String property, boolean descending) {
+            this.property = property;
+            this.descending = descending;
+        }
+
+        public String property() {
+            return property;
+        }
+
+        public boolean descending() {
+            return descending;
+        }
+
+        /**
+         * Parses a property name, prefixed with {@code -} for descending order: {@code id}, {@code -id},
+         * {@code title} or {@code -title}.
+         *
+         * @throws IllegalArgumentException for anything else.
+         */
+        public static Order parse(String value) {
+            String trimmed = value.trim().toLowerCase(Locale.ROOT);
+            boolean descending = trimmed.startsWith("-");
+            String property = descending ? trimmed.substring(1) : trimmed;
+            return Arrays.stream(values())
+                    .filter(order -> order.property.equals(property) && order.descending == descending)
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown sort: " + value));
+        }
+    }
+}
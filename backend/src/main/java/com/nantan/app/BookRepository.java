@@ -1,6 +1,8 @@
 package com.nantan.app;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * An interface that defines the standard operations to be performed on a collection of books.
@@ -15,6 +17,52 @@ public interface BookRepository {
      */
     List<Book> findAll();
 
+    /**
+     * Retrieves one page of books ordered by ID, starting strictly after the given ID.
+     * Implementations must answer this with an index seek on the primary key rather than an offset scan.
+     *
+     * @param afterId The exclusive lower bound (the last ID of the previous page).
+     * @param limit   The maximum number of books to return.
+     * @return Up to {@code limit} books with an ID greater than {@code afterId}, in ascending ID order.
+     */
+    List<Book> findPage(int afterId, int limit);
+
+    /**
+     * Retrieves the books with the given IDs in a single query. IDs that do not exist are skipped.
+     *
+     * @param ids The IDs to look up.
+     * @return The books found, in no particular order.
+     */
+    List<Book> findAllById(Iterable<Integer> ids);
+
+    /**
+     * Retrieves the books matching the query, reading only the fields it selects.
+     * Implementations must answer every filter and order of {@link BookQuery} from an index
+     * (see the indexes declared on {@link Book}) rather than by scanning the collection.
+     *
+     * @param query The filters, order and fields.
+     * @param limit The maximum number of books to return.
+     * @return Up to {@code limit} matching books, in the query's order.
+     */
+    List<Book> findMatching(BookQuery query, int limit);
+
+    /**
+     * Returns the highest book ID, found with one seek to the end of the primary key index.
+     *
+     * @return The highest ID, or 0 if the repository is empty.
+     */
+    int findMaxId();
+
+    /**
+     * Pushes every book, in ascending ID order, to the given sink through a single database cursor.
+     * Only one book is held in memory at a time. The cursor is released when this method returns,
+     * including when the sink throws (e.g. because the HTTP client disconnected).
+     *
+     * @param sink The consumer that receives each book.
+     * @return The number of books passed to the sink.
+     */
+    long exportAll(Consumer<? super Book> sink);
+
     /**
      * Saves a new book or updates an existing one.
      *
@@ -24,6 +72,25 @@ public interface BookRepository {
     // 关键修改: 返回类型从 void 改为 Book，以匹配 Spring Data CrudRepository 的规范
     Book save(Book book);
 
+    /**
+     * Inserts the books as new records in a single batched write.
+     * Unlike {@link #save(Book)} this never updates an existing record and never reads before writing.
+     *
+     * @param books The books to insert; each must carry its ID.
+     * @return The number of books inserted.
+     * @throws com.nantan.app.exception.BulkInsertException if the batch was not written completely.
+     */
+    int insertAll(List<Book> books);
+
+    /**
+     * Inserts or replaces the books in a single batched write, keyed by ID.
+     * Applying the same batch twice leaves the same state, which makes it safe to retry.
+     *
+     * @param books The books to write; each must carry its ID, and each ID may appear only once.
+     * @return The number of books written.
+     */
+    int upsertAll(List<Book> books);
+
     /**
      * Deletes a book from the repository by its ID.
      * @param bookId The ID of the book to delete.
@@ -31,6 +98,14 @@ public interface BookRepository {
      */
     boolean deleteById(int bookId);
 
+    /**
+     * Deletes the books with the given IDs in one statement (or one bulk operation).
+     *
+     * @param ids The IDs to delete.
+     * @return The IDs that existed and were deleted, in ascending order.
+     */
+    List<Integer> removeAllById(Collection<Integer> ids);
+
     /**
      * A method to perform any necessary cleanup, like closing connections.
      * In Spring Boot, this is managed automatically, so the implementation will be empty.
@@ -0,0 +1,29 @@
+package com.nantan.app;
+
+import java.util.List;
+
+/**
+ * Names of the data sources a request can select with the {@code dataSource} parameter.
+ */
+public final class DataSources {
+
+    public static final String MYSQL = "mysql";
+    public static final String MONGO = "mongo";
+    public static final String LOCAL = "local";
+
+    public static final List<String> ALL = List.of(MYSQL, MONGO, LOCAL);
+
+    private DataSources() {
+    }
+
+    /**
+     * Maps a client-supplied data source to its canonical name.
+     * Anything other than "mongo" or "local" (case-insensitive) falls back to MySQL, as the API always has.
+     */
+    public static String resolve(String dataSource) {
+        if (MONGO.equalsIgnoreCase(dataSource)) {
+            return MONGO;
+        }
+        return LOCAL.equalsIgnoreCase(dataSource) ? LOCAL : MYSQL;
+    }
+}
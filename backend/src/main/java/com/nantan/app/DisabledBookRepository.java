@@ -0,0 +1,84 @@
+package com.nantan.app;
+
+import com.nantan.app.exception.DataSourceDisabledException;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Stands in for a data source that is switched off on this instance, so the decorators and services
+ * that are wired per data source need no special case. Every operation fails with
+ * {@link DataSourceDisabledException}.
+ */
+public class DisabledBookRepository implements BookRepository {
+
+    private final String dataSource;
+
+    public DisabledBookRepository(String dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public List<Book> findAll() {
+        throw disabled();
+    }
+
+    @Override
+    public List<Book> findPage(int afterId, int limit) {
+        throw disabled();
+    }
+
+    @Override
+    public List<Book> findAllById(Iterable<Integer> ids) {
+        throw disabled();
+    }
+
+    @Override
+    public List<Book> findMatching(BookQuery query, int limit) {
+        throw disabled();
+    }
+
+    @Override
+    public int findMaxId() {
+        throw disabled();
+    }
+
+    @Override
+    public long exportAll(Consumer<? super Book> sink) {
+        throw disabled();
+    }
+
+    @Override
+    public Book save(Book book) {
+        throw disabled();
+    }
+
+    @Override
+    public int insertAll(List<Book> books) {
+        throw disabled();
+    }
+
+    @Override
+    public int upsertAll(List<Book> books) {
+        throw disabled();
+    }
+
+    @Override
+    public boolean deleteById(int bookId) {
+        throw disabled();
+    }
+
+    @Override
+    public List<Integer> removeAllById(Collection<Integer> ids) {
+        throw disabled();
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private DataSourceDisabledException disabled() {
+        return new DataSourceDisabledException(dataSource);
+    }
+}
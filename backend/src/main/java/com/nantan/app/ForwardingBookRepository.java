@@ -0,0 +1,78 @@
+package com.nantan.app;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A {@link BookRepository} that forwards every call to another repository.
+ * Decorators extend this class and override only the operations they care about.
+ */
+public abstract class ForwardingBookRepository implements BookRepository {
+
+    protected final BookRepository delegate;
+
+    protected ForwardingBookRepository(BookRepository delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public List<Book> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<Book> findPage(int afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public List<Book> findAllById(Iterable<Integer> ids) {
+        return delegate.findAllById(ids);
+    }
+
+    @Override
+    public List<Book> findMatching(BookQuery query, int limit) {
+        return delegate.findMatching(query, limit);
+    }
+
+    @Override
+    public int findMaxId() {
+        return delegate.findMaxId();
+    }
+
+    @Override
+    public long exportAll(Consumer<? super Book> sink) {
+        return delegate.exportAll(sink);
+    }
+
+    @Override
+    public Book save(Book book) {
+        return delegate.save(book);
+    }
+
+    @Override
+    public int insertAll(List<Book> books) {
+        return delegate.insertAll(books);
+    }
+
+    @Override
+    public int upsertAll(List<Book> books) {
+        return delegate.upsertAll(books);
+    }
+
+    @Override
+    public boolean deleteById(int bookId) {
+        return delegate.deleteById(bookId);
+    }
+
+    @Override
+    public List<Integer> removeAllById(Collection<Integer> ids) {
+        return delegate.removeAllById(ids);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
@@ -2,15 +2,18 @@ package com.nantan.app;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
-import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
+import org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.mongo.MongoReactiveRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.MongoReactiveAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.scheduling.annotation.EnableAsync;
 
-@SpringBootApplication
-// 关键修改: 精确指定各自 Repository 的扫描路径
-@EnableJpaRepositories(basePackages = "com.nantan.app.jpa")
-@EnableMongoRepositories(basePackages = "com.nantan.app.mongo")
+// R2DBC 与响应式 Mongo 客户端只在 reactive profile 下由 ReactiveConfig 创建 (见其注释)
+@SpringBootApplication(exclude = {R2dbcAutoConfiguration.class, MongoReactiveAutoConfiguration.class,
+        MongoReactiveDataAutoConfiguration.class, MongoReactiveRepositoriesAutoConfiguration.class})
 @EnableAsync
+@ConfigurationPropertiesScan
 public class LibraryManagerSystemApplication {
 
     public static void main(String[] args) {
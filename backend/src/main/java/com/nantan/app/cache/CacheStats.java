@@ -0,0 +1,24 @@
+package com.nantan.app.cache;
+
+/**
+ * Point-in-time counters of one cache region.
+ *
+ * @param region        the data source the region belongs to.
+ * @param entries       number of cached query results.
+ * @param books         number of books held across all entries.
+ * @param hits          reads answered from the cache.
+ * @param misses        reads that went to the database.
+ * @param evictions     entries dropped to stay within the size limits.
+ * @param expirations   entries dropped because their TTL had passed.
+ * @param invalidations times the region was cleared because of a write.
+ */
+public record CacheStats(
+        String region,
+        int entries,
+        long books,
+        long hits,
+        long misses,
+        long evictions,
+        long expirations,
+        long invalidations) {
+}
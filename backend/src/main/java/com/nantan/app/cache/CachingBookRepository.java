@@ -0,0 +1,202 @@
+package com.nantan.app.cache;
+
+import com.nantan.app.Book;
+import com.nantan.app.BookQuery;
+import com.nantan.app.BookRepository;
+import com.nantan.app.ForwardingBookRepository;
+import com.nantan.app.config.BookCacheProperties;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache in front of one data source's repository.
+ * List reads ({@code findAll}, {@code findPage}, {@code findMatching}) are cached per query in an LRU map
+ * bounded both by entry count and by the total number of books held, and every entry expires after a TTL.
+ * Any write clears the whole region, because a single insert or delete shifts every page after it.
+ */
+public class CachingBookRepository extends ForwardingBookRepository {
+
+    private static final Object FIND_ALL_KEY = "findAll";
+
+    private final String region;
+    private final BookCacheProperties properties;
+    private final long ttlNanos;
+
+    // LinkedHashMap in access order gives us LRU eviction; all access is guarded by 'this'.
+    private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBooks;
+
+    // Bumped on every invalidation so that a load which raced with a write is not cached.
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public CachingBookRepository(String region, BookRepository delegate, BookCacheProperties properties) {
+        super(delegate);
+        this.region = region;
+        this.properties = properties;
+        this.ttlNanos = properties.ttl().toNanos();
+    }
+
+    @Override
+    public List<Book> findAll() {
+        return read(FIND_ALL_KEY, delegate::findAll);
+    }
+
+    @Override
+    public List<Book> findPage(int afterId, int limit) {
+        return read(new PageKey(afterId, limit), () -> delegate.findPage(afterId, limit));
+    }
+
+    @Override
+    public List<Book> findMatching(BookQuery query, int limit) {
+        return read(new QueryKey(query, limit), () -> delegate.findMatching(query, limit));
+    }
+
+    @Override
+    public Book save(Book book) {
+        try {
+            return delegate.save(book);
+        } finally {
+            invalidate();
+        }
+    }
+
+    @Override
+    public int insertAll(List<Book> books) {
+        try {
+            return delegate.insertAll(books);
+        } finally {
+            invalidate();
+        }
+    }
+
+    @Override
+    public int upsertAll(List<Book> books) {
+        try {
+            return delegate.upsertAll(books);
+        } finally {
+            invalidate();
+        }
+    }
+
+    @Override
+    public boolean deleteById(int bookId) {
+        try {
+            return delegate.deleteById(bookId);
+        } finally {
+            invalidate();
+        }
+    }
+
+    @Override
+    public List<Integer> removeAllById(Collection<Integer> ids) {
+        try {
+            return delegate.removeAllById(ids);
+        } finally {
+            invalidate();
+        }
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public synchronized CacheStats stats() {
+        return new CacheStats(region, entries.size(), cachedBooks, hits.sum(), misses.sum(),
+                evictions.sum(), expirations.sum(), invalidations.sum());
+    }
+
+    private List<Book> read(Object key, Supplier<List<Book>> loader) {
+        if (!properties.enabled()) {
+            return loader.get();
+        }
+        long now = System.nanoTime();
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (now - entry.loadedAtNanos < ttlNanos) {
+                    hits.increment();
+                    return entry.books;
+                }
+                remove(key, entry);
+                expirations.increment();
+            }
+        }
+        misses.increment();
+        long loadGeneration = generation.get();
+        List<Book> books = List.copyOf(loader.get());
+        if (books.size() <= properties.maxBooks()) {
+            synchronized (this) {
+                if (generation.get() == loadGeneration) {
+                    put(key, new Entry(books, now));
+                }
+            }
+        }
+        return books;
+    }
+
+    private void put(Object key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            cachedBooks -= previous.books.size();
+        }
+        cachedBooks += entry.books.size();
+        Iterator<Map.Entry<Object, Entry>> eldest = entries.entrySet().iterator();
+        while ((entries.size() > properties.maxEntries() || cachedBooks > properties.maxBooks()) && eldest.hasNext()) {
+            cachedBooks -= eldest.next().getValue().books.size();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private void remove(Object key, Entry entry) {
+        entries.remove(key);
+        cachedBooks -= entry.books.size();
+    }
+
+    /**
+     * Clears the region now and, if a transaction is active, again once it has completed.
+     * The second pass drops anything a concurrent reader cached from the pre-commit state.
+     */
+    private void invalidate() {
+        clear();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    clear();
+                }
+            });
+        }
+    }
+
+    private synchronized void clear() {
+        generation.incrementAndGet();
+        entries.clear();
+        cachedBooks = 0;
+        invalidations.increment();
+    }
+
+    private record PageKey(int afterId, int limit) {
+    }
+
+    private record QueryKey(BookQuery query, int limit) {
+    }
+
+    private record Entry(List<Book> books, long loadedAtNanos) {
+    }
+}
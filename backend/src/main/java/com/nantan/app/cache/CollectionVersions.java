@@ -0,0 +1,46 @@
+package com.nantan.app.cache;
+
+import com.nantan.app.DataSources;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A monotonic version per data source, bumped by {@link VersionedBookRepository} on every write.
+ * Two reads that observed the same version saw the same books, which is what lets
+ * {@code GET /api/books} answer a conditional request without going to the database.
+ * The tokens include the startup time, because the counters restart from zero with the process.
+ */
+@Component
+public class CollectionVersions {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<String, AtomicLong> versions = Map.of(
+            DataSources.MYSQL, new AtomicLong(),
+            DataSources.MONGO, new AtomicLong(),
+            DataSources.LOCAL, new AtomicLong());
+
+    public long current(String dataSource) {
+        return counter(dataSource).get();
+    }
+
+    public void bump(String dataSource) {
+        counter(dataSource).incrementAndGet();
+    }
+
+    /**
+     * An opaque token that changes whenever the data source's books may have changed.
+     */
+    public String token(String dataSource) {
+        return epoch + "-" + current(dataSource);
+    }
+
+    private AtomicLong counter(String dataSource) {
+        AtomicLong counter = versions.get(dataSource);
+        if (counter == null) {
+            throw new IllegalArgumentException("Unknown data source: " + dataSource);
+        }
+        return counter;
+    }
+}
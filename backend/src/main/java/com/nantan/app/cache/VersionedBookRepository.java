@@ -0,0 +1,84 @@
+package com.nantan.app.cache;
+
+import com.nantan.app.Book;
+import com.nantan.app.BookRepository;
+import com.nantan.app.ForwardingBookRepository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Bumps the data source's {@link CollectionVersions collection version} on every write.
+ * Like the cache invalidation, the version is bumped once immediately and once more after the
+ * surrounding transaction completes, so a reader that saw pre-commit data never holds the final version.
+ */
+public class VersionedBookRepository extends ForwardingBookRepository {
+
+    private final String dataSource;
+    private final CollectionVersions versions;
+
+    public VersionedBookRepository(String dataSource, BookRepository delegate, CollectionVersions versions) {
+        super(delegate);
+        this.dataSource = dataSource;
+        this.versions = versions;
+    }
+
+    @Override
+    public Book save(Book book) {
+        try {
+            return delegate.save(book);
+        } finally {
+            bump();
+        }
+    }
+
+    @Override
+    public int insertAll(List<Book> books) {
+        try {
+            return delegate.insertAll(books);
+        } finally {
+            bump();
+        }
+    }
+
+    @Override
+    public int upsertAll(List<Book> books) {
+        try {
+            return delegate.upsertAll(books);
+        } finally {
+            bump();
+        }
+    }
+
+    @Override
+    public boolean deleteById(int bookId) {
+        try {
+            return delegate.deleteById(bookId);
+        } finally {
+            bump();
+        }
+    }
+
+    @Override
+    public List<Integer> removeAllById(Collection<Integer> ids) {
+        try {
+            return delegate.removeAllById(ids);
+        } finally {
+            bump();
+        }
+    }
+
+    private void bump() {
+        versions.bump(dataSource);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    versions.bump(dataSource);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.nantan.app.coalesce;
+
+import com.nantan.app.Book;
+import com.nantan.app.DataSources;
+import com.nantan.app.config.WriteCoalescingProperties;
+import com.nantan.app.exception.BulkInsertException;
+import com.nantan.app.metrics.LatencyTimers;
+import com.nantan.app.service.BookService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group commit for {@code addBook}: concurrent adds to the same data source are collected into one batch
+ * and written with {@link BookService#addBooks(List, String)}, i.e. one transaction (MySQL) or one bulk
+ * write (MongoDB) instead of one per book.
+ * <p>
+ * Each data source has a lane with its own queue and writer thread. The writer takes the first waiting add,
+ * gathers whatever else arrives within {@code window} (up to {@code maxBatchSize}), and writes the batch;
+ * adds that arrive while it is writing form the next batch. Each caller's future is completed on its own.
+ * If a batch fails, its books are retried one at a time so one bad book cannot fail the others; books that
+ * were given an ID by the failed attempt go back to having none first.
+ * <p>
+ * A batch never holds two adds of the same book ID: the later one starts the next batch, so the
+ * last add still wins, as it does without coalescing.
+ */
+@Component
+public class WriteCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteCoalescer.class);
+
+    public static final String BATCH_SIZE_METRIC = "library.coalescing.batch.size";
+    public static final String WAIT_METRIC = "library.coalescing.wait";
+    public static final String ISOLATED_METRIC = "library.coalescing.isolated";
+
+    private final BookService bookService;
+    private final WriteCoalescingProperties properties;
+    private final Map<String, Lane> lanes = new HashMap<>();
+
+    public WriteCoalescer(BookService bookService, WriteCoalescingProperties properties, MeterRegistry meterRegistry) {
+        this.bookService = bookService;
+        this.properties = properties;
+        if (properties.enabled()) {
+            for (String dataSource : DataSources.ALL) {
+                lanes.put(dataSource, new Lane(dataSource, meterRegistry));
+            }
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.enabled()) {
+            logger.info("Write coalescing is disabled (library.coalescing.enabled=false)");
+            return;
+        }
+        logger.info("Coalescing adds into batches of up to {} within {}", properties.maxBatchSize(), properties.window());
+        lanes.values().forEach(Lane::start);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        for (Lane lane : lanes.values()) {
+            lane.stop();
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.enabled();
+    }
+
+    /**
+     * Queues the book for the data source's next batch.
+     *
+     * @return a future completed with the saved book once its batch has been written, or with the
+     * book's own failure. It fails with {@link RejectedExecutionException} if the queue is full.
+     */
+    public CompletableFuture<Book> submit(Book book, String dataSource) {
+        Lane lane = lanes.get(DataSources.resolve(dataSource));
+        if (lane == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Write coalescing is disabled"));
+        }
+        PendingWrite write = new PendingWrite(book, book.getId() == null, new CompletableFuture<>(), System.nanoTime());
+        if (!lane.queue.offer(write)) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException(
+                    "Write queue for data source '" + lane.dataSource + "' is full"));
+        }
+        return write.future;
+    }
+
+    /**
+     * @param assignsId whether the server assigns the book's ID; {@code addBooks} sets it on the book itself
+     */
+    private record PendingWrite(Book book, boolean assignsId, CompletableFuture<Book> future, long enqueuedNanos) {
+    }
+
+    private final class Lane implements Runnable {
+
+        final String dataSource;
+        final BlockingQueue<PendingWrite> queue;
+        final DistributionSummary batchSize;
+        final Timer wait;
+        final Counter isolated;
+        final Thread writer;
+
+        // An add held back from the previous batch because its ID was already in it; touched by the writer only
+        PendingWrite carried;
+
+        Lane(String dataSource, MeterRegistry meterRegistry) {
+            this.dataSource = dataSource;
+            this.queue = new ArrayBlockingQueue<>(properties.queueCapacity());
+            this.batchSize = DistributionSummary.builder(BATCH_SIZE_METRIC)
+                    .description("Books written per coalesced batch")
+                    .baseUnit("books")
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(1.0)
+                    .maximumExpectedValue((double) properties.maxBatchSize())
+                    .tag("dataSource", dataSource)
+                    .register(meterRegistry);
+            this.wait = LatencyTimers.builder(WAIT_METRIC)
+                    .description("Time an add waited before its batch started to be written")
+                    .tag("dataSource", dataSource)
+                    .register(meterRegistry);
+            this.isolated = Counter.builder(ISOLATED_METRIC)
+                    .description("Books retried on their own after their batch failed")
+                    .tag("dataSource", dataSource)
+                    .register(meterRegistry);
+            this.writer = new Thread(this, "WriteCoalescer-" + dataSource);
+            this.writer.setDaemon(true);
+        }
+
+        void start() {
+            writer.start();
+        }
+
+        void stop() throws InterruptedException {
+            writer.interrupt();
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+
+        @Override
+        public void run() {
+            List<PendingWrite> batch = new ArrayList<>(properties.maxBatchSize());
+            while (true) {
+                try {
+                    collect(batch);
+                } catch (InterruptedException e) {
+                    break;
+                }
+                write(batch);
+                batch.clear();
+            }
+            // Shutting down: write what is still queued rather than leaving callers waiting
+            if (carried != null) {
+                batch.add(carried);
+                carried = null;
+            }
+            queue.drainTo(batch);
+            for (int from = 0; from < batch.size(); from += properties.maxBatchSize()) {
+                write(batch.subList(from, Math.min(batch.size(), from + properties.maxBatchSize())));
+            }
+        }
+
+        private void collect(List<PendingWrite> batch) throws InterruptedException {
+            PendingWrite first = carried != null ? carried : queue.take();
+            carried = null;
+            batch.add(first);
+            // 没有 ID 的书由服务端分配新 ID，不会彼此冲突
+            Set<Integer> ids = new HashSet<>();
+            if (first.book().getId() != null) {
+                ids.add(first.book().getId());
+            }
+            long deadline = first.enqueuedNanos() + properties.window().toNanos();
+            while (batch.size() < properties.maxBatchSize()) {
+                PendingWrite next = queue.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    return;
+                }
+                if (next.book().getId() != null && !ids.add(next.book().getId())) {
+                    carried = next;
+                    return;
+                }
+                batch.add(next);
+            }
+        }
+
+        private void write(List<PendingWrite> batch) {
+            long startNanos = System.nanoTime();
+            for (PendingWrite write : batch) {
+                wait.record(startNanos - write.enqueuedNanos(), TimeUnit.NANOSECONDS);
+            }
+            batchSize.record(batch.size());
+            try {
+                List<Book> saved = bookService.addBooks(batch.stream().map(PendingWrite::book).toList(), dataSource);
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.get(i).future().complete(saved.get(i));
+                }
+            } catch (RuntimeException e) {
+                if (batch.size() == 1) {
+                    batch.get(0).future().completeExceptionally(e);
+                    return;
+                }
+                logger.warn("Coalesced write of {} books to {} failed, retrying them one by one: {}",
+                        batch.size(), dataSource, e.getMessage());
+                isolated.increment(batch.size());
+                clearUnwrittenIds(batch, e);
+                for (PendingWrite write : batch) {
+                    try {
+                        write.future().complete(bookService.addBooks(List.of(write.book()), dataSource).get(0));
+                    } catch (RuntimeException single) {
+                        write.future().completeExceptionally(single);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Takes back the IDs the failed attempt assigned, so the retry inserts those books under a fresh ID
+         * rather than upserting them under one that was never written. A store without transactions may have
+         * inserted some of them before failing ({@link BulkInsertException}); those keep their ID and the retry
+         * rewrites them in place instead of inserting them twice.
+         */
+        private void clearUnwrittenIds(List<PendingWrite> batch, RuntimeException failure) {
+            Set<Integer> rejected = null;
+            if (failure instanceof BulkInsertException bulk && bulk.getInsertedCount() > 0) {
+                // 不知道写入了哪几本时全部保留 ID: 按原 ID 重写不会产生重复的书
+                rejected = new HashSet<>(bulk.getRejectedIndexes());
+                if (rejected.isEmpty()) {
+                    return;
+                }
+            }
+            // addBooks 按顺序为没有 ID 的书分配 ID 并插入, 位置与 BulkInsertException 中的下标一致
+            int position = 0;
+            for (PendingWrite write : batch) {
+                if (write.assignsId()) {
+                    if (rejected == null || rejected.contains(position)) {
+                        write.book().setId(null);
+                    }
+                    position++;
+                }
+            }
+        }
+    }
+}
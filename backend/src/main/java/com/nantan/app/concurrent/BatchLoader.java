@@ -0,0 +1,135 @@
+package com.nantan.app.concurrent;
+
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Loads values by key in batches, DataLoader style: keys requested by concurrent callers within {@code window} of
+ * the first one are collected and loaded with a single call on the executor. A key requested by several callers
+ * is loaded once. A batch is sent early when it reaches {@code maxBatchSize} keys.
+ * <p>
+ * Keys only join a batch that has not been sent yet, so a caller never gets a value read before it asked.
+ */
+public class BatchLoader<K, V> implements AutoCloseable {
+
+    private final Function<List<K>, Map<K, V>> load;
+    private final AsyncTaskExecutor executor;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService timer;
+
+    // guarded by this
+    private Map<K, CompletableFuture<V>> pending = new LinkedHashMap<>();
+    private boolean flushScheduled;
+
+    /**
+     * @param name         thread name prefix of the timer that sends batches when their window closes.
+     * @param load         loads the given keys, returning the values found; keys that are missing are left out.
+     *                     Runs on {@code executor}.
+     * @param executor     where batches are loaded.
+     * @param window       how long the first key of a batch waits for others.
+     * @param maxBatchSize the most keys in one batch.
+     */
+    public BatchLoader(String name, Function<List<K>, Map<K, V>> load, AsyncTaskExecutor executor,
+                       Duration window, int maxBatchSize) {
+        this.load = load;
+        this.executor = executor;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.timer = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory(name));
+    }
+
+    /**
+     * Requests the given keys.
+     *
+     * @return a future of the values found, keyed by key; keys that do not exist are absent.
+     */
+    public CompletableFuture<Map<K, V>> loadMany(Collection<K> keys) {
+        Map<K, CompletableFuture<V>> requested = new LinkedHashMap<>();
+        List<Map<K, CompletableFuture<V>>> full = new ArrayList<>();
+        synchronized (this) {
+            for (K key : keys) {
+                if (requested.containsKey(key)) {
+                    continue;
+                }
+                CompletableFuture<V> value = pending.get(key);
+                if (value == null) {
+                    value = new CompletableFuture<>();
+                    pending.put(key, value);
+                    if (pending.size() == maxBatchSize) {
+                        full.add(takePending());
+                    }
+                }
+                requested.put(key, value);
+            }
+            if (!pending.isEmpty() && !flushScheduled) {
+                flushScheduled = true;
+                timer.schedule(this::flush, windowNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        full.forEach(this::send);
+        return CompletableFuture.allOf(requested.values().toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> {
+                    Map<K, V> found = new LinkedHashMap<>();
+                    requested.forEach((key, value) -> {
+                        V loaded = value.join();
+                        if (loaded != null) {
+                            found.put(key, loaded);
+                        }
+                    });
+                    return found;
+                });
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+    }
+
+    private void flush() {
+        Map<K, CompletableFuture<V>> batch;
+        synchronized (this) {
+            flushScheduled = false;
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = takePending();
+        }
+        send(batch);
+    }
+
+    // guarded by this
+    private Map<K, CompletableFuture<V>> takePending() {
+        Map<K, CompletableFuture<V>> batch = pending;
+        pending = new LinkedHashMap<>();
+        return batch;
+    }
+
+    private void send(Map<K, CompletableFuture<V>> batch) {
+        try {
+            executor.submitCompletable(() -> load.apply(new ArrayList<>(batch.keySet())))
+                    .whenComplete((found, error) -> batch.forEach((key, value) -> {
+                        if (error != null) {
+                            value.completeExceptionally(error);
+                        } else {
+                            value.complete(found.get(key));
+                        }
+                    }));
+        } catch (RuntimeException e) {
+            // 执行器拒绝: 这一批的所有调用者都收到同一个异常
+            batch.values().forEach(value -> value.completeExceptionally(e));
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.nantan.app.concurrent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Runs every task on its own virtual thread, but lets at most {@code maxConcurrency} of them do
+ * their work at once.
+ * <p>
+ * Virtual threads make waiting cheap, so the limit is not about threads: it matches the number of
+ * database connections, which is what the book service actually blocks on. Tasks beyond the limit
+ * wait for a slot, up to {@code queueCapacity} of them and for at most {@code queueTimeout}.
+ * A task that finds the queue full is rejected on the caller's thread; a task that times out in the
+ * queue completes its future with a {@link TaskRejectedException}. Either way the caller gets a fast,
+ * explicit rejection instead of piling up on the connection pool.
+ */
+public class BoundedVirtualThreadExecutor implements AsyncTaskExecutor, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(BoundedVirtualThreadExecutor.class);
+
+    private final SimpleAsyncTaskExecutor threads;
+    private final Semaphore slots;
+    private final int maxConcurrency;
+    private final int maxAdmitted;
+    private final long queueTimeoutNanos;
+    // Tasks that are running or waiting for a slot
+    private final AtomicInteger admitted = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private volatile TaskDecorator taskDecorator = task -> task;
+
+    /**
+     * @throws IllegalStateException if the JVM does not support virtual threads.
+     */
+    public BoundedVirtualThreadExecutor(String threadNamePrefix, int maxConcurrency, int queueCapacity, Duration queueTimeout) {
+        this(virtualThreads(threadNamePrefix), maxConcurrency, queueCapacity, queueTimeout);
+    }
+
+    /**
+     * Visible for tests, which run on JVMs without virtual threads.
+     */
+    BoundedVirtualThreadExecutor(SimpleAsyncTaskExecutor threads, int maxConcurrency, int queueCapacity, Duration queueTimeout) {
+        this.threads = threads;
+        this.slots = new Semaphore(maxConcurrency, true);
+        this.maxConcurrency = maxConcurrency;
+        this.maxAdmitted = maxConcurrency + queueCapacity;
+        this.queueTimeoutNanos = queueTimeout.toNanos();
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        start(task, rejection -> logger.warn(rejection.getMessage()));
+    }
+
+    @Override
+    public Future<?> submit(Runnable task) {
+        return submitCompletable(task);
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        return submitCompletable(task);
+    }
+
+    @Override
+    public CompletableFuture<Void> submitCompletable(Runnable task) {
+        return submitCompletable(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    @Override
+    public <T> CompletableFuture<T> submitCompletable(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        start(() -> {
+            try {
+                future.complete(task.call());
+            } catch (Throwable ex) {
+                future.completeExceptionally(ex);
+            }
+        }, future::completeExceptionally);
+        return future;
+    }
+
+    /**
+     * Like {@code ThreadPoolTaskExecutor#setTaskDecorator}. Tasks are decorated on submission and the
+     * decorated task runs once it has a slot, so the time in between is the task's queue wait.
+     */
+    public void setTaskDecorator(TaskDecorator taskDecorator) {
+        this.taskDecorator = taskDecorator;
+    }
+
+    public int getActiveCount() {
+        return maxConcurrency - slots.availablePermits();
+    }
+
+    public int getQueuedCount() {
+        return Math.max(0, admitted.get() - getActiveCount());
+    }
+
+    /**
+     * Tasks rejected because the queue was full or their wait for a slot timed out.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    @Override
+    public void close() {
+        threads.close();
+    }
+
+    private static SimpleAsyncTaskExecutor virtualThreads(String threadNamePrefix) {
+        SimpleAsyncTaskExecutor threads = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        try {
+            threads.setVirtualThreads(true);
+        } catch (UnsupportedOperationException e) {
+            throw new IllegalStateException("library.async.mode=virtual requires Java 21 or later, running on "
+                    + Runtime.version(), e);
+        }
+        return threads;
+    }
+
+    private void start(Runnable work, Consumer<TaskRejectedException> onTimeout) {
+        if (admitted.incrementAndGet() > maxAdmitted) {
+            admitted.decrementAndGet();
+            rejected.increment();
+            throw new TaskRejectedException("Executor is saturated: " + maxConcurrency + " tasks running and "
+                    + (maxAdmitted - maxConcurrency) + " waiting");
+        }
+        Runnable decorated = taskDecorator.decorate(work);
+        try {
+            threads.execute(() -> {
+                try {
+                    if (!slots.tryAcquire(queueTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                        rejected.increment();
+                        onTimeout.accept(new TaskRejectedException("Task waited longer than "
+                                + Duration.ofNanos(queueTimeoutNanos) + " for one of " + maxConcurrency + " slots"));
+                        return;
+                    }
+                    try {
+                        decorated.run();
+                    } finally {
+                        slots.release();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    onTimeout.accept(new TaskRejectedException("Interrupted while waiting for a slot", e));
+                } finally {
+                    admitted.decrementAndGet();
+                }
+            });
+        } catch (RuntimeException e) {
+            admitted.decrementAndGet();
+            throw e;
+        }
+    }
+}
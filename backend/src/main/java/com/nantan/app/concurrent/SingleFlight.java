@@ -0,0 +1,61 @@
+package com.nantan.app.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls with the same key into one: the first caller starts the call, and callers that arrive
+ * while it is in flight get its result instead of starting their own. The key is released the moment the call
+ * completes, before any caller sees the result, so nothing is cached: a caller that arrives afterwards starts a
+ * new call.
+ * <p>
+ * Every caller gets its own copy of the shared future, so one caller cancelling or completing it cannot affect
+ * the others.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Joins the call in flight for the key, or starts one.
+     *
+     * @param key  identifies calls that would return the same result.
+     * @param call starts the call; invoked only when no call for the key is in flight.
+     * @return a future of the shared result.
+     * @throws RuntimeException whatever {@code call} throws synchronously; callers that joined meanwhile get it
+     *                          through their future.
+     */
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> call) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            return existing.copy();
+        }
+        CompletableFuture<V> started;
+        try {
+            started = call.get();
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+        started.whenComplete((value, error) -> {
+            inFlight.remove(key, flight);
+            if (error != null) {
+                flight.completeExceptionally(error);
+            } else {
+                flight.complete(value);
+            }
+        });
+        return flight.copy();
+    }
+
+    /**
+     * The number of keys with a call in flight.
+     */
+    public int inFlight() {
+        return inFlight.size();
+    }
+}
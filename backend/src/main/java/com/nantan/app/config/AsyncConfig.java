@@ -1,16 +1,32 @@
 package com.nantan.app.config;
 
+import com.nantan.app.concurrent.BoundedVirtualThreadExecutor;
+import com.nantan.app.metrics.LatencyTimers;
+import com.nantan.app.metrics.QueueWaitTaskDecorator;
+import com.nantan.app.tracing.RequestTracing;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskDecorator;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
-import java.util.concurrent.Executor;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
 
 /**
  * Configuration class for asynchronous processing.
- * This sets up a dedicated thread pool for @Async tasks.
+ * This sets up a dedicated executor for @Async tasks: a platform thread pool by default,
+ * or bounded virtual threads with {@code library.async.mode=virtual}.
  */
 @Configuration
 public class AsyncConfig {
@@ -19,30 +35,90 @@ public class AsyncConfig {
 
     public static final String TASK_EXECUTOR_NAME = "taskExecutor";
 
+    private static final String THREAD_NAME_PREFIX = "BookAsync-";
+
     @Bean(name = TASK_EXECUTOR_NAME)
-    public Executor taskExecutor() {
+    public AsyncTaskExecutor taskExecutor(AsyncProperties properties, ObjectProvider<DataSource> dataSource, MeterRegistry meterRegistry,
+                                 RequestTracing tracing) {
+        QueueWaitTaskDecorator queueTimer = new QueueWaitTaskDecorator(LatencyTimers.builder(QueueWaitTaskDecorator.METRIC_NAME)
+                .description("Time @Async book service calls waited for an executor thread")
+                .register(meterRegistry));
+        // Both capture their state at submission: the timer its start time, the tracing the request's trace context
+        TaskDecorator decorator = task -> queueTimer.decorate(tracing.decorate(task));
+
+        if (properties.mode() == AsyncProperties.Mode.VIRTUAL) {
+            int maxConcurrency = properties.maxConcurrency() > 0
+                    ? properties.maxConcurrency()
+                    : connectionPoolSize(dataSource.getIfAvailable());
+            logger.info("Creating virtual-thread Async Task Executor: {} concurrent tasks, {} queued, queue timeout {}",
+                    maxConcurrency, properties.queueCapacity(), properties.queueTimeout());
+            BoundedVirtualThreadExecutor executor = new BoundedVirtualThreadExecutor(
+                    THREAD_NAME_PREFIX, maxConcurrency, properties.queueCapacity(), properties.queueTimeout());
+            executor.setTaskDecorator(decorator);
+            bindExecutorMetrics(meterRegistry, executor, BoundedVirtualThreadExecutor::getActiveCount,
+                    BoundedVirtualThreadExecutor::getQueuedCount, BoundedVirtualThreadExecutor::getRejectedCount);
+            return executor;
+        }
+
         logger.debug("Creating Async Task Executor");
         final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
 
         // Set the core number of threads.
         // This is the number of threads that are kept alive in the pool.
-        executor.setCorePoolSize(4);
+        executor.setCorePoolSize(properties.corePoolSize());
 
         // Set the max number of threads.
         // The pool can grow up to this size when the queue is full.
-        executor.setMaxPoolSize(10);
+        executor.setMaxPoolSize(properties.maxPoolSize());
 
         // Set the queue capacity.
         // This is the number of tasks that can be queued before new threads are created.
-        executor.setQueueCapacity(25);
+        executor.setQueueCapacity(properties.queueCapacity());
 
         // Set the name prefix for the threads in this pool.
         // This is very useful for debugging and logging.
-        executor.setThreadNamePrefix("BookAsync-");
+        executor.setThreadNamePrefix(THREAD_NAME_PREFIX);
+
+        // Record how long each task sat in the queue and carry the trace context over,
+        // and count rejections before they are thrown.
+        executor.setTaskDecorator(decorator);
+        LongAdder rejected = new LongAdder();
+        ThreadPoolExecutor.AbortPolicy abort = new ThreadPoolExecutor.AbortPolicy();
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            rejected.increment();
+            abort.rejectedExecution(task, pool);
+        });
 
         // Initialize the executor.
         executor.initialize();
 
+        bindExecutorMetrics(meterRegistry, executor, ThreadPoolTaskExecutor::getActiveCount,
+                e -> e.getThreadPoolExecutor().getQueue().size(), e -> rejected.sum());
         return executor;
     }
-}
\ No newline at end of file
+
+    private static <T> void bindExecutorMetrics(MeterRegistry registry, T executor, ToDoubleFunction<T> active,
+                                                ToDoubleFunction<T> queued, ToDoubleFunction<T> rejected) {
+        Gauge.builder("library.async.active", executor, active)
+                .description("@Async book service calls currently executing").register(registry);
+        Gauge.builder("library.async.queued", executor, queued)
+                .description("@Async book service calls waiting for a thread").register(registry);
+        FunctionCounter.builder("library.async.rejected", executor, rejected)
+                .description("@Async book service calls rejected because the executor was saturated").register(registry);
+    }
+
+    /**
+     * Every transactional service call holds a JDBC connection while it runs, so the connection pool
+     * size is the real concurrency limit; running more tasks than that only queues them inside Hikari.
+     */
+    private static int connectionPoolSize(DataSource dataSource) {
+        try {
+            if (dataSource != null && dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+            }
+        } catch (SQLException e) {
+            logger.warn("Could not read the connection pool size: {}", e.getMessage());
+        }
+        throw new IllegalStateException("Cannot derive library.async.max-concurrency from the DataSource; set it explicitly");
+    }
+}
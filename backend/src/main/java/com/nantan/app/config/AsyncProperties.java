@@ -0,0 +1,33 @@
+package com.nantan.app.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the executor that runs the {@code @Async} book service methods.
+ *
+ * @param mode           {@code platform} for a fixed thread pool, {@code virtual} for one virtual thread per task (Java 21+).
+ * @param corePoolSize   platform mode: threads kept alive in the pool.
+ * @param maxPoolSize    platform mode: threads the pool may grow to once the queue is full.
+ * @param queueCapacity  tasks allowed to wait for a thread (platform) or for a free slot (virtual) before new ones are rejected.
+ * @param maxConcurrency virtual mode: tasks allowed to run at once; 0 means the JDBC connection pool size.
+ * @param queueTimeout   virtual mode: how long a queued task may wait for a slot before it is rejected.
+ * @param retryAfter     value of the Retry-After header sent when a task is rejected.
+ */
+@ConfigurationProperties(prefix = "library.async")
+public record AsyncProperties(
+        @DefaultValue("platform") Mode mode,
+        @DefaultValue("4") int corePoolSize,
+        @DefaultValue("10") int maxPoolSize,
+        @DefaultValue("25") int queueCapacity,
+        @DefaultValue("0") int maxConcurrency,
+        @DefaultValue("2s") Duration queueTimeout,
+        @DefaultValue("1s") Duration retryAfter) {
+
+    public enum Mode {
+        PLATFORM,
+        VIRTUAL
+    }
+}
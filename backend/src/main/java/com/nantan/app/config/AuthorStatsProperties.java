@@ -0,0 +1,23 @@
+package com.nantan.app.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the in-memory author statistics ({@code GET /api/books/stats/authors}).
+ *
+ * @param enabled           whether the statistics are built at startup; the endpoints answer 503 when disabled.
+ * @param defaultTop        number of authors returned by the top-N endpoint when the request does not specify a limit.
+ * @param maxTop            upper bound for the {@code limit} parameter.
+ * @param reconcileInterval pause between full rescans that replace the counts and measure how far the deltas
+ *                          had drifted; zero disables reconciliation.
+ */
+@ConfigurationProperties(prefix = "library.author-stats")
+public record AuthorStatsProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("10") int defaultTop,
+        @DefaultValue("1000") int maxTop,
+        @DefaultValue("1h") Duration reconcileInterval) {
+}
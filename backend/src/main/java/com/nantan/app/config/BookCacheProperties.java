@@ -0,0 +1,22 @@
+package com.nantan.app.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the read-through book cache. Each data source gets its own region with these limits.
+ *
+ * @param enabled    whether list reads are cached at all.
+ * @param maxEntries maximum number of cached query results per region.
+ * @param maxBooks   maximum number of books held across all entries of a region.
+ * @param ttl        how long a cached result may be served before it is reloaded.
+ */
+@ConfigurationProperties(prefix = "library.cache")
+public record BookCacheProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("256") int maxEntries,
+        @DefaultValue("100000") int maxBooks,
+        @DefaultValue("30s") Duration ttl) {
+}
@@ -0,0 +1,26 @@
+package com.nantan.app.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the Server-Sent Events change feed ({@code GET /api/books/changes}).
+ *
+ * @param replayCapacity  changes kept per data source for clients that reconnect with {@code Last-Event-ID};
+ *                        a client that missed more is told to reload instead.
+ * @param queueCapacity   changes that may wait to be sent to one client; a client that falls further
+ *                        behind is disconnected and resumes from the replay buffer when it reconnects.
+ * @param maxSubscribers  open streams allowed per data source.
+ * @param heartbeat       interval of the keep-alive comment that lets proxies and clients detect a dead stream.
+ * @param timeout         lifetime of one stream; the browser's EventSource reconnects and resumes afterwards.
+ */
+@ConfigurationProperties(prefix = "library.feed")
+public record ChangeFeedProperties(
+        @DefaultValue("1024") int replayCapacity,
+        @DefaultValue("256") int queueCapacity,
+        @DefaultValue("500") int maxSubscribers,
+        @DefaultValue("15s") Duration heartbeat,
+        @DefaultValue("30m") Duration timeout) {
+}
@@ -0,0 +1,32 @@
+package com.nantan.app.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the adaptive concurrency limiter in front of each data source.
+ *
+ * @param enabled          whether calls are limited at all.
+ * @param initialLimit     concurrent calls allowed before any latency has been observed.
+ * @param minLimit         the limit never drops below this.
+ * @param maxLimit         the limit never grows above this.
+ * @param windowSamples    completed calls per latency window; the limit is recomputed once per window.
+ * @param rttTolerance     how much slower than the long-term average a window may be before the limit shrinks.
+ * @param smoothing        weight of a newly computed limit against the current one (0..1).
+ * @param backoffRatio     factor applied to the limit whenever a call times out.
+ * @param operationTimeout deadline of a single limited call, enforced per statement by the database; slower calls count as timeouts.
+ */
+@ConfigurationProperties(prefix = "library.limit")
+public record ConcurrencyLimitProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("10") int initialLimit,
+        @DefaultValue("2") int minLimit,
+        @DefaultValue("100") int maxLimit,
+        @DefaultValue("20") int windowSamples,
+        @DefaultValue("1.5") double rttTolerance,
+        @DefaultValue("0.2") double smoothing,
+        @DefaultValue("0.9") double backoffRatio,
+        @DefaultValue("2s") Duration operationTimeout) {
+}
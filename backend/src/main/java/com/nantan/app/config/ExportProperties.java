@@ -0,0 +1,14 @@
+package com.nantan.app.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings for the streaming catalog export ({@code GET /api/books/export}).
+ *
+ * @param fetchSize number of rows/documents the driver fetches per round trip while streaming.
+ *                  With MySQL this only takes effect when the JDBC URL sets {@code useCursorFetch=true}.
+ */
+@ConfigurationProperties(prefix = "library.export")
+public record ExportProperties(@DefaultValue("1000") int fetchSize) {
+}
@@ -0,0 +1,65 @@
+package com.nantan.app.config;
+
+import com.nantan.app.BookRepository;
+import com.nantan.app.DataSources;
+import com.nantan.app.id.IdAllocator;
+import com.nantan.app.id.IdBlockSource;
+import com.nantan.app.jpa.SequenceTableIdBlockSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+
+/**
+ * The book ID allocators. MySQL and MongoDB draw from one sequence, kept in MySQL, so a book has the same ID in
+ * both and replication from MySQL to MongoDB can never collide with a direct MongoDB insert. The local store keeps
+ * a counter of its own (see {@link LocalStoreConfig}), so {@code dataSource=local} needs no database server.
+ * <p>
+ * With {@code library.startup.mysql-enabled=false} the shared sequence is kept in the local store as well.
+ */
+@Configuration
+public class IdAllocationConfig {
+
+    public static final String BOOK_SEQUENCE = "books";
+    public static final String LOCAL_BOOK_SEQUENCE = "local-books";
+
+    public static final String BOOK_ID_ALLOCATOR = "bookIdAllocator";
+    public static final String LOCAL_BOOK_ID_ALLOCATOR = "localBookIdAllocator";
+
+    @Bean
+    @ConditionalOnProperty(name = StartupConfig.MYSQL_ENABLED_PROPERTY, matchIfMissing = true)
+    public SequenceTableIdBlockSource bookIdBlockSource(
+            @Qualifier(RepositoryConfig.MYSQL_BOOKS) BookRepository mysqlBooks,
+            @Qualifier(RepositoryConfig.MONGO_BOOKS) BookRepository mongoBooks,
+            StartupProperties startup) {
+        Map<String, BookRepository> repositories = Map.of(DataSources.MYSQL, mysqlBooks, DataSources.MONGO, mongoBooks);
+        return new SequenceTableIdBlockSource(BOOK_SEQUENCE, () -> {
+            long highest = 0;
+            for (String dataSource : startup.dataSources()) {
+                if (repositories.containsKey(dataSource)) {
+                    highest = Math.max(highest, repositories.get(dataSource).findMaxId());
+                }
+            }
+            return highest;
+        });
+    }
+
+    @Bean(name = BOOK_ID_ALLOCATOR)
+    @ConditionalOnProperty(name = StartupConfig.MYSQL_ENABLED_PROPERTY, matchIfMissing = true)
+    public IdAllocator bookIdAllocator(SequenceTableIdBlockSource bookIdBlockSource, IdAllocationProperties properties) {
+        return new IdAllocator(BOOK_SEQUENCE, bookIdBlockSource, properties.blockSize());
+    }
+
+    @Bean(name = BOOK_ID_ALLOCATOR)
+    @ConditionalOnProperty(name = StartupConfig.MYSQL_ENABLED_PROPERTY, havingValue = "false")
+    public IdAllocator localStoreBookIdAllocator(@Qualifier("localBookRepository") BookRepository localBooks,
+                                                 IdAllocationProperties properties) {
+        if (!(localBooks instanceof IdBlockSource localSequence)) {
+            throw new IllegalStateException(StartupConfig.MYSQL_ENABLED_PROPERTY + "=false keeps the book ID sequence "
+                    + "in the local store; it requires " + LocalStoreConfig.LOCAL_ENABLED_PROPERTY + "=true");
+        }
+        return new IdAllocator(BOOK_SEQUENCE, localSequence, properties.blockSize());
+    }
+}
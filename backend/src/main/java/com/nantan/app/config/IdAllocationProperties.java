@@ -0,0 +1,15 @@
+package com.nantan.app.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings for the server-side book ID allocator.
+ *
+ * @param blockSize number of IDs reserved in the {@code book_id_sequence} table (or the local store) at a time.
+ *                  Larger blocks mean fewer reservations, and more IDs skipped when the instance restarts.
+ */
+@ConfigurationProperties(prefix = "library.ids")
+public record IdAllocationProperties(
+        @DefaultValue("100") int blockSize) {
+}
@@ -0,0 +1,16 @@
+package com.nantan.app.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings for the bulk import endpoint ({@code POST /api/books/import}).
+ *
+ * @param chunkSize   number of books written per batch (one transaction on MySQL, one bulkWrite on MongoDB).
+ * @param maxFailures maximum number of chunk failures kept in the import report.
+ */
+@ConfigurationProperties(prefix = "library.import")
+public record ImportProperties(
+        @DefaultValue("500") int chunkSize,
+        @DefaultValue("100") int maxFailures) {
+}
@@ -0,0 +1,16 @@
+package com.nantan.app.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings for the secondary indexes behind filtered book queries (see {@link com.nantan.app.query.BookIndexVerifier}).
+ *
+ * @param validate      whether the indexes of every enabled store are checked at startup.
+ * @param createMissing whether a missing index is created rather than failing the startup.
+ */
+@ConfigurationProperties(prefix = "library.indexes")
+public record IndexProperties(
+        @DefaultValue("true") boolean validate,
+        @DefaultValue("true") boolean createMissing) {
+}
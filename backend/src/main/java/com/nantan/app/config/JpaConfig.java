@@ -0,0 +1,19 @@
+package com.nantan.app.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.data.repository.config.BootstrapMode;
+
+/**
+ * Enables the Spring Data JPA repositories.
+ * Kept out of the application class, like {@link MongoConfig}, so that an instance without MySQL can leave it out
+ * (see {@link StartupConfig}).
+ */
+@Configuration
+@ConditionalOnProperty(name = StartupConfig.MYSQL_ENABLED_PROPERTY, matchIfMissing = true)
+// 关键修改: 精确指定各自 Repository 的扫描路径
+// LAZY: 仓库在第一次使用时才创建, 这样 library.startup.background-jpa-bootstrap 开启时启动过程不必等待 Hibernate
+@EnableJpaRepositories(basePackages = "com.nantan.app.jpa", bootstrapMode = BootstrapMode.LAZY)
+public class JpaConfig {
+}
@@ -0,0 +1,31 @@
+package com.nantan.app.config;
+
+import com.nantan.app.memory.InMemoryBookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Beans for the self-contained {@code loadtest} profile.
+ * MySQL is replaced by embedded H2 in MySQL mode (see application-loadtest.properties) and MongoDB by
+ * an in-process {@link InMemoryBookRepository} registered under the Spring Data repository's bean name,
+ * so the rest of the application, decorators included, is wired exactly as in production.
+ */
+@Configuration
+@Profile(LoadTestConfig.PROFILE)
+public class LoadTestConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadTestConfig.class);
+
+    public static final String PROFILE = "loadtest";
+
+    @Bean(name = "mongoBookRepository")
+    @ConditionalOnProperty(name = StartupConfig.MONGO_ENABLED_PROPERTY, matchIfMissing = true)
+    public InMemoryBookRepository mongoBookRepository() {
+        logger.warn("Profile '{}' is active: the mongo data source is an in-memory stand-in", PROFILE);
+        return new InMemoryBookRepository();
+    }
+}
@@ -0,0 +1,53 @@
+package com.nantan.app.config;
+
+import com.nantan.app.DataSources;
+import com.nantan.app.DisabledBookRepository;
+import com.nantan.app.exception.DataSourceDisabledException;
+import com.nantan.app.id.IdAllocator;
+import com.nantan.app.local.LogStructuredBookStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+
+/**
+ * The repository behind {@code dataSource=local}, registered as {@code localBookRepository} next to the Spring Data
+ * repositories of the other two data sources, so {@link RepositoryConfig} and the per-data-source services wire it
+ * the same way.
+ * <p>
+ * With {@code library.startup.local-enabled=true} it is the embedded {@link LogStructuredBookStore}, which is closed
+ * (and checkpointed) with the context; otherwise a {@link DisabledBookRepository}, and local requests answer 503.
+ * The IDs of books added to it come from a counter in the store itself ({@code localBookIdAllocator}).
+ */
+@Configuration
+public class LocalStoreConfig {
+
+    public static final String LOCAL_ENABLED_PROPERTY = "library.startup.local-enabled";
+
+    @Bean(name = "localBookRepository")
+    @ConditionalOnProperty(name = LOCAL_ENABLED_PROPERTY, havingValue = "true")
+    public LogStructuredBookStore localBookRepository(LocalStoreProperties properties) throws IOException {
+        return new LogStructuredBookStore(properties);
+    }
+
+    @Bean(name = "localBookRepository")
+    @ConditionalOnProperty(name = LOCAL_ENABLED_PROPERTY, havingValue = "false", matchIfMissing = true)
+    public DisabledBookRepository disabledLocalBookRepository() {
+        return new DisabledBookRepository(DataSources.LOCAL);
+    }
+
+    @Bean(name = IdAllocationConfig.LOCAL_BOOK_ID_ALLOCATOR)
+    @ConditionalOnProperty(name = LOCAL_ENABLED_PROPERTY, havingValue = "true")
+    public IdAllocator localBookIdAllocator(LogStructuredBookStore localBookRepository, IdAllocationProperties properties) {
+        return new IdAllocator(IdAllocationConfig.LOCAL_BOOK_SEQUENCE, localBookRepository, properties.blockSize());
+    }
+
+    @Bean(name = IdAllocationConfig.LOCAL_BOOK_ID_ALLOCATOR)
+    @ConditionalOnProperty(name = LOCAL_ENABLED_PROPERTY, havingValue = "false", matchIfMissing = true)
+    public IdAllocator disabledLocalBookIdAllocator() {
+        return new IdAllocator(IdAllocationConfig.LOCAL_BOOK_SEQUENCE, size -> {
+            throw new DataSourceDisabledException(DataSources.LOCAL);
+        }, 1);
+    }
+}
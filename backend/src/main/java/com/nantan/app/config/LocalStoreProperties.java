@@ -0,0 +1,34 @@
+package com.nantan.app.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings for the embedded log-structured store behind {@code dataSource=local}
+ * (see {@link com.nantan.app.local.LogStructuredBookStore}). It is enabled with {@code library.startup.local-enabled}.
+ *
+ * @param directory              where the log and index files live; one instance at a time may use it.
+ * @param fsync                  whether a write returns only once its record is forced to disk. When false, writes
+ *                               survive a crash of the application but not of the machine.
+ * @param groupCommitWindow      how long the writer that performs an fsync waits for others to append before it.
+ *                               Zero still shares each fsync among the writers that arrived while the last one ran.
+ * @param checkpointEntries      number of changes held in memory on top of the index before they are written into a
+ *                               new index file; it bounds both the heap used and the log replayed after a crash.
+ * @param compactionGarbageRatio share of the log taken by deleted and overwritten records that triggers a compaction.
+ * @param compactionMinBytes     garbage below this many bytes never triggers a compaction.
+ * @param maintenanceInterval    how often the background thread checks for a checkpoint or compaction to run;
+ *                               zero leaves both to explicit calls.
+ */
+@ConfigurationProperties(prefix = "library.local-store")
+public record LocalStoreProperties(
+        @DefaultValue("data/local-store") Path directory,
+        @DefaultValue("true") boolean fsync,
+        @DefaultValue("0ms") Duration groupCommitWindow,
+        @DefaultValue("100000") int checkpointEntries,
+        @DefaultValue("0.5") double compactionGarbageRatio,
+        @DefaultValue("67108864") long compactionMinBytes,
+        @DefaultValue("1s") Duration maintenanceInterval) {
+}
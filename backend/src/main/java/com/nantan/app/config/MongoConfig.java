@@ -0,0 +1,19 @@
+package com.nantan.app.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
+
+/**
+ * Enables the Spring Data Mongo repositories.
+ * Kept out of the application class so the {@code loadtest} profile, which has no MongoDB,
+ * can replace {@code mongoBookRepository} with an in-memory store (see {@link LoadTestConfig}),
+ * and so that a MySQL-only instance can leave it out (see {@link StartupConfig}).
+ */
+@Configuration
+@Profile("!" + LoadTestConfig.PROFILE)
+@ConditionalOnProperty(name = StartupConfig.MONGO_ENABLED_PROPERTY, matchIfMissing = true)
+@EnableMongoRepositories(basePackages = "com.nantan.app.mongo")
+public class MongoConfig {
+}
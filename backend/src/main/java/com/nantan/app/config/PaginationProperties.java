@@ -0,0 +1,18 @@
+package com.nantan.app.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Limits applied to book listing requests.
+ *
+ * @param defaultPageSize   page size used when the client does not ask for one.
+ * @param maxPageSize       upper bound for a single keyset page.
+ * @param unpagedMaxResults upper bound for the legacy unpaged listing ({@code GET /api/books}).
+ */
+@ConfigurationProperties(prefix = "library.pagination")
+public record PaginationProperties(
+        @DefaultValue("50") int defaultPageSize,
+        @DefaultValue("1000") int maxPageSize,
+        @DefaultValue("1000") int unpagedMaxResults) {
+}
@@ -0,0 +1,115 @@
+package com.nantan.app.config;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.nantan.app.memory.InMemoryBookRepository;
+import com.nantan.app.reactive.InMemoryReactiveBookRepository;
+import com.nantan.app.reactive.R2dbcBookRepository;
+import com.nantan.app.reactive.ReactiveBookRepository;
+import com.nantan.app.reactive.ReactiveMongoBookRepository;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.autoconfigure.mongo.MongoProperties;
+import org.springframework.boot.autoconfigure.mongo.ReactiveMongoClientFactory;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.SimpleReactiveMongoDatabaseFactory;
+
+/**
+ * Beans for the {@code reactive} profile, which serves the book API from WebFlux on Netty
+ * ({@link com.nantan.app.controller.ReactiveBookController}) instead of Spring MVC on Tomcat.
+ * <p>
+ * The JPA and Spring Data Mongo stack is still started, since the search index, the snapshots and the
+ * diagnostics read through it; only the request path is non-blocking. Boot's R2DBC and reactive Mongo
+ * auto-configurations are excluded on the application class: a {@code ConnectionFactory} bean would
+ * switch off the JDBC {@code DataSource} that JPA needs, so the R2DBC pool is owned by
+ * {@link R2dbcBookRepository} instead of being a bean.
+ */
+@Configuration
+@Profile(ReactiveConfig.PROFILE)
+public class ReactiveConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveConfig.class);
+
+    public static final String PROFILE = "reactive";
+
+    public static final String MYSQL_BOOKS = "reactiveMysqlBooks";
+    public static final String MONGO_BOOKS = "reactiveMongoBooks";
+
+    public ReactiveConfig(ReplicationProperties replicationProperties, StartupProperties startupProperties) {
+        // 发件箱依赖 JPA 事务与业务写入原子提交; 响应式写入没有这样的事务
+        if (replicationProperties.enabled()) {
+            throw new IllegalStateException("library.replication.enabled requires the servlet stack; "
+                    + "it cannot be combined with the '" + PROFILE + "' profile");
+        }
+        // 响应式栈自己创建 MongoDB 客户端, 不支持只启用 MySQL
+        if (!startupProperties.mongoEnabled()) {
+            throw new IllegalStateException(StartupConfig.MONGO_ENABLED_PROPERTY + "=false requires the servlet stack; "
+                    + "it cannot be combined with the '" + PROFILE + "' profile");
+        }
+        // 响应式栈自己创建 R2DBC 连接池, 同样不支持关闭 MySQL
+        if (!startupProperties.mysqlEnabled()) {
+            throw new IllegalStateException(StartupConfig.MYSQL_ENABLED_PROPERTY + "=false requires the servlet stack; "
+                    + "it cannot be combined with the '" + PROFILE + "' profile");
+        }
+    }
+
+    /**
+     * Tomcat is on the classpath as well and would otherwise be picked; Netty keeps the whole request path on event loops.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory reactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean(name = MYSQL_BOOKS, destroyMethod = "close")
+    public R2dbcBookRepository reactiveMysqlBooks(ReactiveProperties properties, ExportProperties exportProperties) {
+        if (properties.r2dbcUrl() == null || properties.r2dbcUrl().isBlank()) {
+            throw new IllegalStateException("library.reactive.r2dbc-url must be set for the '" + PROFILE + "' profile");
+        }
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(properties.r2dbcUrl()).mutate();
+        if (properties.r2dbcUsername() != null) {
+            options.option(ConnectionFactoryOptions.USER, properties.r2dbcUsername());
+        }
+        if (properties.r2dbcPassword() != null) {
+            options.option(ConnectionFactoryOptions.PASSWORD, properties.r2dbcPassword());
+        }
+        ConnectionPool pool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options.build()))
+                .maxSize(properties.poolMaxSize())
+                .build());
+        logger.info("Reactive stack: R2DBC pool of up to {} connections", properties.poolMaxSize());
+        return new R2dbcBookRepository(pool, exportProperties.fetchSize());
+    }
+
+    @Bean(destroyMethod = "close")
+    @Profile("!" + LoadTestConfig.PROFILE)
+    public MongoClient reactiveMongoClient(ObjectProvider<MongoClientSettingsBuilderCustomizer> customizers,
+                                           MongoClientSettings settings) {
+        // 与同步客户端使用相同的定制器 (连接串、超时), 两个栈连接的是同一个库
+        return new ReactiveMongoClientFactory(customizers.orderedStream().toList()).createMongoClient(settings);
+    }
+
+    @Bean(name = MONGO_BOOKS)
+    @Profile("!" + LoadTestConfig.PROFILE)
+    public ReactiveBookRepository reactiveMongoBooks(MongoClient reactiveMongoClient, MongoProperties mongoProperties,
+                                                     ExportProperties exportProperties) {
+        ReactiveMongoTemplate template = new ReactiveMongoTemplate(
+                new SimpleReactiveMongoDatabaseFactory(reactiveMongoClient, mongoProperties.getMongoClientDatabase()));
+        return new ReactiveMongoBookRepository(template, exportProperties.fetchSize());
+    }
+
+    @Bean(name = MONGO_BOOKS)
+    @Profile(LoadTestConfig.PROFILE)
+    public ReactiveBookRepository inMemoryReactiveMongoBooks(InMemoryBookRepository mongoBookRepository) {
+        return new InMemoryReactiveBookRepository(mongoBookRepository);
+    }
+}
@@ -0,0 +1,20 @@
+package com.nantan.app.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings for the WebFlux implementation of the book API, active with the {@code reactive} profile.
+ *
+ * @param r2dbcUrl      R2DBC URL of the MySQL database the JPA stack uses, e.g. {@code r2dbc:mysql://host:3306/db}.
+ * @param r2dbcUsername database user; may also be given in the URL.
+ * @param r2dbcPassword database password; may also be given in the URL.
+ * @param poolMaxSize   maximum number of R2DBC connections.
+ */
+@ConfigurationProperties(prefix = "library.reactive")
+public record ReactiveProperties(
+        String r2dbcUrl,
+        String r2dbcUsername,
+        String r2dbcPassword,
+        @DefaultValue("20") int poolMaxSize) {
+}
@@ -0,0 +1,22 @@
+package com.nantan.app.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for collapsing concurrent reads.
+ *
+ * @param enabled          whether identical concurrent list, page and search reads share one query.
+ * @param batchWindow      how long a {@code GET /api/books/batch} lookup waits for others to share its query.
+ * @param maxBatchSize     the most IDs in one shared {@code findAllById} query; a full batch is sent at once.
+ * @param maxIdsPerRequest the most IDs a single {@code GET /api/books/batch} request may ask for.
+ */
+@ConfigurationProperties(prefix = "library.collapsing")
+public record ReadCollapsingProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("2ms") Duration batchWindow,
+        @DefaultValue("1000") int maxBatchSize,
+        @DefaultValue("100") int maxIdsPerRequest) {
+}
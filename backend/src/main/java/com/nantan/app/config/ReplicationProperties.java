@@ -0,0 +1,24 @@
+package com.nantan.app.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for replicating MySQL writes to MongoDB through the transactional outbox.
+ *
+ * @param enabled        whether writes to MySQL are recorded in the outbox and relayed to MongoDB.
+ * @param batchSize      maximum number of outbox entries applied to MongoDB in one bulk write.
+ * @param pollInterval   pause between polls once the outbox has been drained.
+ * @param initialBackoff pause after the first failed batch; doubled after every further failure.
+ * @param maxBackoff     upper bound for the pause between retries.
+ */
+@ConfigurationProperties(prefix = "library.replication")
+public record ReplicationProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("500") int batchSize,
+        @DefaultValue("200ms") Duration pollInterval,
+        @DefaultValue("1s") Duration initialBackoff,
+        @DefaultValue("1m") Duration maxBackoff) {
+}
@@ -0,0 +1,104 @@
+package com.nantan.app.config;
+
+import com.nantan.app.BookRepository;
+import com.nantan.app.DataSources;
+import com.nantan.app.cache.CachingBookRepository;
+import com.nantan.app.cache.CollectionVersions;
+import com.nantan.app.cache.VersionedBookRepository;
+import com.nantan.app.limit.AdaptiveConcurrencyLimiter;
+import com.nantan.app.limit.LimitingBookRepository;
+import com.nantan.app.metrics.MeteredBookRepository;
+import com.nantan.app.tracing.RequestTracing;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Assembles the repositories the service layer talks to.
+ * The Spring Data repositories ({@code jpaBookRepository}, {@code mongoBookRepository}) and the local store
+ * ({@code localBookRepository}, see {@link LocalStoreConfig}) are wrapped in decorators here, and the service injects the outermost layer by the names below.
+ * From the outside in: cache, collection version, concurrency limiter, metrics, Spring Data repository.
+ * Cache hits therefore never count against a data source's concurrency limit, and the timers only see calls
+ * that reached the database.
+ */
+@Configuration
+public class RepositoryConfig {
+
+    public static final String MYSQL_BOOKS = "mysqlBooks";
+    public static final String MONGO_BOOKS = "mongoBooks";
+    public static final String LOCAL_BOOKS = "localBooks";
+
+    @Bean
+    public AdaptiveConcurrencyLimiter mysqlLimiter(ConcurrencyLimitProperties limitProperties) {
+        return new AdaptiveConcurrencyLimiter(DataSources.MYSQL, limitProperties);
+    }
+
+    @Bean
+    public AdaptiveConcurrencyLimiter mongoLimiter(ConcurrencyLimitProperties limitProperties) {
+        return new AdaptiveConcurrencyLimiter(DataSources.MONGO, limitProperties);
+    }
+
+    @Bean
+    public AdaptiveConcurrencyLimiter localLimiter(ConcurrencyLimitProperties limitProperties) {
+        return new AdaptiveConcurrencyLimiter(DataSources.LOCAL, limitProperties);
+    }
+
+    @Bean(name = MYSQL_BOOKS)
+    public CachingBookRepository mysqlBooks(
+            @Qualifier("jpaBookRepository") BookRepository jpaRepository,
+            @Qualifier("mysqlLimiter") AdaptiveConcurrencyLimiter limiter,
+            ConcurrencyLimitProperties limitProperties,
+            ImportProperties importProperties,
+            BookCacheProperties cacheProperties,
+            CollectionVersions versions,
+            MeterRegistry meterRegistry,
+            RequestTracing tracing) {
+        BookRepository metered = new MeteredBookRepository(DataSources.MYSQL, jpaRepository, meterRegistry, tracing);
+        BookRepository versioned = new VersionedBookRepository(DataSources.MYSQL,
+                limited(DataSources.MYSQL, metered, limiter, limitProperties, importProperties), versions);
+        return new CachingBookRepository(DataSources.MYSQL, versioned, cacheProperties);
+    }
+
+    @Bean(name = MONGO_BOOKS)
+    public CachingBookRepository mongoBooks(
+            @Qualifier("mongoBookRepository") BookRepository mongoRepository,
+            @Qualifier("mongoLimiter") AdaptiveConcurrencyLimiter limiter,
+            ConcurrencyLimitProperties limitProperties,
+            ImportProperties importProperties,
+            BookCacheProperties cacheProperties,
+            CollectionVersions versions,
+            MeterRegistry meterRegistry,
+            RequestTracing tracing) {
+        BookRepository metered = new MeteredBookRepository(DataSources.MONGO, mongoRepository, meterRegistry, tracing);
+        BookRepository versioned = new VersionedBookRepository(DataSources.MONGO,
+                limited(DataSources.MONGO, metered, limiter, limitProperties, importProperties), versions);
+        return new CachingBookRepository(DataSources.MONGO, versioned, cacheProperties);
+    }
+
+    @Bean(name = LOCAL_BOOKS)
+    public CachingBookRepository localBooks(
+            @Qualifier("localBookRepository") BookRepository localRepository,
+            @Qualifier("localLimiter") AdaptiveConcurrencyLimiter limiter,
+            ConcurrencyLimitProperties limitProperties,
+            ImportProperties importProperties,
+            BookCacheProperties cacheProperties,
+            CollectionVersions versions,
+            MeterRegistry meterRegistry,
+            RequestTracing tracing) {
+        BookRepository metered = new MeteredBookRepository(DataSources.LOCAL, localRepository, meterRegistry, tracing);
+        BookRepository versioned = new VersionedBookRepository(DataSources.LOCAL,
+                limited(DataSources.LOCAL, metered, limiter, limitProperties, importProperties), versions);
+        return new CachingBookRepository(DataSources.LOCAL, versioned, cacheProperties);
+    }
+
+    private static BookRepository limited(String dataSource, BookRepository repository,
+                                          AdaptiveConcurrencyLimiter limiter, ConcurrencyLimitProperties properties,
+                                          ImportProperties importProperties) {
+        if (!properties.enabled()) {
+            return repository;
+        }
+        return new LimitingBookRepository(dataSource, repository, limiter, properties.operationTimeout(),
+                importProperties.chunkSize());
+    }
+}
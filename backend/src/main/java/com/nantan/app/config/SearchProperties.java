@@ -0,0 +1,20 @@
+package com.nantan.app.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings for the in-memory title/author search index.
+ *
+ * @param enabled             whether the indexes are built at startup; search answers 503 when disabled.
+ * @param defaultResults      number of results returned when the request does not specify a limit.
+ * @param maxResults          upper bound for the {@code limit} parameter.
+ * @param compactionThreshold number of deleted books after which posting lists are purged of them.
+ */
+@ConfigurationProperties(prefix = "library.search")
+public record SearchProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("20") int defaultResults,
+        @DefaultValue("100") int maxResults,
+        @DefaultValue("4096") int compactionThreshold) {
+}
@@ -0,0 +1,16 @@
+package com.nantan.app.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings for the in-process catalog snapshot.
+ *
+ * @param enabled        whether the snapshots are built at startup; the snapshot endpoints answer 503 when disabled.
+ * @param mergeThreshold number of pending writes after which the delta is merged into the base segment.
+ */
+@ConfigurationProperties(prefix = "library.snapshot")
+public record SnapshotProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("4096") int mergeThreshold) {
+}
@@ -0,0 +1,79 @@
+package com.nantan.app.config;
+
+import com.nantan.app.DataSources;
+import com.nantan.app.DisabledBookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.transaction.support.TransactionOperations;
+
+/**
+ * Beans behind {@link StartupProperties}.
+ * <p>
+ * With {@code library.startup.mongo-enabled=false}, {@link StartupEnvironmentPostProcessor} has already excluded
+ * Spring Boot's MongoDB auto-configuration, {@link MongoConfig} and the load-test stand-in back off, and a
+ * {@link DisabledBookRepository} takes the {@code mongoBookRepository} bean name instead.
+ * <p>
+ * {@code library.startup.mysql-enabled=false} works the same way for the JDBC {@code DataSource}, Hibernate and the
+ * JPA repositories ({@link JpaConfig} backs off, {@code jpaBookRepository} is a {@link DisabledBookRepository}).
+ * With no transaction manager left, the service writes run without a transaction, and the book ID sequence moves
+ * to the local store (see {@link IdAllocationConfig}).
+ * <p>
+ * With {@code library.startup.background-jpa-bootstrap=true}, Hibernate builds the entity manager factory on its
+ * own thread, in parallel with the rest of the context and the web server. The JPA repositories are bootstrapped
+ * lazily (see {@link JpaConfig}), so nothing waits for Hibernate until the first MySQL call, which blocks until it
+ * is ready.
+ */
+@Configuration
+public class StartupConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupConfig.class);
+
+    public static final String MYSQL_ENABLED_PROPERTY = "library.startup.mysql-enabled";
+    public static final String MONGO_ENABLED_PROPERTY = "library.startup.mongo-enabled";
+
+    public StartupConfig(StartupProperties properties, ReplicationProperties replicationProperties) {
+        if (!properties.mongoEnabled() && replicationProperties.enabled()) {
+            throw new IllegalStateException("library.replication.enabled writes to MongoDB; "
+                    + "it cannot be combined with " + MONGO_ENABLED_PROPERTY + "=false");
+        }
+        if (!properties.mysqlEnabled() && replicationProperties.enabled()) {
+            throw new IllegalStateException("library.replication.enabled reads the MySQL outbox; "
+                    + "it cannot be combined with " + MYSQL_ENABLED_PROPERTY + "=false");
+        }
+    }
+
+    @Bean(name = "jpaBookRepository")
+    @ConditionalOnProperty(name = MYSQL_ENABLED_PROPERTY, havingValue = "false")
+    public DisabledBookRepository disabledJpaBookRepository() {
+        logger.info("The {} data source is disabled ({}=false)", DataSources.MYSQL, MYSQL_ENABLED_PROPERTY);
+        return new DisabledBookRepository(DataSources.MYSQL);
+    }
+
+    /**
+     * Takes the place of the {@code TransactionTemplate} Spring Boot only creates around a transaction manager.
+     */
+    @Bean
+    @ConditionalOnProperty(name = MYSQL_ENABLED_PROPERTY, havingValue = "false")
+    public TransactionOperations transactionOperations() {
+        return TransactionOperations.withoutTransaction();
+    }
+
+    @Bean(name = "mongoBookRepository")
+    @ConditionalOnProperty(name = MONGO_ENABLED_PROPERTY, havingValue = "false")
+    public DisabledBookRepository disabledMongoBookRepository() {
+        logger.info("The {} data source is disabled ({}=false)", DataSources.MONGO, MONGO_ENABLED_PROPERTY);
+        return new DisabledBookRepository(DataSources.MONGO);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "library.startup", name = "background-jpa-bootstrap", havingValue = "true")
+    public EntityManagerFactoryBuilderCustomizer backgroundJpaBootstrap() {
+        logger.info("Bootstrapping JPA in the background");
+        return builder -> builder.setBootstrapExecutor(new SimpleAsyncTaskExecutor("JpaBootstrap-"));
+    }
+}
@@ -0,0 +1,61 @@
+package com.nantan.app.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.data.jpa.JpaRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.mongo.MongoDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.mongo.MongoRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.sql.init.SqlInitializationAutoConfiguration;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Turns {@code library.startup.mongo-enabled=false} into an exclusion of Spring Boot's MongoDB auto-configuration,
+ * so a MySQL-only instance never creates a MongoDB client, mapping context or template, and
+ * {@code library.startup.mysql-enabled=false} into an exclusion of the JDBC, Hibernate and JPA auto-configuration,
+ * so an instance without MySQL never opens a connection pool or builds an entity manager factory. This has to happen before
+ * auto-configuration is evaluated, hence an environment post-processor (registered in
+ * {@code META-INF/spring.factories}) rather than a condition. Exclusions already configured are kept.
+ */
+public class StartupEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+    private static final String EXCLUDE_PROPERTY = "spring.autoconfigure.exclude";
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        boolean mysqlEnabled = environment.getProperty(StartupConfig.MYSQL_ENABLED_PROPERTY, Boolean.class, true);
+        boolean mongoEnabled = environment.getProperty(StartupConfig.MONGO_ENABLED_PROPERTY, Boolean.class, true);
+        if (mysqlEnabled && mongoEnabled) {
+            return;
+        }
+        Set<String> excluded = new LinkedHashSet<>(Binder.get(environment)
+                .bind(EXCLUDE_PROPERTY, Bindable.setOf(String.class))
+                .orElse(Set.of()));
+        if (!mysqlEnabled) {
+            excluded.add(DataSourceAutoConfiguration.class.getName());
+            excluded.add(DataSourceTransactionManagerAutoConfiguration.class.getName());
+            excluded.add(JdbcTemplateAutoConfiguration.class.getName());
+            excluded.add(SqlInitializationAutoConfiguration.class.getName());
+            excluded.add(HibernateJpaAutoConfiguration.class.getName());
+            excluded.add(JpaRepositoriesAutoConfiguration.class.getName());
+        }
+        if (!mongoEnabled) {
+            excluded.add(MongoAutoConfiguration.class.getName());
+            excluded.add(MongoDataAutoConfiguration.class.getName());
+            excluded.add(MongoRepositoriesAutoConfiguration.class.getName());
+        }
+        environment.getPropertySources().addFirst(new MapPropertySource("libraryStartup",
+                Map.of(EXCLUDE_PROPERTY, String.join(",", excluded))));
+    }
+}
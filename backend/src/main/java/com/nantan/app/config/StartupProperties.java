@@ -0,0 +1,46 @@
+package com.nantan.app.config;
+
+import com.nantan.app.DataSources;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Startup settings for instances that need to come up quickly.
+ *
+ * @param mysqlEnabled           whether this instance serves {@code dataSource=mysql}. When false, no JDBC
+ *                               {@code DataSource}, Hibernate or JPA repository is created, requests for mysql answer
+ *                               503, and the book ID sequence is kept in the local store, which must be enabled.
+ * @param mongoEnabled           whether this instance serves {@code dataSource=mongo}. When false, no MongoDB client,
+ *                               template or repository is created at all, and requests for mongo answer 503.
+ * @param localEnabled           whether this instance serves {@code dataSource=local} from the embedded store
+ *                               configured by {@link LocalStoreProperties}. When false, requests for local answer 503.
+ * @param backgroundJpaBootstrap whether Hibernate is bootstrapped on a background thread. Startup then continues
+ *                               without waiting for it, and the first call to MySQL waits for it instead.
+ */
+@ConfigurationProperties(prefix = "library.startup")
+public record StartupProperties(
+        @DefaultValue("true") boolean mysqlEnabled,
+        @DefaultValue("true") boolean mongoEnabled,
+        @DefaultValue("false") boolean localEnabled,
+        @DefaultValue("false") boolean backgroundJpaBootstrap) {
+
+    /**
+     * The data sources this instance serves, in {@link DataSources#ALL} order.
+     */
+    public List<String> dataSources() {
+        List<String> dataSources = new ArrayList<>(DataSources.ALL);
+        if (!mysqlEnabled) {
+            dataSources.remove(DataSources.MYSQL);
+        }
+        if (!mongoEnabled) {
+            dataSources.remove(DataSources.MONGO);
+        }
+        if (!localEnabled) {
+            dataSources.remove(DataSources.LOCAL);
+        }
+        return List.copyOf(dataSources);
+    }
+}
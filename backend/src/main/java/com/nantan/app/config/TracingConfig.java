@@ -0,0 +1,28 @@
+package com.nantan.app.config;
+
+import com.nantan.app.tracing.JsonLinesSpanExporter;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+
+/**
+ * Span export. Spring Boot exports to an OTLP collector when {@code management.otlp.tracing.endpoint} is set;
+ * {@code library.tracing.export-file} adds a local file, and both can be active at once.
+ */
+@Configuration
+public class TracingConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(TracingConfig.class);
+
+    @Bean
+    @ConditionalOnProperty(prefix = "library.tracing", name = "export-file")
+    public SpanExporter fileSpanExporter(TracingProperties properties) throws IOException {
+        logger.info("Writing sampled spans to {}", properties.exportFile().toAbsolutePath());
+        return new JsonLinesSpanExporter(properties.exportFile());
+    }
+}
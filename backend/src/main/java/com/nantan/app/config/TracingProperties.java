@@ -0,0 +1,14 @@
+package com.nantan.app.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+
+/**
+ * Settings for request tracing beyond what {@code management.tracing.*} and {@code management.otlp.tracing.*} cover.
+ *
+ * @param exportFile if set, sampled spans are also appended to this file as JSON lines; unset by default.
+ */
+@ConfigurationProperties(prefix = "library.tracing")
+public record TracingProperties(Path exportFile) {
+}
@@ -0,0 +1,67 @@
+package com.nantan.app.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.nantan.app.tracing.RequestTracing;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * Registers CBOR ({@code application/cbor}) and Smile ({@code application/x-jackson-smile}) message
+ * converters next to JSON. Spring Boot adds {@code HttpMessageConverter} beans to MVC's converter list,
+ * so every endpoint that reads or writes a body negotiates these formats through Accept and Content-Type.
+ * <p>
+ * All three converters, JSON included (it replaces Spring Boot's default one), write the response body
+ * inside a {@code serialize <format>} span when the request is traced.
+ */
+@Configuration
+public class WireFormatConfig {
+
+    @Bean
+    public WireFormats wireFormats(ObjectMapper objectMapper, Jackson2ObjectMapperBuilder builder) {
+        // The builder bean is prototype-scoped and configured from spring.jackson.*; each build() returns a new mapper
+        ObjectMapper cbor = builder.factory(new CBORFactory()).build();
+        ObjectMapper smile = builder.factory(new SmileFactory()).build();
+        return new WireFormats(objectMapper, cbor, smile);
+    }
+
+    @Bean
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper,
+                                                                                 RequestTracing tracing) {
+        return new MappingJackson2HttpMessageConverter(objectMapper) {
+            @Override
+            protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+                tracing.serialize("json", () -> super.writeInternal(object, type, outputMessage));
+            }
+        };
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(WireFormats wireFormats, RequestTracing tracing) {
+        return new MappingJackson2CborHttpMessageConverter(wireFormats.cbor()) {
+            @Override
+            protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+                tracing.serialize("cbor", () -> super.writeInternal(object, type, outputMessage));
+            }
+        };
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(WireFormats wireFormats, RequestTracing tracing) {
+        return new MappingJackson2SmileHttpMessageConverter(wireFormats.smile()) {
+            @Override
+            protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+                tracing.serialize("smile", () -> super.writeInternal(object, type, outputMessage));
+            }
+        };
+    }
+}
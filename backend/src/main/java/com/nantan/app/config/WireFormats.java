@@ -0,0 +1,78 @@
+package com.nantan.app.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Jackson-backed wire formats the API speaks: JSON, CBOR and Smile.
+ * All three mappers are built from Spring Boot's {@code Jackson2ObjectMapperBuilder}, so a book
+ * has the same shape whichever format carries it; the binary formats just encode it more compactly.
+ */
+public class WireFormats {
+
+    public static final MediaType APPLICATION_SMILE = MediaType.valueOf("application/x-jackson-smile");
+
+    private final Map<MediaType, ObjectMapper> mappers = new LinkedHashMap<>();
+
+    public WireFormats(ObjectMapper json, ObjectMapper cbor, ObjectMapper smile) {
+        mappers.put(MediaType.APPLICATION_JSON, json);
+        mappers.put(MediaType.APPLICATION_CBOR, cbor);
+        mappers.put(APPLICATION_SMILE, smile);
+    }
+
+    public ObjectMapper json() {
+        return mappers.get(MediaType.APPLICATION_JSON);
+    }
+
+    public ObjectMapper cbor() {
+        return mappers.get(MediaType.APPLICATION_CBOR);
+    }
+
+    public ObjectMapper smile() {
+        return mappers.get(APPLICATION_SMILE);
+    }
+
+    /**
+     * Returns the mapper for a binary format, or null if the media type is not CBOR or Smile.
+     */
+    public ObjectMapper binaryMapperFor(MediaType contentType) {
+        if (MediaType.APPLICATION_CBOR.isCompatibleWith(contentType)) {
+            return cbor();
+        }
+        if (APPLICATION_SMILE.isCompatibleWith(contentType)) {
+            return smile();
+        }
+        return null;
+    }
+
+    /**
+     * Picks the format a response to the given {@code Accept} header will be written in, following the
+     * header's order of preference (quality value first, then position). Defaults to JSON.
+     */
+    public MediaType negotiate(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return MediaType.APPLICATION_JSON;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (IllegalArgumentException e) {
+            return MediaType.APPLICATION_JSON;
+        }
+        // List.sort is stable, so equally weighted types keep the client's order
+        accepted.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        for (MediaType candidate : accepted) {
+            for (MediaType format : mappers.keySet()) {
+                if (candidate.isCompatibleWith(format)) {
+                    return format;
+                }
+            }
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+}
@@ -0,0 +1,22 @@
+package com.nantan.app.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for grouping concurrent {@code POST /api/books} calls into one write per data source.
+ *
+ * @param enabled       whether adds are coalesced; when false every add is its own transaction.
+ * @param window        how long the first add of a batch waits for others to join it.
+ * @param maxBatchSize  a batch is written as soon as it holds this many books, even within the window.
+ * @param queueCapacity adds waiting for a batch, per data source; beyond it requests are rejected with 503.
+ */
+@ConfigurationProperties(prefix = "library.coalescing")
+public record WriteCoalescingProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("2ms") Duration window,
+        @DefaultValue("100") int maxBatchSize,
+        @DefaultValue("10000") int queueCapacity) {
+}
@@ -0,0 +1,63 @@
+package com.nantan.app.controller;
+
+import com.nantan.app.dto.ApiResponse;
+import com.nantan.app.stats.AuthorCount;
+import com.nantan.app.stats.AuthorStatsService;
+import com.nantan.app.stats.AuthorStatsSummary;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Author statistics, answered from aggregates kept in memory; no request scans the data source.
+ * Plain return values, so the controller serves the servlet and the reactive stack alike.
+ */
+@Tag(name = "Book Statistics", description = "Books-per-author aggregates maintained incrementally")
+@CrossOrigin
+@RestController
+@RequestMapping("/api/books/stats/authors")
+public class AuthorStatsController {
+
+    private final AuthorStatsService authorStatsService;
+
+    public AuthorStatsController(AuthorStatsService authorStatsService) {
+        this.authorStatsService = authorStatsService;
+    }
+
+    @Operation(summary = "Author statistics totals",
+            description = "Books, distinct authors and books without an author, plus the drift found by the last reconciliation.")
+    @GetMapping
+    public ApiResponse<AuthorStatsSummary> getSummary(
+            @Parameter(description = "The data source to use ('mysql', 'mongo' or 'local')", example = "mysql")
+            @RequestParam(name = "dataSource", defaultValue = "mysql") String dataSource) {
+        return ApiResponse.success(authorStatsService.summary(dataSource));
+    }
+
+    @Operation(summary = "Top authors by number of books",
+            description = "The authors with the most books, most first; equal counts are ordered by name.")
+    @GetMapping("/top")
+    public ApiResponse<List<AuthorCount>> getTopAuthors(
+            @Parameter(description = "Number of authors, capped at library.author-stats.max-top", example = "10")
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @Parameter(description = "The data source to use ('mysql', 'mongo' or 'local')", example = "mysql")
+            @RequestParam(name = "dataSource", defaultValue = "mysql") String dataSource) {
+        return ApiResponse.success(authorStatsService.top(dataSource, limit));
+    }
+
+    @Operation(summary = "Number of books by one author", description = "Exact match on the author's name; 0 for an unknown author.")
+    @GetMapping("/count")
+    public ApiResponse<AuthorCount> getAuthorCount(
+            @Parameter(description = "The author's name", required = true, example = "J.R.R. Tolkien")
+            @RequestParam(name = "author") String author,
+            @Parameter(description = "The data source to use ('mysql', 'mongo' or 'local')", example = "mysql")
+            @RequestParam(name = "dataSource", defaultValue = "mysql") String dataSource) {
+        return ApiResponse.success(authorStatsService.count(dataSource, author));
+    }
+}
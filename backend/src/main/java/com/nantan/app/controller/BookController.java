@@ -1,18 +1,43 @@
 package com.nantan.app.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import com.nantan.app.Book;
+import com.nantan.app.BookQuery;
+import com.nantan.app.DataSources;
+import com.nantan.app.coalesce.WriteCoalescer;
+import com.nantan.app.config.ReactiveConfig;
+import com.nantan.app.config.ReadCollapsingProperties;
+import com.nantan.app.config.WireFormats;
 import com.nantan.app.dto.ApiResponse;
+import com.nantan.app.dto.BookPage;
+import com.nantan.app.dto.DeleteReport;
+import com.nantan.app.dto.ImportReport;
+import com.nantan.app.importer.BookRecordReader;
 import com.nantan.app.service.BookService;
+import com.nantan.app.snapshot.CatalogSnapshot;
+import com.nantan.app.snapshot.CatalogSnapshotService;
+import com.nantan.app.tracing.RequestTracing;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
@@ -20,46 +45,276 @@ import java.util.concurrent.CompletableFuture;
 @CrossOrigin
 @RestController
 @RequestMapping("/api/books")
+@Profile("!" + ReactiveConfig.PROFILE)
 public class BookController {
 
     private static final Logger logger = LoggerFactory.getLogger(BookController.class);
+
+    /**
+     * Browsers and shared caches may store the list but must revalidate it with the ETag before every reuse.
+     */
+    private static final CacheControl LIST_CACHE_CONTROL = CacheControl.noCache();
+
     private final BookService bookService;
+    private final CatalogSnapshotService snapshotService;
+    private final WriteCoalescer writeCoalescer;
+    private final WireFormats wireFormats;
+    private final RequestTracing tracing;
+    private final ReadCollapsingProperties collapsing;
 
     @Autowired
-    public BookController(BookService bookService) {
+    public BookController(BookService bookService, CatalogSnapshotService snapshotService,
+                          WriteCoalescer writeCoalescer, WireFormats wireFormats, RequestTracing tracing,
+                          ReadCollapsingProperties collapsing) {
         this.bookService = bookService;
+        this.snapshotService = snapshotService;
+        this.writeCoalescer = writeCoalescer;
+        this.wireFormats = wireFormats;
+        this.tracing = tracing;
+        this.collapsing = collapsing;
     }
 
-    @Operation(summary = "Get all books asynchronously", description = "Asynchronously retrieves a list of all books.")
+    @Operation(summary = "Get all books asynchronously",
+            description = "Asynchronously retrieves books ordered by ID, capped at library.pagination.unpaged-max-results. Use /api/books/page to walk the whole catalog. "
+                    + "The optional filters (author, titlePrefix, minId, maxId), sort and fields are answered by the data source from its indexes. "
+                    + "The response carries a weak ETag; a request whose If-None-Match still matches is answered with 304 without querying the data source. "
+                    + "Send Accept: application/cbor or application/x-jackson-smile for a binary body.")
     @GetMapping
-    public CompletableFuture<ApiResponse<List<Book>>> getAllBooks(
-            @Parameter(description = "The data source to use ('mysql' or 'mongo')", example = "mysql")
+    public CompletableFuture<ResponseEntity<ApiResponse<List<Book>>>> getAllBooks(
+            @Parameter(description = "The data source to use ('mysql', 'mongo' or 'local')", example = "mysql")
+            @RequestParam(name = "dataSource", defaultValue = "mysql") String dataSource,
+            @Parameter(description = "Only books by exactly this author", example = "Craig Walls")
+            @RequestParam(name = "author", required = false) String author,
+            @Parameter(description = "Only books whose title starts with this text", example = "Spring")
+            @RequestParam(name = "titlePrefix", required = false) String titlePrefix,
+            @Parameter(description = "The lowest ID to include", example = "100")
+            @RequestParam(name = "minId", required = false) Integer minId,
+            @Parameter(description = "The highest ID to include", example = "200")
+            @RequestParam(name = "maxId", required = false) Integer maxId,
+            @Parameter(description = "Order: id, -id, title or -title", example = "title")
+            @RequestParam(name = "sort", required = false) String sort,
+            @Parameter(description = "Comma-separated fields to return (id is always included); the others are null", example = "id,title")
+            @RequestParam(name = "fields", required = false) String fields,
+            @Parameter(description = "Maximum number of results, capped at library.pagination.unpaged-max-results", example = "100")
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept) {
+
+        logger.debug("Received getAllBooks request on thread: {}", Thread.currentThread().getName());
+
+        BookQuery query;
+        try {
+            query = new BookQuery(author, titlePrefix == null || titlePrefix.isEmpty() ? null : titlePrefix, minId, maxId,
+                    sort == null ? null : BookQuery.Order.parse(sort), fields == null ? null : BookQuery.Field.parseList(fields));
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(new ResponseEntity<>(ApiResponse.failure(4000, e.getMessage()), HttpStatus.BAD_REQUEST));
+        }
+
+        // 版本号必须在读取数据之前取得: 这样 ETag 只可能比响应内容旧，而不会比它新
+        // JSON / CBOR / Smile 各自带不同的标签; 使用弱 ETag, 否则 Tomcat 不会压缩带强 ETag 的响应
+        String opaqueTag = "\"" + DataSources.resolve(dataSource) + "-" + bookService.getCollectionVersion(dataSource)
+                + "-" + wireFormats.negotiate(accept).getSubtype() + "\"";
+        String etag = "W/" + opaqueTag;
+        if (matchesAny(ifNoneMatch, opaqueTag)) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag).cacheControl(LIST_CACHE_CONTROL).varyBy(HttpHeaders.ACCEPT).build());
+        }
+
+        CompletableFuture<List<Book>> listing = query.isUnfiltered() && limit == null
+                ? bookService.getAllBooks(dataSource)
+                : bookService.findBooks(query, limit, dataSource);
+        return listing
+                .thenApply(tracing.continuation("getAllBooks response", books -> {
+                    logger.debug("Completing getAllBooks request on thread: {}", Thread.currentThread().getName());
+                    return ResponseEntity.ok().eTag(etag).cacheControl(LIST_CACHE_CONTROL).varyBy(HttpHeaders.ACCEPT)
+                            .body(ApiResponse.success(books));
+                }));
+    }
+
+    @Operation(summary = "Get one page of books asynchronously",
+            description = "Keyset pagination: pass the returned nextCursor as afterId to fetch the next page.")
+    @GetMapping("/page")
+    public CompletableFuture<ApiResponse<BookPage>> getBooksPage(
+            @Parameter(description = "Return books with an ID greater than this cursor; omit for the first page")
+            @RequestParam(name = "afterId", required = false) Integer afterId,
+            @Parameter(description = "Page size, capped at library.pagination.max-page-size", example = "50")
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @Parameter(description = "The data source to use ('mysql', 'mongo' or 'local')", example = "mysql")
+            @RequestParam(name = "dataSource", defaultValue = "mysql") String dataSource) {
+
+        logger.debug("Received getBooksPage request on thread: {}", Thread.currentThread().getName());
+
+        return bookService.getBooksPage(afterId, limit, dataSource)
+                .thenApply(tracing.continuation("getBooksPage response", ApiResponse::success));
+    }
+
+    @Operation(summary = "Get one page of books from the in-process snapshot",
+            description = "Same response as /api/books/page, served from the memory-compact catalog snapshot without touching the data source. "
+                    + "Titles are copied straight from the snapshot's UTF-8 arena into the JSON output. "
+                    + "Reflects committed writes shortly after they commit; answers 503 while the snapshot is being built or when library.snapshot.enabled=false.")
+    @GetMapping("/snapshot")
+    public void getSnapshotPage(
+            @Parameter(description = "Return books with an ID greater than this cursor; omit for the first page")
+            @RequestParam(name = "afterId", required = false) Integer afterId,
+            @Parameter(description = "Page size, capped at library.pagination.max-page-size", example = "50")
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @Parameter(description = "The data source to use ('mysql', 'mongo' or 'local')", example = "mysql")
+            @RequestParam(name = "dataSource", defaultValue = "mysql") String dataSource,
+            HttpServletResponse response) throws IOException {
+
+        logger.debug("Received getSnapshotPage request on thread: {}", Thread.currentThread().getName());
+
+        CatalogSnapshot snapshot = snapshotService.snapshot(dataSource);
+        int pageSize = snapshotService.pageSize(limit);
+        // 先写入缓冲区: 快照的读锁不能在等待慢客户端的网络写入时一直持有
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(pageSize * 64);
+        try (JsonGenerator json = wireFormats.json().getFactory().createGenerator(buffer)) {
+            writeSnapshotPage(json, snapshot, afterId == null ? Integer.MIN_VALUE : afterId, pageSize);
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(buffer.size());
+        buffer.writeTo(response.getOutputStream());
+    }
+
+    @Operation(summary = "Get a book by ID from the in-process snapshot",
+            description = "Looks the book up in the catalog snapshot without touching the data source.")
+    @GetMapping("/snapshot/{id}")
+    public ResponseEntity<ApiResponse<Book>> getSnapshotBook(
+            @Parameter(description = "The unique ID of the book", required = true)
+            @PathVariable("id") int bookId,
+            @Parameter(description = "The data source to use ('mysql', 'mongo' or 'local')", example = "mysql")
+            @RequestParam(name = "dataSource", defaultValue = "mysql") String dataSource) {
+
+        Book book = snapshotService.snapshot(dataSource).find(bookId);
+        if (book == null) {
+            return new ResponseEntity<>(ApiResponse.failure(4040, "Book not found with id: " + bookId), HttpStatus.NOT_FOUND);
+        }
+        return ResponseEntity.ok(ApiResponse.success(book));
+    }
+
+    @Operation(summary = "Search books by title and author",
+            description = "Matches every query word against title and author words, as a whole word or as a prefix. "
+                    + "Title matches rank above author matches, whole words above prefixes. Answers 503 while the index is being built.")
+    @GetMapping("/search")
+    public CompletableFuture<ApiResponse<List<Book>>> searchBooks(
+            @Parameter(description = "Search terms", example = "java")
+            @RequestParam(name = "q") String query,
+            @Parameter(description = "Maximum number of results, capped at library.search.max-results", example = "20")
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @Parameter(description = "The data source to use ('mysql', 'mongo' or 'local')", example = "mysql")
+            @RequestParam(name = "dataSource", defaultValue = "mysql") String dataSource) {
+
+        logger.debug("Received searchBooks request on thread: {}", Thread.currentThread().getName());
+
+        return bookService.searchBooks(query, limit, dataSource)
+                .thenApply(tracing.continuation("searchBooks response", ApiResponse::success));
+    }
+
+    @Operation(summary = "Get several books by ID",
+            description = "Returns the books with the given IDs in the order given, leaving out IDs that do not exist. "
+                    + "Lookups from concurrent requests are combined into one query within library.collapsing.batch-window. "
+                    + "At most library.collapsing.max-ids-per-request IDs per request.")
+    @GetMapping("/batch")
+    public CompletableFuture<ResponseEntity<ApiResponse<List<Book>>>> getBooksByIds(
+            @Parameter(description = "Comma-separated IDs of the books to get", required = true, example = "101,102,103")
+            @RequestParam(name = "ids") List<Integer> bookIds,
+            @Parameter(description = "The data source to use ('mysql', 'mongo' or 'local')", example = "mysql")
             @RequestParam(name = "dataSource", defaultValue = "mysql") String dataSource) {
 
-        logger.info("Received getAllBooks request on thread: {}", Thread.currentThread().getName());
+        logger.debug("Received getBooksByIds request for {} ids on thread: {}", bookIds.size(), Thread.currentThread().getName());
+
+        if (bookIds.size() > collapsing.maxIdsPerRequest()) {
+            return CompletableFuture.completedFuture(new ResponseEntity<>(ApiResponse.failure(4000,
+                    "At most " + collapsing.maxIdsPerRequest() + " ids per request"), HttpStatus.BAD_REQUEST));
+        }
+        return bookService.getBooksByIds(bookIds, dataSource)
+                .thenApply(tracing.continuation("getBooksByIds response", books -> ResponseEntity.ok(ApiResponse.success(books))));
+    }
+
+    @Operation(summary = "Export the whole catalog as NDJSON",
+            description = "Streams one JSON document per line straight from a database cursor; memory use does not depend on the catalog size.")
+    @GetMapping("/export")
+    public void exportBooks(
+            @Parameter(description = "The data source to use ('mysql', 'mongo' or 'local')", example = "mysql")
+            @RequestParam(name = "dataSource", defaultValue = "mysql") String dataSource,
+            HttpServletResponse response) throws IOException {
+
+        logger.debug("Received exportBooks request on thread: {}", Thread.currentThread().getName());
 
-        return bookService.getAllBooks(dataSource)
-                .thenApply(books -> {
-                    logger.info("Completing getAllBooks request on thread: {}", Thread.currentThread().getName());
-                    return ApiResponse.success(books);
-                });
+        // 同步写出: 数据库游标的生命周期与响应输出流绑定，客户端断开时写操作抛出异常，游标随之关闭
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        ServletOutputStream out = response.getOutputStream();
+        SequenceWriter writer = wireFormats.json().writerFor(Book.class)
+                .withRootValueSeparator("\n")
+                .writeValues(out);
+        long exported;
+        try {
+            exported = bookService.exportBooks(dataSource, book -> {
+                try {
+                    writer.write(book);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            logger.warn("Export from data source {} aborted: {}", dataSource, e.getCause().getMessage());
+            return;
+        }
+        writer.flush();
+        if (exported > 0) {
+            out.write('\n');
+        }
+        writer.close();
     }
 
-    @Operation(summary = "Add a new book asynchronously", description = "Asynchronously creates a new book.")
+    @Operation(summary = "Add a new book asynchronously",
+            description = "Asynchronously creates a new book. The body may be JSON, CBOR or Smile. "
+                    + "Omit the id to have the server assign one (returned in the response); a book with an id replaces any book with that id. "
+                    + "With library.coalescing.enabled, concurrent adds are written together in one transaction.")
     @PostMapping
     public CompletableFuture<ResponseEntity<ApiResponse<Book>>> addBook(
             @RequestBody Book book,
-            @Parameter(description = "The data source to use ('mysql' or 'mongo')", example = "mysql")
+            @Parameter(description = "The data source to use ('mysql', 'mongo' or 'local')", example = "mysql")
             @RequestParam(name = "dataSource", defaultValue = "mysql") String dataSource) {
 
-        logger.info("Received addBook request on thread: {}", Thread.currentThread().getName());
+        logger.debug("Received addBook request on thread: {}", Thread.currentThread().getName());
 
-        return bookService.addBook(book, dataSource)
-                .thenApply(savedBook -> {
-                    logger.info("Completing addBook request on thread: {}", Thread.currentThread().getName());
+        // 合并写入时不经过 @Async 的 addBook: 等待批次的请求不占用执行器线程和数据库连接
+        CompletableFuture<Book> saved = writeCoalescer.isEnabled()
+                ? writeCoalescer.submit(book, dataSource)
+                : bookService.addBook(book, dataSource);
+        return saved
+                .thenApply(tracing.continuation("addBook response", savedBook -> {
+                    logger.debug("Completing addBook request on thread: {}", Thread.currentThread().getName());
                     ApiResponse<Book> responseBody = ApiResponse.success(savedBook);
                     return new ResponseEntity<>(responseBody, HttpStatus.CREATED);
-                });
+                }));
+    }
+
+    @Operation(summary = "Bulk import books",
+            description = "Reads an NDJSON, CSV (id,title,author), CBOR or Smile body incrementally and writes it in chunks of library.import.chunk-size. "
+                    + "A binary body is a plain sequence of book values, one after another. "
+                    + "Records without an id are given one by the server. "
+                    + "Failed chunks are reported individually; the other chunks are still written.")
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, "text/csv",
+            MediaType.APPLICATION_CBOR_VALUE, "application/x-jackson-smile"})
+    public ResponseEntity<ApiResponse<ImportReport>> importBooks(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body,
+            @Parameter(description = "The data source to use ('mysql', 'mongo' or 'local')", example = "mysql")
+            @RequestParam(name = "dataSource", defaultValue = "mysql") String dataSource) throws IOException {
+
+        logger.debug("Received importBooks request on thread: {}", Thread.currentThread().getName());
+
+        ImportReport report;
+        try (BookRecordReader reader = BookRecordReader.open(contentType, body, wireFormats)) {
+            report = bookService.importBooks(reader, dataSource);
+        }
+        if (report.getError() == null && report.getFailures().isEmpty()) {
+            return ResponseEntity.ok(ApiResponse.success(report));
+        }
+        return ResponseEntity.ok(new ApiResponse<>(2070, "Import finished with failures", report));
     }
 
     @Operation(summary = "Delete a book by ID asynchronously", description = "Asynchronously deletes a book by its ID.")
@@ -67,20 +322,98 @@ public class BookController {
     public CompletableFuture<ResponseEntity<ApiResponse<Void>>> deleteBook(
             @Parameter(description = "The unique ID of the book to delete", required = true)
             @PathVariable("id") int bookId,
-            @Parameter(description = "The data source to use ('mysql' or 'mongo')", example = "mysql")
+            @Parameter(description = "The data source to use ('mysql', 'mongo' or 'local')", example = "mysql")
             @RequestParam(name = "dataSource", defaultValue = "mysql") String dataSource) {
 
-        logger.info("Received deleteBook request on thread: {}", Thread.currentThread().getName());
+        logger.debug("Received deleteBook request on thread: {}", Thread.currentThread().getName());
 
         return bookService.deleteBookById(bookId, dataSource)
-                .thenApply(deleted -> {
-                    logger.info("Completing deleteBook request on thread: {}", Thread.currentThread().getName());
+                .thenApply(tracing.continuation("deleteBook response", deleted -> {
+                    logger.debug("Completing deleteBook request on thread: {}", Thread.currentThread().getName());
                     if (deleted) {
                         return ResponseEntity.ok(ApiResponse.success());
                     } else {
                         ApiResponse<Void> failureResponse = ApiResponse.failure(4040, "Book not found with id: " + bookId);
                         return new ResponseEntity<>(failureResponse, HttpStatus.NOT_FOUND);
                     }
-                });
+                }));
+    }
+
+    @Operation(summary = "Delete several books by ID asynchronously",
+            description = "Deletes all given IDs with one statement (MySQL) or one bulk operation (MongoDB) and reports which ones were removed.")
+    @DeleteMapping
+    public CompletableFuture<ApiResponse<DeleteReport>> deleteBooks(
+            @Parameter(description = "Comma-separated IDs of the books to delete", required = true, example = "101,102,103")
+            @RequestParam(name = "ids") List<Integer> bookIds,
+            @Parameter(description = "The data source to use ('mysql', 'mongo' or 'local')", example = "mysql")
+            @RequestParam(name = "dataSource", defaultValue = "mysql") String dataSource) {
+
+        logger.debug("Received deleteBooks request for {} ids on thread: {}", bookIds.size(), Thread.currentThread().getName());
+
+        return bookService.deleteBooksByIds(bookIds, dataSource)
+                .thenApply(tracing.continuation("deleteBooks response", ApiResponse::success));
+    }
+
+    /**
+     * Writes an {@code ApiResponse<BookPage>} field by field, visiting the snapshot's rows instead of materializing books.
+     */
+    private static void writeSnapshotPage(JsonGenerator json, CatalogSnapshot snapshot, int afterId, int pageSize)
+            throws IOException {
+        int[] lastId = {afterId};
+        json.writeStartObject();
+        json.writeNumberField("code", 200);
+        json.writeStringField("message", "Success");
+        json.writeObjectFieldStart("data");
+        json.writeArrayFieldStart("items");
+        boolean more;
+        try {
+            more = snapshot.page(afterId, pageSize, (id, title, offset, length, author) -> {
+                try {
+                    json.writeStartObject();
+                    json.writeNumberField("id", id);
+                    json.writeFieldName("title");
+                    if (title == null) {
+                        json.writeNull();
+                    } else {
+                        json.writeUTF8String(title, offset, length);
+                    }
+                    json.writeStringField("author", author);
+                    json.writeEndObject();
+                    lastId[0] = id;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        json.writeEndArray();
+        json.writeFieldName("nextCursor");
+        if (more) {
+            json.writeNumber(lastId[0]);
+        } else {
+            json.writeNull();
+        }
+        json.writeEndObject();
+        json.writeEndObject();
+    }
+
+    /**
+     * If-None-Match uses the weak comparison: a {@code W/} prefix is ignored, and {@code *} matches anything.
+     */
+    private static boolean matchesAny(String ifNoneMatch, String opaqueTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
     }
-}
\ No newline at end of file
+}
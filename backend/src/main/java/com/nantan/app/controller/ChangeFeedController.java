@@ -0,0 +1,67 @@
+package com.nantan.app.controller;
+
+import com.nantan.app.config.ChangeFeedProperties;
+import com.nantan.app.config.ReactiveConfig;
+import com.nantan.app.feed.ChangeFeed;
+import com.nantan.app.feed.FeedMessage;
+import com.nantan.app.feed.FeedSink;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+
+@Tag(name = "Book Changes", description = "Live stream of committed book changes")
+@CrossOrigin
+@RestController
+@RequestMapping("/api/books")
+@Profile("!" + ReactiveConfig.PROFILE)
+public class ChangeFeedController {
+
+    private final ChangeFeed changeFeed;
+    private final ChangeFeedProperties properties;
+
+    public ChangeFeedController(ChangeFeed changeFeed, ChangeFeedProperties properties) {
+        this.changeFeed = changeFeed;
+        this.properties = properties;
+    }
+
+    @Operation(summary = "Stream book changes (Server-Sent Events)",
+            description = "Emits 'saved' and 'deleted' events, each carrying the BookChangedEvent as JSON, once the write has committed. "
+                    + "The stream starts with a 'ready' event. Reconnect with Last-Event-ID to receive what was missed; "
+                    + "a 'reset' event means that is no longer possible and the list should be reloaded.")
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(
+            @Parameter(description = "The data source to follow ('mysql', 'mongo' or 'local')", example = "mysql")
+            @RequestParam(name = "dataSource", defaultValue = "mysql") String dataSource,
+            @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId) {
+
+        SseEmitter emitter = new SseEmitter(properties.timeout().toMillis());
+        ChangeFeed.Subscription subscription = changeFeed.subscribe(dataSource, lastEventId, new FeedSink() {
+            @Override
+            public void send(FeedMessage message) throws IOException {
+                emitter.send(message.isHeartbeat()
+                        ? SseEmitter.event().comment("keep-alive")
+                        : SseEmitter.event().id(message.id()).name(message.name()).data(message.data(), MediaType.APPLICATION_JSON));
+            }
+
+            @Override
+            public void close() {
+                emitter.complete();
+            }
+        });
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(error -> subscription.cancel());
+        return emitter;
+    }
+}
@@ -0,0 +1,111 @@
+package com.nantan.app.controller;
+
+import com.nantan.app.DataSources;
+import com.nantan.app.cache.CacheStats;
+import com.nantan.app.cache.CachingBookRepository;
+import com.nantan.app.dto.ApiResponse;
+import com.nantan.app.exception.DataSourceDisabledException;
+import com.nantan.app.feed.ChangeFeed;
+import com.nantan.app.feed.FeedStats;
+import com.nantan.app.limit.AdaptiveConcurrencyLimiter;
+import com.nantan.app.limit.LimiterStats;
+import com.nantan.app.local.LocalStoreStats;
+import com.nantan.app.local.LogStructuredBookStore;
+import com.nantan.app.replication.ReplicationRelay;
+import com.nantan.app.replication.ReplicationStats;
+import com.nantan.app.search.BookSearchService;
+import com.nantan.app.search.SearchIndexStats;
+import com.nantan.app.snapshot.CatalogSnapshotService;
+import com.nantan.app.snapshot.SnapshotStats;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@Tag(name = "Diagnostics", description = "Runtime counters for tuning the book service")
+@CrossOrigin
+@RestController
+@RequestMapping("/api/diagnostics")
+public class DiagnosticsController {
+
+    private final List<CachingBookRepository> caches;
+    private final BookSearchService searchService;
+    private final List<AdaptiveConcurrencyLimiter> limiters;
+    private final ReplicationRelay replicationRelay;
+    private final CatalogSnapshotService snapshotService;
+    private final ChangeFeed changeFeed;
+    private final ObjectProvider<LogStructuredBookStore> localStore;
+
+    @Autowired
+    public DiagnosticsController(List<CachingBookRepository> caches, BookSearchService searchService,
+                                 List<AdaptiveConcurrencyLimiter> limiters, ReplicationRelay replicationRelay,
+                                 CatalogSnapshotService snapshotService, ChangeFeed changeFeed,
+                                 ObjectProvider<LogStructuredBookStore> localStore) {
+        this.caches = caches;
+        this.searchService = searchService;
+        this.limiters = limiters;
+        this.replicationRelay = replicationRelay;
+        this.snapshotService = snapshotService;
+        this.changeFeed = changeFeed;
+        this.localStore = localStore;
+    }
+
+    @Operation(summary = "Cache statistics", description = "Hit, miss and eviction counters of each cache region.")
+    @GetMapping("/cache")
+    public ApiResponse<List<CacheStats>> getCacheStats() {
+        return ApiResponse.success(caches.stream().map(CachingBookRepository::stats).toList());
+    }
+
+    @Operation(summary = "Search index statistics", description = "Size and readiness of the search index of each data source.")
+    @GetMapping("/search")
+    public ApiResponse<List<SearchIndexStats>> getSearchStats() {
+        return ApiResponse.success(searchService.stats());
+    }
+
+    @Operation(summary = "Catalog snapshot statistics",
+            description = "Books, distinct authors and pending changes of each data source's snapshot, "
+                    + "with its heap footprint next to that of the equivalent List<Book>.")
+    @GetMapping("/snapshot")
+    public ApiResponse<List<SnapshotStats>> getSnapshotStats() {
+        return ApiResponse.success(snapshotService.stats());
+    }
+
+    @Operation(summary = "Change feed statistics",
+            description = "Open streams, latest event id, replay buffer fill and disconnected slow clients of each data source's change feed.")
+    @GetMapping("/feed")
+    public ApiResponse<List<FeedStats>> getFeedStats() {
+        return ApiResponse.success(changeFeed.stats());
+    }
+
+    @Operation(summary = "Concurrency limiter statistics",
+            description = "Current limit, in-flight calls, rejections, timeouts and latency of each data source's limiter.")
+    @GetMapping("/limits")
+    public ApiResponse<List<LimiterStats>> getLimiterStats() {
+        return ApiResponse.success(limiters.stream().map(AdaptiveConcurrencyLimiter::stats).toList());
+    }
+
+    @Operation(summary = "Replication statistics",
+            description = "Outbox backlog, applied entries, failures and lag of the MySQL to MongoDB relay.")
+    @GetMapping("/replication")
+    public ApiResponse<ReplicationStats> getReplicationStats() {
+        return ApiResponse.success(replicationRelay.stats());
+    }
+
+    @Operation(summary = "Local store statistics",
+            description = "Log size and garbage, index size, pending changes, fsyncs, checkpoints, compactions and "
+                    + "startup recovery of the embedded store behind dataSource=local.")
+    @GetMapping("/local-store")
+    public ApiResponse<LocalStoreStats> getLocalStoreStats() {
+        LogStructuredBookStore store = localStore.getIfAvailable();
+        if (store == null) {
+            throw new DataSourceDisabledException(DataSources.LOCAL);
+        }
+        return ApiResponse.success(store.stats());
+    }
+}
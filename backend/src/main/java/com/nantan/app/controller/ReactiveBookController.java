@@ -0,0 +1,130 @@
+package com.nantan.app.controller;
+
+import com.nantan.app.Book;
+import com.nantan.app.config.ReactiveConfig;
+import com.nantan.app.dto.ApiResponse;
+import com.nantan.app.dto.BookPage;
+import com.nantan.app.dto.ImportReport;
+import com.nantan.app.service.ReactiveBookService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * The book API on WebFlux, served instead of {@link BookController} when the {@code reactive} profile is active.
+ * Paths, parameters and response bodies match the servlet controller for the endpoints the load test drives,
+ * so the two stacks can be compared under the same load.
+ */
+@Tag(name = "Book Management (reactive)", description = "Non-blocking implementation of the book API")
+@CrossOrigin
+@RestController
+@RequestMapping("/api/books")
+@Profile(ReactiveConfig.PROFILE)
+public class ReactiveBookController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveBookController.class);
+
+    private final ReactiveBookService bookService;
+
+    public ReactiveBookController(ReactiveBookService bookService) {
+        this.bookService = bookService;
+    }
+
+    @Operation(summary = "Get all books",
+            description = "Retrieves books ordered by ID, capped at library.pagination.unpaged-max-results. Use /api/books/page to walk the whole catalog.")
+    @GetMapping
+    public Mono<ApiResponse<List<Book>>> getAllBooks(
+            @Parameter(description = "The data source to use ('mysql' or 'mongo')", example = "mysql")
+            @RequestParam(name = "dataSource", defaultValue = "mysql") String dataSource) {
+
+        logger.debug("Received getAllBooks request on thread: {}", Thread.currentThread().getName());
+
+        return bookService.getAllBooks(dataSource).map(ApiResponse::success);
+    }
+
+    @Operation(summary = "Get one page of books",
+            description = "Keyset pagination: pass the returned nextCursor as afterId to fetch the next page.")
+    @GetMapping("/page")
+    public Mono<ApiResponse<BookPage>> getBooksPage(
+            @Parameter(description = "Return books with an ID greater than this cursor; omit for the first page")
+            @RequestParam(name = "afterId", required = false) Integer afterId,
+            @Parameter(description = "Page size, capped at library.pagination.max-page-size", example = "50")
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @Parameter(description = "The data source to use ('mysql' or 'mongo')", example = "mysql")
+            @RequestParam(name = "dataSource", defaultValue = "mysql") String dataSource) {
+
+        logger.debug("Received getBooksPage request on thread: {}", Thread.currentThread().getName());
+
+        return bookService.getBooksPage(afterId, limit, dataSource).map(ApiResponse::success);
+    }
+
+    @Operation(summary = "Export the whole catalog as NDJSON",
+            description = "Streams one JSON document per line. Rows are fetched only as fast as the client reads them, "
+                    + "so a slow client holds back the database cursor instead of filling the heap.")
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Book> exportBooks(
+            @Parameter(description = "The data source to use ('mysql' or 'mongo')", example = "mysql")
+            @RequestParam(name = "dataSource", defaultValue = "mysql") String dataSource) {
+
+        logger.debug("Received exportBooks request on thread: {}", Thread.currentThread().getName());
+
+        return bookService.exportBooks(dataSource);
+    }
+
+    @Operation(summary = "Add a new book", description = "Creates a new book, replacing one with the same ID.")
+    @PostMapping
+    public Mono<ResponseEntity<ApiResponse<Book>>> addBook(
+            @RequestBody Book book,
+            @Parameter(description = "The data source to use ('mysql' or 'mongo')", example = "mysql")
+            @RequestParam(name = "dataSource", defaultValue = "mysql") String dataSource) {
+
+        logger.debug("Received addBook request on thread: {}", Thread.currentThread().getName());
+
+        return bookService.addBook(book, dataSource)
+                .map(saved -> new ResponseEntity<>(ApiResponse.success(saved), HttpStatus.CREATED));
+    }
+
+    @Operation(summary = "Bulk import books",
+            description = "Decodes an NDJSON body as it arrives and writes it in chunks of library.import.chunk-size. "
+                    + "Failed chunks are reported individually; the other chunks are still written.")
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<ApiResponse<ImportReport>> importBooks(
+            @RequestBody Flux<Book> books,
+            @Parameter(description = "The data source to use ('mysql' or 'mongo')", example = "mysql")
+            @RequestParam(name = "dataSource", defaultValue = "mysql") String dataSource) {
+
+        logger.debug("Received importBooks request on thread: {}", Thread.currentThread().getName());
+
+        return bookService.importBooks(books, dataSource)
+                .map(report -> report.getError() == null && report.getFailures().isEmpty()
+                        ? ApiResponse.success(report)
+                        : new ApiResponse<>(2070, "Import finished with failures", report));
+    }
+
+    @Operation(summary = "Delete a book by ID", description = "Deletes a book by its ID.")
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<ApiResponse<Void>>> deleteBook(
+            @Parameter(description = "The unique ID of the book to delete", required = true)
+            @PathVariable("id") int bookId,
+            @Parameter(description = "The data source to use ('mysql' or 'mongo')", example = "mysql")
+            @RequestParam(name = "dataSource", defaultValue = "mysql") String dataSource) {
+
+        logger.debug("Received deleteBook request on thread: {}", Thread.currentThread().getName());
+
+        return bookService.deleteBookById(bookId, dataSource)
+                .map(deleted -> deleted
+                        ? ResponseEntity.ok(ApiResponse.<Void>success())
+                        : new ResponseEntity<>(ApiResponse.<Void>failure(4040, "Book not found with id: " + bookId), HttpStatus.NOT_FOUND));
+    }
+}
@@ -0,0 +1,49 @@
+package com.nantan.app.dto;
+
+import com.nantan.app.Book;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated book listing.
+ * Pass {@code nextCursor} back as {@code afterId} to fetch the following page;
+ * it is null once the last page has been reached.
+ */
+public class BookPage implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The books on this page, ordered by ascending ID.
+     */
+    private List<Book> items;
+
+    /**
+     * The ID to resume after, or null if there are no more books.
+     */
+    private Integer nextCursor;
+
+    public BookPage(List<Book> items, Integer nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    // --- Getters and Setters ---
+
+    public List<Book> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Book> items) {
+        this.items = items;
+    }
+
+    public Integer getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(Integer nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
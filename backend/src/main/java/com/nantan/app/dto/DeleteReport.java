@@ -0,0 +1,45 @@
+package com.nantan.app.dto;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Outcome of a batch delete: which of the requested IDs were removed and which did not exist.
+ */
+public class DeleteReport implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * IDs that existed and were deleted, ascending.
+     */
+    private List<Integer> removed;
+
+    /**
+     * Requested IDs for which no book existed, ascending.
+     */
+    private List<Integer> notFound;
+
+    public DeleteReport(List<Integer> removed, List<Integer> notFound) {
+        this.removed = removed;
+        this.notFound = notFound;
+    }
+
+    // --- Getters and Setters ---
+
+    public List<Integer> getRemoved() {
+        return removed;
+    }
+
+    public void setRemoved(List<Integer> removed) {
+        this.removed = removed;
+    }
+
+    public List<Integer> getNotFound() {
+        return notFound;
+    }
+
+    public void setNotFound(List<Integer> notFound) {
+        this.notFound = notFound;
+    }
+}
@@ -0,0 +1,133 @@
+package com.nantan.app.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk import: overall counts, throughput and the chunks that failed.
+ */
+public class ImportReport implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private long received;
+    private long inserted;
+    private int chunks;
+    private long elapsedMillis;
+    private double recordsPerSecond;
+
+    /**
+     * Chunks that were not written completely, capped at {@code library.import.max-failures}.
+     */
+    private List<ChunkFailure> failures = new ArrayList<>();
+
+    /**
+     * Set when the import stopped early because the body could not be parsed.
+     */
+    private String error;
+
+    // --- Getters and Setters ---
+
+    public long getReceived() {
+        return received;
+    }
+
+    public void setReceived(long received) {
+        this.received = received;
+    }
+
+    public long getInserted() {
+        return inserted;
+    }
+
+    public void setInserted(long inserted) {
+        this.inserted = inserted;
+    }
+
+    public long getFailed() {
+        return received - inserted;
+    }
+
+    public int getChunks() {
+        return chunks;
+    }
+
+    public void setChunks(int chunks) {
+        this.chunks = chunks;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public double getRecordsPerSecond() {
+        return recordsPerSecond;
+    }
+
+    public void setRecordsPerSecond(double recordsPerSecond) {
+        this.recordsPerSecond = recordsPerSecond;
+    }
+
+    public List<ChunkFailure> getFailures() {
+        return failures;
+    }
+
+    public void setFailures(List<ChunkFailure> failures) {
+        this.failures = failures;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    /**
+     * One chunk that was rejected in whole or in part.
+     */
+    public static class ChunkFailure implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private int chunk;
+        private long firstRecord;
+        private int size;
+        private int inserted;
+        private String message;
+
+        public ChunkFailure(int chunk, long firstRecord, int size, int inserted, String message) {
+            this.chunk = chunk;
+            this.firstRecord = firstRecord;
+            this.size = size;
+            this.inserted = inserted;
+            this.message = message;
+        }
+
+        public int getChunk() {
+            return chunk;
+        }
+
+        public long getFirstRecord() {
+            return firstRecord;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public int getInserted() {
+            return inserted;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.nantan.app.event;
+
+import com.nantan.app.Book;
+
+/**
+ * Published by the service layer whenever a book is written to or removed from a data source.
+ * Listeners that maintain derived state (search index, statistics, change feeds) should use
+ * {@code @TransactionalEventListener} so they only see committed changes.
+ *
+ * @param dataSource the data source that was changed ("mysql", "mongo" or "local").
+ * @param type       whether the book was saved or deleted.
+ * @param bookId     the ID of the affected book.
+ * @param book       the saved book, or null for a deletion.
+ */
+public record BookChangedEvent(String dataSource, Type type, int bookId, Book book) {
+
+    public enum Type {
+        SAVED,
+        DELETED
+    }
+
+    public static BookChangedEvent saved(String dataSource, Book book) {
+        return new BookChangedEvent(dataSource, Type.SAVED, book.getId(), book);
+    }
+
+    public static BookChangedEvent deleted(String dataSource, int bookId) {
+        return new BookChangedEvent(dataSource, Type.DELETED, bookId, null);
+    }
+}
@@ -0,0 +1,11 @@
+package com.nantan.app.exception;
+
+/**
+ * Thrown when a read reaches a data source whose author statistics have not been built (yet).
+ */
+public class AuthorStatsUnavailableException extends RuntimeException {
+
+    public AuthorStatsUnavailableException(String dataSource) {
+        super("Author statistics for data source '" + dataSource + "' are not ready");
+    }
+}
@@ -0,0 +1,37 @@
+package com.nantan.app.exception;
+
+import java.util.List;
+
+/**
+ * Thrown by {@code BookRepository.insertAll} when a batch could not be written completely.
+ * Stores that write a batch atomically report zero inserted books; stores that write
+ * unordered batches report how many books made it before the failure was detected and,
+ * where the driver tells us, which positions of the batch were rejected.
+ */
+public class BulkInsertException extends RuntimeException {
+
+    private final int insertedCount;
+    private final List<Integer> rejectedIndexes;
+
+    public BulkInsertException(int insertedCount, String message, Throwable cause) {
+        this(insertedCount, List.of(), message, cause);
+    }
+
+    public BulkInsertException(int insertedCount, List<Integer> rejectedIndexes, String message, Throwable cause) {
+        super(message, cause);
+        this.insertedCount = insertedCount;
+        this.rejectedIndexes = List.copyOf(rejectedIndexes);
+    }
+
+    public int getInsertedCount() {
+        return insertedCount;
+    }
+
+    /**
+     * Positions (0-based, within the batch) of the books that were not written.
+     * Empty when the store does not report them; in that case only {@link #getInsertedCount()} is known.
+     */
+    public List<Integer> getRejectedIndexes() {
+        return rejectedIndexes;
+    }
+}
@@ -0,0 +1,14 @@
+package com.nantan.app.exception;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Thrown when a call is shed because its data source already has as many calls in flight as its
+ * concurrency limit allows. Handled like any other rejected task: 503 with Retry-After.
+ */
+public class ConcurrencyLimitExceededException extends RejectedExecutionException {
+
+    public ConcurrencyLimitExceededException(String dataSource, int limit) {
+        super("Data source '" + dataSource + "' is at its concurrency limit of " + limit);
+    }
+}
@@ -0,0 +1,13 @@
+package com.nantan.app.exception;
+
+/**
+ * Thrown when a request selects a data source that is switched off on this instance
+ * ({@code library.startup.mysql-enabled=false}, {@code library.startup.mongo-enabled=false}, or
+ * {@code library.startup.local-enabled} left false).
+ */
+public class DataSourceDisabledException extends RuntimeException {
+
+    public DataSourceDisabledException(String dataSource) {
+        super("Data source '" + dataSource + "' is not enabled on this instance");
+    }
+}
@@ -1,18 +1,73 @@
 package com.nantan.app.exception;
 
+import com.nantan.app.config.AsyncProperties;
 import com.nantan.app.dto.ApiResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import java.util.concurrent.RejectedExecutionException;
+
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(GlobalExceptionHandler.class);
 
+    private final AsyncProperties asyncProperties;
+
+    public GlobalExceptionHandler(AsyncProperties asyncProperties) {
+        this.asyncProperties = asyncProperties;
+    }
+
+    /**
+     * The async executor is saturated (Spring's TaskRejectedException is a RejectedExecutionException).
+     * This is load shedding, not a bug, so it is logged without a stack trace and the client is told when to retry.
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<ApiResponse<Void>> handleRejectedExecution(RejectedExecutionException ex) {
+        logger.warn("Rejected request: {}", ex.getMessage());
+        long retryAfterSeconds = Math.max(1, (asyncProperties.retryAfter().toMillis() + 999) / 1000);
+        ApiResponse<Void> failureResponse = ApiResponse.failure(5031, "Server is busy, please retry later.");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(failureResponse);
+    }
+
+    @ExceptionHandler(SearchIndexUnavailableException.class)
+    public ResponseEntity<ApiResponse<Void>> handleSearchIndexUnavailable(SearchIndexUnavailableException ex) {
+        logger.warn(ex.getMessage());
+        ApiResponse<Void> failureResponse = ApiResponse.failure(5030, ex.getMessage() + ", please retry shortly.");
+        return new ResponseEntity<>(failureResponse, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @ExceptionHandler(SnapshotUnavailableException.class)
+    public ResponseEntity<ApiResponse<Void>> handleSnapshotUnavailable(SnapshotUnavailableException ex) {
+        logger.warn(ex.getMessage());
+        ApiResponse<Void> failureResponse = ApiResponse.failure(5030, ex.getMessage() + ", please retry shortly.");
+        return new ResponseEntity<>(failureResponse, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @ExceptionHandler(AuthorStatsUnavailableException.class)
+    public ResponseEntity<ApiResponse<Void>> handleAuthorStatsUnavailable(AuthorStatsUnavailableException ex) {
+        logger.warn(ex.getMessage());
+        ApiResponse<Void> failureResponse = ApiResponse.failure(5030, ex.getMessage() + ", please retry shortly.");
+        return new ResponseEntity<>(failureResponse, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    /**
+     * The instance was started without this data source; retrying here will not help, but another instance may serve it.
+     */
+    @ExceptionHandler(DataSourceDisabledException.class)
+    public ResponseEntity<ApiResponse<Void>> handleDataSourceDisabled(DataSourceDisabledException ex) {
+        logger.warn(ex.getMessage());
+        ApiResponse<Void> failureResponse = ApiResponse.failure(5032, ex.getMessage());
+        return new ResponseEntity<>(failureResponse, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ApiResponse<Void>> handleAllExceptions(Exception ex) {
         // 2. Use logger.error to record the exception with its full stack trace.
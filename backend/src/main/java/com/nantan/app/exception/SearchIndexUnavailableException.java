@@ -0,0 +1,11 @@
+package com.nantan.app.exception;
+
+/**
+ * Thrown when a search reaches a data source whose index has not been built (yet).
+ */
+public class SearchIndexUnavailableException extends RuntimeException {
+
+    public SearchIndexUnavailableException(String dataSource) {
+        super("Search index for data source '" + dataSource + "' is not ready");
+    }
+}
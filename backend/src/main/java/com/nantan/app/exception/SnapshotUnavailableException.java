@@ -0,0 +1,11 @@
+package com.nantan.app.exception;
+
+/**
+ * Thrown when a read reaches a data source whose catalog snapshot has not been built (yet).
+ */
+public class SnapshotUnavailableException extends RuntimeException {
+
+    public SnapshotUnavailableException(String dataSource) {
+        super("Catalog snapshot for data source '" + dataSource + "' is not ready");
+    }
+}
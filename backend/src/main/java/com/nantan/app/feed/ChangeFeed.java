@@ -0,0 +1,293 @@
+package com.nantan.app.feed;
+
+import com.nantan.app.DataSources;
+import com.nantan.app.config.ChangeFeedProperties;
+import com.nantan.app.event.BookChangedEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fans committed book changes out to Server-Sent Event streams, one feed per data source.
+ * <p>
+ * Every change gets the id {@code <epoch>-<sequence>} and is kept in a ring buffer of
+ * {@code replayCapacity} entries, so a client that reconnects with {@code Last-Event-ID} receives what it
+ * missed. If the id is older than the buffer, or from before a restart (another epoch), the client gets a
+ * {@code reset} event and reloads the list instead.
+ * <p>
+ * Publishing never blocks: each subscriber has its own bounded queue, drained by a sender thread that does
+ * the (possibly slow) network writes. A subscriber whose queue is full is dropped and its stream closed;
+ * its EventSource reconnects and catches up from the replay buffer.
+ */
+@Component
+public class ChangeFeed {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeFeed.class);
+
+    private final ChangeFeedProperties properties;
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<String, Channel> channels;
+
+    // Sender threads block only on their own client; there is at most one per open stream
+    private final ExecutorService senders = Executors.newCachedThreadPool(new CustomizableThreadFactory("ChangeFeed-"));
+    private ScheduledExecutorService heartbeats;
+
+    public ChangeFeed(ChangeFeedProperties properties) {
+        this.properties = properties;
+        this.channels = Map.of(DataSources.MYSQL, new Channel(DataSources.MYSQL), DataSources.MONGO, new Channel(DataSources.MONGO),
+                DataSources.LOCAL, new Channel(DataSources.LOCAL));
+    }
+
+    @PostConstruct
+    public void start() {
+        long interval = properties.heartbeat().toMillis();
+        heartbeats = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("ChangeFeedHeartbeat-"));
+        heartbeats.scheduleAtFixedRate(() -> channels.values().forEach(Channel::heartbeat), interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        heartbeats.shutdownNow();
+        channels.values().forEach(Channel::closeAll);
+        senders.shutdown();
+    }
+
+    /**
+     * Runs after the publishing transaction commits, or immediately when the change was made outside one,
+     * so clients never see a change that was rolled back.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        Channel channel = channels.get(event.dataSource());
+        if (channel != null) {
+            channel.publish(event);
+        }
+    }
+
+    /**
+     * Opens a stream of the data source's changes. The first message is a {@code ready} event with the
+     * current position, preceded by the missed changes when {@code lastEventId} can be resumed from, or
+     * replaced by a {@code reset} event when it cannot.
+     *
+     * @param lastEventId the id of the last change the client saw, or null for a new client.
+     * @throws RejectedExecutionException if the data source already has {@code maxSubscribers} open streams.
+     */
+    public Subscription subscribe(String dataSource, String lastEventId, FeedSink sink) {
+        return channels.get(DataSources.resolve(dataSource)).subscribe(lastEventId, sink);
+    }
+
+    public List<FeedStats> stats() {
+        return DataSources.ALL.stream().map(dataSource -> channels.get(dataSource).stats()).toList();
+    }
+
+    /**
+     * An open stream; cancel it when the connection ends.
+     */
+    public interface Subscription {
+        void cancel();
+    }
+
+    private final class Channel {
+
+        final String dataSource;
+        final FeedMessage[] ring = new FeedMessage[properties.replayCapacity()];
+        final Set<Subscriber> subscribers = new LinkedHashSet<>();
+        // Sequence of the latest change; 0 before the first. Guarded by 'this', like the ring and the subscribers.
+        long sequence;
+        long laggards;
+
+        Channel(String dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        void publish(BookChangedEvent event) {
+            List<Subscriber> behind = new ArrayList<>();
+            synchronized (this) {
+                FeedMessage message = FeedMessage.change(id(++sequence), event);
+                ring[(int) ((sequence - 1) % ring.length)] = message;
+                for (Subscriber subscriber : subscribers) {
+                    if (!subscriber.offer(message)) {
+                        behind.add(subscriber);
+                    }
+                }
+                subscribers.removeAll(behind);
+                laggards += behind.size();
+            }
+            for (Subscriber subscriber : behind) {
+                logger.warn("Disconnecting a {} change feed subscriber that fell {} changes behind", dataSource, properties.queueCapacity());
+                subscriber.close();
+            }
+        }
+
+        synchronized Subscription subscribe(String lastEventId, FeedSink sink) {
+            if (subscribers.size() >= properties.maxSubscribers()) {
+                throw new RejectedExecutionException("Change feed for data source '" + dataSource + "' has "
+                        + subscribers.size() + " subscribers already");
+            }
+            List<FeedMessage> backlog = new ArrayList<>();
+            if (lastEventId != null) {
+                long resumeAfter = resumePoint(lastEventId);
+                if (resumeAfter < 0) {
+                    backlog.add(FeedMessage.reset(id(sequence), dataSource, "Cannot resume after " + lastEventId));
+                } else {
+                    for (long seq = resumeAfter + 1; seq <= sequence; seq++) {
+                        backlog.add(ring[(int) ((seq - 1) % ring.length)]);
+                    }
+                }
+            }
+            backlog.add(FeedMessage.ready(id(sequence), dataSource));
+            Subscriber subscriber = new Subscriber(this, sink, backlog);
+            subscribers.add(subscriber);
+            return () -> unsubscribe(subscriber);
+        }
+
+        void heartbeat() {
+            List<Subscriber> behind = new ArrayList<>();
+            synchronized (this) {
+                for (Subscriber subscriber : subscribers) {
+                    if (!subscriber.offer(FeedMessage.HEARTBEAT)) {
+                        behind.add(subscriber);
+                    }
+                }
+                subscribers.removeAll(behind);
+                laggards += behind.size();
+            }
+            behind.forEach(Subscriber::close);
+        }
+
+        void unsubscribe(Subscriber subscriber) {
+            synchronized (this) {
+                subscribers.remove(subscriber);
+            }
+            subscriber.discard();
+        }
+
+        void closeAll() {
+            List<Subscriber> open;
+            synchronized (this) {
+                open = new ArrayList<>(subscribers);
+                subscribers.clear();
+            }
+            open.forEach(Subscriber::close);
+        }
+
+        synchronized FeedStats stats() {
+            return new FeedStats(dataSource, subscribers.size(), id(sequence), (int) Math.min(sequence, ring.length), sequence, laggards);
+        }
+
+        /**
+         * The sequence to replay after, or -1 if the id is from another epoch or older than the buffer.
+         */
+        private long resumePoint(String lastEventId) {
+            int dash = lastEventId.lastIndexOf('-');
+            if (dash < 0 || !lastEventId.substring(0, dash).equals(epoch)) {
+                return -1;
+            }
+            long seq;
+            try {
+                seq = Long.parseLong(lastEventId.substring(dash + 1));
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+            return seq > sequence || seq < sequence - ring.length ? -1 : seq;
+        }
+
+        private String id(long seq) {
+            return epoch + "-" + seq;
+        }
+    }
+
+    /**
+     * One open stream. Messages are queued by publishers and written by at most one sender task at a time.
+     */
+    private final class Subscriber {
+
+        final Channel channel;
+        final FeedSink sink;
+        // Guarded by 'this'
+        final ArrayDeque<FeedMessage> queue = new ArrayDeque<>();
+        boolean sending;
+        boolean closed;
+
+        Subscriber(Channel channel, FeedSink sink, List<FeedMessage> backlog) {
+            this.channel = channel;
+            this.sink = sink;
+            // The backlog is bounded by the replay buffer and may exceed the live queue capacity
+            queue.addAll(backlog);
+            sending = true;
+            senders.execute(this::drain);
+        }
+
+        /**
+         * @return false if the queue is full; the caller then drops the subscriber.
+         */
+        synchronized boolean offer(FeedMessage message) {
+            if (closed) {
+                return true;
+            }
+            if (queue.size() >= properties.queueCapacity()) {
+                return false;
+            }
+            queue.add(message);
+            if (!sending) {
+                sending = true;
+                senders.execute(this::drain);
+            }
+            return true;
+        }
+
+        /**
+         * Stops sending and ends the stream; the sink is closed on a sender thread, never on the caller's.
+         */
+        void close() {
+            discard();
+            senders.execute(sink::close);
+        }
+
+        /**
+         * Stops sending without touching the sink, for a stream that has already ended.
+         */
+        synchronized void discard() {
+            closed = true;
+            queue.clear();
+        }
+
+        private void drain() {
+            while (true) {
+                FeedMessage message;
+                synchronized (this) {
+                    message = closed ? null : queue.poll();
+                    if (message == null) {
+                        sending = false;
+                        return;
+                    }
+                }
+                try {
+                    sink.send(message);
+                } catch (IOException | RuntimeException e) {
+                    // The client went away
+                    logger.debug("Change feed write failed: {}", e.getMessage());
+                    channel.unsubscribe(this);
+                    return;
+                }
+            }
+        }
+    }
+}
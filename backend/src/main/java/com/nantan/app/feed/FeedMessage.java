@@ -0,0 +1,41 @@
+package com.nantan.app.feed;
+
+import com.nantan.app.event.BookChangedEvent;
+
+/**
+ * One item of a change feed stream, written as a Server-Sent Event.
+ *
+ * @param id   the SSE id a client resumes after, or null for a heartbeat.
+ * @param name the SSE event name: {@code saved}, {@code deleted}, {@code ready}, {@code reset},
+ *             or null for a heartbeat, which is written as a comment.
+ * @param data the event payload, serialized as JSON.
+ */
+public record FeedMessage(String id, String name, Object data) {
+
+    static final FeedMessage HEARTBEAT = new FeedMessage(null, null, null);
+
+    static FeedMessage change(String id, BookChangedEvent event) {
+        return new FeedMessage(id, event.type() == BookChangedEvent.Type.SAVED ? "saved" : "deleted", event);
+    }
+
+    /**
+     * First message of every stream: carries the current position, so a client that reconnects resumes from there.
+     */
+    static FeedMessage ready(String id, String dataSource) {
+        return new FeedMessage(id, "ready", new Notice(dataSource, null));
+    }
+
+    /**
+     * Sent instead of a replay the feed can no longer provide; the client should reload the list.
+     */
+    static FeedMessage reset(String id, String dataSource, String reason) {
+        return new FeedMessage(id, "reset", new Notice(dataSource, reason));
+    }
+
+    public boolean isHeartbeat() {
+        return name == null;
+    }
+
+    public record Notice(String dataSource, String reason) {
+    }
+}
@@ -0,0 +1,20 @@
+package com.nantan.app.feed;
+
+import java.io.IOException;
+
+/**
+ * The connection a subscriber's messages are written to, e.g. an {@code SseEmitter}.
+ * Only the feed's sender threads call it, never a thread that published a change.
+ */
+public interface FeedSink {
+
+    /**
+     * Writes one message; may block while the client is slow to read.
+     */
+    void send(FeedMessage message) throws IOException;
+
+    /**
+     * Ends the stream, e.g. after the subscriber fell too far behind.
+     */
+    void close();
+}
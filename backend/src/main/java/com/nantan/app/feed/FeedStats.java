@@ -0,0 +1,20 @@
+package com.nantan.app.feed;
+
+/**
+ * State of one data source's change feed.
+ *
+ * @param dataSource           the data source the feed covers.
+ * @param subscribers          currently open streams.
+ * @param lastEventId          id of the latest change, which a client that is up to date has seen.
+ * @param buffered             changes held for replay.
+ * @param published            changes published since startup.
+ * @param laggardsDisconnected streams closed because the client fell behind by more than the queue capacity.
+ */
+public record FeedStats(
+        String dataSource,
+        int subscribers,
+        String lastEventId,
+        int buffered,
+        long published,
+        long laggardsDisconnected) {
+}
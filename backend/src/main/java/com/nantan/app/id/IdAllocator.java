@@ -0,0 +1,114 @@
+package com.nantan.app.id;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out book IDs from blocks reserved in an {@link IdBlockSource} (hi/lo): one durable reservation per
+ * {@code blockSize} IDs, and within a block one {@code getAndIncrement}, without taking a lock.
+ * <p>
+ * When half of the current block has been handed out, the next block is reserved on a background thread, so
+ * callers normally find it ready and never wait for the database. When a block is used up before the next one is
+ * ready (always on the first call), {@link #next()} waits for the reservation, which needs a pooled connection
+ * of its own: call it before opening a transaction, never inside one, or callers holding every connection of
+ * the pool would wait on each other until the connection timeout.
+ * IDs left in a block when the process stops are skipped, never reused.
+ */
+public class IdAllocator implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdAllocator.class);
+
+    private final String name;
+    private final IdBlockSource source;
+    private final int blockSize;
+    private final ExecutorService reserver;
+
+    // 初始为空号段，第一次调用时预留
+    private volatile Block current = new Block(0, 0, -1);
+
+    // guarded by this
+    private CompletableFuture<Block> pending;
+
+    public IdAllocator(String name, IdBlockSource source, int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("blockSize must be positive, got " + blockSize);
+        }
+        this.name = name;
+        this.source = source;
+        this.blockSize = blockSize;
+        this.reserver = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("IdReserver-" + name + "-"));
+    }
+
+    /**
+     * Returns an ID that has never been returned before, by this or any earlier process sharing the source.
+     *
+     * @throws RuntimeException the exception of the reservation, if the current block is used up and the
+     *                          next one could not be reserved.
+     */
+    public int next() {
+        while (true) {
+            Block block = current;
+            long id = block.next.getAndIncrement();
+            if (id < block.end) {
+                if (id == block.prefetchAt) {
+                    prefetch();
+                }
+                return (int) id;
+            }
+            advance(block);
+        }
+    }
+
+    @Override
+    public void close() {
+        reserver.shutdownNow();
+    }
+
+    private synchronized void prefetch() {
+        if (pending == null) {
+            pending = CompletableFuture.supplyAsync(this::reserveBlock, reserver);
+        }
+    }
+
+    /**
+     * Replaces the used-up block with the reserved one, waiting for the reservation if it is still running.
+     * Callers that find the same block used up meanwhile wait on the monitor and then retry on the new block.
+     */
+    private synchronized void advance(Block exhausted) {
+        if (current != exhausted) {
+            return;
+        }
+        prefetch();
+        try {
+            current = pending.join();
+        } catch (CompletionException e) {
+            // 下一次调用重新预留
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        } finally {
+            pending = null;
+        }
+    }
+
+    private Block reserveBlock() {
+        long first = source.reserve(blockSize);
+        long end = first + blockSize;
+        if (end - 1 > Integer.MAX_VALUE) {
+            throw new IllegalStateException("ID sequence '" + name + "' is past the largest book ID (" + first + ")");
+        }
+        logger.debug("Reserved IDs [{}, {}) of sequence '{}'", first, end, name);
+        return new Block(first, end, first + blockSize / 2);
+    }
+
+    private record Block(AtomicLong next, long end, long prefetchAt) {
+        Block(long first, long end, long prefetchAt) {
+            this(new AtomicLong(first), end, prefetchAt);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.nantan.app.id;
+
+/**
+ * Durable store of the next unreserved ID, from which {@link IdAllocator} reserves whole blocks.
+ */
+@FunctionalInterface
+public interface IdBlockSource {
+
+    /**
+     * Reserves {@code size} consecutive IDs. The reservation must be durable before this method returns:
+     * no later call, in this process or after a restart, may hand out any of them again.
+     *
+     * @param size the number of IDs to reserve.
+     * @return the first ID of the block {@code [first, first + size)}.
+     */
+    long reserve(int size);
+}
@@ -0,0 +1,45 @@
+package com.nantan.app.importer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nantan.app.Book;
+import com.nantan.app.config.WireFormats;
+import org.springframework.http.MediaType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * Reads books one record at a time from a request body, so an import never holds more than
+ * the current chunk in memory.
+ * {@link #next()} throws {@link IllegalArgumentException} when a record cannot be parsed.
+ */
+public interface BookRecordReader extends Iterator<Book>, Closeable {
+
+    MediaType TEXT_CSV = MediaType.valueOf("text/csv");
+
+    /**
+     * Opens a reader for the given body format.
+     *
+     * @param contentType the request content type: {@code application/x-ndjson}, {@code text/csv},
+     *                    or a sequence of {@code application/cbor} / {@code application/x-jackson-smile} values.
+     * @param body        the raw request body.
+     * @param wireFormats the mappers used for JSON, CBOR and Smile records.
+     * @return a reader positioned before the first record.
+     * @throws IOException if the body cannot be opened.
+     */
+    static BookRecordReader open(MediaType contentType, InputStream body, WireFormats wireFormats) throws IOException {
+        if (TEXT_CSV.isCompatibleWith(contentType)) {
+            return new CsvBookRecordReader(body);
+        }
+        if (MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType)) {
+            return new JacksonBookRecordReader(wireFormats.json().readerFor(Book.class).readValues(body));
+        }
+        ObjectMapper binary = wireFormats.binaryMapperFor(contentType);
+        if (binary != null) {
+            return new JacksonBookRecordReader(binary.readerFor(Book.class).readValues(body));
+        }
+        throw new IllegalArgumentException("Unsupported import format: " + contentType);
+    }
+}
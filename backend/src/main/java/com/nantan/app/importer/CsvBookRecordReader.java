@@ -0,0 +1,111 @@
+package com.nantan.app.importer;
+
+import com.nantan.app.Book;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads {@code id,title,author} rows. An optional header row is skipped, fields may be quoted
+ * with {@code "} (a doubled quote inside a quoted field is a literal quote), and blank lines are ignored.
+ * An empty id field leaves the ID to the server.
+ */
+class CsvBookRecordReader implements BookRecordReader {
+
+    private static final String HEADER = "id,title,author";
+
+    private final BufferedReader reader;
+    private String pendingLine;
+    private long lineNumber;
+
+    CsvBookRecordReader(InputStream body) {
+        this.reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (pendingLine != null) {
+            return true;
+        }
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || (lineNumber == 1 && HEADER.equalsIgnoreCase(line.strip()))) {
+                    continue;
+                }
+                pendingLine = line;
+                return true;
+            }
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Book next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String line = pendingLine;
+        pendingLine = null;
+        List<String> fields = split(line);
+        if (fields.size() != 3) {
+            throw new IllegalArgumentException("Line " + lineNumber + ": expected 3 fields but found " + fields.size());
+        }
+        try {
+            // id 列为空时由服务端分配
+            String idField = fields.get(0).strip();
+            Integer id = idField.isEmpty() ? null : Integer.parseInt(idField);
+            return new Book(id, fields.get(1), fields.get(2).isEmpty() ? null : fields.get(2));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Line " + lineNumber + ": invalid id '" + fields.get(0) + "'", e);
+        }
+    }
+
+    private List<String> split(String line) {
+        List<String> fields = new ArrayList<>(3);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Line " + lineNumber + ": unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
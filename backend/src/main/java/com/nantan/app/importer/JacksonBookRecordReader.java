@@ -0,0 +1,48 @@
+package com.nantan.app.importer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.nantan.app.Book;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Reads a sequence of documents with a streaming Jackson parser: newline-delimited JSON,
+ * or concatenated CBOR / Smile values.
+ */
+class JacksonBookRecordReader implements BookRecordReader {
+
+    private final MappingIterator<Book> iterator;
+
+    JacksonBookRecordReader(MappingIterator<Book> iterator) {
+        this.iterator = iterator;
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            return iterator.hasNextValue();
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed record: " + e.getOriginalMessage(), e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Book next() {
+        try {
+            return iterator.nextValue();
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed record: " + e.getOriginalMessage(), e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        iterator.close();
+    }
+}
@@ -0,0 +1,38 @@
+package com.nantan.app.jpa;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * One named ID sequence: the first ID that has not been reserved yet.
+ * Only {@link SequenceTableIdBlockSource} reads and advances it.
+ */
+@Entity
+@Table(name = "book_id_sequence")
+public class BookIdSequence {
+
+    @Id
+    @Column(name = "name", length = 64)
+    private String name;
+
+    @Column(name = "next_val", nullable = false)
+    private long nextVal;
+
+    protected BookIdSequence() {
+    }
+
+    public BookIdSequence(String name, long nextVal) {
+        this.name = name;
+        this.nextVal = nextVal;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getNextVal() {
+        return nextVal;
+    }
+}
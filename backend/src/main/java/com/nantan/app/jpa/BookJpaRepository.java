@@ -3,6 +3,8 @@ import com.nantan.app.Book;
 import com.nantan.app.BookRepository;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
 /**
  Spring Data JPA repository for the Book entity.
  By extending JpaRepository, we get a lot of CRUD functionality for free.
@@ -11,7 +13,7 @@ import org.springframework.stereotype.Repository;
  Integer: The type of the id of the domain type.
  */
 @Repository("jpaBookRepository") // 指定一个明确的 bean 名称，方便后续注入
-public interface BookJpaRepository extends JpaRepository<Book, Integer>, BookRepository {
+public interface BookJpaRepository extends JpaRepository<Book, Integer>, BookRepository, BookJpaRepositoryCustom {
     // Spring Data JPA will automatically implement:
     // - save(Book entity)
     // - findById(Integer id)
@@ -20,18 +22,22 @@ public interface BookJpaRepository extends JpaRepository<Book, Integer>, BookRep
     // - and many more...
     // We need to provide implementations for our custom BookRepository methods
     // that don't map directly to JpaRepository's conventions.
+
+    // findAll, findAllById, findPage 以及按 ID 删除都在 BookJpaRepositoryCustomImpl 中实现, 以便带上查询超时
+
+    // ORDER BY id DESC LIMIT 1: 从主键索引末端读一行
+    Optional<Book> findFirstByOrderByIdDesc();
+
+    @Override
+    default int findMaxId() {
+        return findFirstByOrderByIdDesc().map(Book::getId).orElse(0);
+    }
+
     @Override
     default boolean deleteById(int bookId) {
-        if (existsById(bookId)) {
-            try {
-                deleteById((Integer) bookId);
-                return !existsById(bookId);
-            } catch (Exception e) {
-                return false; // 明确返回 false 表示删除失败
-            }
-        }
-        return false;
+        return deleteOneById(bookId) > 0;
     }
+
     @Override
     default void close() {
     // With Spring Boot, connection management is handled automatically.
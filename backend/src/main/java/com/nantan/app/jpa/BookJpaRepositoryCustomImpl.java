@@ -0,0 +1,261 @@
+package com.nantan.app.jpa;
+
+import com.nantan.app.Book;
+import com.nantan.app.BookQuery;
+import com.nantan.app.config.ExportProperties;
+import com.nantan.app.limit.OperationDeadline;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.hibernate.Session;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * EntityManager-backed implementation of {@link BookJpaRepositoryCustom}.
+ */
+public class BookJpaRepositoryCustomImpl implements BookJpaRepositoryCustom {
+
+    // 不用反斜杠: MySQL 默认把字符串字面量里的反斜杠当作转义符
+    private static final char LIKE_ESCAPE = '!';
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ExportProperties exportProperties;
+
+    public BookJpaRepositoryCustomImpl(ExportProperties exportProperties) {
+        this.exportProperties = exportProperties;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Book> findAll() {
+        return withinDeadline(entityManager.createQuery("select b from Book b", Book.class)).getResultList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Book> findAllById(Iterable<Integer> ids) {
+        List<Integer> idList = new ArrayList<>();
+        ids.forEach(idList::add);
+        if (idList.isEmpty()) {
+            return List.of();
+        }
+        return withinDeadline(entityManager.createQuery("select b from Book b where b.id in :ids", Book.class))
+                .setParameter("ids", idList)
+                .getResultList();
+    }
+
+    // Keyset 分页: WHERE id > ? ORDER BY id LIMIT ?，走主键索引而不是 OFFSET 扫描
+    @Override
+    @Transactional(readOnly = true)
+    public List<Book> findPage(int afterId, int limit) {
+        return withinDeadline(entityManager.createQuery(
+                        "select b from Book b where b.id > :afterId order by b.id", Book.class))
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Builds one {@code SELECT} of only the selected columns. Author equality and the title prefix
+     * ({@code LIKE 'prefix%'}, which MySQL turns into an index range) are answered from their indexes, the ID
+     * range from the primary key. The rows are read as tuples, so nothing enters the persistence context.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<Book> findMatching(BookQuery query, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> criteria = cb.createTupleQuery();
+        Root<Book> book = criteria.from(Book.class);
+
+        List<Predicate> where = new ArrayList<>();
+        if (query.author() != null) {
+            where.add(cb.equal(book.get("author"), query.author()));
+        }
+        if (query.titlePrefix() != null) {
+            where.add(cb.like(book.get("title"), escapeLike(query.titlePrefix()) + "%", LIKE_ESCAPE));
+        }
+        if (query.minId() != null) {
+            where.add(cb.ge(book.get("id"), query.minId()));
+        }
+        if (query.maxId() != null) {
+            where.add(cb.le(book.get("id"), query.maxId()));
+        }
+        List<BookQuery.Field> fields = Arrays.stream(BookQuery.Field.values()).filter(query::includes).toList();
+        List<Order> orderBy = new ArrayList<>();
+        orderBy.add(direction(cb, book.get(query.order().property()), query.order().descending()));
+        if (!query.order().property().equals("id")) {
+            orderBy.add(direction(cb, book.get("id"), query.order().descending()));
+        }
+        criteria.multiselect(fields.stream().<Selection<?>>map(field -> book.get(field.property()).alias(field.property())).toList())
+                .where(where.toArray(Predicate[]::new))
+                .orderBy(orderBy);
+
+        return withinDeadline(entityManager.createQuery(criteria))
+                .setMaxResults(limit)
+                .getResultStream()
+                .map(tuple -> new Book(tuple.get("id", Integer.class),
+                        fields.contains(BookQuery.Field.TITLE) ? tuple.get("title", String.class) : null,
+                        fields.contains(BookQuery.Field.AUTHOR) ? tuple.get("author", String.class) : null))
+                .toList();
+    }
+
+    /**
+     * Streams the books table through a single forward-only result set.
+     * Each entity is detached as soon as it has been read so the persistence context stays empty
+     * and heap usage does not grow with the table size.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long exportAll(Consumer<? super Book> sink) {
+        long count = 0;
+        try (Stream<Book> books = entityManager.createQuery("select b from Book b order by b.id", Book.class)
+                .setHint(AvailableHints.HINT_FETCH_SIZE, exportProperties.fetchSize())
+                .setHint(AvailableHints.HINT_READ_ONLY, true)
+                // The export is one long-running statement; a configured default query timeout must not cut it off
+                .setHint(AvailableHints.HINT_SPEC_QUERY_TIMEOUT, 0)
+                .getResultStream()) {
+            Iterator<Book> iterator = books.iterator();
+            while (iterator.hasNext()) {
+                Book book = iterator.next();
+                entityManager.detach(book);
+                sink.accept(book);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Inserts the books with {@code persist} rather than {@code merge}, so no SELECT is issued per row,
+     * and sends them as JDBC batches of the chunk size. With {@code rewriteBatchedStatements=true}
+     * Connector/J collapses each batch into a multi-row INSERT. The chunk is written atomically.
+     */
+    @Override
+    @Transactional
+    public int insertAll(List<Book> books) {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(books.size());
+        for (Book book : books) {
+            entityManager.persist(book);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return books.size();
+    }
+
+    /**
+     * Writes the books in JDBC batches of the list size. The existing rows are loaded with one
+     * {@code SELECT ... WHERE id IN (...)} first; those are merged, finding their row in the persistence
+     * context, and the rest are persisted. Neither issues a SELECT per book, so a call costs one read
+     * and one batched write.
+     */
+    @Override
+    @Transactional
+    public int upsertAll(List<Book> books) {
+        if (books.isEmpty()) {
+            return 0;
+        }
+        entityManager.unwrap(Session.class).setJdbcBatchSize(books.size());
+        Set<Integer> existing = withinDeadline(
+                        entityManager.createQuery("select b from Book b where b.id in :ids", Book.class))
+                .setParameter("ids", books.stream().map(Book::getId).toList())
+                .getResultStream()
+                .map(Book::getId)
+                .collect(Collectors.toSet());
+        for (Book book : books) {
+            if (existing.add(book.getId())) {
+                entityManager.persist(book);
+            } else {
+                entityManager.merge(book);
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return books.size();
+    }
+
+    // 单条语句删除: DELETE FROM books WHERE id = ?，不先加载实体，由受影响行数判断是否删除成功
+    @Override
+    @Transactional
+    public int deleteOneById(int bookId) {
+        entityManager.flush();
+        int deleted = withinDeadline(entityManager.createQuery("delete from Book b where b.id = :id"))
+                .setParameter("id", bookId)
+                .executeUpdate();
+        entityManager.clear();
+        return deleted;
+    }
+
+    /**
+     * Locks the rows that still exist ({@code SELECT ... FOR UPDATE}), then removes them with one
+     * {@code DELETE ... WHERE id IN (...)}. MySQL cannot return the deleted keys from a DELETE,
+     * so the locked read is what makes the reported IDs exact.
+     */
+    @Override
+    @Transactional
+    public List<Integer> removeAllById(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        entityManager.flush();
+        List<Integer> existing = withinDeadline(entityManager
+                        .createQuery("select b.id from Book b where b.id in :ids order by b.id", Integer.class))
+                .setParameter("ids", ids)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+        if (!existing.isEmpty()) {
+            withinDeadline(entityManager.createQuery("delete from Book b where b.id in :ids"))
+                    .setParameter("ids", existing)
+                    .executeUpdate();
+            entityManager.clear();
+        }
+        return existing;
+    }
+
+    /**
+     * Applies the deadline of the limited call in progress, if any, as the query timeout. Hibernate rounds
+     * the hint to whole seconds for JDBC, so it is rounded up here to keep a short deadline from becoming 0
+     * (no timeout).
+     */
+    private static <Q extends Query> Q withinDeadline(Q query) {
+        OperationDeadline.remainingMillis().ifPresent(millis ->
+                query.setHint(AvailableHints.HINT_SPEC_QUERY_TIMEOUT, (int) ((millis + 999) / 1000 * 1000)));
+        return query;
+    }
+
+    private static Order direction(CriteriaBuilder cb, Expression<?> expression, boolean descending) {
+        return descending ? cb.desc(expression) : cb.asc(expression);
+    }
+
+    private static String escapeLike(String text) {
+        StringBuilder escaped = new StringBuilder(text.length() + 4);
+        for (char c : text.toCharArray()) {
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                escaped.append(LIKE_ESCAPE);
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
@@ -0,0 +1,80 @@
+package com.nantan.app.jpa;
+
+import com.nantan.app.Book;
+import com.nantan.app.event.BookChangedEvent;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.time.Instant;
+
+/**
+ * One change to the {@code books} table waiting to be replicated, written in the same transaction
+ * as the change itself. A saved book carries its full state, so the relay never reads {@code books}.
+ */
+@Entity
+@Table(name = "book_outbox")
+public class BookOutboxEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "book_id", nullable = false)
+    private Integer bookId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false, length = 16)
+    private BookChangedEvent.Type type;
+
+    @Column(name = "title")
+    private String title;
+
+    @Column(name = "author")
+    private String author;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    protected BookOutboxEntry() {
+    }
+
+    public BookOutboxEntry(BookChangedEvent event, Instant createdAt) {
+        this.bookId = event.bookId();
+        this.type = event.type();
+        if (event.book() != null) {
+            this.title = event.book().getTitle();
+            this.author = event.book().getAuthor();
+        }
+        this.createdAt = createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Integer getBookId() {
+        return bookId;
+    }
+
+    public BookChangedEvent.Type getType() {
+        return type;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * The book as it was saved; only meaningful for {@link BookChangedEvent.Type#SAVED} entries.
+     */
+    public Book toBook() {
+        return new Book(bookId, title, author);
+    }
+}
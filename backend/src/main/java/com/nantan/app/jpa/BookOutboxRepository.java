@@ -0,0 +1,28 @@
+package com.nantan.app.jpa;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Spring Data JPA repository for the replication outbox.
+ */
+@Repository
+public interface BookOutboxRepository extends JpaRepository<BookOutboxEntry, Long> {
+
+    // 按写入顺序读取最早的一批变更
+    List<BookOutboxEntry> findAllByOrderByIdAsc(Limit limit);
+
+    // 一条 DELETE ... WHERE id IN (...) 清除已复制的变更
+    @Transactional
+    @Modifying
+    @Query("delete from BookOutboxEntry e where e.id in :ids")
+    int deleteAllByIdIn(@Param("ids") Collection<Long> ids);
+}
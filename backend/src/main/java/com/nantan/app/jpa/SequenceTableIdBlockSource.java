@@ -0,0 +1,57 @@
+package com.nantan.app.jpa;
+
+import com.nantan.app.id.IdBlockSource;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Reserves ID blocks from a row of the {@code book_id_sequence} table.
+ * A reservation is one {@code UPDATE ... SET next_val = next_val + ?} followed by a read of the new value in the
+ * same short transaction; the row lock taken by the UPDATE keeps concurrent instances from reserving the same block.
+ * <p>
+ * When the row does not exist yet it is created starting above the highest book ID in any data source, so IDs that
+ * clients chose themselves before the sequence existed are never handed out again.
+ */
+public class SequenceTableIdBlockSource implements IdBlockSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(SequenceTableIdBlockSource.class);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final String name;
+    private final LongSupplier highestExistingId;
+
+    public SequenceTableIdBlockSource(String name, LongSupplier highestExistingId) {
+        this.name = name;
+        this.highestExistingId = highestExistingId;
+    }
+
+    @Override
+    @Transactional
+    public long reserve(int size) {
+        int updated = entityManager
+                .createQuery("update BookIdSequence s set s.nextVal = s.nextVal + :size where s.name = :name")
+                .setParameter("size", (long) size)
+                .setParameter("name", name)
+                .executeUpdate();
+        if (updated == 0) {
+            // 首次使用: 另一个实例同时创建时主键冲突，本次预留失败，下一次走 UPDATE
+            long first = highestExistingId.getAsLong() + 1;
+            entityManager.persist(new BookIdSequence(name, first + size));
+            entityManager.flush();
+            logger.info("Created ID sequence '{}' starting at {}", name, first);
+            return first;
+        }
+        long nextVal = entityManager
+                .createQuery("select s.nextVal from BookIdSequence s where s.name = :name", Long.class)
+                .setParameter("name", name)
+                .getSingleResult();
+        return nextVal - size;
+    }
+}
@@ -0,0 +1,131 @@
+package com.nantan.app.limit;
+
+import com.nantan.app.config.ConcurrencyLimitProperties;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrency limit that follows the latency of the calls it admits.
+ * <p>
+ * Latency is averaged over windows of {@code windowSamples} completed calls and compared with a
+ * slow-moving long-term average. While a window stays within {@code rttTolerance} of that average the
+ * limit grows by roughly its square root per window; once calls start queueing inside the database
+ * the ratio drops below one and the limit shrinks proportionally (the "gradient"). A timeout is a
+ * stronger signal and cuts the limit multiplicatively right away (AIMD-style backoff).
+ * <p>
+ * Admission never blocks: a call either gets a slot or is rejected immediately.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    // Weight of one window in the long-term average: roughly the last 20 windows count
+    private static final double LONG_RTT_WEIGHT = 0.05;
+
+    private final String dataSource;
+    private final ConcurrencyLimitProperties properties;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    private volatile double limit;
+
+    // Window state, guarded by 'this'
+    private long windowRttSum;
+    private int windowCount;
+    private int windowMaxInFlight;
+    private double shortRtt;
+    private double longRtt;
+
+    public AdaptiveConcurrencyLimiter(String dataSource, ConcurrencyLimitProperties properties) {
+        this.dataSource = dataSource;
+        this.properties = properties;
+        this.limit = properties.initialLimit();
+    }
+
+    /**
+     * Claims a slot if fewer than {@link #getLimit()} calls are in flight.
+     *
+     * @return the number of calls in flight including this one, or -1 if the call must be shed.
+     */
+    public int tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                rejected.increment();
+                return -1;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                accepted.increment();
+                return current + 1;
+            }
+        }
+    }
+
+    /**
+     * Releases a slot after a call that completed normally.
+     *
+     * @param rttNanos          how long the call took.
+     * @param inFlightAtAcquire the value returned by {@link #tryAcquire()}.
+     */
+    public void onSuccess(long rttNanos, int inFlightAtAcquire) {
+        inFlight.decrementAndGet();
+        synchronized (this) {
+            windowRttSum += rttNanos;
+            windowCount++;
+            windowMaxInFlight = Math.max(windowMaxInFlight, inFlightAtAcquire);
+            if (windowCount >= properties.windowSamples()) {
+                closeWindow();
+            }
+        }
+    }
+
+    /**
+     * Releases a slot after a call that timed out, and backs the limit off.
+     */
+    public void onTimeout() {
+        inFlight.decrementAndGet();
+        timeouts.increment();
+        synchronized (this) {
+            limit = Math.max(properties.minLimit(), limit * properties.backoffRatio());
+        }
+    }
+
+    /**
+     * Releases a slot without feeding the call into the limit, e.g. after a failure unrelated to load.
+     */
+    public void onIgnore() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized LimiterStats stats() {
+        return new LimiterStats(dataSource, (int) limit, inFlight.get(), accepted.sum(), rejected.sum(), timeouts.sum(),
+                shortRtt / 1_000_000.0, longRtt / 1_000_000.0);
+    }
+
+    private void closeWindow() {
+        shortRtt = (double) windowRttSum / windowCount;
+        int maxInFlight = windowMaxInFlight;
+        windowRttSum = 0;
+        windowCount = 0;
+        windowMaxInFlight = 0;
+
+        longRtt = longRtt == 0 ? shortRtt : longRtt * (1 - LONG_RTT_WEIGHT) + shortRtt * LONG_RTT_WEIGHT;
+        if (longRtt > 2 * shortRtt) {
+            // Load has dropped a lot; let the baseline catch up faster than the average would
+            longRtt *= 0.95;
+        }
+        if (maxInFlight < limit / 2) {
+            // The limit was not what bounded this window, so it says nothing about a higher one
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, properties.rttTolerance() * longRtt / shortRtt));
+        double target = limit * gradient + Math.sqrt(limit);
+        double smoothed = limit * (1 - properties.smoothing()) + target * properties.smoothing();
+        limit = Math.max(properties.minLimit(), Math.min(properties.maxLimit(), smoothed));
+    }
+}
@@ -0,0 +1,24 @@
+package com.nantan.app.limit;
+
+/**
+ * Point-in-time state of one data source's concurrency limiter.
+ *
+ * @param dataSource  the data source the limiter guards.
+ * @param limit       the current concurrency limit.
+ * @param inFlight    calls currently running against the data source.
+ * @param accepted    calls let through since startup.
+ * @param rejected    calls shed because the limit was reached.
+ * @param timeouts    calls that failed with a timeout or exceeded the operation timeout.
+ * @param shortRttMs  average latency of the last complete window, in milliseconds.
+ * @param longRttMs   long-term average latency the windows are compared against, in milliseconds.
+ */
+public record LimiterStats(
+        String dataSource,
+        int limit,
+        int inFlight,
+        long accepted,
+        long rejected,
+        long timeouts,
+        double shortRttMs,
+        double longRttMs) {
+}
@@ -0,0 +1,115 @@
+package com.nantan.app.limit;
+
+import com.nantan.app.Book;
+import com.nantan.app.BookQuery;
+import com.nantan.app.BookRepository;
+import com.nantan.app.ForwardingBookRepository;
+import com.nantan.app.exception.ConcurrencyLimitExceededException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Puts one data source's calls behind an {@link AdaptiveConcurrencyLimiter}.
+ * Calls beyond the limit fail fast with {@link ConcurrencyLimitExceededException}, so a slow data
+ * source sheds load instead of tying up the async threads its healthy neighbour needs.
+ * <p>
+ * The streaming export and bulk writes of at least {@code bulkThreshold} books (an import chunk) pass straight
+ * through: they are single long-running calls whose duration says nothing about the health of the data source.
+ * Smaller inserts and upserts are the everyday writes (a server-assigned add, a coalesced batch) and are limited
+ * like {@link #save}.
+ * <p>
+ * Each limited call runs under an {@link OperationDeadline} of the operation timeout, which the repositories
+ * pass to the database with every statement; the calls that pass through carry no deadline.
+ */
+public class LimitingBookRepository extends ForwardingBookRepository {
+
+    private final String dataSource;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final Duration operationTimeout;
+    private final int bulkThreshold;
+
+    public LimitingBookRepository(String dataSource, BookRepository delegate, AdaptiveConcurrencyLimiter limiter,
+                                  Duration operationTimeout, int bulkThreshold) {
+        super(delegate);
+        this.dataSource = dataSource;
+        this.limiter = limiter;
+        this.operationTimeout = operationTimeout;
+        this.bulkThreshold = bulkThreshold;
+    }
+
+    @Override
+    public List<Book> findAll() {
+        return limit(delegate::findAll);
+    }
+
+    @Override
+    public List<Book> findPage(int afterId, int limit) {
+        return limit(() -> delegate.findPage(afterId, limit));
+    }
+
+    @Override
+    public List<Book> findAllById(Iterable<Integer> ids) {
+        return limit(() -> delegate.findAllById(ids));
+    }
+
+    @Override
+    public List<Book> findMatching(BookQuery query, int limit) {
+        return limit(() -> delegate.findMatching(query, limit));
+    }
+
+    @Override
+    public Book save(Book book) {
+        return limit(() -> delegate.save(book));
+    }
+
+    @Override
+    public int insertAll(List<Book> batch) {
+        return batch.size() < bulkThreshold ? limit(() -> delegate.insertAll(batch)) : delegate.insertAll(batch);
+    }
+
+    @Override
+    public int upsertAll(List<Book> batch) {
+        return batch.size() < bulkThreshold ? limit(() -> delegate.upsertAll(batch)) : delegate.upsertAll(batch);
+    }
+
+    @Override
+    public boolean deleteById(int bookId) {
+        return limit(() -> delegate.deleteById(bookId));
+    }
+
+    @Override
+    public List<Integer> removeAllById(Collection<Integer> ids) {
+        return limit(() -> delegate.removeAllById(ids));
+    }
+
+    private <T> T limit(Supplier<T> call) {
+        int inFlight = limiter.tryAcquire();
+        if (inFlight < 0) {
+            throw new ConcurrencyLimitExceededException(dataSource, limiter.getLimit());
+        }
+        long startNanos = System.nanoTime();
+        T result;
+        try {
+            result = OperationDeadline.within(operationTimeout, call);
+        } catch (TransientDataAccessException | DataAccessResourceFailureException e) {
+            // Query timeouts (the deadline ran out) and lock waits: the data source is overloaded
+            limiter.onTimeout();
+            throw e;
+        } catch (RuntimeException | Error e) {
+            limiter.onIgnore();
+            throw e;
+        }
+        long rttNanos = System.nanoTime() - startNanos;
+        if (rttNanos > operationTimeout.toNanos()) {
+            limiter.onTimeout();
+        } else {
+            limiter.onSuccess(rttNanos, inFlight);
+        }
+        return result;
+    }
+}
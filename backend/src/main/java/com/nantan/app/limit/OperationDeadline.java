@@ -0,0 +1,49 @@
+package com.nantan.app.limit;
+
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The deadline of the limited call running on the current thread, set by {@link LimitingBookRepository}.
+ * The repositories turn it into a timeout on each statement they send (a JPA query timeout, a Mongo
+ * {@code maxTimeMS}), so the database cancels a call the limiter would count as timed out anyway. Calls that
+ * do not go through the limiter (import chunks, the replication relay, exports, index maintenance) have no
+ * deadline and run unbounded.
+ */
+public final class OperationDeadline {
+
+    private static final ThreadLocal<Long> DEADLINE_NANOS = new ThreadLocal<>();
+
+    private OperationDeadline() {
+    }
+
+    static <T> T within(Duration timeout, Supplier<T> call) {
+        Long outer = DEADLINE_NANOS.get();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        // 嵌套的受限调用不能延长外层调用的期限
+        DEADLINE_NANOS.set(outer == null || deadline - outer < 0 ? deadline : outer);
+        try {
+            return call.get();
+        } finally {
+            if (outer == null) {
+                DEADLINE_NANOS.remove();
+            } else {
+                DEADLINE_NANOS.set(outer);
+            }
+        }
+    }
+
+    /**
+     * Milliseconds left until the deadline, at least 1 so an overdue call still gets cancelled rather than
+     * unbounded; empty when no limited call is running on this thread.
+     */
+    public static OptionalLong remainingMillis() {
+        Long deadline = DEADLINE_NANOS.get();
+        if (deadline == null) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+    }
+}
@@ -0,0 +1,278 @@
+package com.nantan.app.local;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One generation of the append-only log: an 8-byte header ({@code int} magic, {@code int} version) followed by
+ * {@link LogRecord}s. All I/O is positional, so readers never contend with the appender for a file position.
+ * <p>
+ * A {@link FileChannel} is closed for every thread when a thread blocked in it is interrupted. The log then
+ * reopens the file, and only the interrupted thread sees the failure.
+ * <p>
+ * The log is reference counted: a compaction retires it while readers may still be using it, and the file is
+ * closed (and deleted) when the last of them releases it.
+ */
+final class BookLog {
+
+    static final int HEADER = 8;
+
+    private static final int MAGIC = 0x424B4C47;
+    private static final int VERSION = 1;
+    private static final int SCAN_CHUNK = 1 << 20;
+
+    private final Path path;
+    private final long generation;
+    private final AtomicInteger references = new AtomicInteger(1);
+    private volatile FileChannel channel;
+    private volatile boolean deleteWhenReleased;
+
+    private BookLog(Path path, long generation, FileChannel channel) {
+        this.path = path;
+        this.generation = generation;
+        this.channel = channel;
+    }
+
+    /**
+     * Creates an empty log, with its header on disk.
+     */
+    static BookLog create(Path path, long generation) throws IOException {
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER).putInt(MAGIC).putInt(VERSION).flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new BookLog(path, generation, channel);
+    }
+
+    static BookLog open(Path path, long generation) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+                // 读满文件头
+            }
+            if (header.hasRemaining() || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("Not a book log: " + path);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new BookLog(path, generation, channel);
+    }
+
+    Path path() {
+        return path;
+    }
+
+    long generation() {
+        return generation;
+    }
+
+    long size() throws IOException {
+        return call(FileChannel::size);
+    }
+
+    /**
+     * Reads until {@code dst} is full.
+     *
+     * @throws EOFException if the file ends first.
+     */
+    void read(ByteBuffer dst, long position) throws IOException {
+        int start = dst.position();
+        call(current -> {
+            while (dst.hasRemaining()) {
+                if (current.read(dst, position + dst.position() - start) < 0) {
+                    throw new EOFException("Unexpected end of " + path + " at " + (position + dst.position() - start));
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Writes all of {@code src}. A write that fails part-way leaves bytes behind the last complete record; the next
+     * append overwrites them, and recovery truncates whatever is left at the end of the file.
+     */
+    void write(ByteBuffer src, long position) throws IOException {
+        int start = src.position();
+        call(current -> {
+            while (src.hasRemaining()) {
+                current.write(src, position + src.position() - start);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Forces the records written so far to the device. Metadata is left to the file system: the file size changes
+     * with every append, and the records themselves tell recovery where the log ends.
+     */
+    void force() throws IOException {
+        call(current -> {
+            current.force(false);
+            return null;
+        });
+    }
+
+    void truncate(long size) throws IOException {
+        call(current -> current.truncate(size));
+    }
+
+    /**
+     * Reads the records between {@code from} and {@code to} in order, stopping at the first one that is incomplete
+     * or fails its checksum. The buffer passed to the visitor is reused for the next records.
+     *
+     * @return where the scan stopped: {@code to}, the start of the first damaged record, or the start of the record
+     * the visitor stopped at.
+     */
+    long scan(long from, long to, RecordVisitor visitor) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(SCAN_CHUNK).limit(0);
+        long chunkStart = from;
+        long position = from;
+        while (position < to) {
+            int at = (int) (position - chunkStart);
+            if (chunk.limit() - at < LogRecord.HEADER) {
+                chunk = fill(chunk, position, LogRecord.HEADER, to);
+                chunkStart = position;
+                at = 0;
+                if (chunk.limit() < LogRecord.HEADER) {
+                    break;
+                }
+            }
+            int body = LogRecord.bodyLength(chunk.duplicate().position(at));
+            if (body < 0) {
+                break;
+            }
+            int length = LogRecord.HEADER + body;
+            if (chunk.limit() - at < length) {
+                chunk = fill(chunk, position, length, to);
+                chunkStart = position;
+                at = 0;
+                if (chunk.limit() < length) {
+                    break;
+                }
+            }
+            ByteBuffer record = chunk.duplicate().limit(at + length).position(at);
+            if (!LogRecord.isIntact(record)) {
+                break;
+            }
+            if (!visitor.visit(record, position)) {
+                break;
+            }
+            position += length;
+        }
+        return position;
+    }
+
+    /**
+     * Takes a reference for a reader.
+     *
+     * @return false if the log has been retired and closed meanwhile.
+     */
+    boolean retain() {
+        while (true) {
+            int count = references.get();
+            if (count == 0) {
+                return false;
+            }
+            if (references.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void release() {
+        if (references.decrementAndGet() == 0) {
+            try {
+                channel.close();
+                if (deleteWhenReleased) {
+                    Files.deleteIfExists(path);
+                }
+            } catch (IOException e) {
+                // 文件已经不再使用; 下次启动时恢复会清理留下的旧一代文件
+            }
+        }
+    }
+
+    /**
+     * Drops the owner's reference: the file is closed, and deleted if asked, once no reader holds it any more.
+     */
+    void retire(boolean delete) {
+        deleteWhenReleased = delete;
+        release();
+    }
+
+    private <T> T call(ChannelCall<T> call) throws IOException {
+        FileChannel current = channel;
+        while (true) {
+            try {
+                return call.apply(current);
+            } catch (ClosedChannelException e) {
+                if (references.get() == 0) {
+                    throw e;
+                }
+                FileChannel reopened = reopen(current);
+                if (Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+                current = reopened;
+            }
+        }
+    }
+
+    private FileChannel reopen(FileChannel failed) throws IOException {
+        // 被中断的线程会立刻再次关闭新打开的通道, 所以先清掉中断标记, 打开之后再恢复
+        boolean interrupted = Thread.interrupted();
+        try {
+            synchronized (this) {
+                if (channel == failed && references.get() > 0) {
+                    channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                }
+                return channel;
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private ByteBuffer fill(ByteBuffer chunk, long position, int needed, long to) throws IOException {
+        ByteBuffer next = needed > chunk.capacity() ? ByteBuffer.allocate(needed) : chunk.clear();
+        next.limit((int) Math.min(next.capacity(), to - position));
+        read(next, position);
+        return next.flip();
+    }
+
+    @FunctionalInterface
+    interface RecordVisitor {
+
+        /**
+         * @param record the record, between position and limit; only valid during the call.
+         * @param offset where the record starts in the log.
+         * @return false to stop the scan.
+         */
+        boolean visit(ByteBuffer record, long offset) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface ChannelCall<T> {
+        T apply(FileChannel channel) throws IOException;
+    }
+}
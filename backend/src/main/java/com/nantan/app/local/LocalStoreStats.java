@@ -0,0 +1,35 @@
+package com.nantan.app.local;
+
+/**
+ * Point-in-time state of the local store.
+ *
+ * @param directory        where the store's files are.
+ * @param generation       the current generation of log and index; each compaction starts a new one.
+ * @param logBytes         size of the current log.
+ * @param garbageBytes     bytes of the log taken by deleted and overwritten records, which a compaction reclaims.
+ * @param indexedBooks     books in the mapped index as of the last checkpoint.
+ * @param indexBytes       size of the mapped index file.
+ * @param pendingChanges   changes applied since the last checkpoint, which a restart would replay.
+ * @param appendedRecords  records appended since startup.
+ * @param syncs            fsyncs (or, without fsync, batches made visible) since startup; with concurrent writers
+ *                         this is lower than {@code appendedRecords}.
+ * @param checkpoints      checkpoints written since startup.
+ * @param compactions      compactions run since startup.
+ * @param recoveredRecords records replayed from the log at startup.
+ * @param recoveryMillis   time spent opening and recovering the store at startup, in milliseconds.
+ */
+public record LocalStoreStats(
+        String directory,
+        long generation,
+        long logBytes,
+        long garbageBytes,
+        int indexedBooks,
+        long indexBytes,
+        int pendingChanges,
+        long appendedRecords,
+        long syncs,
+        long checkpoints,
+        long compactions,
+        long recoveredRecords,
+        long recoveryMillis) {
+}
@@ -0,0 +1,154 @@
+package com.nantan.app.local;
+
+import com.nantan.app.Book;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+/**
+ * The format of one record in a {@link BookLog}:
+ * <pre>
+ * int  body length
+ * int  CRC-32C of the body
+ * body byte  type (1 = put, 2 = delete, 3 = reserve)
+ *      int   book ID; reserve: the last ID of a block handed to the ID allocator
+ *      put:  int title length in bytes (-1 for null), UTF-8 title, then the same for the author
+ * </pre>
+ * Records are self-describing, so the log can be replayed without the index, and the checksum tells a record
+ * torn by a crash from a complete one.
+ * <p>
+ * The index refers to a record by its location: the file offset and the record length packed into one long.
+ */
+final class LogRecord {
+
+    static final int HEADER = 8;
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+    static final byte RESERVE = 3;
+
+    /** The longest record a location can describe (24 bits of length). */
+    static final int MAX_LENGTH = (1 << 24) - 1;
+
+    private static final int MIN_BODY = 5;
+
+    private LogRecord() {
+    }
+
+    static ByteBuffer put(Book book) {
+        byte[] title = utf8(book.getTitle());
+        byte[] author = utf8(book.getAuthor());
+        int body = MIN_BODY + 4 + (title == null ? 0 : title.length) + 4 + (author == null ? 0 : author.length);
+        if (HEADER + body > MAX_LENGTH) {
+            throw new IllegalArgumentException("Book " + book.getId() + " is too large for the local store");
+        }
+        ByteBuffer record = ByteBuffer.allocate(HEADER + body);
+        record.position(HEADER);
+        record.put(PUT).putInt(book.getId());
+        putString(record, title);
+        putString(record, author);
+        return seal(record);
+    }
+
+    static ByteBuffer delete(int id) {
+        return idRecord(DELETE, id);
+    }
+
+    static ByteBuffer reserve(int lastId) {
+        return idRecord(RESERVE, lastId);
+    }
+
+    /**
+     * The body length in a record header, or -1 if it cannot be the header of a record.
+     */
+    static int bodyLength(ByteBuffer record) {
+        int length = record.getInt(record.position());
+        return length < MIN_BODY || length > MAX_LENGTH - HEADER ? -1 : length;
+    }
+
+    /**
+     * Whether the checksum of the record between position and limit matches its body.
+     */
+    static boolean isIntact(ByteBuffer record) {
+        int start = record.position();
+        if (record.remaining() < HEADER + MIN_BODY || record.getInt(start) != record.remaining() - HEADER) {
+            return false;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(record.duplicate().position(start + HEADER));
+        return (int) crc.getValue() == record.getInt(start + 4);
+    }
+
+    static byte type(ByteBuffer record) {
+        return record.get(record.position() + HEADER);
+    }
+
+    static int id(ByteBuffer record) {
+        return record.getInt(record.position() + HEADER + 1);
+    }
+
+    /**
+     * Decodes a put record.
+     *
+     * @throws IOException if the record is damaged.
+     */
+    static Book toBook(ByteBuffer record) throws IOException {
+        if (!isIntact(record) || type(record) != PUT) {
+            throw new IOException("Damaged book record of " + record.remaining() + " bytes");
+        }
+        ByteBuffer body = record.duplicate().position(record.position() + HEADER + 1);
+        int id = body.getInt();
+        String title = getString(body);
+        String author = getString(body);
+        return new Book(id, title, author);
+    }
+
+    static long location(long offset, int length) {
+        return offset << 24 | length;
+    }
+
+    static long offset(long location) {
+        return location >>> 24;
+    }
+
+    static int length(long location) {
+        return (int) (location & MAX_LENGTH);
+    }
+
+    private static ByteBuffer idRecord(byte type, int id) {
+        ByteBuffer record = ByteBuffer.allocate(HEADER + MIN_BODY);
+        record.position(HEADER);
+        record.put(type).putInt(id);
+        return seal(record);
+    }
+
+    private static ByteBuffer seal(ByteBuffer record) {
+        CRC32C crc = new CRC32C();
+        crc.update(record.duplicate().flip().position(HEADER));
+        record.putInt(0, record.position() - HEADER).putInt(4, (int) crc.getValue());
+        return record.flip();
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void putString(ByteBuffer record, byte[] value) {
+        if (value == null) {
+            record.putInt(-1);
+        } else {
+            record.putInt(value.length).put(value);
+        }
+    }
+
+    private static String getString(ByteBuffer body) {
+        int length = body.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        body.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,1314 @@
+package com.nantan.app.local;
+
+import com.nantan.app.Book;
+import com.nantan.app.BookQuery;
+import com.nantan.app.BookRepository;
+import com.nantan.app.config.LocalStoreProperties;
+import com.nantan.app.exception.BulkInsertException;
+import com.nantan.app.id.IdBlockSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A {@link BookRepository} kept in local files, for instances that run without a database server
+ * ({@code dataSource=local}).
+ * <p>
+ * <b>Writes</b> are appended to a {@link BookLog} under one lock and become visible to reads once they are durable.
+ * A writer that finds no fsync running performs one for everything appended so far; writers that arrive meanwhile
+ * wait for the next one, so under load one fsync covers many writes (group commit). If an fsync fails, every write
+ * waiting for it fails, none of them becomes visible, and the store refuses writes until it is reopened.
+ * <p>
+ * <b>Reads</b> find a book in up to three layers, newest first: the changes applied since the last checkpoint, the
+ * changes a running checkpoint is writing out, and the {@link MappedIdIndex}. A lookup by ID is a skip-list probe of
+ * a bounded number of changes and a hash probe of the mapped file; ordered reads merge the layers in ID order.
+ * There is no index on author or title: {@link #findMatching} narrows by ID range and filters the rest,
+ * like {@link com.nantan.app.memory.InMemoryBookRepository}.
+ * <p>
+ * <b>IDs</b> for books added without one are reserved in blocks from a counter kept in the store itself
+ * ({@link #reserve}): each reservation is a record in the log, and checkpoints carry the last one into the index,
+ * so the local data source hands out IDs without a database server.
+ * <p>
+ * <b>Maintenance</b> runs on a background thread. A checkpoint writes the changes held in memory into a new index
+ * file. A compaction copies the live records into the next generation of log and index once deleted and overwritten
+ * records take up enough of the log; writers only wait while it copies the records appended during the copy.
+ * <p>
+ * <b>Recovery</b> opens the newest generation with a complete index and replays the log from the index's checkpoint,
+ * stopping at the first torn or damaged record and truncating the log there.
+ */
+public class LogStructuredBookStore implements BookRepository, IdBlockSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogStructuredBookStore.class);
+
+    /** The location of a deleted book in the change layers. */
+    private static final long TOMBSTONE = -1;
+    /** Marks an ID reservation among the unapplied records; it has no location and changes no book. */
+    private static final long RESERVATION = -2;
+    private static final Pattern STORE_FILE = Pattern.compile("books-(\\d+)\\.(log|idx)");
+    private static final int COPY_BUFFER = 1 << 20;
+
+    private final Path directory;
+    private final LocalStoreProperties properties;
+    private final FileLock directoryLock;
+    private final Object maintenanceLock = new Object();
+    private final ScheduledExecutorService maintenance;
+    private volatile boolean closed;
+
+    private volatile View view;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    // guarded by appendLock
+    private final ArrayDeque<Mutation> unapplied = new ArrayDeque<>();
+    private final Map<Integer, Long> unappliedById = new HashMap<>();
+    private long appendPosition;
+    private long appendSequence;
+    private long appliedPosition;
+    private long garbageBytes;
+    private int changesSinceCheckpoint;
+    // the last ID reserved, including reservations that are not durable yet
+    private int reservedThrough;
+    private int appliedReservation;
+
+    private final Object syncMonitor = new Object();
+    // guarded by syncMonitor
+    private boolean syncing;
+    private volatile long durableSequence;
+    // set by the leader whose fsync failed; no write becomes durable after it
+    private volatile IOException failure;
+
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder syncs = new LongAdder();
+    private final AtomicLong checkpoints = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+    private final long recoveredRecords;
+    private final Duration recoveryTime;
+
+    /**
+     * Opens the store in {@code properties.directory()}, creating it if needed, and recovers from the files there.
+     *
+     * @throws IOException if the directory is used by another store or its files cannot be recovered.
+     */
+    public LogStructuredBookStore(LocalStoreProperties properties) throws IOException {
+        this.properties = properties;
+        this.directory = properties.directory().toAbsolutePath();
+        Files.createDirectories(directory);
+        this.directoryLock = lockDirectory(directory);
+        try {
+            long started = System.nanoTime();
+            Recovered recovered = recover(directory);
+            this.view = recovered.view();
+            this.appendPosition = recovered.end();
+            this.appliedPosition = recovered.end();
+            this.garbageBytes = recovered.garbageBytes();
+            this.changesSinceCheckpoint = recovered.replayed();
+            this.reservedThrough = recovered.reserved();
+            this.appliedReservation = recovered.reserved();
+            this.recoveredRecords = recovered.replayed();
+            this.recoveryTime = Duration.ofNanos(System.nanoTime() - started);
+        } catch (IOException | RuntimeException e) {
+            unlock(directoryLock);
+            throw e;
+        }
+        logger.info("Opened local store {} (generation {}): {} books in the index, {} records replayed in {} ms",
+                directory, view.log().generation(), view.index().size(), recoveredRecords, recoveryTime.toMillis());
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("LocalStoreMaintenance-"));
+        long interval = properties.maintenanceInterval().toMillis();
+        if (interval > 0) {
+            maintenance.scheduleWithFixedDelay(this::maintain, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public List<Book> findAll() {
+        return withView(current -> {
+            List<Book> books = new ArrayList<>();
+            scan(current, Integer.MIN_VALUE, false, (id, location) -> books.add(load(current, location)));
+            return books;
+        });
+    }
+
+    @Override
+    public List<Book> findPage(int afterId, int limit) {
+        if (afterId == Integer.MAX_VALUE || limit <= 0) {
+            return new ArrayList<>();
+        }
+        return withView(current -> {
+            List<Book> page = new ArrayList<>(Math.min(limit, 1024));
+            scan(current, afterId + 1, false, (id, location) -> {
+                page.add(load(current, location));
+                return page.size() < limit;
+            });
+            return page;
+        });
+    }
+
+    @Override
+    public List<Book> findAllById(Iterable<Integer> ids) {
+        return withView(current -> {
+            List<Book> found = new ArrayList<>();
+            for (Integer id : ids) {
+                long location = current.locate(id);
+                if (location != MappedIdIndex.ABSENT) {
+                    found.add(load(current, location));
+                }
+            }
+            return found;
+        });
+    }
+
+    /**
+     * The log is only indexed by ID: the ID range narrows the scan and the other filters are applied to every book
+     * in it. Title orders keep the best {@code limit} books in a heap rather than sorting the range.
+     */
+    @Override
+    public List<Book> findMatching(BookQuery query, int limit) {
+        int minId = query.minId() == null ? Integer.MIN_VALUE : query.minId();
+        int maxId = query.maxId() == null ? Integer.MAX_VALUE : query.maxId();
+        if (minId > maxId || limit <= 0) {
+            return new ArrayList<>();
+        }
+        boolean byTitle = query.order().property().equals("title");
+        boolean descending = query.order().descending();
+        Comparator<Book> order = byTitle
+                ? Comparator.comparing(Book::getTitle, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+                        .thenComparing(Book::getId)
+                : Comparator.comparing(Book::getId);
+        Comparator<Book> ordered = descending ? order.reversed() : order;
+        List<Book> found = withView(current -> {
+            if (!byTitle) {
+                List<Book> books = new ArrayList<>(Math.min(limit, 1024));
+                scan(current, descending ? maxId : minId, descending, (id, location) -> {
+                    if (descending ? id < minId : id > maxId) {
+                        return false;
+                    }
+                    Book book = load(current, location);
+                    if (matches(query, book)) {
+                        books.add(book);
+                    }
+                    return books.size() < limit;
+                });
+                return books;
+            }
+            // 堆顶是目前最差的一本, 超出 limit 时把它挤出去
+            PriorityQueue<Book> best = new PriorityQueue<>(ordered.reversed());
+            scan(current, minId, false, (id, location) -> {
+                if (id > maxId) {
+                    return false;
+                }
+                Book book = load(current, location);
+                if (matches(query, book)) {
+                    best.add(book);
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+                return true;
+            });
+            return new ArrayList<>(best);
+        });
+        return found.stream()
+                .sorted(ordered)
+                .map(book -> new Book(book.getId(),
+                        query.includes(BookQuery.Field.TITLE) ? book.getTitle() : null,
+                        query.includes(BookQuery.Field.AUTHOR) ? book.getAuthor() : null))
+                .toList();
+    }
+
+    @Override
+    public int findMaxId() {
+        return withView(current -> {
+            int[] max = {0};
+            scan(current, Integer.MAX_VALUE, true, (id, location) -> {
+                max[0] = id;
+                return false;
+            });
+            return max[0];
+        });
+    }
+
+    @Override
+    public long exportAll(Consumer<? super Book> sink) {
+        return withView(current -> {
+            long[] count = {0};
+            scan(current, Integer.MIN_VALUE, false, (id, location) -> {
+                sink.accept(load(current, location));
+                count[0]++;
+                return true;
+            });
+            return count[0];
+        });
+    }
+
+    @Override
+    public Book save(Book book) {
+        commit(List.of(new Pending(book.getId(), LogRecord.put(book))), (position, pending) -> true);
+        return book;
+    }
+
+    /**
+     * Behaves like the unordered Mongo bulk insert: books with a new ID are inserted,
+     * duplicates are rejected and reported by position.
+     */
+    @Override
+    public int insertAll(List<Book> batch) {
+        List<Integer> rejected = new ArrayList<>();
+        Set<Integer> admitted = new HashSet<>();
+        commit(puts(batch), (position, pending) -> {
+            if (storedLocked(pending.id()) || !admitted.add(pending.id())) {
+                rejected.add(position);
+                return false;
+            }
+            return true;
+        });
+        if (!rejected.isEmpty()) {
+            throw new BulkInsertException(batch.size() - rejected.size(), rejected,
+                    rejected.size() + " of " + batch.size() + " books rejected as duplicates", null);
+        }
+        return batch.size();
+    }
+
+    @Override
+    public int upsertAll(List<Book> batch) {
+        commit(puts(batch), (position, pending) -> true);
+        return batch.size();
+    }
+
+    @Override
+    public boolean deleteById(int bookId) {
+        boolean[] deleted = {false};
+        commit(List.of(new Pending(bookId, LogRecord.delete(bookId))),
+                (position, pending) -> deleted[0] = storedLocked(bookId));
+        return deleted[0];
+    }
+
+    @Override
+    public List<Integer> removeAllById(Collection<Integer> ids) {
+        List<Integer> removed = new ArrayList<>();
+        List<Pending> deletes = ids.stream().distinct().sorted()
+                .map(id -> new Pending(id, LogRecord.delete(id)))
+                .toList();
+        commit(deletes, (position, pending) -> {
+            if (!storedLocked(pending.id())) {
+                return false;
+            }
+            removed.add(pending.id());
+            return true;
+        });
+        return removed;
+    }
+
+    /**
+     * Reserves the next block of IDs for {@code dataSource=local}. The block starts above both the last reservation
+     * and the highest ID stored, so IDs that clients chose themselves are skipped, and is durable like any write
+     * before this method returns.
+     */
+    @Override
+    public long reserve(int size) {
+        long first;
+        long sequence;
+        appendLock.lock();
+        try {
+            checkWritableLocked();
+            first = Math.max((long) reservedThrough, highestIdLocked()) + 1;
+            long last = first + size - 1;
+            if (last > Integer.MAX_VALUE) {
+                throw new IllegalStateException("The local store has no IDs left to reserve after " + reservedThrough);
+            }
+            sequence = appendLocked(List.of(new Pending((int) last, LogRecord.reserve((int) last))));
+            reservedThrough = (int) last;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            appendLock.unlock();
+        }
+        awaitDurable(sequence);
+        return first;
+    }
+
+    /**
+     * Writes the changes held in memory into a new index file, so that a restart need not replay them.
+     * The background thread does this every {@code checkpointEntries} changes.
+     */
+    public void checkpoint() {
+        synchronized (maintenanceLock) {
+            try {
+                checkpointLocked();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Copies the live records into a new generation of log and index and deletes the old one.
+     * The background thread does this when the garbage thresholds are reached.
+     */
+    public void compact() {
+        synchronized (maintenanceLock) {
+            try {
+                compactLocked();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    public LocalStoreStats stats() {
+        appendLock.lock();
+        try {
+            View current = view;
+            return new LocalStoreStats(directory.toString(), current.log().generation(),
+                    appendPosition, garbageBytes, current.index().size(), current.index().bytes(),
+                    changesSinceCheckpoint, appended.sum(), syncs.sum(), checkpoints.get(), compactions.get(),
+                    recoveredRecords, recoveryTime.toMillis());
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Stops maintenance, writes a final checkpoint (so the next start replays nothing) and releases the directory.
+     * Reads still running keep the files open until they finish.
+     */
+    @Override
+    public void close() {
+        appendLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            appendLock.unlock();
+        }
+        maintenance.shutdown();
+        try {
+            if (!maintenance.awaitTermination(1, TimeUnit.MINUTES)) {
+                logger.warn("Local store maintenance did not finish within a minute");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (maintenanceLock) {
+            try {
+                acquireLeadership();
+                try {
+                    appendLock.lock();
+                    try {
+                        flushLocked();
+                    } finally {
+                        appendLock.unlock();
+                    }
+                } finally {
+                    releaseLeadership();
+                }
+                checkpointLocked();
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Could not checkpoint the local store on close; the next start replays the log", e);
+            }
+            view.log().retire(false);
+        }
+        unlock(directoryLock);
+    }
+
+    // ---- writes ----
+
+    private void commit(List<Pending> records, Admission admission) {
+        long sequence;
+        appendLock.lock();
+        try {
+            checkWritableLocked();
+            List<Pending> admitted = new ArrayList<>(records.size());
+            for (int i = 0; i < records.size(); i++) {
+                if (admission.admit(i, records.get(i))) {
+                    admitted.add(records.get(i));
+                }
+            }
+            sequence = appendLocked(admitted);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            appendLock.unlock();
+        }
+        awaitDurable(sequence);
+    }
+
+    // guarded by appendLock
+    private void checkWritableLocked() {
+        if (closed) {
+            throw new IllegalStateException("The local store is closed");
+        }
+        if (failure != null) {
+            throw new IllegalStateException("The local store failed to sync its log and must be reopened", failure);
+        }
+    }
+
+    // guarded by appendLock
+    private long appendLocked(List<Pending> records) throws IOException {
+        if (records.isEmpty()) {
+            return 0;
+        }
+        ByteBuffer out;
+        if (records.size() == 1) {
+            out = records.get(0).record().duplicate();
+        } else {
+            out = ByteBuffer.allocate(records.stream().mapToInt(pending -> pending.record().remaining()).sum());
+            records.forEach(pending -> out.put(pending.record().duplicate()));
+            out.flip();
+        }
+        view.log().write(out, appendPosition);
+        long offset = appendPosition;
+        for (Pending pending : records) {
+            int length = pending.record().remaining();
+            long location = switch (LogRecord.type(pending.record())) {
+                case LogRecord.DELETE -> TOMBSTONE;
+                case LogRecord.RESERVE -> RESERVATION;
+                default -> LogRecord.location(offset, length);
+            };
+            offset += length;
+            unapplied.add(new Mutation(pending.id(), location, length, offset, ++appendSequence));
+            if (location != RESERVATION) {
+                unappliedById.put(pending.id(), location);
+            }
+        }
+        appendPosition = offset;
+        appended.add(records.size());
+        return appendSequence;
+    }
+
+    // guarded by appendLock: like findMaxId, but also sees books appended and not yet visible
+    private int highestIdLocked() throws IOException {
+        int[] highest = {0};
+        scan(view, Integer.MAX_VALUE, true, (id, location) -> {
+            highest[0] = id;
+            return false;
+        });
+        for (Map.Entry<Integer, Long> pending : unappliedById.entrySet()) {
+            if (pending.getValue() != TOMBSTONE) {
+                highest[0] = Math.max(highest[0], pending.getKey());
+            }
+        }
+        return highest[0];
+    }
+
+    // guarded by appendLock: sees writes that are appended but not yet visible to reads
+    private boolean storedLocked(int id) {
+        Long pending = unappliedById.get(id);
+        if (pending != null) {
+            return pending != TOMBSTONE;
+        }
+        return view.locate(id) != MappedIdIndex.ABSENT;
+    }
+
+    /**
+     * Returns once the append with the given sequence number is durable and visible. Whoever finds no fsync running
+     * performs it for everyone; the others wait for it.
+     */
+    private void awaitDurable(long sequence) {
+        boolean interrupted = false;
+        try {
+            while (durableSequence < sequence) {
+                synchronized (syncMonitor) {
+                    if (durableSequence >= sequence) {
+                        break;
+                    }
+                    if (failure != null) {
+                        throw new UncheckedIOException("The local store failed to sync its log", failure);
+                    }
+                    if (syncing) {
+                        try {
+                            syncMonitor.wait();
+                        } catch (InterruptedException e) {
+                            // 记录已经写入日志, 放弃等待会让调用者误以为写入失败; 等完再恢复中断标记
+                            interrupted = true;
+                        }
+                        continue;
+                    }
+                    syncing = true;
+                }
+                try {
+                    sync();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    releaseLeadership();
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // the caller is the leader; writers keep appending during the fsync
+    private void sync() throws IOException {
+        if (!properties.groupCommitWindow().isZero()) {
+            LockSupport.parkNanos(properties.groupCommitWindow().toNanos());
+        }
+        long target;
+        appendLock.lock();
+        try {
+            target = appendSequence;
+        } finally {
+            appendLock.unlock();
+        }
+        if (target <= durableSequence || failure != null) {
+            return;
+        }
+        if (properties.fsync()) {
+            try {
+                force(view.log());
+            } catch (IOException e) {
+                appendLock.lock();
+                try {
+                    failLocked(e);
+                } finally {
+                    appendLock.unlock();
+                }
+                throw e;
+            }
+        }
+        appendLock.lock();
+        try {
+            applyLocked(target);
+        } finally {
+            appendLock.unlock();
+        }
+        durableSequence = target;
+        syncs.increment();
+    }
+
+    // the caller is the leader and holds appendLock
+    private void flushLocked() throws IOException {
+        long target = appendSequence;
+        if (target > durableSequence && failure == null) {
+            if (properties.fsync()) {
+                try {
+                    force(view.log());
+                } catch (IOException e) {
+                    failLocked(e);
+                    throw e;
+                }
+            }
+            applyLocked(target);
+            durableSequence = target;
+            syncs.increment();
+        }
+    }
+
+    /**
+     * Forces the log to disk. After a failed fsync the kernel may already have dropped the dirty pages, so whether
+     * the records reached the device is unknown; package-private so tests can make it fail.
+     */
+    void force(BookLog log) throws IOException {
+        log.force();
+    }
+
+    /**
+     * Handles a failed fsync: the writes waiting for it were told they failed, so none of them may become visible.
+     * They are dropped, the log is cut back to the last durable record, and the store refuses writes until it is
+     * reopened. Reads keep answering from the durable state.
+     */
+    // the caller is the leader and holds appendLock
+    private void failLocked(IOException cause) {
+        unapplied.clear();
+        unappliedById.clear();
+        appendPosition = appliedPosition;
+        reservedThrough = appliedReservation;
+        try {
+            // 尽力而为: 截断失败时, 重启后的恢复仍可能重放这些记录
+            view.log().truncate(appliedPosition);
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+        }
+        failure = cause;
+        logger.error("Could not sync the local store log in {}; writes are refused until it is reopened",
+                directory, cause);
+    }
+
+    // guarded by appendLock
+    private void applyLocked(long sequence) {
+        View current = view;
+        while (!unapplied.isEmpty() && unapplied.peekFirst().sequence() <= sequence) {
+            Mutation mutation = unapplied.pollFirst();
+            if (mutation.location() == RESERVATION) {
+                // 压缩只保留最后一次预留
+                appliedReservation = mutation.id();
+                garbageBytes += mutation.length();
+            } else {
+                long previous = current.locate(mutation.id());
+                if (previous != MappedIdIndex.ABSENT) {
+                    garbageBytes += LogRecord.length(previous);
+                }
+                if (mutation.location() == TOMBSTONE) {
+                    garbageBytes += mutation.length();
+                }
+                current.active().put(mutation.id(), mutation.location());
+                unappliedById.remove(mutation.id(), mutation.location());
+            }
+            appliedPosition = mutation.end();
+            changesSinceCheckpoint++;
+        }
+    }
+
+    private void acquireLeadership() {
+        boolean interrupted = false;
+        synchronized (syncMonitor) {
+            while (syncing) {
+                try {
+                    syncMonitor.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            syncing = true;
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void releaseLeadership() {
+        synchronized (syncMonitor) {
+            syncing = false;
+            syncMonitor.notifyAll();
+        }
+    }
+
+    // ---- maintenance ----
+
+    private void maintain() {
+        boolean checkpoint;
+        boolean compact;
+        appendLock.lock();
+        try {
+            checkpoint = changesSinceCheckpoint >= properties.checkpointEntries();
+            compact = garbageBytes >= properties.compactionMinBytes()
+                    && garbageBytes >= properties.compactionGarbageRatio() * (appendPosition - BookLog.HEADER);
+        } finally {
+            appendLock.unlock();
+        }
+        try {
+            // 压缩同时也把内存里的改动写进了新索引
+            if (compact) {
+                compact();
+            } else if (checkpoint) {
+                checkpoint();
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Local store maintenance failed; it is retried in {}", properties.maintenanceInterval(), e);
+        }
+    }
+
+    // guarded by maintenanceLock
+    private void checkpointLocked() throws IOException {
+        View frozen;
+        long covered;
+        int reserved;
+        appendLock.lock();
+        try {
+            View current = view;
+            if (current.active().isEmpty() && appliedReservation == current.index().reserved()) {
+                return;
+            }
+            frozen = new View(current.log(), current.index(), current.active(), new ConcurrentSkipListMap<>());
+            covered = appliedPosition;
+            reserved = appliedReservation;
+            changesSinceCheckpoint = 0;
+            view = frozen;
+        } finally {
+            appendLock.unlock();
+        }
+        if (!properties.fsync()) {
+            // 索引不能指向还没落盘的记录
+            frozen.log().force();
+        }
+        long generation = frozen.log().generation();
+        int count = merge(frozen.index(), frozen.frozen(), null);
+        MappedIdIndex index;
+        try (MappedIdIndex.Writer writer = new MappedIdIndex.Writer(indexPath(directory, generation), count)) {
+            merge(frozen.index(), frozen.frozen(), writer);
+            index = writer.commit(covered, generation, reserved);
+        }
+        appendLock.lock();
+        try {
+            view = new View(view.log(), index, null, view.active());
+        } finally {
+            appendLock.unlock();
+        }
+        checkpoints.incrementAndGet();
+    }
+
+    // guarded by maintenanceLock
+    private void compactLocked() throws IOException {
+        View start;
+        long copiedUpTo;
+        appendLock.lock();
+        try {
+            start = view;
+            copiedUpTo = appliedPosition;
+        } finally {
+            appendLock.unlock();
+        }
+        long generation = start.log().generation() + 1;
+        Path logPath = logPath(directory, generation);
+        Files.deleteIfExists(logPath);
+        BookLog target = BookLog.create(logPath, generation);
+        Copy copy = new Copy(target);
+        boolean swapped = false;
+        try {
+            // 第一阶段不持锁: 复制此刻有效的记录, 期间的写入照常追加到旧日志
+            long scanned = start.log().scan(BookLog.HEADER, copiedUpTo, (record, offset) -> {
+                if (LogRecord.type(record) == LogRecord.PUT
+                        && start.locate(LogRecord.id(record)) == LogRecord.location(offset, record.remaining())) {
+                    copy.keep(record);
+                }
+                return true;
+            });
+            if (scanned < copiedUpTo) {
+                throw new IOException("Damaged record at offset " + scanned + " of " + start.log().path());
+            }
+            // 第二阶段挡住写入: 补上第一阶段期间追加的记录, 然后换成新的一代
+            acquireLeadership();
+            try {
+                appendLock.lock();
+                try {
+                    flushLocked();
+                    long tailEnd = appliedPosition;
+                    NavigableMap<Integer, Long> tail = new TreeMap<>();
+                    scanned = start.log().scan(copiedUpTo, tailEnd, (record, offset) -> {
+                        switch (LogRecord.type(record)) {
+                            case LogRecord.PUT -> tail.put(LogRecord.id(record), copy.append(record));
+                            case LogRecord.DELETE -> tail.put(LogRecord.id(record), TOMBSTONE);
+                            default -> {
+                                // 预留记录不进索引, 下面只写一条最新的
+                            }
+                        }
+                        return true;
+                    });
+                    if (scanned < tailEnd) {
+                        throw new IOException("Damaged record at offset " + scanned + " of " + start.log().path());
+                    }
+                    if (appliedReservation != 0) {
+                        // 新一代的索引损坏时要从日志重建, 日志里也得有这个值
+                        copy.append(LogRecord.reserve(appliedReservation));
+                    }
+                    long end = copy.finish();
+                    int count = merge(copy, tail, null);
+                    MappedIdIndex index;
+                    long liveBytes;
+                    try (MappedIdIndex.Writer writer = new MappedIdIndex.Writer(indexPath(directory, generation), count)) {
+                        merge(copy, tail, writer);
+                        liveBytes = writer.liveBytes();
+                        index = writer.commit(end, generation, appliedReservation);
+                    }
+                    view = new View(target, index, null, new ConcurrentSkipListMap<>());
+                    swapped = true;
+                    appendPosition = end;
+                    appliedPosition = end;
+                    garbageBytes = end - BookLog.HEADER - liveBytes;
+                    changesSinceCheckpoint = 0;
+                } finally {
+                    appendLock.unlock();
+                }
+            } finally {
+                releaseLeadership();
+            }
+        } finally {
+            if (!swapped) {
+                target.retire(true);
+                Files.deleteIfExists(indexPath(directory, generation));
+            }
+        }
+        start.log().retire(true);
+        Files.deleteIfExists(start.index().path());
+        compactions.incrementAndGet();
+        logger.info("Compacted local store {} into generation {}", directory, generation);
+    }
+
+    /**
+     * Applies the changes (tombstones remove) to the base locations in ID order.
+     *
+     * @param writer receives the result, or null to only count it.
+     * @return the number of books in the result.
+     */
+    private static int merge(SortedLocations base, NavigableMap<Integer, Long> changes, MappedIdIndex.Writer writer) {
+        int count = 0;
+        int position = 0;
+        Iterator<Map.Entry<Integer, Long>> pending = changes.entrySet().iterator();
+        Map.Entry<Integer, Long> change = pending.hasNext() ? pending.next() : null;
+        while (position < base.size() || change != null) {
+            int id;
+            long location;
+            if (change == null || (position < base.size() && base.idAt(position) < change.getKey())) {
+                id = base.idAt(position);
+                location = base.locationAt(position++);
+            } else {
+                id = change.getKey();
+                location = change.getValue();
+                if (position < base.size() && base.idAt(position) == id) {
+                    position++;
+                }
+                change = pending.hasNext() ? pending.next() : null;
+            }
+            if (location != TOMBSTONE) {
+                if (writer != null) {
+                    writer.add(id, location);
+                }
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // ---- reads ----
+
+    private <T> T withView(ViewCall<T> call) {
+        View current = acquire();
+        try {
+            return call.apply(current);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            current.log().release();
+        }
+    }
+
+    private View acquire() {
+        while (true) {
+            if (closed) {
+                throw new IllegalStateException("The local store is closed");
+            }
+            View current = view;
+            if (current.log().retain()) {
+                return current;
+            }
+            // 压缩刚刚换下了这一代日志, 新的 view 已经发布
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Visits the books from {@code from} (inclusive) onwards in ID order, merging the layers of the view.
+     */
+    private static void scan(View view, int from, boolean descending, LocationVisitor visitor) throws IOException {
+        MappedIdIndex index = view.index();
+        int position = descending ? index.firstAfter(from) - 1 : index.firstAtOrAfter(from);
+        int step = descending ? -1 : 1;
+        Layer active = new Layer(view.active(), from, descending);
+        Layer frozen = new Layer(view.frozen(), from, descending);
+        while (true) {
+            boolean indexed = position >= 0 && position < index.size();
+            if (!indexed && active.head == null && frozen.head == null) {
+                return;
+            }
+            // 三层里最靠前的 ID; 同一个 ID 以最新的一层为准
+            int id = indexed ? index.idAt(position) : 0;
+            boolean found = indexed;
+            if (frozen.head != null && (!found || precedes(frozen.head.getKey(), id, descending))) {
+                id = frozen.head.getKey();
+                found = true;
+            }
+            if (active.head != null && (!found || precedes(active.head.getKey(), id, descending))) {
+                id = active.head.getKey();
+            }
+            long location = MappedIdIndex.ABSENT;
+            if (active.head != null && active.head.getKey() == id) {
+                location = active.head.getValue();
+                active.advance();
+            }
+            if (frozen.head != null && frozen.head.getKey() == id) {
+                if (location == MappedIdIndex.ABSENT) {
+                    location = frozen.head.getValue();
+                }
+                frozen.advance();
+            }
+            if (indexed && index.idAt(position) == id) {
+                if (location == MappedIdIndex.ABSENT) {
+                    location = index.locationAt(position);
+                }
+                position += step;
+            }
+            if (location != TOMBSTONE && !visitor.visit(id, location)) {
+                return;
+            }
+        }
+    }
+
+    private static boolean precedes(int id, int other, boolean descending) {
+        return descending ? id > other : id < other;
+    }
+
+    private static Book load(View view, long location) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(LogRecord.length(location));
+        view.log().read(record, LogRecord.offset(location));
+        return LogRecord.toBook(record.flip());
+    }
+
+    private static boolean matches(BookQuery query, Book book) {
+        return (query.author() == null || query.author().equals(book.getAuthor()))
+                && (query.titlePrefix() == null
+                        || book.getTitle() != null && book.getTitle().startsWith(query.titlePrefix()));
+    }
+
+    private static List<Pending> puts(List<Book> books) {
+        List<Pending> records = new ArrayList<>(books.size());
+        for (Book book : books) {
+            records.add(new Pending(book.getId(), LogRecord.put(book)));
+        }
+        return records;
+    }
+
+    // ---- recovery ----
+
+    private static Recovered recover(Path directory) throws IOException {
+        TreeMap<Long, Path> logs = new TreeMap<>();
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path file : entries) {
+                String name = file.getFileName().toString();
+                Matcher matcher = STORE_FILE.matcher(name);
+                if (matcher.matches()) {
+                    files.add(file);
+                    if (matcher.group(2).equals("log")) {
+                        logs.put(Long.parseLong(matcher.group(1)), file);
+                    }
+                } else if (name.startsWith("books-") && name.endsWith(".tmp")) {
+                    // 没写完的索引文件
+                    Files.delete(file);
+                }
+            }
+        }
+        // 最新的、索引完整的一代; 更新的是中断了的压缩, 更旧的是压缩后还没来得及删除的
+        Long generation = logs.descendingKeySet().stream()
+                .filter(candidate -> Files.exists(indexPath(directory, candidate)))
+                .findFirst()
+                .orElse(logs.isEmpty() ? null : logs.lastKey());
+        for (Path file : files) {
+            if (generation == null || !file.equals(logPath(directory, generation))
+                    && !file.equals(indexPath(directory, generation))) {
+                logger.info("Deleting {}, left behind by an earlier compaction", file);
+                Files.delete(file);
+            }
+        }
+        if (generation == null) {
+            BookLog log = BookLog.create(logPath(directory, 1), 1);
+            MappedIdIndex index;
+            try (MappedIdIndex.Writer writer = new MappedIdIndex.Writer(indexPath(directory, 1), 0)) {
+                index = writer.commit(BookLog.HEADER, 1, 0);
+            }
+            return new Recovered(new View(log, index, null, new ConcurrentSkipListMap<>()), BookLog.HEADER, 0, 0, 0);
+        }
+
+        BookLog log = BookLog.open(logPath(directory, generation), generation);
+        try {
+            MappedIdIndex index = openIndex(directory, generation);
+            long size = log.size();
+            if (index.checkpoint() > size) {
+                throw new IOException("Index of generation " + generation + " covers " + index.checkpoint()
+                        + " bytes of a log of " + size + " bytes");
+            }
+            ConcurrentNavigableMap<Integer, Long> active = new ConcurrentSkipListMap<>();
+            int[] replayed = {0};
+            int[] reserved = {index.reserved()};
+            long end = log.scan(index.checkpoint(), size, (record, offset) -> {
+                switch (LogRecord.type(record)) {
+                    case LogRecord.PUT -> active.put(LogRecord.id(record), LogRecord.location(offset, record.remaining()));
+                    case LogRecord.DELETE -> active.put(LogRecord.id(record), TOMBSTONE);
+                    case LogRecord.RESERVE -> reserved[0] = Math.max(reserved[0], LogRecord.id(record));
+                    default -> {
+                        return false;
+                    }
+                }
+                replayed[0]++;
+                return true;
+            });
+            if (end < size) {
+                logger.warn("Truncating {} bytes of incomplete or damaged records at offset {} of {}",
+                        size - end, end, log.path());
+                log.truncate(end);
+                log.force();
+            }
+            View recovered = new View(log, index, null, active);
+            long[] liveBytes = {0};
+            scan(recovered, Integer.MIN_VALUE, false, (id, location) -> {
+                liveBytes[0] += LogRecord.length(location);
+                return true;
+            });
+            return new Recovered(recovered, end, end - BookLog.HEADER - liveBytes[0], replayed[0], reserved[0]);
+        } catch (IOException | RuntimeException e) {
+            log.retire(false);
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the generation's index, or starts from an empty one (replaying the whole log) when it is missing or
+     * damaged.
+     */
+    private static MappedIdIndex openIndex(Path directory, long generation) throws IOException {
+        Path path = indexPath(directory, generation);
+        if (Files.exists(path)) {
+            try {
+                return MappedIdIndex.open(path);
+            } catch (IOException e) {
+                logger.warn("Rebuilding {} from the log: {}", path, e.getMessage());
+            }
+        }
+        try (MappedIdIndex.Writer writer = new MappedIdIndex.Writer(path, 0)) {
+            return writer.commit(BookLog.HEADER, generation, 0);
+        }
+    }
+
+    private static Path logPath(Path directory, long generation) {
+        return directory.resolve("books-" + generation + ".log");
+    }
+
+    private static Path indexPath(Path directory, long generation) {
+        return directory.resolve("books-" + generation + ".idx");
+    }
+
+    private static FileLock lockDirectory(Path directory) throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve("LOCK"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            channel.close();
+            throw new IOException(directory + " is already used by another local store");
+        }
+        return lock;
+    }
+
+    private static void unlock(FileLock lock) {
+        try {
+            lock.release();
+            lock.channel().close();
+        } catch (IOException e) {
+            logger.warn("Could not release the lock on the local store directory", e);
+        }
+    }
+
+    // ---- types ----
+
+    /**
+     * What reads see: the log, its index, and the changes applied on top of the index. {@code frozen} holds the
+     * changes a running checkpoint is writing into the next index file and is null otherwise.
+     */
+    private record View(BookLog log, MappedIdIndex index, ConcurrentNavigableMap<Integer, Long> frozen,
+                        ConcurrentNavigableMap<Integer, Long> active) {
+
+        /**
+         * @return the location of the book, or {@link MappedIdIndex#ABSENT}.
+         */
+        long locate(int id) {
+            Long location = active.get(id);
+            if (location == null && frozen != null) {
+                location = frozen.get(id);
+            }
+            if (location != null) {
+                return location == TOMBSTONE ? MappedIdIndex.ABSENT : location;
+            }
+            return index.get(id);
+        }
+    }
+
+    /**
+     * A record that is in the log but not yet visible to reads.
+     *
+     * @param id       the book, or for a {@link #RESERVATION} the last ID reserved.
+     * @param location where the book now is, {@link #TOMBSTONE} or {@link #RESERVATION}.
+     * @param end      the log offset after the record.
+     * @param sequence the order of the append; an fsync makes every append up to a sequence number visible.
+     */
+    private record Mutation(int id, long location, int length, long end, long sequence) {
+    }
+
+    private record Pending(int id, ByteBuffer record) {
+    }
+
+    private record Recovered(View view, long end, long garbageBytes, int replayed, int reserved) {
+    }
+
+    @FunctionalInterface
+    private interface Admission {
+
+        /**
+         * Decides, under the append lock, whether the record at this position of the batch is written.
+         */
+        boolean admit(int position, Pending pending);
+    }
+
+    @FunctionalInterface
+    private interface ViewCall<T> {
+        T apply(View view) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface LocationVisitor {
+
+        /**
+         * @return false to stop.
+         */
+        boolean visit(int id, long location) throws IOException;
+    }
+
+    /**
+     * A peeking iterator over one change layer.
+     */
+    private static final class Layer {
+
+        private final Iterator<Map.Entry<Integer, Long>> entries;
+        private Map.Entry<Integer, Long> head;
+
+        Layer(ConcurrentNavigableMap<Integer, Long> changes, int from, boolean descending) {
+            if (changes == null) {
+                entries = Collections.emptyIterator();
+            } else {
+                entries = (descending ? changes.headMap(from, true).descendingMap() : changes.tailMap(from, true))
+                        .entrySet().iterator();
+            }
+            advance();
+        }
+
+        void advance() {
+            head = entries.hasNext() ? entries.next() : null;
+        }
+    }
+
+    /**
+     * Appends the records a compaction copies to the next generation's log through a large buffer, and remembers
+     * where the books copied in the first phase went, in ID order once {@link #finish()} is called.
+     */
+    private static final class Copy implements SortedLocations {
+
+        private final BookLog target;
+        private final ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER);
+        private long flushed = BookLog.HEADER;
+        private int[] ids = new int[1024];
+        private long[] locations = new long[1024];
+        private int size;
+
+        Copy(BookLog target) {
+            this.target = target;
+        }
+
+        /**
+         * @return the record's location in the new log.
+         */
+        long append(ByteBuffer record) throws IOException {
+            int length = record.remaining();
+            if (buffer.remaining() < length) {
+                flush();
+                if (length > buffer.capacity()) {
+                    target.write(record.duplicate(), flushed);
+                    flushed += length;
+                    return LogRecord.location(flushed - length, length);
+                }
+            }
+            long location = LogRecord.location(flushed + buffer.position(), length);
+            buffer.put(record.duplicate());
+            return location;
+        }
+
+        void keep(ByteBuffer record) throws IOException {
+            long location = append(record);
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                locations = Arrays.copyOf(locations, size * 2);
+            }
+            ids[size] = LogRecord.id(record);
+            locations[size++] = location;
+        }
+
+        /**
+         * Writes out and forces the new log, and sorts the kept books by ID.
+         *
+         * @return the end of the new log.
+         */
+        long finish() throws IOException {
+            flush();
+            target.force();
+            long[] order = new long[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = (long) ids[i] << 32 | i;
+            }
+            Arrays.sort(order);
+            int[] sortedIds = new int[size];
+            long[] sortedLocations = new long[size];
+            for (int i = 0; i < size; i++) {
+                int from = (int) order[i];
+                sortedIds[i] = ids[from];
+                sortedLocations[i] = locations[from];
+            }
+            ids = sortedIds;
+            locations = sortedLocations;
+            return flushed;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public int idAt(int position) {
+            return ids[position];
+        }
+
+        @Override
+        public long locationAt(int position) {
+            return locations[position];
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            target.write(buffer, flushed);
+            flushed += buffer.limit();
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.nantan.app.local;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A checkpoint of the ID to {@linkplain LogRecord#location location} map, memory-mapped read-only:
+ * <pre>
+ * header  int magic, int version, int count, int capacity, long checkpoint, long generation, long reserved
+ * entries count × (int id, long location), in ascending ID order
+ * slots   capacity × int: 1 + the position of an entry, or 0 for a free slot
+ * </pre>
+ * A lookup hashes the ID to a slot (open addressing with linear probing, at most half full) and compares the entry
+ * it points to, so it costs the same two page reads however many books there are. Ordered reads walk the entries.
+ * <p>
+ * {@code checkpoint} is the log offset the index is complete up to; recovery replays the log from there.
+ * {@code reserved} is the last ID the store had reserved for its ID allocator up to that offset, or 0.
+ * Index files are immutable: a new one is written next to the file it replaces and renamed over it.
+ */
+final class MappedIdIndex implements SortedLocations {
+
+    static final long ABSENT = 0;
+
+    private static final int MAGIC = 0x424B4958;
+    private static final int VERSION = 2;
+    private static final int HEADER = 40;
+    private static final int ENTRY = 12;
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final int mask;
+    private final int slots;
+    private final long checkpoint;
+    private final long generation;
+    private final int reserved;
+
+    private MappedIdIndex(Path path, MappedByteBuffer buffer) {
+        this.path = path;
+        this.buffer = buffer;
+        this.count = buffer.getInt(8);
+        this.mask = buffer.getInt(12) - 1;
+        this.slots = HEADER + ENTRY * count;
+        this.checkpoint = buffer.getLong(16);
+        this.generation = buffer.getLong(24);
+        this.reserved = (int) buffer.getLong(32);
+    }
+
+    static MappedIdIndex open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER) {
+                throw new IOException("Truncated index " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int count = buffer.getInt(8);
+            int capacity = buffer.getInt(12);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || count < 0
+                    || Integer.bitCount(capacity) != 1 || size != fileSize(count, capacity)) {
+                throw new IOException("Damaged index " + path);
+            }
+            return new MappedIdIndex(path, buffer);
+        }
+    }
+
+    Path path() {
+        return path;
+    }
+
+    long checkpoint() {
+        return checkpoint;
+    }
+
+    long generation() {
+        return generation;
+    }
+
+    int reserved() {
+        return reserved;
+    }
+
+    /**
+     * @return the location of the book, or {@link #ABSENT}.
+     */
+    long get(int id) {
+        int slot = mix(id) & mask;
+        while (true) {
+            int entry = buffer.getInt(slots + 4 * slot);
+            if (entry == 0) {
+                return ABSENT;
+            }
+            int at = HEADER + ENTRY * (entry - 1);
+            if (buffer.getInt(at) == id) {
+                return buffer.getLong(at + 4);
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public int idAt(int position) {
+        return buffer.getInt(HEADER + ENTRY * position);
+    }
+
+    @Override
+    public long locationAt(int position) {
+        return buffer.getLong(HEADER + ENTRY * position + 4);
+    }
+
+    /**
+     * The position of the first entry with an ID of at least {@code id}, or {@link #size()}.
+     */
+    int firstAtOrAfter(int id) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (idAt(middle) < id) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * The position of the first entry with an ID greater than {@code id}, or {@link #size()}.
+     */
+    int firstAfter(int id) {
+        return id == Integer.MAX_VALUE ? count : firstAtOrAfter(id + 1);
+    }
+
+    long bytes() {
+        return buffer.capacity();
+    }
+
+    /**
+     * The hash is part of the file format, so it is fixed here rather than shared with the in-heap hash maps.
+     */
+    private static int mix(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static long fileSize(int count, int capacity) {
+        return HEADER + (long) ENTRY * count + 4L * capacity;
+    }
+
+    /**
+     * Writes a new index file: the entries are added in ascending ID order, then {@link #commit} builds the hash
+     * slots, forces the file and renames it into place. Closing a writer that was not committed deletes its file.
+     */
+    static final class Writer implements Closeable {
+
+        private final Path target;
+        private final Path temporary;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final int count;
+        private final int capacity;
+        private int added;
+        private int lastId;
+        private long liveBytes;
+        private boolean committed;
+
+        Writer(Path target, int count) throws IOException {
+            if (count > Integer.MAX_VALUE / ENTRY) {
+                throw new IOException("Too many books for one index file: " + count);
+            }
+            int capacity = Integer.highestOneBit(Math.max(8, count) * 2 - 1) << 1;
+            long size = fileSize(count, capacity);
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Too many books for one index file: " + count);
+            }
+            this.target = target;
+            this.temporary = target.resolveSibling(target.getFileName() + ".tmp");
+            this.count = count;
+            this.capacity = capacity;
+            this.channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            } catch (IOException e) {
+                channel.close();
+                Files.deleteIfExists(temporary);
+                throw e;
+            }
+        }
+
+        void add(int id, long location) {
+            if (added == count || (added > 0 && id <= lastId)) {
+                throw new IllegalStateException("Entry " + id + " out of order or beyond the declared " + count);
+            }
+            buffer.putInt(HEADER + ENTRY * added, id).putLong(HEADER + ENTRY * added + 4, location);
+            lastId = id;
+            liveBytes += LogRecord.length(location);
+            added++;
+        }
+
+        /**
+         * The total length of the records the entries added so far point to.
+         */
+        long liveBytes() {
+            return liveBytes;
+        }
+
+        MappedIdIndex commit(long checkpoint, long generation, int reserved) throws IOException {
+            if (added != count) {
+                throw new IllegalStateException("Added " + added + " of " + count + " entries");
+            }
+            int slots = HEADER + ENTRY * count;
+            int mask = capacity - 1;
+            for (int position = 0; position < count; position++) {
+                int slot = mix(buffer.getInt(HEADER + ENTRY * position)) & mask;
+                while (buffer.getInt(slots + 4 * slot) != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                buffer.putInt(slots + 4 * slot, position + 1);
+            }
+            buffer.putInt(4, VERSION).putInt(8, count).putInt(12, capacity)
+                    .putLong(16, checkpoint).putLong(24, generation).putLong(32, reserved);
+            buffer.force();
+            // 魔数最后写入: 没写完的文件永远不会被当成索引
+            buffer.putInt(0, MAGIC);
+            buffer.force();
+            channel.close();
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            syncDirectory(target.getParent());
+            committed = true;
+            return open(target);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                channel.close();
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+
+    /**
+     * Makes a rename durable. Not every platform can open a directory for this; where it cannot, the rename is
+     * left to the file system.
+     */
+    static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // 例如 Windows 不能打开目录
+        }
+    }
+}
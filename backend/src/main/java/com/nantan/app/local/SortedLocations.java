@@ -0,0 +1,13 @@
+package com.nantan.app.local;
+
+/**
+ * Book locations in ascending ID order, addressed by position.
+ */
+interface SortedLocations {
+
+    int size();
+
+    int idAt(int position);
+
+    long locationAt(int position);
+}
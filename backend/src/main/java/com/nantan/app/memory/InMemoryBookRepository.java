@@ -0,0 +1,165 @@
+package com.nantan.app.memory;
+
+import com.nantan.app.Book;
+import com.nantan.app.BookQuery;
+import com.nantan.app.BookRepository;
+import com.nantan.app.exception.BulkInsertException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+/**
+ * A {@link BookRepository} held entirely in a sorted concurrent map.
+ * It stands in for a real data source wherever the database itself is not what is being measured
+ * or tested (benchmarks, load tests). Books are copied on the way in and out, like a real store,
+ * so callers cannot mutate stored state through a returned object.
+ */
+public class InMemoryBookRepository implements BookRepository {
+
+    private final ConcurrentNavigableMap<Integer, Book> books = new ConcurrentSkipListMap<>();
+
+    @Override
+    public List<Book> findAll() {
+        return copies(books.values());
+    }
+
+    @Override
+    public List<Book> findPage(int afterId, int limit) {
+        List<Book> page = new ArrayList<>(Math.min(limit, 1024));
+        for (Book book : books.tailMap(afterId, false).values()) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(copy(book));
+        }
+        return page;
+    }
+
+    @Override
+    public List<Book> findAllById(Iterable<Integer> ids) {
+        List<Book> found = new ArrayList<>();
+        for (Integer id : ids) {
+            Book book = books.get(id);
+            if (book != null) {
+                found.add(copy(book));
+            }
+        }
+        return found;
+    }
+
+    /**
+     * The map has no secondary indexes: the ID range narrows the scan to a sub-map and the other filters
+     * are applied to every book in it.
+     */
+    @Override
+    public List<Book> findMatching(BookQuery query, int limit) {
+        ConcurrentNavigableMap<Integer, Book> range = books;
+        if (query.minId() != null) {
+            range = range.tailMap(query.minId(), true);
+        }
+        if (query.maxId() != null) {
+            range = range.headMap(query.maxId(), true);
+        }
+        Comparator<Book> order = query.order().property().equals("title")
+                ? Comparator.comparing(Book::getTitle, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+                        .thenComparing(Book::getId)
+                : Comparator.comparing(Book::getId);
+        return range.values().stream()
+                .filter(book -> query.author() == null || query.author().equals(book.getAuthor()))
+                .filter(book -> query.titlePrefix() == null
+                        || book.getTitle() != null && book.getTitle().startsWith(query.titlePrefix()))
+                .sorted(query.order().descending() ? order.reversed() : order)
+                .limit(limit)
+                .map(book -> new Book(book.getId(),
+                        query.includes(BookQuery.Field.TITLE) ? book.getTitle() : null,
+                        query.includes(BookQuery.Field.AUTHOR) ? book.getAuthor() : null))
+                .toList();
+    }
+
+    @Override
+    public int findMaxId() {
+        Map.Entry<Integer, Book> last = books.lastEntry();
+        return last == null ? 0 : last.getKey();
+    }
+
+    @Override
+    public long exportAll(Consumer<? super Book> sink) {
+        long count = 0;
+        for (Book book : books.values()) {
+            sink.accept(copy(book));
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public Book save(Book book) {
+        books.put(book.getId(), copy(book));
+        return book;
+    }
+
+    /**
+     * Behaves like the unordered Mongo bulk insert: books with a new ID are inserted,
+     * duplicates are rejected and reported by position.
+     */
+    @Override
+    public int insertAll(List<Book> batch) {
+        List<Integer> rejected = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            Book book = batch.get(i);
+            if (books.putIfAbsent(book.getId(), copy(book)) != null) {
+                rejected.add(i);
+            }
+        }
+        if (!rejected.isEmpty()) {
+            throw new BulkInsertException(batch.size() - rejected.size(), rejected,
+                    rejected.size() + " of " + batch.size() + " books rejected as duplicates", null);
+        }
+        return batch.size();
+    }
+
+    @Override
+    public int upsertAll(List<Book> batch) {
+        for (Book book : batch) {
+            books.put(book.getId(), copy(book));
+        }
+        return batch.size();
+    }
+
+    @Override
+    public boolean deleteById(int bookId) {
+        return books.remove(bookId) != null;
+    }
+
+    @Override
+    public List<Integer> removeAllById(Collection<Integer> ids) {
+        return ids.stream().distinct().sorted().filter(id -> books.remove(id) != null).toList();
+    }
+
+    @Override
+    public void close() {
+        books.clear();
+    }
+
+    public int size() {
+        return books.size();
+    }
+
+    private static List<Book> copies(Collection<Book> source) {
+        List<Book> result = new ArrayList<>(source.size());
+        for (Book book : source) {
+            result.add(copy(book));
+        }
+        return result;
+    }
+
+    private static Book copy(Book book) {
+        return new Book(book.getId(), book.getTitle(), book.getAuthor());
+    }
+}
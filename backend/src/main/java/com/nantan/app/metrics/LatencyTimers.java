@@ -0,0 +1,27 @@
+package com.nantan.app.metrics;
+
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+
+/**
+ * Common settings for the latency timers of the book service.
+ * Every timer publishes a percentile histogram, so p99 can be computed server-side
+ * ({@code histogram_quantile}) across instances, unlike client-side percentiles.
+ * The expected range bounds the number of buckets Micrometer creates.
+ */
+public final class LatencyTimers {
+
+    public static final Duration MIN_EXPECTED = Duration.ofMillis(1);
+    public static final Duration MAX_EXPECTED = Duration.ofSeconds(30);
+
+    private LatencyTimers() {
+    }
+
+    public static Timer.Builder builder(String name) {
+        return Timer.builder(name)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_EXPECTED)
+                .maximumExpectedValue(MAX_EXPECTED);
+    }
+}
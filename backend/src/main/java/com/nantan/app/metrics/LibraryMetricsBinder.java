@@ -0,0 +1,79 @@
+package com.nantan.app.metrics;
+
+import com.nantan.app.cache.CachingBookRepository;
+import com.nantan.app.limit.AdaptiveConcurrencyLimiter;
+import com.nantan.app.replication.ReplicationRelay;
+import com.nantan.app.search.BookSearchService;
+import com.nantan.app.search.SearchIndexStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Publishes the counters behind {@code /api/diagnostics} (cache, concurrency limiter, search index, replication)
+ * as meters. Values are read when the registry is scraped, so nothing is added to the request path.
+ */
+@Component
+public class LibraryMetricsBinder implements MeterBinder {
+
+    private final List<CachingBookRepository> caches;
+    private final List<AdaptiveConcurrencyLimiter> limiters;
+    private final BookSearchService searchService;
+    private final ReplicationRelay replicationRelay;
+
+    public LibraryMetricsBinder(List<CachingBookRepository> caches, List<AdaptiveConcurrencyLimiter> limiters,
+                                BookSearchService searchService, ReplicationRelay replicationRelay) {
+        this.caches = caches;
+        this.limiters = limiters;
+        this.searchService = searchService;
+        this.replicationRelay = replicationRelay;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (CachingBookRepository cache : caches) {
+            String region = cache.getRegion();
+            counter(registry, "library.cache.hits", cache, c -> c.stats().hits(), region);
+            counter(registry, "library.cache.misses", cache, c -> c.stats().misses(), region);
+            counter(registry, "library.cache.evictions", cache, c -> c.stats().evictions(), region);
+            counter(registry, "library.cache.invalidations", cache, c -> c.stats().invalidations(), region);
+            gauge(registry, "library.cache.books", cache, c -> c.stats().books(), region);
+        }
+        for (AdaptiveConcurrencyLimiter limiter : limiters) {
+            String dataSource = limiter.stats().dataSource();
+            gauge(registry, "library.limit.current", limiter, l -> l.stats().limit(), dataSource);
+            gauge(registry, "library.limit.in.flight", limiter, l -> l.stats().inFlight(), dataSource);
+            counter(registry, "library.limit.rejected", limiter, l -> l.stats().rejected(), dataSource);
+            counter(registry, "library.limit.timeouts", limiter, l -> l.stats().timeouts(), dataSource);
+        }
+        for (SearchIndexStats initial : searchService.stats()) {
+            String dataSource = initial.dataSource();
+            gauge(registry, "library.search.terms", searchService, s -> searchStats(s, dataSource).terms(), dataSource);
+            gauge(registry, "library.search.footprint", searchService,
+                    s -> searchStats(s, dataSource).footprintBytes(), dataSource);
+        }
+        String target = ReplicationRelay.TARGET;
+        gauge(registry, "library.replication.pending", replicationRelay, r -> r.stats().pending(), target);
+        counter(registry, "library.replication.applied", replicationRelay, r -> r.stats().applied(), target);
+        counter(registry, "library.replication.failures", replicationRelay, r -> r.stats().failedBatches(), target);
+    }
+
+    private static SearchIndexStats searchStats(BookSearchService searchService, String dataSource) {
+        return searchService.stats().stream().filter(s -> s.dataSource().equals(dataSource)).findFirst().orElseThrow();
+    }
+
+    private static <T> void counter(MeterRegistry registry, String name, T source, ToDoubleFunction<T> value,
+                                    String dataSource) {
+        FunctionCounter.builder(name, source, value).tag("dataSource", dataSource).register(registry);
+    }
+
+    private static <T> void gauge(MeterRegistry registry, String name, T source, ToDoubleFunction<T> value,
+                                  String dataSource) {
+        Gauge.builder(name, source, value).tag("dataSource", dataSource).register(registry);
+    }
+}
@@ -0,0 +1,29 @@
+package com.nantan.app.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.task.TaskDecorator;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how long each task waited between submission and the start of its execution.
+ */
+public class QueueWaitTaskDecorator implements TaskDecorator {
+
+    public static final String METRIC_NAME = "library.async.queue.wait";
+
+    private final Timer queueWait;
+
+    public QueueWaitTaskDecorator(Timer queueWait) {
+        this.queueWait = queueWait;
+    }
+
+    @Override
+    public Runnable decorate(Runnable task) {
+        long submittedNanos = System.nanoTime();
+        return () -> {
+            queueWait.record(System.nanoTime() - submittedNanos, TimeUnit.NANOSECONDS);
+            task.run();
+        };
+    }
+}
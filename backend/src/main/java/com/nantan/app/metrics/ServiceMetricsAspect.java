@@ -0,0 +1,98 @@
+package com.nantan.app.metrics;
+
+import com.nantan.app.DataSources;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every successful {@code BookService} call, tagged by method and data source, and counts the failed ones.
+ * <p>
+ * The async interceptor sits in front of this aspect, so for the {@code @Async} methods the timer
+ * covers the execution on the {@code taskExecutor} thread; the wait before it is recorded separately
+ * as {@value QueueWaitTaskDecorator#METRIC_NAME}. Methods that hand their work to the executor themselves
+ * return a future that is still pending; those are recorded when the future completes. The {@code dataSource}
+ * argument is normalized with {@link DataSources#resolve(String)}, so clients cannot create new time series.
+ */
+@Aspect
+@Component
+public class ServiceMetricsAspect {
+
+    public static final String METRIC_NAME = "library.service.calls";
+    public static final String ERRORS_METRIC_NAME = "library.service.errors";
+
+    private final MeterRegistry registry;
+    private final Map<Method, MethodTimers> timers = new ConcurrentHashMap<>();
+
+    public ServiceMetricsAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("execution(* com.nantan.app.service.BookService.*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        MethodTimers methodTimers = timers.computeIfAbsent(method, MethodTimers::new);
+        int source = methodTimers.dataSourceIndex(joinPoint.getArgs());
+        long startNanos = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            if (result instanceof CompletableFuture<?> future && !future.isDone()) {
+                future.whenComplete((value, error) -> {
+                    if (error != null) {
+                        methodTimers.errors[source].increment();
+                    } else {
+                        methodTimers.success[source].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+                    }
+                });
+                return result;
+            }
+            methodTimers.success[source].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (Throwable e) {
+            methodTimers.errors[source].increment();
+            throw e;
+        }
+    }
+
+    private final class MethodTimers {
+        private final int dataSourceParameter;
+        private final Timer[] success;
+        private final Counter[] errors;
+
+        MethodTimers(Method method) {
+            // Parameter names are available because the build compiles with -parameters (Spring Boot parent)
+            this.dataSourceParameter = Arrays.stream(method.getParameters()).map(Parameter::getName).toList().indexOf("dataSource");
+            this.success = new Timer[DataSources.ALL.size()];
+            this.errors = new Counter[DataSources.ALL.size()];
+            for (int i = 0; i < success.length; i++) {
+                String dataSource = DataSources.ALL.get(i);
+                success[i] = LatencyTimers.builder(METRIC_NAME)
+                        .description("Successful book service method executions")
+                        .tags("method", method.getName(), "dataSource", dataSource)
+                        .register(registry);
+                errors[i] = Counter.builder(ERRORS_METRIC_NAME)
+                        .description("Book service method executions that threw")
+                        .tags("method", method.getName(), "dataSource", dataSource)
+                        .register(registry);
+            }
+        }
+
+        int dataSourceIndex(Object[] args) {
+            String dataSource = dataSourceParameter < 0 ? null : (String) args[dataSourceParameter];
+            return DataSources.ALL.indexOf(DataSources.resolve(dataSource));
+        }
+    }
+}
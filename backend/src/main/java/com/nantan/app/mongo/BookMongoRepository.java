@@ -5,26 +5,30 @@ import com.nantan.app.BookRepository;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
+
 /**
  * Spring Data MongoDB repository for the Book entity.
  */
 @Repository("mongoBookRepository") // 指定一个明确的 bean 名称
-public interface BookMongoRepository extends MongoRepository<Book, Integer>, BookRepository {
+public interface BookMongoRepository extends MongoRepository<Book, Integer>, BookRepository, BookMongoRepositoryCustom {
 
     // Spring Data MongoDB will automatically implement the methods from MongoRepository.
     // We just need to ensure it conforms to our BookRepository interface.
 
+    // findAll, findAllById 和 findPage 在 BookMongoRepositoryCustomImpl 中实现, 以便带上 maxTimeMS
+
+    // 按 _id 倒序取第一条，同样命中 _id 索引
+    Optional<Book> findFirstByOrderByIdDesc();
+
+    @Override
+    default int findMaxId() {
+        return findFirstByOrderByIdDesc().map(Book::getId).orElse(0);
+    }
+
     @Override
     default boolean deleteById(int bookId) {
-        if (existsById(bookId)) {
-            try {
-                deleteById((Integer) bookId);
-                return !existsById(bookId);
-            } catch (Exception e) {
-                return false; // 明确返回 false 表示删除失败
-            }
-        }
-        return false;
+        return deleteOneById(bookId) > 0;
     }
 
     @Override
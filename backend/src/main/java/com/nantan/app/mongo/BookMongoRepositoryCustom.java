@@ -0,0 +1,34 @@
+package com.nantan.app.mongo;
+
+import com.nantan.app.Book;
+import com.nantan.app.BookQuery;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Repository fragment for the operations that need direct access to the MongoTemplate, including the reads
+ * that take the {@link com.nantan.app.limit.OperationDeadline} as their {@code maxTimeMS}.
+ * Spring Data picks up {@link BookMongoRepositoryCustomImpl} and merges it into {@link BookMongoRepository}.
+ */
+public interface BookMongoRepositoryCustom {
+
+    List<Book> findAll();
+
+    List<Book> findAllById(Iterable<Integer> ids);
+
+    List<Book> findPage(int afterId, int limit);
+
+    List<Book> findMatching(BookQuery query, int limit);
+
+    long exportAll(Consumer<? super Book> sink);
+
+    int insertAll(List<Book> books);
+
+    int upsertAll(List<Book> books);
+
+    long deleteOneById(int bookId);
+
+    List<Integer> removeAllById(Collection<Integer> ids);
+}
@@ -0,0 +1,217 @@
+package com.nantan.app.mongo;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.Filters;
+import com.nantan.app.Book;
+import com.nantan.app.BookQuery;
+import com.nantan.app.config.ExportProperties;
+import com.nantan.app.exception.BulkInsertException;
+import com.nantan.app.limit.OperationDeadline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * MongoTemplate-backed implementation of {@link BookMongoRepositoryCustom}.
+ */
+public class BookMongoRepositoryCustomImpl implements BookMongoRepositoryCustom {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookMongoRepositoryCustomImpl.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final ExportProperties exportProperties;
+
+    public BookMongoRepositoryCustomImpl(MongoTemplate mongoTemplate, ExportProperties exportProperties) {
+        this.mongoTemplate = mongoTemplate;
+        this.exportProperties = exportProperties;
+    }
+
+    @Override
+    public List<Book> findAll() {
+        return mongoTemplate.find(withinDeadline(new Query()), Book.class);
+    }
+
+    @Override
+    public List<Book> findAllById(Iterable<Integer> ids) {
+        List<Integer> idList = new ArrayList<>();
+        ids.forEach(idList::add);
+        if (idList.isEmpty()) {
+            return List.of();
+        }
+        return mongoTemplate.find(withinDeadline(new Query(Criteria.where("id").in(idList))), Book.class);
+    }
+
+    // Keyset 分页: { _id: { $gt: ? } } 按 _id 排序，命中默认的 _id 索引
+    @Override
+    public List<Book> findPage(int afterId, int limit) {
+        Query page = new Query(Criteria.where("id").gt(afterId)).with(Sort.by("id")).limit(limit);
+        return mongoTemplate.find(withinDeadline(page), Book.class);
+    }
+
+    @Override
+    public List<Book> findMatching(BookQuery query, int limit) {
+        return mongoTemplate.find(withinDeadline(toQuery(query, limit)), Book.class);
+    }
+
+    /**
+     * Translates the query into a find with a projection. The title prefix becomes an anchored, case-sensitive
+     * regular expression with every metacharacter escaped, which MongoDB answers with a range on the title index.
+     */
+    static Query toQuery(BookQuery query, int limit) {
+        Query mongoQuery = new Query();
+        if (query.author() != null) {
+            mongoQuery.addCriteria(Criteria.where("author").is(query.author()));
+        }
+        if (query.titlePrefix() != null) {
+            mongoQuery.addCriteria(Criteria.where("title").regex("^" + escapeRegex(query.titlePrefix())));
+        }
+        if (query.minId() != null || query.maxId() != null) {
+            Criteria id = Criteria.where("id");
+            if (query.minId() != null) {
+                id.gte(query.minId());
+            }
+            if (query.maxId() != null) {
+                id.lte(query.maxId());
+            }
+            mongoQuery.addCriteria(id);
+        }
+        Sort.Direction direction = query.order().descending() ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Sort sort = Sort.by(direction, query.order().property());
+        if (!query.order().property().equals("id")) {
+            sort = sort.and(Sort.by(direction, "id"));
+        }
+        mongoQuery.with(sort).limit(limit);
+        for (BookQuery.Field field : BookQuery.Field.values()) {
+            if (query.includes(field)) {
+                mongoQuery.fields().include(field.property());
+            }
+        }
+        return mongoQuery;
+    }
+
+    /**
+     * Streams the books collection through a single server-side cursor, one batch at a time.
+     * Closing the stream kills the cursor on the server.
+     */
+    @Override
+    public long exportAll(Consumer<? super Book> sink) {
+        Query query = new Query().with(Sort.by("id")).cursorBatchSize(exportProperties.fetchSize());
+        long count = 0;
+        try (Stream<Book> books = mongoTemplate.stream(query, Book.class)) {
+            Iterator<Book> iterator = books.iterator();
+            while (iterator.hasNext()) {
+                sink.accept(iterator.next());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Inserts the books with one unordered bulkWrite. The server keeps going past individual
+     * failures (e.g. duplicate IDs), so the exception reports how many documents were written.
+     */
+    @Override
+    public int insertAll(List<Book> books) {
+        try {
+            return mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Book.class)
+                    .insert(books)
+                    .execute()
+                    .getInsertedCount();
+        } catch (BulkOperationException e) {
+            List<BulkWriteError> errors = e.getErrors();
+            String message = errors.size() + " of " + books.size() + " documents rejected, first: "
+                    + (errors.isEmpty() ? e.getMessage() : errors.get(0).getMessage());
+            List<Integer> rejected = errors.stream().map(BulkWriteError::getIndex).toList();
+            throw new BulkInsertException(e.getResult().getInsertedCount(), rejected, message, e);
+        }
+    }
+
+    /**
+     * One unordered bulk write of {@code replaceOne} upserts on the {@code _id} index.
+     */
+    @Override
+    public int upsertAll(List<Book> books) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Book.class);
+        for (Book book : books) {
+            bulk.replaceOne(Query.query(Criteria.where("id").is(book.getId())), book, FindAndReplaceOptions.options().upsert());
+        }
+        bulk.execute();
+        return books.size();
+    }
+
+    /**
+     * One {@code deleteOne} on the {@code _id} index; the DeleteResult tells whether a document was removed.
+     */
+    @Override
+    public long deleteOneById(int bookId) {
+        return mongoTemplate.execute(Book.class, collection -> collection.deleteOne(Filters.eq("_id", bookId)))
+                .getDeletedCount();
+    }
+
+    /**
+     * Reads the IDs that exist (an index-only lookup), then removes them with one {@code deleteMany}.
+     * A DeleteResult only carries a count, so the preceding read is what tells us which IDs were removed.
+     * <p>
+     * Limitation: the read and the delete are two round trips, not one atomic operation. If another caller
+     * deletes some of the IDs in between, the deleted count comes up short of the IDs read. The count is a
+     * total, so this call cannot tell which of the IDs it removed itself: it logs the race and reports every
+     * ID it read, and such an ID is reported (and announced) by both callers. A single ID has no such race:
+     * it is deleted with {@code deleteOne}, whose count answers for exactly that ID.
+     */
+    @Override
+    public List<Integer> removeAllById(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        if (ids.size() == 1) {
+            int id = ids.iterator().next();
+            return deleteOneById(id) > 0 ? List.of(id) : List.of();
+        }
+        Query existingQuery = new Query(Criteria.where("id").in(ids)).with(Sort.by("id"));
+        existingQuery.fields().include("id");
+        List<Integer> existing = mongoTemplate.find(withinDeadline(existingQuery), Book.class).stream().map(Book::getId).toList();
+        if (existing.isEmpty()) {
+            return existing;
+        }
+        long deleted = mongoTemplate.remove(new Query(Criteria.where("id").in(existing)), Book.class).getDeletedCount();
+        if (deleted != existing.size()) {
+            logger.warn("Removed {} of {} books found by ID; a concurrent delete took the rest, which are reported anyway",
+                    deleted, existing.size());
+        }
+        return existing;
+    }
+
+    /**
+     * Applies the deadline of the limited call in progress, if any, as the server-side {@code maxTimeMS}.
+     * Writes have no such option and rely on the limiter measuring them.
+     */
+    private static Query withinDeadline(Query query) {
+        OperationDeadline.remainingMillis().ifPresent(query::maxTimeMsec);
+        return query;
+    }
+
+    private static String escapeRegex(String text) {
+        StringBuilder escaped = new StringBuilder(text.length() + 4);
+        for (char c : text.toCharArray()) {
+            if ("\\^$.|?*+()[]{}".indexOf(c) >= 0) {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
@@ -0,0 +1,62 @@
+package com.nantan.app.query;
+
+import com.nantan.app.DataSources;
+import com.nantan.app.config.IndexProperties;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Makes sure the indexes behind {@link com.nantan.app.BookQuery} exist in every store this instance talks to
+ * before it serves requests, creating the missing ones unless {@code library.indexes.create-missing=false}.
+ * A filtered query without its index still answers, only by scanning the whole collection, so a missing
+ * or mismatched index fails the startup instead of surfacing later as slow requests.
+ * <p>
+ * MongoDB is skipped when this instance has no {@link MongoTemplate} (load-test profile, Mongo disabled).
+ */
+@Component
+public class BookIndexVerifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookIndexVerifier.class);
+
+    private final IndexProperties properties;
+    private final ObjectProvider<DataSource> dataSource;
+    private final ObjectProvider<MongoTemplate> mongoTemplate;
+
+    public BookIndexVerifier(IndexProperties properties, ObjectProvider<DataSource> dataSource,
+                             ObjectProvider<MongoTemplate> mongoTemplate) {
+        this.properties = properties;
+        this.dataSource = dataSource;
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @PostConstruct
+    public void verify() {
+        if (!properties.validate()) {
+            logger.info("Index validation is disabled (library.indexes.validate=false)");
+            return;
+        }
+        DataSource jdbc = dataSource.getIfAvailable();
+        if (jdbc != null) {
+            report(DataSources.MYSQL, new JdbcBookIndexes(jdbc).ensure(properties.createMissing()));
+        }
+        MongoTemplate mongo = mongoTemplate.getIfAvailable();
+        if (mongo != null) {
+            report(DataSources.MONGO, new MongoBookIndexes(mongo).ensure(properties.createMissing()));
+        }
+    }
+
+    private static void report(String dataSource, List<String> created) {
+        if (created.isEmpty()) {
+            logger.info("Book indexes of data source {} are in place", dataSource);
+        } else {
+            logger.warn("Created missing book indexes on data source {}: {}", dataSource, created);
+        }
+    }
+}
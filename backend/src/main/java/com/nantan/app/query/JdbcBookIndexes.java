@@ -0,0 +1,93 @@
+package com.nantan.app.query;
+
+import com.nantan.app.Book;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The indexes declared in {@link Book}'s {@code @Table}, checked against the database through JDBC metadata.
+ * Hibernate's {@code ddl-auto=validate} looks at columns only, so a missing index would otherwise go unnoticed
+ * until the first filtered query scanned the whole table.
+ */
+public class JdbcBookIndexes {
+
+    private final DataSource dataSource;
+
+    public JdbcBookIndexes(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Creates the declared indexes that do not exist yet, if allowed, and checks the columns of the rest.
+     *
+     * @param createMissing whether to create missing indexes rather than report them.
+     * @return the names of the indexes created.
+     * @throws IllegalStateException if an index is missing and may not be created, or exists with other columns.
+     */
+    public List<String> ensure(boolean createMissing) {
+        Table table = Book.class.getAnnotation(Table.class);
+        try (Connection connection = dataSource.getConnection()) {
+            Map<String, List<String>> existing = existingIndexes(connection, table.name());
+            List<String> created = new ArrayList<>();
+            List<String> problems = new ArrayList<>();
+            for (Index index : table.indexes()) {
+                List<String> columns = Arrays.stream(index.columnList().split(","))
+                        .map(column -> column.trim().toLowerCase(Locale.ROOT))
+                        .toList();
+                List<String> actual = existing.get(index.name().toLowerCase(Locale.ROOT));
+                if (actual == null && createMissing) {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute("CREATE INDEX " + index.name() + " ON " + table.name() + " (" + String.join(", ", columns) + ")");
+                    }
+                    created.add(index.name());
+                } else if (actual == null) {
+                    problems.add("missing index " + index.name() + " on " + table.name() + " " + columns);
+                } else if (!actual.equals(columns)) {
+                    problems.add("index " + index.name() + " on " + table.name() + " has columns " + actual + ", expected " + columns);
+                }
+            }
+            if (!problems.isEmpty()) {
+                throw new IllegalStateException(String.join("; ", problems));
+            }
+            return created;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not check the indexes of table " + table.name(), e);
+        }
+    }
+
+    /**
+     * The indexes of the table, by lower-case name, each with its lower-case columns in key order.
+     */
+    private static Map<String, List<String>> existingIndexes(Connection connection, String table) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        String name = metaData.storesUpperCaseIdentifiers() ? table.toUpperCase(Locale.ROOT) : table;
+        Map<String, TreeMap<Short, String>> columnsByPosition = new HashMap<>();
+        try (ResultSet rows = metaData.getIndexInfo(connection.getCatalog(), connection.getSchema(), name, false, false)) {
+            while (rows.next()) {
+                String index = rows.getString("INDEX_NAME");
+                String column = rows.getString("COLUMN_NAME");
+                if (index != null && column != null) {
+                    columnsByPosition.computeIfAbsent(index.toLowerCase(Locale.ROOT), ignored -> new TreeMap<>())
+                            .put(rows.getShort("ORDINAL_POSITION"), column.toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        Map<String, List<String>> indexes = new HashMap<>();
+        columnsByPosition.forEach((index, columns) -> indexes.put(index, List.copyOf(columns.values())));
+        return indexes;
+    }
+}
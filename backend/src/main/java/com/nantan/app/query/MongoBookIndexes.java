@@ -0,0 +1,67 @@
+package com.nantan.app.query;
+
+import com.nantan.app.Book;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * The indexes declared with {@code @CompoundIndex} on {@link Book}, checked against the books collection.
+ * Spring Boot leaves {@code spring.data.mongodb.auto-index-creation} off, so without this they would never
+ * be created.
+ */
+public class MongoBookIndexes {
+
+    private final MongoTemplate mongoTemplate;
+
+    public MongoBookIndexes(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Creates the declared indexes that do not exist yet, if allowed, and checks the keys of the rest.
+     *
+     * @param createMissing whether to create missing indexes rather than report them.
+     * @return the names of the indexes created.
+     * @throws IllegalStateException if an index is missing and may not be created, or exists with other keys.
+     */
+    public List<String> ensure(boolean createMissing) {
+        IndexOperations indexOps = mongoTemplate.indexOps(Book.class);
+        Map<String, IndexInfo> existing = indexOps.getIndexInfo().stream()
+                .collect(Collectors.toMap(IndexInfo::getName, Function.identity()));
+        MongoPersistentEntityIndexResolver resolver =
+                new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+        String collection = mongoTemplate.getCollectionName(Book.class);
+        List<String> created = new ArrayList<>();
+        List<String> problems = new ArrayList<>();
+        for (IndexDefinition index : resolver.resolveIndexFor(Book.class)) {
+            String name = (String) index.getIndexOptions().get("name");
+            List<String> keys = List.copyOf(index.getIndexKeys().keySet());
+            IndexInfo actual = existing.get(name);
+            if (actual == null && createMissing) {
+                indexOps.ensureIndex(index);
+                created.add(name);
+            } else if (actual == null) {
+                problems.add("missing index " + name + " on " + collection + " " + keys);
+            } else {
+                List<String> actualKeys = actual.getIndexFields().stream().map(IndexField::getKey).toList();
+                if (!actualKeys.equals(keys)) {
+                    problems.add("index " + name + " on " + collection + " has keys " + actualKeys + ", expected " + keys);
+                }
+            }
+        }
+        if (!problems.isEmpty()) {
+            throw new IllegalStateException(String.join("; ", problems));
+        }
+        return created;
+    }
+}
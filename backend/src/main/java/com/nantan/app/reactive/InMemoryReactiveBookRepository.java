@@ -0,0 +1,47 @@
+package com.nantan.app.reactive;
+
+import com.nantan.app.Book;
+import com.nantan.app.memory.InMemoryBookRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Reactive view of the {@code loadtest} profile's in-memory "mongo" store, sharing its data with the
+ * servlet stack's repository. Every operation completes in memory, so running it on the subscribing
+ * thread never blocks on I/O.
+ */
+public class InMemoryReactiveBookRepository implements ReactiveBookRepository {
+
+    private final InMemoryBookRepository store;
+
+    public InMemoryReactiveBookRepository(InMemoryBookRepository store) {
+        this.store = store;
+    }
+
+    @Override
+    public Flux<Book> findPage(int afterId, int limit) {
+        return Flux.defer(() -> Flux.fromIterable(store.findPage(afterId, limit)));
+    }
+
+    @Override
+    public Flux<Book> streamAll() {
+        return Flux.defer(() -> Flux.fromIterable(store.findAll()));
+    }
+
+    @Override
+    public Mono<Book> save(Book book) {
+        return Mono.fromSupplier(() -> store.save(book));
+    }
+
+    @Override
+    public Mono<Integer> insertAll(List<Book> books) {
+        return Mono.fromSupplier(() -> store.insertAll(books));
+    }
+
+    @Override
+    public Mono<Boolean> deleteById(int bookId) {
+        return Mono.fromSupplier(() -> store.deleteById(bookId));
+    }
+}
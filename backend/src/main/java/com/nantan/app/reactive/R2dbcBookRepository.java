@@ -0,0 +1,104 @@
+package com.nantan.app.reactive;
+
+import com.nantan.app.Book;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.Readable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * R2DBC implementation of {@link ReactiveBookRepository} over the {@code books} table that JPA maps.
+ * The SQL is MySQL's, which the embedded H2 of the {@code loadtest} profile accepts in MySQL mode.
+ */
+public class R2dbcBookRepository implements ReactiveBookRepository {
+
+    private static final String SELECT = "SELECT id, title, author FROM books";
+
+    private final ConnectionPool pool;
+    private final DatabaseClient client;
+    private final int fetchSize;
+
+    /**
+     * @param pool      connection pool owned by this repository and disposed by {@link #close()}.
+     * @param fetchSize rows requested per round trip while streaming; MySQL only honours it for
+     *                  server-prepared statements ({@code useServerPrepareStatement=true} in the URL).
+     */
+    public R2dbcBookRepository(ConnectionPool pool, int fetchSize) {
+        this.pool = pool;
+        this.client = DatabaseClient.create(pool);
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public Flux<Book> findPage(int afterId, int limit) {
+        return client.sql(SELECT + " WHERE id > :afterId ORDER BY id LIMIT :limit")
+                .bind("afterId", afterId)
+                .bind("limit", limit)
+                .map(R2dbcBookRepository::toBook)
+                .all();
+    }
+
+    @Override
+    public Flux<Book> streamAll() {
+        return client.sql(SELECT + " ORDER BY id")
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .map(R2dbcBookRepository::toBook)
+                .all();
+    }
+
+    @Override
+    public Mono<Book> save(Book book) {
+        DatabaseClient.GenericExecuteSpec spec = client.sql("INSERT INTO books (id, title, author) VALUES (:id, :title, :author)"
+                        + " ON DUPLICATE KEY UPDATE title = VALUES(title), author = VALUES(author)")
+                .bind("id", book.getId());
+        spec = bindNullable(spec, "title", book.getTitle());
+        spec = bindNullable(spec, "author", book.getAuthor());
+        return spec.fetch().rowsUpdated().thenReturn(book);
+    }
+
+    /**
+     * One multi-row INSERT, so the batch is written entirely or not at all, like a JPA chunk in its own transaction.
+     */
+    @Override
+    public Mono<Integer> insertAll(List<Book> books) {
+        if (books.isEmpty()) {
+            return Mono.just(0);
+        }
+        StringBuilder sql = new StringBuilder("INSERT INTO books (id, title, author) VALUES ");
+        for (int i = 0; i < books.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append("(:id").append(i).append(", :title").append(i).append(", :author").append(i).append(')');
+        }
+        DatabaseClient.GenericExecuteSpec spec = client.sql(sql.toString());
+        for (int i = 0; i < books.size(); i++) {
+            Book book = books.get(i);
+            spec = spec.bind("id" + i, book.getId());
+            spec = bindNullable(spec, "title" + i, book.getTitle());
+            spec = bindNullable(spec, "author" + i, book.getAuthor());
+        }
+        return spec.fetch().rowsUpdated().map(Long::intValue);
+    }
+
+    @Override
+    public Mono<Boolean> deleteById(int bookId) {
+        return client.sql("DELETE FROM books WHERE id = :id")
+                .bind("id", bookId)
+                .fetch()
+                .rowsUpdated()
+                .map(deleted -> deleted > 0);
+    }
+
+    public void close() {
+        pool.dispose();
+    }
+
+    private static Book toBook(Readable row) {
+        return new Book(row.get("id", Integer.class), row.get("title", String.class), row.get("author", String.class));
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindNullable(DatabaseClient.GenericExecuteSpec spec, String name, String value) {
+        return value == null ? spec.bindNull(name, String.class) : spec.bind(name, value);
+    }
+}
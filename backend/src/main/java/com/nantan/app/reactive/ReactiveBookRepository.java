@@ -0,0 +1,40 @@
+package com.nantan.app.reactive;
+
+import com.nantan.app.Book;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Non-blocking counterpart of {@link com.nantan.app.BookRepository} for the {@code reactive} profile.
+ * Nothing happens until the returned publisher is subscribed, and no method may block the calling thread.
+ */
+public interface ReactiveBookRepository {
+
+    /**
+     * Keyset pagination: up to {@code limit} books with an ID greater than {@code afterId}, ordered by ID.
+     */
+    Flux<Book> findPage(int afterId, int limit);
+
+    /**
+     * Every book ordered by ID, read from the database only as fast as the subscriber requests it.
+     */
+    Flux<Book> streamAll();
+
+    /**
+     * Inserts the book or replaces the one with the same ID.
+     */
+    Mono<Book> save(Book book);
+
+    /**
+     * Inserts the books with one statement or bulk write and emits how many were written.
+     * A partially written batch fails with {@link com.nantan.app.exception.BulkInsertException}.
+     */
+    Mono<Integer> insertAll(List<Book> books);
+
+    /**
+     * Emits whether a book with the ID existed and was removed.
+     */
+    Mono<Boolean> deleteById(int bookId);
+}
@@ -0,0 +1,70 @@
+package com.nantan.app.reactive;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.nantan.app.Book;
+import com.nantan.app.exception.BulkInsertException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * {@link ReactiveBookRepository} on the reactive streams MongoDB driver.
+ * Queries and bulk writes mirror {@code BookMongoRepositoryCustomImpl}, so both stacks send the server the same commands.
+ */
+public class ReactiveMongoBookRepository implements ReactiveBookRepository {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final int fetchSize;
+
+    public ReactiveMongoBookRepository(ReactiveMongoTemplate mongoTemplate, int fetchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public Flux<Book> findPage(int afterId, int limit) {
+        return mongoTemplate.find(new Query(Criteria.where("id").gt(afterId)).with(Sort.by("id")).limit(limit), Book.class);
+    }
+
+    /**
+     * The driver fetches the next cursor batch only once the subscriber has requested the books of the current one.
+     */
+    @Override
+    public Flux<Book> streamAll() {
+        return mongoTemplate.find(new Query().with(Sort.by("id")).cursorBatchSize(fetchSize), Book.class);
+    }
+
+    @Override
+    public Mono<Book> save(Book book) {
+        return mongoTemplate.save(book);
+    }
+
+    @Override
+    public Mono<Integer> insertAll(List<Book> books) {
+        return mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Book.class)
+                .insert(books)
+                .execute()
+                .map(BulkWriteResult::getInsertedCount)
+                .onErrorMap(BulkOperationException.class, e -> {
+                    List<BulkWriteError> errors = e.getErrors();
+                    String message = errors.size() + " of " + books.size() + " documents rejected, first: "
+                            + (errors.isEmpty() ? e.getMessage() : errors.get(0).getMessage());
+                    List<Integer> rejected = errors.stream().map(BulkWriteError::getIndex).toList();
+                    return new BulkInsertException(e.getResult().getInsertedCount(), rejected, message, e);
+                });
+    }
+
+    @Override
+    public Mono<Boolean> deleteById(int bookId) {
+        return mongoTemplate.remove(Query.query(Criteria.where("id").is(bookId)), Book.class)
+                .map(result -> result.getDeletedCount() > 0);
+    }
+}
@@ -0,0 +1,39 @@
+package com.nantan.app.replication;
+
+import com.nantan.app.DataSources;
+import com.nantan.app.config.ReplicationProperties;
+import com.nantan.app.config.StartupConfig;
+import com.nantan.app.event.BookChangedEvent;
+import com.nantan.app.jpa.BookOutboxEntry;
+import com.nantan.app.jpa.BookOutboxRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Records every change to the MySQL books in the outbox.
+ * This is a plain {@code @EventListener}, so it runs on the publishing thread inside the service's
+ * transaction: the outbox row is committed together with the change or not at all.
+ * An instance without MySQL has no changes to record and no outbox, so it has no writer either.
+ */
+@Component
+@ConditionalOnProperty(name = StartupConfig.MYSQL_ENABLED_PROPERTY, matchIfMissing = true)
+public class OutboxWriter {
+
+    private final BookOutboxRepository outbox;
+    private final ReplicationProperties properties;
+
+    public OutboxWriter(BookOutboxRepository outbox, ReplicationProperties properties) {
+        this.outbox = outbox;
+        this.properties = properties;
+    }
+
+    @EventListener
+    public void onBookChanged(BookChangedEvent event) {
+        if (properties.enabled() && DataSources.MYSQL.equals(event.dataSource())) {
+            outbox.save(new BookOutboxEntry(event, Instant.now()));
+        }
+    }
+}
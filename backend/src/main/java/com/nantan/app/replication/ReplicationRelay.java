@@ -0,0 +1,200 @@
+package com.nantan.app.replication;
+
+import com.nantan.app.Book;
+import com.nantan.app.BookRepository;
+import com.nantan.app.DataSources;
+import com.nantan.app.config.ReplicationProperties;
+import com.nantan.app.config.RepositoryConfig;
+import com.nantan.app.event.BookChangedEvent;
+import com.nantan.app.jpa.BookOutboxEntry;
+import com.nantan.app.jpa.BookOutboxRepository;
+import com.nantan.app.metrics.LatencyTimers;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drains the outbox into MongoDB on a single background thread.
+ * <p>
+ * Each poll reads the oldest entries in commit order and keeps only the last change per book, so a
+ * book's changes are applied in order and a book saved then deleted in the same batch is just deleted.
+ * The batch becomes one bulk upsert and one bulk delete; the entries are removed only after both
+ * succeeded. A failure leaves them in place and the next attempt waits with exponential backoff.
+ * Delivery is therefore at least once, which is safe because upserts and deletes are idempotent.
+ */
+@Component
+public class ReplicationRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicationRelay.class);
+
+    public static final String SOURCE = DataSources.MYSQL;
+    public static final String TARGET = DataSources.MONGO;
+
+    private final BookOutboxRepository outbox;
+    private final BookRepository target;
+    private final ReplicationProperties properties;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Timer lag;
+
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private volatile long pending;
+    private volatile int consecutiveFailures;
+    private volatile long lastLagMillis;
+    private volatile Instant lastAppliedAt;
+    private volatile String lastError;
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * The outbox is absent with {@code library.startup.mysql-enabled=false}, which
+     * {@link com.nantan.app.config.StartupConfig} does not allow together with replication.
+     */
+    @Autowired
+    public ReplicationRelay(ObjectProvider<BookOutboxRepository> outbox,
+                            @Qualifier(RepositoryConfig.MONGO_BOOKS) BookRepository target,
+                            ReplicationProperties properties,
+                            ApplicationEventPublisher eventPublisher,
+                            MeterRegistry meterRegistry) {
+        this(outbox.getIfAvailable(), target, properties, eventPublisher, meterRegistry);
+    }
+
+    public ReplicationRelay(BookOutboxRepository outbox,
+                            BookRepository target,
+                            ReplicationProperties properties,
+                            ApplicationEventPublisher eventPublisher,
+                            MeterRegistry meterRegistry) {
+        this.outbox = outbox;
+        this.target = target;
+        this.properties = properties;
+        this.eventPublisher = eventPublisher;
+        this.lag = LatencyTimers.builder("library.replication.lag")
+                .description("Time from an outbox entry's commit until it was applied to the target")
+                .tag("source", SOURCE)
+                .tag("target", TARGET)
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!properties.enabled()) {
+            logger.info("Replication from {} to {} is disabled (library.replication.enabled=false)", SOURCE, TARGET);
+            return;
+        }
+        logger.info("Replicating {} to {} in batches of up to {}", SOURCE, TARGET, properties.batchSize());
+        scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("ReplicationRelay-"));
+        scheduler.execute(this::drainAndReschedule);
+    }
+
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    public ReplicationStats stats() {
+        return new ReplicationStats(properties.enabled(), SOURCE, TARGET, pending, applied.sum(), failedBatches.sum(),
+                consecutiveFailures, lastLagMillis, lastAppliedAt, lastError);
+    }
+
+    private void drainAndReschedule() {
+        Duration delay;
+        try {
+            int drained = drainOnce();
+            consecutiveFailures = 0;
+            // A full batch means there is probably more waiting: go again straight away
+            delay = drained == properties.batchSize() ? Duration.ZERO : properties.pollInterval();
+        } catch (RuntimeException e) {
+            failedBatches.increment();
+            lastError = e.getMessage();
+            delay = backoff(++consecutiveFailures);
+            logger.warn("Replication batch failed ({} in a row), retrying in {}: {}", consecutiveFailures, delay, e.getMessage());
+        }
+        if (!scheduler.isShutdown()) {
+            scheduler.schedule(this::drainAndReschedule, delay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Applies one batch of outbox entries to the target.
+     *
+     * @return the number of outbox entries consumed.
+     */
+    int drainOnce() {
+        List<BookOutboxEntry> batch = outbox.findAllByOrderByIdAsc(Limit.of(properties.batchSize()));
+        pending = batch.size() < properties.batchSize() ? batch.size() : outbox.count();
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        // Later entries overwrite earlier ones: only each book's final state is applied
+        Map<Integer, BookOutboxEntry> latest = new LinkedHashMap<>();
+        List<Long> entryIds = new ArrayList<>(batch.size());
+        for (BookOutboxEntry entry : batch) {
+            latest.put(entry.getBookId(), entry);
+            entryIds.add(entry.getId());
+        }
+        List<Book> upserts = new ArrayList<>();
+        List<Integer> deletes = new ArrayList<>();
+        for (BookOutboxEntry entry : latest.values()) {
+            if (entry.getType() == BookChangedEvent.Type.SAVED) {
+                upserts.add(entry.toBook());
+            } else {
+                deletes.add(entry.getBookId());
+            }
+        }
+
+        if (!upserts.isEmpty()) {
+            target.upsertAll(upserts);
+        }
+        List<Integer> removed = deletes.isEmpty() ? List.of() : target.removeAllById(deletes);
+        outbox.deleteAllByIdIn(entryIds);
+
+        Instant now = Instant.now();
+        for (BookOutboxEntry entry : batch) {
+            lag.record(Duration.between(entry.getCreatedAt(), now));
+        }
+        lastLagMillis = Duration.between(batch.get(batch.size() - 1).getCreatedAt(), now).toMillis();
+        lastAppliedAt = now;
+        applied.add(batch.size());
+        pending = Math.max(0, pending - batch.size());
+
+        for (Book book : upserts) {
+            eventPublisher.publishEvent(BookChangedEvent.saved(TARGET, book));
+        }
+        for (Integer bookId : removed) {
+            eventPublisher.publishEvent(BookChangedEvent.deleted(TARGET, bookId));
+        }
+        logger.debug("Replicated {} outbox entries ({} upserts, {} deletes) to {}", batch.size(), upserts.size(), deletes.size(), TARGET);
+        return batch.size();
+    }
+
+    private Duration backoff(int failures) {
+        Duration delay = properties.initialBackoff().multipliedBy(1L << Math.min(failures - 1, 20));
+        return delay.compareTo(properties.maxBackoff()) > 0 ? properties.maxBackoff() : delay;
+    }
+}
@@ -0,0 +1,30 @@
+package com.nantan.app.replication;
+
+import java.time.Instant;
+
+/**
+ * Snapshot of the replication relay, as served by {@code /api/diagnostics/replication}.
+ *
+ * @param enabled             whether replication is switched on.
+ * @param source              the data source changes are read from.
+ * @param target              the data source changes are applied to.
+ * @param pending             outbox entries waiting at the last poll.
+ * @param applied             outbox entries applied since startup.
+ * @param failedBatches       batches that failed and were retried.
+ * @param consecutiveFailures failures since the last successful batch; drives the backoff.
+ * @param lastLagMillis       time from commit to apply of the newest entry of the last batch.
+ * @param lastAppliedAt       when the last batch was applied, or null.
+ * @param lastError           the message of the last failure, or null.
+ */
+public record ReplicationStats(
+        boolean enabled,
+        String source,
+        String target,
+        long pending,
+        long applied,
+        long failedBatches,
+        int consecutiveFailures,
+        long lastLagMillis,
+        Instant lastAppliedAt,
+        String lastError) {
+}
@@ -0,0 +1,359 @@
+package com.nantan.app.search;
+
+import com.nantan.app.Book;
+import com.nantan.app.util.IntArrayList;
+import com.nantan.app.util.IntHashSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over the titles and authors of one data source.
+ * <p>
+ * The term dictionary is a sorted map, so each distinct term is stored exactly once and a prefix
+ * query is a range scan over adjacent keys. Every term points at two sorted posting lists of
+ * primitive book IDs, one per field. Deletions are recorded as tombstones and physically removed
+ * from the posting lists in batches.
+ * <p>
+ * Updates to a book add the new terms without removing the old ones, so a posting may be stale;
+ * callers re-check each hit against the current book with {@link #matches(Book, String)}.
+ */
+final class BookSearchIndex {
+
+    static final int TITLE_EXACT = 8;
+    static final int TITLE_PREFIX = 4;
+    static final int AUTHOR_EXACT = 3;
+    static final int AUTHOR_PREFIX = 1;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final IntHashSet tombstones = new IntHashSet();
+    private final int compactionThreshold;
+    private boolean sealed;
+    private long postingCount;
+
+    BookSearchIndex(int compactionThreshold) {
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    /**
+     * Appends a book during the initial build. Posting lists stay unsorted until {@link #seal()}.
+     */
+    void append(Book book) {
+        lock.writeLock().lock();
+        try {
+            index(book, false);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sorts and compacts every posting list. Must be called once after the last {@link #append(Book)}.
+     */
+    void seal() {
+        lock.writeLock().lock();
+        try {
+            postingCount = 0;
+            for (Postings postings : terms.values()) {
+                postings.title.sortDistinct();
+                postings.title.trimToSize();
+                postings.author.sortDistinct();
+                postings.author.trimToSize();
+                postingCount += postings.title.size() + postings.author.size();
+            }
+            sealed = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void add(Book book) {
+        lock.writeLock().lock();
+        try {
+            tombstones.remove(book.getId());
+            index(book, true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(int bookId) {
+        lock.writeLock().lock();
+        try {
+            tombstones.add(bookId);
+            if (tombstones.size() >= compactionThreshold) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the books matching every query token, as an exact term or as a prefix of a term.
+     * Title matches rank above author matches and exact matches above prefix matches;
+     * ties are broken by ascending ID.
+     * <p>
+     * A token matches every dictionary term it is a prefix of, and the postings of all of them are merged
+     * before ranking, so no match is lost however many terms a short prefix expands to. The cost of such a
+     * query grows with the postings it covers rather than with {@code limit}.
+     *
+     * @param query the raw user query.
+     * @param limit the maximum number of IDs to return.
+     * @return matching book IDs, best first.
+     */
+    int[] search(String query, int limit) {
+        List<String> tokens = new ArrayList<>(new LinkedHashSet<>(Tokenizer.tokenize(query)));
+        if (tokens.isEmpty() || limit <= 0) {
+            return new int[0];
+        }
+        lock.readLock().lock();
+        try {
+            ScoredDocs candidates = null;
+            for (String token : tokens) {
+                ScoredDocs matches = matchToken(token);
+                candidates = candidates == null ? matches : ScoredDocs.intersect(candidates, matches);
+                if (candidates.size == 0) {
+                    return new int[0];
+                }
+            }
+            return topK(candidates, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    SearchIndexStats stats(String dataSource, boolean ready) {
+        lock.readLock().lock();
+        try {
+            long bytes = tombstones.footprintBytes();
+            for (Map.Entry<String, Postings> entry : terms.entrySet()) {
+                // TreeMap entry + String + its byte[] + Postings + two IntArrayList headers
+                bytes += 40 + 24 + 16 + entry.getKey().length() + 16 + 2 * 24;
+                bytes += entry.getValue().title.footprintBytes() + entry.getValue().author.footprintBytes();
+            }
+            return new SearchIndexStats(dataSource, ready, terms.size(), postingCount, tombstones.size(), bytes);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Re-checks a hit against the book's current title and author.
+     */
+    static boolean matches(Book book, String query) {
+        List<String> bookTokens = new ArrayList<>(Tokenizer.tokenize(book.getTitle()));
+        bookTokens.addAll(Tokenizer.tokenize(book.getAuthor()));
+        for (String token : Tokenizer.tokenize(query)) {
+            if (bookTokens.stream().noneMatch(candidate -> candidate.startsWith(token))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void index(Book book, boolean keepSorted) {
+        int id = book.getId();
+        for (String token : Tokenizer.tokenize(book.getTitle())) {
+            postingCount += insert(postingsFor(token).title, id, keepSorted);
+        }
+        for (String token : Tokenizer.tokenize(book.getAuthor())) {
+            postingCount += insert(postingsFor(token).author, id, keepSorted);
+        }
+    }
+
+    private int insert(IntArrayList list, int id, boolean keepSorted) {
+        if (keepSorted && sealed) {
+            return list.addSorted(id) ? 1 : 0;
+        }
+        list.add(id);
+        return 1;
+    }
+
+    private Postings postingsFor(String token) {
+        // Reusing the key already in the dictionary keeps one String instance per distinct term.
+        return terms.computeIfAbsent(token, key -> new Postings());
+    }
+
+    private ScoredDocs matchToken(String token) {
+        List<ScoredDocs> lists = new ArrayList<>();
+        for (Map.Entry<String, Postings> entry : terms.subMap(token, true, token + Character.MAX_VALUE, false).entrySet()) {
+            boolean exact = entry.getKey().length() == token.length();
+            Postings postings = entry.getValue();
+            if (!postings.title.isEmpty()) {
+                lists.add(ScoredDocs.of(postings.title, exact ? TITLE_EXACT : TITLE_PREFIX));
+            }
+            if (!postings.author.isEmpty()) {
+                lists.add(ScoredDocs.of(postings.author, exact ? AUTHOR_EXACT : AUTHOR_PREFIX));
+            }
+        }
+        return ScoredDocs.unionMax(lists, 0, lists.size());
+    }
+
+    private int[] topK(ScoredDocs candidates, int limit) {
+        // Min-heap of (score, inverted id) packed into longs: the root is the weakest hit kept so far.
+        long[] heap = new long[Math.min(limit, candidates.size)];
+        int heapSize = 0;
+        for (int i = 0; i < candidates.size; i++) {
+            int doc = candidates.docs[i];
+            if (tombstones.contains(doc)) {
+                continue;
+            }
+            long key = ((long) candidates.score(i) << 32) | tieBreak(doc);
+            if (heapSize < heap.length) {
+                heap[heapSize] = key;
+                siftUp(heap, heapSize++);
+            } else if (key > heap[0]) {
+                heap[0] = key;
+                siftDown(heap, heapSize);
+            }
+        }
+        long[] ranked = Arrays.copyOf(heap, heapSize);
+        Arrays.sort(ranked);
+        int[] ids = new int[heapSize];
+        for (int i = 0; i < heapSize; i++) {
+            ids[i] = ~((int) ranked[heapSize - 1 - i] ^ Integer.MIN_VALUE);
+        }
+        return ids;
+    }
+
+    /**
+     * Low word of a heap key: larger for smaller IDs when compared as unsigned. Flipping the sign bit of
+     * {@code ~doc} keeps negative IDs (clients may choose their own) ahead of positive ones.
+     */
+    private static long tieBreak(int doc) {
+        return (~doc ^ Integer.MIN_VALUE) & 0xFFFFFFFFL;
+    }
+
+    private static void siftUp(long[] heap, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] <= heap[index]) {
+                return;
+            }
+            swap(heap, parent, index);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        int index = 0;
+        while (true) {
+            int smallest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && heap[left] < heap[smallest]) {
+                smallest = left;
+            }
+            if (right < size && heap[right] < heap[smallest]) {
+                smallest = right;
+            }
+            if (smallest == index) {
+                return;
+            }
+            swap(heap, smallest, index);
+            index = smallest;
+        }
+    }
+
+    private static void swap(long[] heap, int a, int b) {
+        long tmp = heap[a];
+        heap[a] = heap[b];
+        heap[b] = tmp;
+    }
+
+    private void compact() {
+        postingCount = 0;
+        terms.values().removeIf(postings -> {
+            postings.title.retainIf(id -> !tombstones.contains(id));
+            postings.author.retainIf(id -> !tombstones.contains(id));
+            postingCount += postings.title.size() + postings.author.size();
+            return postings.title.isEmpty() && postings.author.isEmpty();
+        });
+        tombstones.clear();
+    }
+
+    private static final class Postings {
+        final IntArrayList title = new IntArrayList(0);
+        final IntArrayList author = new IntArrayList(0);
+    }
+
+    /**
+     * A sorted list of book IDs with a score per ID. Lists taken straight from the index share
+     * its posting array and use a constant score, so a single-term query copies nothing.
+     */
+    private static final class ScoredDocs {
+        final int[] docs;
+        final int[] scores;
+        final int constantScore;
+        final int size;
+
+        private ScoredDocs(int[] docs, int[] scores, int constantScore, int size) {
+            this.docs = docs;
+            this.scores = scores;
+            this.constantScore = constantScore;
+            this.size = size;
+        }
+
+        static ScoredDocs of(IntArrayList postings, int score) {
+            return new ScoredDocs(postings.rawArray(), null, score, postings.size());
+        }
+
+        int score(int index) {
+            return scores == null ? constantScore : scores[index];
+        }
+
+        static ScoredDocs unionMax(List<ScoredDocs> lists, int from, int to) {
+            if (to - from == 0) {
+                return new ScoredDocs(new int[0], null, 0, 0);
+            }
+            if (to - from == 1) {
+                return lists.get(from);
+            }
+            int mid = (from + to) >>> 1;
+            ScoredDocs a = unionMax(lists, from, mid);
+            ScoredDocs b = unionMax(lists, mid, to);
+            int[] docs = new int[a.size + b.size];
+            int[] scores = new int[a.size + b.size];
+            int i = 0, j = 0, n = 0;
+            while (i < a.size || j < b.size) {
+                if (j == b.size || (i < a.size && a.docs[i] < b.docs[j])) {
+                    docs[n] = a.docs[i];
+                    scores[n++] = a.score(i++);
+                } else if (i == a.size || b.docs[j] < a.docs[i]) {
+                    docs[n] = b.docs[j];
+                    scores[n++] = b.score(j++);
+                } else {
+                    docs[n] = a.docs[i];
+                    scores[n++] = Math.max(a.score(i++), b.score(j++));
+                }
+            }
+            return new ScoredDocs(docs, scores, 0, n);
+        }
+
+        static ScoredDocs intersect(ScoredDocs a, ScoredDocs b) {
+            int capacity = Math.min(a.size, b.size);
+            int[] docs = new int[capacity];
+            int[] scores = new int[capacity];
+            int i = 0, j = 0, n = 0;
+            // Branch-free merge: the comparisons of two unrelated ID lists are unpredictable,
+            // so we always write the candidate and only advance the output when the IDs agree.
+            while (i < a.size && j < b.size) {
+                int docA = a.docs[i];
+                int docB = b.docs[j];
+                docs[n] = docA;
+                scores[n] = a.score(i) + b.score(j);
+                n += docA == docB ? 1 : 0;
+                i += docA <= docB ? 1 : 0;
+                j += docB <= docA ? 1 : 0;
+            }
+            return new ScoredDocs(docs, scores, 0, n);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.nantan.app.search;
+
+import com.nantan.app.Book;
+import com.nantan.app.BookRepository;
+import com.nantan.app.DataSources;
+import com.nantan.app.config.SearchProperties;
+import com.nantan.app.config.StartupProperties;
+import com.nantan.app.event.BookChangedEvent;
+import com.nantan.app.exception.SearchIndexUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Owns one {@link BookSearchIndex} per data source.
+ * <p>
+ * The indexes are built in parallel once the application is ready, by streaming every book from the
+ * undecorated repositories. Changes committed while a build is running are queued and replayed onto
+ * the new index before it is published, so no write is lost between the snapshot and the swap.
+ */
+@Component
+public class BookSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookSearchService.class);
+
+    private final Map<String, BookRepository> repositories;
+    private final Map<String, IndexHolder> holders;
+    private final SearchProperties properties;
+    private final StartupProperties startup;
+
+    public BookSearchService(
+            @Qualifier("jpaBookRepository") BookRepository jpaRepository,
+            @Qualifier("mongoBookRepository") BookRepository mongoRepository,
+            @Qualifier("localBookRepository") BookRepository localRepository,
+            SearchProperties properties,
+            StartupProperties startup) {
+        this.repositories = Map.of(DataSources.MYSQL, jpaRepository, DataSources.MONGO, mongoRepository,
+                DataSources.LOCAL, localRepository);
+        this.holders = Map.of(DataSources.MYSQL, new IndexHolder(), DataSources.MONGO, new IndexHolder(),
+                DataSources.LOCAL, new IndexHolder());
+        this.properties = properties;
+        this.startup = startup;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildIndexes() {
+        if (!properties.enabled()) {
+            logger.info("Search indexes are disabled (library.search.enabled=false)");
+            return;
+        }
+        ExecutorService builders = Executors.newFixedThreadPool(
+                startup.dataSources().size(), new CustomizableThreadFactory("SearchIndexBuilder-"));
+        for (String dataSource : startup.dataSources()) {
+            builders.execute(() -> rebuild(dataSource));
+        }
+        builders.shutdown();
+    }
+
+    /**
+     * Builds a fresh index for the data source and swaps it in.
+     * Searches keep using the previous index (if any) until the new one is complete.
+     */
+    public void rebuild(String dataSource) {
+        IndexHolder holder = holders.get(dataSource);
+        synchronized (holder) {
+            if (holder.pending != null) {
+                logger.info("Search index for {} is already being built", dataSource);
+                return;
+            }
+            holder.pending = new ArrayList<>();
+        }
+        long startNanos = System.nanoTime();
+        BookSearchIndex fresh = new BookSearchIndex(properties.compactionThreshold());
+        try {
+            long books = repositories.get(dataSource).exportAll(fresh::append);
+            fresh.seal();
+            int replayed;
+            synchronized (holder) {
+                replayed = holder.pending.size();
+                holder.pending.forEach(event -> apply(fresh, event));
+                holder.index = fresh;
+                holder.pending = null;
+            }
+            SearchIndexStats stats = fresh.stats(dataSource, true);
+            logger.info("Built search index for {}: {} books, {} terms, ~{} KiB in {} ms ({} changes replayed)",
+                    dataSource, books, stats.terms(), stats.footprintBytes() / 1024,
+                    (System.nanoTime() - startNanos) / 1_000_000, replayed);
+        } catch (RuntimeException e) {
+            synchronized (holder) {
+                holder.pending = null;
+            }
+            logger.warn("Failed to build search index for {}: {}", dataSource, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Applies a committed change to the index. Runs after the publishing transaction commits,
+     * or immediately when the change was made outside a transaction.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        IndexHolder holder = holders.get(event.dataSource());
+        if (holder == null) {
+            return;
+        }
+        BookSearchIndex index;
+        synchronized (holder) {
+            if (holder.pending != null) {
+                holder.pending.add(event);
+                return;
+            }
+            index = holder.index;
+        }
+        if (index != null) {
+            apply(index, event);
+        }
+    }
+
+    /**
+     * Returns the IDs of the best matching books, best first.
+     *
+     * @throws SearchIndexUnavailableException if the data source's index has not been built.
+     */
+    public int[] search(String dataSource, String query, int limit) {
+        BookSearchIndex index = holders.get(dataSource).index;
+        if (index == null) {
+            throw new SearchIndexUnavailableException(dataSource);
+        }
+        return index.search(query, limit);
+    }
+
+    /**
+     * Whether the book, as currently stored, still matches the query.
+     * Hits are re-checked because the index may hold terms of a book's earlier version.
+     */
+    public boolean matches(Book book, String query) {
+        return BookSearchIndex.matches(book, query);
+    }
+
+    public List<SearchIndexStats> stats() {
+        List<SearchIndexStats> stats = new ArrayList<>();
+        for (String dataSource : DataSources.ALL) {
+            IndexHolder holder = holders.get(dataSource);
+            BookSearchIndex index = holder.index;
+            stats.add(index == null
+                    ? new SearchIndexStats(dataSource, false, 0, 0, 0, 0)
+                    : index.stats(dataSource, true));
+        }
+        return stats;
+    }
+
+    private static void apply(BookSearchIndex index, BookChangedEvent event) {
+        if (event.type() == BookChangedEvent.Type.SAVED) {
+            index.add(event.book());
+        } else {
+            index.remove(event.bookId());
+        }
+    }
+
+    private static final class IndexHolder {
+        volatile BookSearchIndex index;
+        // Non-null while a build is running; guarded by the holder's monitor.
+        List<BookChangedEvent> pending;
+    }
+}
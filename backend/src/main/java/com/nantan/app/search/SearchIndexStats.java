@@ -0,0 +1,20 @@
+package com.nantan.app.search;
+
+/**
+ * Size of one data source's search index.
+ *
+ * @param dataSource     the data source the index covers.
+ * @param ready          false while the initial build is still running.
+ * @param terms          number of distinct terms in the dictionary.
+ * @param postings       number of (term, book) entries across all posting lists.
+ * @param tombstones     deleted books not yet purged from the posting lists.
+ * @param footprintBytes approximate heap used by the index, assuming compressed object pointers.
+ */
+public record SearchIndexStats(
+        String dataSource,
+        boolean ready,
+        int terms,
+        long postings,
+        int tombstones,
+        long footprintBytes) {
+}
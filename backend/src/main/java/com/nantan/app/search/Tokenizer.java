@@ -0,0 +1,56 @@
+package com.nantan.app.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits titles, authors and queries into lower-case search terms.
+ * Runs of letters and digits form one term; every CJK character is a term of its own,
+ * because those scripts do not separate words with spaces.
+ */
+final class Tokenizer {
+
+    private Tokenizer() {
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i < lower.length(); ) {
+            int codePoint = lower.codePointAt(i);
+            int next = i + Character.charCount(codePoint);
+            if (isIdeographic(codePoint)) {
+                if (start >= 0) {
+                    tokens.add(lower.substring(start, i));
+                    start = -1;
+                }
+                tokens.add(lower.substring(i, next));
+            } else if (Character.isLetterOrDigit(codePoint)) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+            i = next;
+        }
+        if (start >= 0) {
+            tokens.add(lower.substring(start));
+        }
+        return tokens;
+    }
+
+    private static boolean isIdeographic(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
@@ -1,8 +1,16 @@
 package com.nantan.app.service;
 
 import com.nantan.app.Book;
+import com.nantan.app.BookQuery;
+import com.nantan.app.dto.BookPage;
+import com.nantan.app.dto.DeleteReport;
+import com.nantan.app.dto.ImportReport;
+
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Asynchronous service layer interface for book-related business logic.
@@ -11,15 +19,72 @@ import java.util.concurrent.CompletableFuture;
 public interface BookService {
 
     /**
-     * Asynchronously retrieves all books from the specified data source.
+     * Asynchronously retrieves books from the specified data source without paging.
+     * The result is capped at {@code library.pagination.unpaged-max-results}; use
+     * {@link #getBooksPage(Integer, Integer, String)} to walk the full catalog.
      *
-     * @param dataSource a string indicating the data source ("mysql" or "mongo").
-     * @return a CompletableFuture containing a list of all books.
+     * @param dataSource a string indicating the data source ("mysql", "mongo" or "local").
+     * @return a CompletableFuture containing at most the configured number of books, ordered by ID.
      */
     CompletableFuture<List<Book>> getAllBooks(String dataSource);
 
+    /**
+     * Asynchronously retrieves the books of the specified data source that match the query.
+     * Filters, order and field selection are answered by the data source from its indexes.
+     *
+     * @param query      the filters, order and fields.
+     * @param limit      the maximum number of results, or null for the default; clamped to
+     *                   {@code library.pagination.unpaged-max-results}.
+     * @param dataSource a string indicating the data source ("mysql", "mongo" or "local").
+     * @return a CompletableFuture containing the matching books in the query's order.
+     */
+    CompletableFuture<List<Book>> findBooks(BookQuery query, Integer limit, String dataSource);
+
+    /**
+     * Returns a token that changes whenever the books of the specified data source may have changed.
+     * It is answered from memory on the caller's thread and never queries the data source, so it can
+     * be used to validate a client's cached copy of {@link #getAllBooks(String)} cheaply.
+     *
+     * @param dataSource a string indicating the data source ("mysql", "mongo" or "local").
+     * @return the current version token of the data source's books.
+     */
+    String getCollectionVersion(String dataSource);
+
+    /**
+     * Asynchronously retrieves one keyset page of books from the specified data source.
+     *
+     * @param afterId    the cursor returned by the previous page, or null to start from the beginning.
+     * @param limit      the requested page size, or null for the default; clamped to the configured maximum.
+     * @param dataSource a string indicating the data source.
+     * @return a CompletableFuture containing the page and the cursor for the next one.
+     */
+    CompletableFuture<BookPage> getBooksPage(Integer afterId, Integer limit, String dataSource);
+
+    /**
+     * Asynchronously searches titles and authors of the specified data source.
+     * Every word of the query must match a title or author word, either completely or as a prefix.
+     *
+     * @param query      the search terms.
+     * @param limit      the maximum number of results, or null for the default; clamped to the configured maximum.
+     * @param dataSource a string indicating the data source.
+     * @return a CompletableFuture containing the matching books, best match first.
+     * @throws com.nantan.app.exception.SearchIndexUnavailableException (through the future) while the index is being built.
+     */
+    CompletableFuture<List<Book>> searchBooks(String query, Integer limit, String dataSource);
+
+    /**
+     * Asynchronously retrieves the books with the given IDs from the specified data source.
+     * Lookups made by concurrent callers within a short window are combined into one query.
+     *
+     * @param bookIds    the IDs to look up; duplicates are ignored.
+     * @param dataSource a string indicating the data source.
+     * @return a CompletableFuture containing the books found, in the order their IDs were given; missing IDs are left out.
+     */
+    CompletableFuture<List<Book>> getBooksByIds(Collection<Integer> bookIds, String dataSource);
+
     /**
      * Asynchronously adds a new book to the specified data source.
+     * A book without an ID is given a new one by the server; a book with an ID replaces any book with that ID.
      *
      * @param book       the book entity to save.
      * @param dataSource a string indicating the data source.
@@ -27,6 +92,17 @@ public interface BookService {
      */
     CompletableFuture<Book> addBook(Book book, String dataSource);
 
+    /**
+     * Saves several books in one transaction (MySQL) or one bulk write (MongoDB), with the same
+     * insert-or-replace semantics as {@link #addBook(Book, String)}.
+     * Runs synchronously on the caller's thread; used by the write coalescer to group concurrent adds.
+     *
+     * @param books      the books to save; those without an ID are given a new one.
+     * @param dataSource a string indicating the data source.
+     * @return the saved books, in the order given.
+     */
+    List<Book> addBooks(List<Book> books, String dataSource);
+
     /**
      * Asynchronously deletes a book by its ID from the specified data source.
      *
@@ -35,4 +111,36 @@ public interface BookService {
      * @return a CompletableFuture containing a boolean indicating if the book was deleted.
      */
     CompletableFuture<Boolean> deleteBookById(int bookId, String dataSource);
-}
\ No newline at end of file
+
+    /**
+     * Asynchronously deletes several books from the specified data source.
+     * Each batch of IDs is removed with a single statement (MySQL) or bulk operation (MongoDB).
+     *
+     * @param bookIds    the IDs of the books to delete; duplicates are ignored.
+     * @param dataSource a string indicating the data source.
+     * @return a CompletableFuture containing the removed IDs and the IDs that did not exist.
+     */
+    CompletableFuture<DeleteReport> deleteBooksByIds(Collection<Integer> bookIds, String dataSource);
+
+    /**
+     * Streams every book of the specified data source to the given sink, in ascending ID order.
+     * Unlike the other methods this runs synchronously on the caller's thread, because the caller
+     * owns the output the books are written to.
+     *
+     * @param dataSource a string indicating the data source.
+     * @param sink       the consumer that receives each book.
+     * @return the number of books exported.
+     */
+    long exportBooks(String dataSource, Consumer<? super Book> sink);
+
+    /**
+     * Inserts books read from the iterator into the specified data source in fixed-size chunks.
+     * Books are pulled from the iterator lazily, so only the current chunk is held in memory.
+     * Runs synchronously on the caller's thread, which owns the request body being read.
+     *
+     * @param books      the books to insert, typically parsed incrementally from a request body.
+     * @param dataSource a string indicating the data source.
+     * @return a report with the number of inserted books, the failed chunks and the throughput.
+     */
+    ImportReport importBooks(Iterator<Book> books, String dataSource);
+}
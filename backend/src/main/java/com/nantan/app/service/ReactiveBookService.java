@@ -0,0 +1,72 @@
+package com.nantan.app.service;
+
+import com.nantan.app.Book;
+import com.nantan.app.dto.BookPage;
+import com.nantan.app.dto.ImportReport;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Non-blocking service layer for the {@code reactive} profile.
+ * Same semantics as the matching {@link BookService} methods, but every result is a publisher that does
+ * its work when subscribed, on the thread that delivers the data, instead of on the async executor.
+ */
+public interface ReactiveBookService {
+
+    /**
+     * Retrieves books without paging, capped at {@code library.pagination.unpaged-max-results}.
+     *
+     * @param dataSource a string indicating the data source ("mysql" or "mongo").
+     * @return a Mono of at most the configured number of books, ordered by ID.
+     */
+    Mono<List<Book>> getAllBooks(String dataSource);
+
+    /**
+     * Retrieves one keyset page of books.
+     *
+     * @param afterId    the cursor returned by the previous page, or null to start from the beginning.
+     * @param limit      the requested page size, or null for the default; clamped to the configured maximum.
+     * @param dataSource a string indicating the data source.
+     * @return a Mono of the page and the cursor for the next one.
+     */
+    Mono<BookPage> getBooksPage(Integer afterId, Integer limit, String dataSource);
+
+    /**
+     * Streams every book of the data source, ordered by ID.
+     * Rows are read only as fast as the subscriber (ultimately the HTTP client) consumes them.
+     *
+     * @param dataSource a string indicating the data source.
+     * @return a Flux of all books.
+     */
+    Flux<Book> exportBooks(String dataSource);
+
+    /**
+     * Adds the book, replacing one with the same ID.
+     *
+     * @param book       the book to save.
+     * @param dataSource a string indicating the data source.
+     * @return a Mono of the saved book.
+     */
+    Mono<Book> addBook(Book book, String dataSource);
+
+    /**
+     * Writes the books in chunks of {@code library.import.chunk-size} as they arrive.
+     * A failed chunk is recorded in the report and the import continues with the next one.
+     *
+     * @param books      the books to import, typically decoded from the request body.
+     * @param dataSource a string indicating the data source.
+     * @return a Mono of the import report, emitted once the input is exhausted.
+     */
+    Mono<ImportReport> importBooks(Flux<Book> books, String dataSource);
+
+    /**
+     * Deletes a book by its ID.
+     *
+     * @param bookId     the ID of the book to delete.
+     * @param dataSource a string indicating the data source.
+     * @return a Mono of true if the book existed and was deleted.
+     */
+    Mono<Boolean> deleteBookById(int bookId, String dataSource);
+}
@@ -1,19 +1,49 @@
 package com.nantan.app.service.impl;
 
 import com.nantan.app.Book;
+import com.nantan.app.BookQuery;
 import com.nantan.app.BookRepository;
+import com.nantan.app.DataSources;
+import com.nantan.app.cache.CollectionVersions;
 import com.nantan.app.config.AsyncConfig;
+import com.nantan.app.config.IdAllocationConfig;
+import com.nantan.app.concurrent.BatchLoader;
+import com.nantan.app.concurrent.SingleFlight;
+import com.nantan.app.config.ImportProperties;
+import com.nantan.app.config.RepositoryConfig;
+import com.nantan.app.config.PaginationProperties;
+import com.nantan.app.config.ReadCollapsingProperties;
+import com.nantan.app.config.SearchProperties;
+import com.nantan.app.dto.BookPage;
+import com.nantan.app.dto.DeleteReport;
+import com.nantan.app.dto.ImportReport;
+import com.nantan.app.event.BookChangedEvent;
+import com.nantan.app.exception.BulkInsertException;
+import com.nantan.app.id.IdAllocator;
+import com.nantan.app.search.BookSearchService;
 import com.nantan.app.service.BookService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import jakarta.annotation.PreDestroy;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Asynchronous implementation of the BookService interface.
@@ -25,36 +55,225 @@ public class BookServiceImpl implements BookService {
 
     private static final Logger logger = LoggerFactory.getLogger(BookServiceImpl.class);
 
+    /**
+     * Cursor that sorts before every valid book ID.
+     */
+    static final int FIRST_PAGE_CURSOR = Integer.MIN_VALUE;
+
+    /**
+     * Maximum number of IDs in one DELETE ... IN (...) statement.
+     */
+    static final int DELETE_BATCH_SIZE = 1000;
+
     private final BookRepository jpaRepository;
     private final BookRepository mongoRepository;
+    private final BookRepository localRepository;
+    private final PaginationProperties pagination;
+    private final ImportProperties importProperties;
+    private final SearchProperties searchProperties;
+    private final BookSearchService searchService;
+    private final CollectionVersions collectionVersions;
+    private final IdAllocator idAllocator;
+    private final IdAllocator localIdAllocator;
+    private final TransactionOperations transactions;
+    private final ReadCollapsingProperties collapsing;
+    private final AsyncTaskExecutor taskExecutor;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SingleFlight<ReadKey, Object> reads = new SingleFlight<>();
+    private final Map<String, BatchLoader<Integer, Book>> batchLoaders = new HashMap<>();
 
     @Autowired
     public BookServiceImpl(
-            @Qualifier("jpaBookRepository") BookRepository jpaRepository,
-            @Qualifier("mongoBookRepository") BookRepository mongoRepository) {
+            @Qualifier(RepositoryConfig.MYSQL_BOOKS) BookRepository jpaRepository,
+            @Qualifier(RepositoryConfig.MONGO_BOOKS) BookRepository mongoRepository,
+            @Qualifier(RepositoryConfig.LOCAL_BOOKS) BookRepository localRepository,
+            PaginationProperties pagination,
+            ImportProperties importProperties,
+            SearchProperties searchProperties,
+            BookSearchService searchService,
+            CollectionVersions collectionVersions,
+            @Qualifier(IdAllocationConfig.BOOK_ID_ALLOCATOR) IdAllocator idAllocator,
+            @Qualifier(IdAllocationConfig.LOCAL_BOOK_ID_ALLOCATOR) IdAllocator localIdAllocator,
+            TransactionOperations transactions,
+            ReadCollapsingProperties collapsing,
+            @Qualifier(AsyncConfig.TASK_EXECUTOR_NAME) AsyncTaskExecutor taskExecutor,
+            ApplicationEventPublisher eventPublisher) {
         this.jpaRepository = jpaRepository;
         this.mongoRepository = mongoRepository;
+        this.localRepository = localRepository;
+        this.pagination = pagination;
+        this.importProperties = importProperties;
+        this.searchProperties = searchProperties;
+        this.searchService = searchService;
+        this.collectionVersions = collectionVersions;
+        this.idAllocator = idAllocator;
+        this.localIdAllocator = localIdAllocator;
+        this.transactions = transactions;
+        this.collapsing = collapsing;
+        this.taskExecutor = taskExecutor;
+        this.eventPublisher = eventPublisher;
+        for (String dataSource : DataSources.ALL) {
+            BookRepository repository = selectRepository(dataSource);
+            batchLoaders.put(dataSource, new BatchLoader<>("BookBatchLoader-" + dataSource + "-", ids -> {
+                Map<Integer, Book> found = new HashMap<>();
+                for (Book book : repository.findAllById(ids)) {
+                    found.put(book.getId(), book);
+                }
+                return found;
+            }, taskExecutor, collapsing.batchWindow(), collapsing.maxBatchSize()));
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        batchLoaders.values().forEach(BatchLoader::close);
     }
 
     /**
-     * Asynchronously retrieves all books.
-     * The database query is executed in a background thread from our custom task executor.
+     * Asynchronously retrieves the first books of the catalog, capped at the configured maximum.
+     * The database query is executed in a background thread from our custom task executor,
+     * and concurrent identical calls share it (see {@link #collapsed}).
      *
      * @param dataSource The data source to use.
      * @return A CompletableFuture that will eventually hold the list of books.
      */
     @Override
-    @Async(AsyncConfig.TASK_EXECUTOR_NAME)
     public CompletableFuture<List<Book>> getAllBooks(String dataSource) {
-        logger.info("Executing getAllBooks on thread: {}", Thread.currentThread().getName());
-        List<Book> books = selectRepository(dataSource).findAll();
-        logger.info("Found {} books from data source: {}", books.size(), dataSource);
-        return CompletableFuture.completedFuture(books);
+        String source = DataSources.resolve(dataSource);
+        return collapsed("getAllBooks", source, List.of(), () -> {
+            logger.debug("Executing getAllBooks on thread: {}", Thread.currentThread().getName());
+            int cap = pagination.unpagedMaxResults();
+            // 多取一条，用来判断结果是否被截断
+            List<Book> books = selectRepository(source).findPage(FIRST_PAGE_CURSOR, cap + 1);
+            if (books.size() > cap) {
+                logger.warn("Unpaged listing of data source {} truncated to {} books; use /api/books/page instead.", source, cap);
+                books = books.subList(0, cap);
+            }
+            logger.debug("Found {} books from data source: {}", books.size(), source);
+            return books;
+        });
+    }
+
+    /**
+     * Asynchronously retrieves the books matching a query. The limit defaults to, and is capped at,
+     * the unpaged listing's maximum; the query runs against the store's indexes.
+     *
+     * @param query      The filters, order and fields.
+     * @param limit      The maximum number of books, or null for the default.
+     * @param dataSource The data source to use.
+     * @return A CompletableFuture that will eventually hold the matching books.
+     */
+    @Override
+    public CompletableFuture<List<Book>> findBooks(BookQuery query, Integer limit, String dataSource) {
+        String source = DataSources.resolve(dataSource);
+        int cap = pagination.unpagedMaxResults();
+        int maxResults = limit == null || limit <= 0 ? cap : Math.min(limit, cap);
+        return collapsed("findBooks", source, List.of(query, maxResults), () -> {
+            logger.debug("Executing findBooks on thread: {}", Thread.currentThread().getName());
+            List<Book> books = selectRepository(source).findMatching(query, maxResults);
+            logger.debug("Found {} books matching {} in data source: {}", books.size(), query, source);
+            return books;
+        });
+    }
+
+    @Override
+    public String getCollectionVersion(String dataSource) {
+        return collectionVersions.token(DataSources.resolve(dataSource));
+    }
+
+    /**
+     * Asynchronously retrieves one keyset page of books.
+     * One extra row is fetched to decide whether a next cursor should be returned.
+     *
+     * @param afterId    The cursor from the previous page, or null for the first page.
+     * @param limit      The requested page size, or null for the default.
+     * @param dataSource The data source to use.
+     * @return A CompletableFuture that will eventually hold the page.
+     */
+    @Override
+    public CompletableFuture<BookPage> getBooksPage(Integer afterId, Integer limit, String dataSource) {
+        String source = DataSources.resolve(dataSource);
+        int pageSize = limit == null ? pagination.defaultPageSize() : Math.max(1, Math.min(limit, pagination.maxPageSize()));
+        int cursor = afterId == null ? FIRST_PAGE_CURSOR : afterId;
+        return collapsed("getBooksPage", source, List.of(cursor, pageSize), () -> {
+            logger.debug("Executing getBooksPage on thread: {}", Thread.currentThread().getName());
+            List<Book> books = selectRepository(source).findPage(cursor, pageSize + 1);
+            Integer nextCursor = null;
+            if (books.size() > pageSize) {
+                books = books.subList(0, pageSize);
+                nextCursor = books.get(pageSize - 1).getId();
+            }
+            return new BookPage(books, nextCursor);
+        });
+    }
+
+    /**
+     * Asynchronously searches titles and authors through the in-memory index.
+     * The index yields ranked IDs; the books themselves are then loaded with one primary-key lookup
+     * and re-checked against the query, so a stale index entry never surfaces a wrong book.
+     *
+     * @param query      The search terms.
+     * @param limit      The requested number of results, or null for the default.
+     * @param dataSource The data source to use.
+     * @return A CompletableFuture that will eventually hold the matching books, best match first.
+     */
+    @Override
+    public CompletableFuture<List<Book>> searchBooks(String query, Integer limit, String dataSource) {
+        String source = DataSources.resolve(dataSource);
+        int maxResults = limit == null
+                ? searchProperties.defaultResults()
+                : Math.max(1, Math.min(limit, searchProperties.maxResults()));
+        return collapsed("searchBooks", source, List.of(query, maxResults), () -> {
+            logger.debug("Executing searchBooks on thread: {}", Thread.currentThread().getName());
+            // 多取一些候选，抵消被删除或已修改的书
+            int[] ranked = searchService.search(source, query, maxResults * 2);
+            if (ranked.length == 0) {
+                return List.of();
+            }
+            List<Integer> ids = new ArrayList<>(ranked.length);
+            for (int id : ranked) {
+                ids.add(id);
+            }
+            Map<Integer, Book> booksById = new HashMap<>();
+            for (Book book : selectRepository(source).findAllById(ids)) {
+                booksById.put(book.getId(), book);
+            }
+            List<Book> results = new ArrayList<>(maxResults);
+            for (int id : ranked) {
+                Book book = booksById.get(id);
+                if (book != null && searchService.matches(book, query)) {
+                    results.add(book);
+                    if (results.size() == maxResults) {
+                        break;
+                    }
+                }
+            }
+            return results;
+        });
+    }
+
+    /**
+     * Looks the books up through the data source's {@link BatchLoader}: lookups that arrive within
+     * {@code library.collapsing.batch-window} of each other are answered by one {@code findAllById}.
+     *
+     * @param bookIds    The IDs to look up.
+     * @param dataSource The data source to use.
+     * @return A CompletableFuture that will eventually hold the books found, in the order requested.
+     */
+    @Override
+    public CompletableFuture<List<Book>> getBooksByIds(Collection<Integer> bookIds, String dataSource) {
+        logger.debug("Executing getBooksByIds for {} ids on thread: {}", bookIds.size(), Thread.currentThread().getName());
+        return batchLoaders.get(DataSources.resolve(dataSource)).loadMany(bookIds)
+                .thenApply(found -> List.copyOf(found.values()));
     }
 
     /**
      * Asynchronously adds a new book.
      * The save operation is executed in a background thread and is transactional.
+     * A book without an ID gets one from the allocator and is inserted directly; since that ID was never used,
+     * no SELECT is needed first. A book with an ID is inserted or replaced as before.
+     * The ID is allocated before the transaction starts: when the allocator has to wait for a block reservation,
+     * which takes a pooled connection of its own, the caller must not be holding one.
      *
      * @param book       The book to add.
      * @param dataSource The data source to use.
@@ -62,17 +281,69 @@ public class BookServiceImpl implements BookService {
      */
     @Override
     @Async(AsyncConfig.TASK_EXECUTOR_NAME)
-    @Transactional
     public CompletableFuture<Book> addBook(Book book, String dataSource) {
-        logger.info("Executing addBook on thread: {}", Thread.currentThread().getName());
-        Book savedBook = selectRepository(dataSource).save(book);
-        logger.info("Successfully added book with new ID: {}", savedBook.getId());
+        logger.debug("Executing addBook on thread: {}", Thread.currentThread().getName());
+        BookRepository repository = selectRepository(dataSource);
+        boolean created = book.getId() == null;
+        if (created) {
+            book.setId(selectIdAllocator(dataSource).next());
+        }
+        Book savedBook = selectTransactions(dataSource).execute(status -> {
+            Book saved;
+            if (created) {
+                repository.insertAll(List.of(book));
+                saved = book;
+            } else {
+                saved = repository.save(book);
+            }
+            eventPublisher.publishEvent(BookChangedEvent.saved(DataSources.resolve(dataSource), saved));
+            return saved;
+        });
+        logger.debug("Successfully added book with new ID: {}", savedBook.getId());
         return CompletableFuture.completedFuture(savedBook);
     }
 
+    /**
+     * Saves the books with one bulk insert for those that get a new ID and one bulk upsert for the rest;
+     * on MySQL the change events are published inside the same transaction, so the outbox rows commit together with the books.
+     * As in {@link #addBook}, the IDs are allocated before the transaction starts.
+     *
+     * @param books      The books to save.
+     * @param dataSource The data source to use.
+     * @return The saved books.
+     */
+    @Override
+    public List<Book> addBooks(List<Book> books, String dataSource) {
+        BookRepository repository = selectRepository(dataSource);
+        IdAllocator ids = selectIdAllocator(dataSource);
+        List<Book> created = new ArrayList<>();
+        List<Book> replaced = new ArrayList<>();
+        for (Book book : books) {
+            if (book.getId() == null) {
+                book.setId(ids.next());
+                created.add(book);
+            } else {
+                replaced.add(book);
+            }
+        }
+        String resolved = DataSources.resolve(dataSource);
+        selectTransactions(dataSource).executeWithoutResult(status -> {
+            if (!created.isEmpty()) {
+                repository.insertAll(created);
+            }
+            if (!replaced.isEmpty()) {
+                repository.upsertAll(replaced);
+            }
+            for (Book book : books) {
+                eventPublisher.publishEvent(BookChangedEvent.saved(resolved, book));
+            }
+        });
+        return books;
+    }
+
     /**
      * Asynchronously deletes a book by its ID.
-     * The delete operation is executed in a background thread and is transactional.
+     * The delete operation is executed in a background thread and, on MySQL, in a transaction.
      *
      * @param bookId     The ID of the book to delete.
      * @param dataSource The data source to use.
@@ -80,29 +351,217 @@ public class BookServiceImpl implements BookService {
      */
     @Override
     @Async(AsyncConfig.TASK_EXECUTOR_NAME)
-    @Transactional
     public CompletableFuture<Boolean> deleteBookById(int bookId, String dataSource) {
-        logger.info("Executing deleteBookById on thread: {}", Thread.currentThread().getName());
-        boolean deleted = selectRepository(dataSource).deleteById(bookId);
+        logger.debug("Executing deleteBookById on thread: {}", Thread.currentThread().getName());
+        boolean deleted = Boolean.TRUE.equals(selectTransactions(dataSource).execute(status -> {
+            boolean removed = selectRepository(dataSource).deleteById(bookId);
+            if (removed) {
+                eventPublisher.publishEvent(BookChangedEvent.deleted(DataSources.resolve(dataSource), bookId));
+            }
+            return removed;
+        }));
         if (deleted) {
-            logger.info("Successfully deleted book with ID: {}", bookId);
+            logger.debug("Successfully deleted book with ID: {}", bookId);
         } else {
             logger.warn("Failed to delete book with ID: {}. It might not exist.", bookId);
         }
         return CompletableFuture.completedFuture(deleted);
     }
 
+    /**
+     * Asynchronously deletes several books by ID, at most {@link #DELETE_BATCH_SIZE} per statement.
+     * On MySQL all batches run in one transaction.
+     *
+     * @param bookIds    The IDs of the books to delete.
+     * @param dataSource The data source to use.
+     * @return A CompletableFuture that will eventually hold the removed and missing IDs.
+     */
+    @Override
+    @Async(AsyncConfig.TASK_EXECUTOR_NAME)
+    public CompletableFuture<DeleteReport> deleteBooksByIds(Collection<Integer> bookIds, String dataSource) {
+        logger.debug("Executing deleteBooksByIds on thread: {}", Thread.currentThread().getName());
+        BookRepository repository = selectRepository(dataSource);
+        List<Integer> requested = bookIds.stream().distinct().sorted().toList();
+        List<Integer> removed = new ArrayList<>();
+        String source = DataSources.resolve(dataSource);
+        selectTransactions(dataSource).executeWithoutResult(status -> {
+            for (int from = 0; from < requested.size(); from += DELETE_BATCH_SIZE) {
+                removed.addAll(repository.removeAllById(requested.subList(from, Math.min(requested.size(), from + DELETE_BATCH_SIZE))));
+            }
+            for (Integer bookId : removed) {
+                eventPublisher.publishEvent(BookChangedEvent.deleted(source, bookId));
+            }
+        });
+        Set<Integer> removedSet = new HashSet<>(removed);
+        List<Integer> notFound = requested.stream().filter(id -> !removedSet.contains(id)).toList();
+        logger.debug("Deleted {} of {} requested books from data source: {}", removed.size(), requested.size(), dataSource);
+        return CompletableFuture.completedFuture(new DeleteReport(removed, notFound));
+    }
+
+    /**
+     * Streams all books of a data source to the sink.
+     * The repository keeps a single cursor open for the duration of the export and releases it
+     * as soon as the sink fails, so a disconnected client does not pin a database connection.
+     *
+     * @param dataSource The data source to use.
+     * @param sink       The consumer that receives each book.
+     * @return The number of books exported.
+     */
+    @Override
+    public long exportBooks(String dataSource, Consumer<? super Book> sink) {
+        logger.debug("Executing exportBooks on thread: {}", Thread.currentThread().getName());
+        long exported = selectRepository(dataSource).exportAll(sink);
+        logger.info("Exported {} books from data source: {}", exported, dataSource);
+        return exported;
+    }
+
+    /**
+     * Imports books chunk by chunk. Each chunk is one batched write, on MySQL in its own transaction together with
+     * its change events, so the outbox rows commit with the chunk or not at all. A failing chunk
+     * (e.g. a duplicate ID) is reported and skipped without affecting the chunks around it.
+     * A record that cannot be parsed stops the import; chunks written before it are kept.
+     * Records without an ID get one from the allocator.
+     *
+     * @param books      The books to insert.
+     * @param dataSource The data source to use.
+     * @return The import report.
+     */
+    @Override
+    public ImportReport importBooks(Iterator<Book> books, String dataSource) {
+        logger.debug("Executing importBooks on thread: {}", Thread.currentThread().getName());
+        BookRepository repository = selectRepository(dataSource);
+        IdAllocator ids = selectIdAllocator(dataSource);
+        int chunkSize = importProperties.chunkSize();
+        ImportReport report = new ImportReport();
+        long startNanos = System.nanoTime();
+        List<Book> chunk = new ArrayList<>(chunkSize);
+        try {
+            while (books.hasNext()) {
+                Book book = books.next();
+                if (book.getId() == null) {
+                    book.setId(ids.next());
+                }
+                chunk.add(book);
+                if (chunk.size() == chunkSize) {
+                    writeChunk(repository, dataSource, chunk, report);
+                    chunk.clear();
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            report.setError("Record " + (report.getReceived() + chunk.size() + 1) + ": " + e.getMessage());
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(repository, dataSource, chunk, report);
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        report.setElapsedMillis(elapsedNanos / 1_000_000);
+        report.setRecordsPerSecond(elapsedNanos == 0 ? 0 : report.getInserted() * 1_000_000_000.0 / elapsedNanos);
+        logger.info("Imported {} of {} books into data source {} in {} ms ({} chunks failed)",
+                report.getInserted(), report.getReceived(), dataSource, report.getElapsedMillis(), report.getFailures().size());
+        return report;
+    }
+
+    private void writeChunk(BookRepository repository, String dataSource, List<Book> chunk, ImportReport report) {
+        long firstRecord = report.getReceived() + 1;
+        int chunkIndex = report.getChunks();
+        report.setChunks(chunkIndex + 1);
+        report.setReceived(report.getReceived() + chunk.size());
+        int inserted;
+        String failure = null;
+        try {
+            inserted = selectTransactions(dataSource).execute(status -> {
+                int written = repository.insertAll(chunk);
+                announceInserted(dataSource, chunk, Set.of());
+                return written;
+            });
+        } catch (BulkInsertException e) {
+            // 只有不参与 JPA 事务的存储 (MongoDB、本地存储) 会部分写入, 已写入的部分照常通知
+            inserted = e.getInsertedCount();
+            failure = e.getMessage();
+            if (inserted > 0) {
+                announceInserted(dataSource, chunk, new HashSet<>(e.getRejectedIndexes()));
+            }
+        } catch (RuntimeException e) {
+            inserted = 0;
+            failure = e.getMessage();
+        }
+        report.setInserted(report.getInserted() + inserted);
+        if (failure != null) {
+            logger.warn("Import chunk {} (records {}-{}) failed: {}", chunkIndex, firstRecord, firstRecord + chunk.size() - 1, failure);
+            if (report.getFailures().size() < importProperties.maxFailures()) {
+                report.getFailures().add(new ImportReport.ChunkFailure(chunkIndex, firstRecord, chunk.size(), inserted, failure));
+            }
+        }
+    }
+
+    /**
+     * Publishes a change event for every book of the chunk that was written, i.e. every position
+     * not listed as rejected. A partially written chunk whose store does not report the rejected
+     * positions is not announced at all, since we cannot tell which books made it.
+     */
+    private void announceInserted(String dataSource, List<Book> chunk, Set<Integer> rejected) {
+        String source = DataSources.resolve(dataSource);
+        for (int i = 0; i < chunk.size(); i++) {
+            if (!rejected.contains(i)) {
+                eventPublisher.publishEvent(BookChangedEvent.saved(source, chunk.get(i)));
+            }
+        }
+    }
+
+    /**
+     * Runs a read on the task executor, sharing it with identical reads already in flight.
+     * The collection version is part of the key, so a read that starts after a write never joins
+     * one that started before it.
+     *
+     * @param operation The service method.
+     * @param source    The resolved data source.
+     * @param arguments The normalized arguments that, with the operation and data source, determine the result.
+     * @param read      The read itself, run on an executor thread.
+     * @return A CompletableFuture of the (possibly shared) result.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> collapsed(String operation, String source, List<Object> arguments, Callable<T> read) {
+        if (!collapsing.enabled()) {
+            return taskExecutor.submitCompletable(read);
+        }
+        ReadKey key = new ReadKey(operation, source, collectionVersions.token(source), arguments);
+        return (CompletableFuture<T>) reads.execute(key, () -> taskExecutor.submitCompletable((Callable<Object>) read));
+    }
+
+    private record ReadKey(String operation, String dataSource, String version, List<Object> arguments) {
+    }
+
     /**
      * Private helper method to select the correct repository based on the dataSource string.
      * This method is called from within the async methods, so it executes on the background thread.
      *
-     * @param dataSource The string identifier for the data source ("mysql" or "mongo").
-     * @return The corresponding BookRepository bean.
+     * @param dataSource The string identifier for the data source ("mysql", "mongo" or "local").
+     * @return The corresponding BookRepository bean, wrapped in its cache region.
+     */
+    /**
+     * The local store keeps its own ID counter, so adding to it never needs MySQL; the other two share a sequence.
+     */
+    private IdAllocator selectIdAllocator(String dataSource) {
+        return DataSources.LOCAL.equals(DataSources.resolve(dataSource)) ? localIdAllocator : idAllocator;
+    }
+
+    /**
+     * Only MySQL writes take part in a JPA transaction (with the outbox rows). MongoDB and the local store
+     * write without one, so they neither hold a pooled connection nor need MySQL at all.
      */
+    private TransactionOperations selectTransactions(String dataSource) {
+        return DataSources.MYSQL.equals(DataSources.resolve(dataSource))
+                ? transactions
+                : TransactionOperations.withoutTransaction();
+    }
+
     private BookRepository selectRepository(String dataSource) {
         if ("mongo".equalsIgnoreCase(dataSource)) {
             return mongoRepository;
         }
+        if (DataSources.LOCAL.equalsIgnoreCase(dataSource)) {
+            return localRepository;
+        }
         // Default to MySQL/JPA if the source is "mysql" or anything else.
         return jpaRepository;
     }
@@ -0,0 +1,185 @@
+package com.nantan.app.service.impl;
+
+import com.nantan.app.Book;
+import com.nantan.app.DataSources;
+import com.nantan.app.config.ImportProperties;
+import com.nantan.app.config.PaginationProperties;
+import com.nantan.app.config.ReactiveConfig;
+import com.nantan.app.dto.BookPage;
+import com.nantan.app.dto.ImportReport;
+import com.nantan.app.event.BookChangedEvent;
+import com.nantan.app.exception.BulkInsertException;
+import com.nantan.app.exception.DataSourceDisabledException;
+import com.nantan.app.reactive.ReactiveBookRepository;
+import com.nantan.app.service.ReactiveBookService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link ReactiveBookService} on the R2DBC and reactive Mongo repositories.
+ * Writes publish the same {@link BookChangedEvent}s as {@link BookServiceImpl}; with no transaction
+ * around them, the search index and snapshot listeners run as soon as the write has completed.
+ */
+@Service
+@Profile(ReactiveConfig.PROFILE)
+public class ReactiveBookServiceImpl implements ReactiveBookService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveBookServiceImpl.class);
+
+    private final ReactiveBookRepository mysqlRepository;
+    private final ReactiveBookRepository mongoRepository;
+    private final PaginationProperties pagination;
+    private final ImportProperties importProperties;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public ReactiveBookServiceImpl(@Qualifier(ReactiveConfig.MYSQL_BOOKS) ReactiveBookRepository mysqlRepository,
+                                   @Qualifier(ReactiveConfig.MONGO_BOOKS) ReactiveBookRepository mongoRepository,
+                                   PaginationProperties pagination, ImportProperties importProperties,
+                                   ApplicationEventPublisher eventPublisher) {
+        this.mysqlRepository = mysqlRepository;
+        this.mongoRepository = mongoRepository;
+        this.pagination = pagination;
+        this.importProperties = importProperties;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public Mono<List<Book>> getAllBooks(String dataSource) {
+        int cap = pagination.unpagedMaxResults();
+        // 多取一条，用来判断结果是否被截断
+        return selectRepository(dataSource).findPage(BookServiceImpl.FIRST_PAGE_CURSOR, cap + 1)
+                .collectList()
+                .map(books -> {
+                    if (books.size() > cap) {
+                        logger.warn("Unpaged listing of data source {} truncated to {} books; use /api/books/page instead.", dataSource, cap);
+                        return books.subList(0, cap);
+                    }
+                    return books;
+                });
+    }
+
+    @Override
+    public Mono<BookPage> getBooksPage(Integer afterId, Integer limit, String dataSource) {
+        int pageSize = limit == null ? pagination.defaultPageSize() : Math.max(1, Math.min(limit, pagination.maxPageSize()));
+        int cursor = afterId == null ? BookServiceImpl.FIRST_PAGE_CURSOR : afterId;
+        return selectRepository(dataSource).findPage(cursor, pageSize + 1)
+                .collectList()
+                .map(books -> {
+                    if (books.size() > pageSize) {
+                        List<Book> page = books.subList(0, pageSize);
+                        return new BookPage(page, page.get(pageSize - 1).getId());
+                    }
+                    return new BookPage(books, null);
+                });
+    }
+
+    @Override
+    public Flux<Book> exportBooks(String dataSource) {
+        return selectRepository(dataSource).streamAll();
+    }
+
+    @Override
+    public Mono<Book> addBook(Book book, String dataSource) {
+        String resolved = DataSources.resolve(dataSource);
+        return selectRepository(resolved).save(book)
+                .doOnNext(saved -> eventPublisher.publishEvent(BookChangedEvent.saved(resolved, saved)));
+    }
+
+    @Override
+    public Mono<ImportReport> importBooks(Flux<Book> books, String dataSource) {
+        String resolved = DataSources.resolve(dataSource);
+        ReactiveBookRepository repository = selectRepository(resolved);
+        return Mono.defer(() -> {
+            ImportReport report = new ImportReport();
+            long startNanos = System.nanoTime();
+            // concatMap 逐块顺序写入: 同一时刻只有一个块在途, 请求体按写入速度被读取
+            return books.buffer(importProperties.chunkSize())
+                    .concatMap(chunk -> writeChunk(repository, resolved, chunk, report))
+                    .onErrorResume(e -> {
+                        // 只有请求体本身的错误 (如无法解析的一行) 会到这里; 块写入失败已经记入报告
+                        report.setError("Record " + (report.getReceived() + 1) + ": " + e.getMessage());
+                        return Mono.empty();
+                    })
+                    .then(Mono.fromSupplier(() -> {
+                        long elapsedNanos = System.nanoTime() - startNanos;
+                        report.setElapsedMillis(elapsedNanos / 1_000_000);
+                        report.setRecordsPerSecond(elapsedNanos == 0 ? 0 : report.getInserted() * 1_000_000_000.0 / elapsedNanos);
+                        logger.info("Imported {} of {} books into data source {} in {} ms ({} chunks failed)",
+                                report.getInserted(), report.getReceived(), resolved, report.getElapsedMillis(), report.getFailures().size());
+                        return report;
+                    }));
+        });
+    }
+
+    @Override
+    public Mono<Boolean> deleteBookById(int bookId, String dataSource) {
+        String resolved = DataSources.resolve(dataSource);
+        return selectRepository(resolved).deleteById(bookId)
+                .doOnNext(deleted -> {
+                    if (deleted) {
+                        eventPublisher.publishEvent(BookChangedEvent.deleted(resolved, bookId));
+                    }
+                });
+    }
+
+    private Mono<Void> writeChunk(ReactiveBookRepository repository, String dataSource, List<Book> chunk, ImportReport report) {
+        long firstRecord = report.getReceived() + 1;
+        int chunkIndex = report.getChunks();
+        report.setChunks(chunkIndex + 1);
+        report.setReceived(report.getReceived() + chunk.size());
+        return repository.insertAll(chunk)
+                .doOnNext(inserted -> {
+                    report.setInserted(report.getInserted() + inserted);
+                    announceInserted(dataSource, chunk, Set.of());
+                })
+                .onErrorResume(e -> {
+                    int inserted = 0;
+                    if (e instanceof BulkInsertException bulk) {
+                        inserted = bulk.getInsertedCount();
+                        if (inserted > 0) {
+                            announceInserted(dataSource, chunk, new HashSet<>(bulk.getRejectedIndexes()));
+                        }
+                    }
+                    report.setInserted(report.getInserted() + inserted);
+                    logger.warn("Import chunk {} (records {}-{}) failed: {}", chunkIndex, firstRecord, firstRecord + chunk.size() - 1, e.getMessage());
+                    if (report.getFailures().size() < importProperties.maxFailures()) {
+                        report.getFailures().add(new ImportReport.ChunkFailure(chunkIndex, firstRecord, chunk.size(), inserted, e.getMessage()));
+                    }
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * Same rule as {@link BookServiceImpl}: a partially written chunk is only announced when the store
+     * reports which positions were rejected.
+     */
+    private void announceInserted(String dataSource, List<Book> chunk, Set<Integer> rejected) {
+        for (int i = 0; i < chunk.size(); i++) {
+            if (!rejected.contains(i)) {
+                eventPublisher.publishEvent(BookChangedEvent.saved(dataSource, chunk.get(i)));
+            }
+        }
+    }
+
+    /**
+     * The local store has no reactive driver; rather than fall through to MySQL, local requests answer 503.
+     */
+    private ReactiveBookRepository selectRepository(String dataSource) {
+        String resolved = DataSources.resolve(dataSource);
+        if (DataSources.LOCAL.equals(resolved)) {
+            throw new DataSourceDisabledException(resolved);
+        }
+        return DataSources.MONGO.equals(resolved) ? mongoRepository : mysqlRepository;
+    }
+}
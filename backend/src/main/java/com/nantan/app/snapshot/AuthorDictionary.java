@@ -0,0 +1,93 @@
+package com.nantan.app.snapshot;
+
+import java.util.Arrays;
+
+/**
+ * Assigns a dense int code to each distinct author, so a catalog stores one {@code String} per author
+ * instead of one per book. Lookup is an open-addressing table of codes keyed by the author's hash;
+ * everything is held in arrays, which makes {@link #footprintBytes()} exact.
+ * Not thread-safe; {@link CatalogSnapshot} guards it with its lock.
+ */
+final class AuthorDictionary {
+
+    static final int NULL_CODE = -1;
+
+    private String[] values = new String[16];
+    // Retained size of each value's String, computed once when the author is added
+    private int[] valueBytes = new int[16];
+    private int size;
+    private long stringBytes;
+
+    // Slot holds code + 1; 0 marks a free slot
+    private int[] table = new int[32];
+
+    int size() {
+        return size;
+    }
+
+    String get(int code) {
+        return code == NULL_CODE ? null : values[code];
+    }
+
+    /**
+     * Returns the author's code, adding the author if it has not been seen.
+     */
+    int encode(String author) {
+        if (author == null) {
+            return NULL_CODE;
+        }
+        int mask = table.length - 1;
+        int slot = mix(author.hashCode()) & mask;
+        while (table[slot] != 0) {
+            int code = table[slot] - 1;
+            if (values[code].equals(author)) {
+                return code;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+            valueBytes = Arrays.copyOf(valueBytes, size * 2);
+        }
+        int code = size++;
+        values[code] = author;
+        valueBytes[code] = (int) Footprint.string(author);
+        stringBytes += valueBytes[code];
+        table[slot] = code + 1;
+        if (size * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        return code;
+    }
+
+    /**
+     * Retained size of the author's String when every book holds its own copy, as a {@code List<Book>} does.
+     */
+    long stringBytes(int code) {
+        return code == NULL_CODE ? 0 : valueBytes[code];
+    }
+
+    /**
+     * Bytes held by the dictionary: its three arrays and one String per distinct author.
+     */
+    long footprintBytes() {
+        return Footprint.array(values.length, 4) + Footprint.array(valueBytes.length, 4)
+                + Footprint.array(table.length, 4) + stringBytes;
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        int mask = capacity - 1;
+        for (int code = 0; code < size; code++) {
+            int slot = mix(values[code].hashCode()) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = code + 1;
+        }
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,406 @@
+package com.nantan.app.snapshot;
+
+import com.nantan.app.Book;
+import com.nantan.app.util.IntHashSet;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Column-oriented, in-memory copy of one data source's catalog.
+ * <p>
+ * The bulk of the catalog lives in a base segment sorted by ID: the IDs in an {@code int[]}, all titles
+ * back to back as UTF-8 in one {@code byte[]} arena (row {@code i} spans {@code titleStarts[i]} to
+ * {@code titleStarts[i + 1]}), and each author as a code into an {@link AuthorDictionary}.
+ * There is no object per book, so a row costs its title bytes plus twelve.
+ * <p>
+ * Writes do not touch the base segment. They go to a small delta ordered by ID, and base rows they
+ * delete or replace are marked as shadowed. Once the delta reaches the merge threshold it is merged
+ * into a new base segment in one linear pass, which also drops authors nobody references any more.
+ * <p>
+ * Reads merge the base segment and the delta on the fly and hand each row to a {@link RowVisitor},
+ * so listing and lookup by ID allocate nothing per row.
+ */
+public final class CatalogSnapshot {
+
+    /**
+     * Receives one row. The title is {@code titleLength} bytes of UTF-8 starting at {@code titleOffset}
+     * in {@code title}, which is shared storage and must not be modified or retained; {@code title} is
+     * null for a book without a title. The author is the dictionary's shared instance.
+     */
+    @FunctionalInterface
+    public interface RowVisitor {
+        void visit(int id, byte[] title, int titleOffset, int titleLength, String author);
+    }
+
+    private static final int[] EMPTY_INTS = new int[0];
+    private static final byte[] EMPTY_BYTES = new byte[0];
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final int mergeThreshold;
+
+    // Base segment; arrays are over-allocated while appending and trimmed by seal() and merge()
+    private int rows;
+    private int[] ids = EMPTY_INTS;
+    private int[] titleStarts = new int[1];
+    private byte[] titleArena = EMPTY_BYTES;
+    private int[] authorCodes = EMPTY_INTS;
+    private BitSet nullTitles = new BitSet();
+    private AuthorDictionary authors = new AuthorDictionary();
+
+    // Changes since the last merge
+    private final TreeMap<Integer, DeltaRow> delta = new TreeMap<>();
+    private final IntHashSet shadowed = new IntHashSet();
+    private long merges;
+
+    public CatalogSnapshot(int mergeThreshold) {
+        this.mergeThreshold = mergeThreshold;
+    }
+
+    /**
+     * Appends a book during the initial build. Books normally arrive in ID order; {@link #seal()} sorts them if not.
+     */
+    public void append(Book book) {
+        lock.writeLock().lock();
+        try {
+            byte[] title = encode(book.getTitle());
+            ensureCapacity(rows + 1, titleStarts[rows] + title.length);
+            ids[rows] = book.getId();
+            System.arraycopy(title, 0, titleArena, titleStarts[rows], title.length);
+            titleStarts[rows + 1] = titleStarts[rows] + title.length;
+            authorCodes[rows] = authors.encode(book.getAuthor());
+            nullTitles.set(rows, book.getTitle() == null);
+            rows++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sorts the base segment by ID if needed and trims its arrays. Must be called once after the last {@link #append(Book)}.
+     */
+    public void seal() {
+        lock.writeLock().lock();
+        try {
+            if (!isStrictlyAscending()) {
+                sortBase();
+            }
+            ids = Arrays.copyOf(ids, rows);
+            titleStarts = Arrays.copyOf(titleStarts, rows + 1);
+            titleArena = Arrays.copyOf(titleArena, titleStarts[rows]);
+            authorCodes = Arrays.copyOf(authorCodes, rows);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Inserts or replaces a book.
+     */
+    public void put(Book book) {
+        lock.writeLock().lock();
+        try {
+            int id = book.getId();
+            if (baseRow(id) >= 0) {
+                shadowed.add(id);
+            }
+            delta.put(id, new DeltaRow(book.getTitle() == null ? null : encode(book.getTitle()),
+                    authors.encode(book.getAuthor())));
+            mergeIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int bookId) {
+        lock.writeLock().lock();
+        try {
+            boolean changed = delta.remove(bookId) != null;
+            if (baseRow(bookId) >= 0) {
+                changed |= shadowed.add(bookId);
+            }
+            if (changed) {
+                mergeIfNeeded();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Visits the book with the given ID, if present.
+     *
+     * @return false if there is no such book.
+     */
+    public boolean visit(int bookId, RowVisitor visitor) {
+        lock.readLock().lock();
+        try {
+            DeltaRow changed = delta.get(bookId);
+            if (changed != null) {
+                visitDelta(bookId, changed, visitor);
+                return true;
+            }
+            if (shadowed.contains(bookId)) {
+                return false;
+            }
+            int row = baseRow(bookId);
+            if (row < 0) {
+                return false;
+            }
+            visitBase(row, visitor);
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Materializes one book. Use {@link #visit(int, RowVisitor)} on paths that must not allocate.
+     */
+    public Book find(int bookId) {
+        Book[] found = new Book[1];
+        visit(bookId, (id, title, offset, length, author) ->
+                found[0] = new Book(id, title == null ? null : new String(title, offset, length, StandardCharsets.UTF_8), author));
+        return found[0];
+    }
+
+    /**
+     * Visits up to {@code limit} books with an ID greater than {@code afterId}, in ascending ID order.
+     *
+     * @return true if more books follow the last one visited.
+     */
+    public boolean page(int afterId, int limit, RowVisitor visitor) {
+        lock.readLock().lock();
+        try {
+            return walk(afterId, limit, visitor);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveRows();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Measures the snapshot and the {@code List<Book>} that would hold the same books, row by row.
+     * Walks every row, so it is meant for diagnostics rather than the request path.
+     */
+    public SnapshotStats stats(String dataSource, boolean ready) {
+        lock.readLock().lock();
+        try {
+            long snapshotBytes = Footprint.array(ids.length, 4) + Footprint.array(titleStarts.length, 4)
+                    + Footprint.array(titleArena.length, 1) + Footprint.array(authorCodes.length, 4)
+                    + Footprint.BIT_SET + Footprint.array(nullTitles.size() / 64, 8)
+                    + authors.footprintBytes() + shadowed.footprintBytes() + Footprint.TREE_MAP;
+            for (Map.Entry<Integer, DeltaRow> change : delta.entrySet()) {
+                snapshotBytes += Footprint.TREE_MAP_ENTRY + Footprint.INTEGER + DeltaRow.BYTES
+                        + (change.getValue().title == null ? 0 : Footprint.array(change.getValue().title.length, 1));
+            }
+
+            int books = liveRows();
+            long listBytes = Footprint.ARRAY_LIST + Footprint.array(books, Footprint.REFERENCE);
+            long[] rowBytes = new long[1];
+            RowVisitor measure = (id, title, offset, length, author) -> rowBytes[0] += Footprint.BOOK
+                    + (id >= -128 && id <= 127 ? 0 : Footprint.INTEGER)
+                    + (title == null ? 0 : Footprint.utf8String(title, offset, length))
+                    + (author == null ? 0 : Footprint.string(author));
+            walk(Integer.MIN_VALUE, Integer.MAX_VALUE, measure);
+            listBytes += rowBytes[0];
+
+            return new SnapshotStats(dataSource, ready, books, authors.size(), delta.size() + shadowed.size(),
+                    merges, snapshotBytes, listBytes);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Merges the base segment and the delta in ID order. Callers hold the lock.
+     */
+    private boolean walk(int afterId, int limit, RowVisitor visitor) {
+        int row = upperBound(afterId);
+        Iterator<Map.Entry<Integer, DeltaRow>> changes = delta.tailMap(afterId, false).entrySet().iterator();
+        Map.Entry<Integer, DeltaRow> change = changes.hasNext() ? changes.next() : null;
+        boolean checkShadowed = !shadowed.isEmpty();
+        int visited = 0;
+        while (true) {
+            while (checkShadowed && row < rows && shadowed.contains(ids[row])) {
+                row++;
+            }
+            if (row == rows && change == null) {
+                return false;
+            }
+            if (visited == limit) {
+                return true;
+            }
+            if (change != null && (row == rows || change.getKey() < ids[row])) {
+                visitDelta(change.getKey(), change.getValue(), visitor);
+                change = changes.hasNext() ? changes.next() : null;
+            } else {
+                visitBase(row++, visitor);
+            }
+            visited++;
+        }
+    }
+
+    private int liveRows() {
+        return rows - shadowed.size() + delta.size();
+    }
+
+    private void visitBase(int row, RowVisitor visitor) {
+        int start = titleStarts[row];
+        visitor.visit(ids[row], nullTitles.get(row) ? null : titleArena, start, titleStarts[row + 1] - start,
+                authors.get(authorCodes[row]));
+    }
+
+    private void visitDelta(int id, DeltaRow row, RowVisitor visitor) {
+        visitor.visit(id, row.title, 0, row.title == null ? 0 : row.title.length, authors.get(row.authorCode));
+    }
+
+    private int baseRow(int id) {
+        return Arrays.binarySearch(ids, 0, rows, id);
+    }
+
+    private int upperBound(int afterId) {
+        if (afterId == Integer.MAX_VALUE) {
+            return rows;
+        }
+        int row = Arrays.binarySearch(ids, 0, rows, afterId + 1);
+        return row >= 0 ? row : -row - 1;
+    }
+
+    private void mergeIfNeeded() {
+        if (delta.size() + shadowed.size() >= mergeThreshold) {
+            merge();
+        }
+    }
+
+    /**
+     * Rewrites the base segment with the delta applied, re-encoding authors so that unreferenced ones are dropped.
+     */
+    private void merge() {
+        int count = liveRows();
+        long arenaBytes = 0;
+        for (int row = 0; row < rows; row++) {
+            if (!shadowed.contains(ids[row])) {
+                arenaBytes += titleStarts[row + 1] - titleStarts[row];
+            }
+        }
+        for (DeltaRow change : delta.values()) {
+            arenaBytes += change.title == null ? 0 : change.title.length;
+        }
+
+        int[] newIds = new int[count];
+        int[] newStarts = new int[count + 1];
+        byte[] newArena = new byte[Math.toIntExact(arenaBytes)];
+        int[] newCodes = new int[count];
+        BitSet newNullTitles = new BitSet(count);
+        AuthorDictionary newAuthors = new AuthorDictionary();
+
+        int[] n = new int[1];
+        walk(Integer.MIN_VALUE, Integer.MAX_VALUE, (id, title, offset, length, author) -> {
+            int out = n[0]++;
+            newIds[out] = id;
+            if (title == null) {
+                newNullTitles.set(out);
+            } else {
+                System.arraycopy(title, offset, newArena, newStarts[out], length);
+            }
+            newStarts[out + 1] = newStarts[out] + length;
+            newCodes[out] = newAuthors.encode(author);
+        });
+
+        rows = count;
+        ids = newIds;
+        titleStarts = newStarts;
+        titleArena = newArena;
+        authorCodes = newCodes;
+        nullTitles = newNullTitles;
+        authors = newAuthors;
+        delta.clear();
+        shadowed.clear();
+        merges++;
+    }
+
+    private boolean isStrictlyAscending() {
+        for (int row = 1; row < rows; row++) {
+            if (ids[row - 1] >= ids[row]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reorders the appended rows by ID; of several rows with the same ID the last one appended wins.
+     */
+    private void sortBase() {
+        // (id, row) packed into one long sorts by ID, then by append order
+        long[] order = new long[rows];
+        for (int row = 0; row < rows; row++) {
+            order[row] = ((long) ids[row] << 32) | row;
+        }
+        Arrays.sort(order);
+        int[] newIds = new int[rows];
+        int[] newStarts = new int[rows + 1];
+        byte[] newArena = new byte[titleStarts[rows]];
+        int[] newCodes = new int[rows];
+        BitSet newNullTitles = new BitSet(rows);
+        int out = 0;
+        for (int i = 0; i < rows; i++) {
+            if (i + 1 < rows && (int) (order[i + 1] >> 32) == (int) (order[i] >> 32)) {
+                continue;
+            }
+            int row = (int) order[i];
+            int start = titleStarts[row];
+            int length = titleStarts[row + 1] - start;
+            newIds[out] = ids[row];
+            System.arraycopy(titleArena, start, newArena, newStarts[out], length);
+            newStarts[out + 1] = newStarts[out] + length;
+            newCodes[out] = authorCodes[row];
+            newNullTitles.set(out, nullTitles.get(row));
+            out++;
+        }
+        rows = out;
+        ids = newIds;
+        titleStarts = newStarts;
+        titleArena = newArena;
+        authorCodes = newCodes;
+        nullTitles = newNullTitles;
+    }
+
+    private void ensureCapacity(int rowCount, int arenaBytes) {
+        if (rowCount > ids.length) {
+            int capacity = Math.max(rowCount, ids.length == 0 ? 1024 : ids.length + (ids.length >> 1));
+            ids = Arrays.copyOf(ids, capacity);
+            titleStarts = Arrays.copyOf(titleStarts, capacity + 1);
+            authorCodes = Arrays.copyOf(authorCodes, capacity);
+        }
+        if (arenaBytes > titleArena.length) {
+            titleArena = Arrays.copyOf(titleArena, Math.max(arenaBytes, titleArena.length + (titleArena.length >> 1)));
+        }
+    }
+
+    private static byte[] encode(String title) {
+        return title == null ? EMPTY_BYTES : title.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A book written since the last merge. The title is already UTF-8 so that reads do not encode it.
+     */
+    private record DeltaRow(byte[] title, int authorCode) {
+        /** Header, title reference and author code. */
+        static final int BYTES = 24;
+    }
+}
@@ -0,0 +1,175 @@
+package com.nantan.app.snapshot;
+
+import com.nantan.app.BookRepository;
+import com.nantan.app.DataSources;
+import com.nantan.app.config.PaginationProperties;
+import com.nantan.app.config.SnapshotProperties;
+import com.nantan.app.config.StartupProperties;
+import com.nantan.app.event.BookChangedEvent;
+import com.nantan.app.exception.SnapshotUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Owns one {@link CatalogSnapshot} per data source.
+ * <p>
+ * Built once the application is ready, by streaming every book from the undecorated repositories, and
+ * kept current from committed {@link BookChangedEvent}s. As with the search index, changes committed
+ * while a build is running are queued and replayed onto the new snapshot before it is published.
+ */
+@Component
+public class CatalogSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogSnapshotService.class);
+
+    private final Map<String, BookRepository> repositories;
+    private final Map<String, SnapshotHolder> holders;
+    private final SnapshotProperties properties;
+    private final StartupProperties startup;
+    private final PaginationProperties pagination;
+
+    public CatalogSnapshotService(
+            @Qualifier("jpaBookRepository") BookRepository jpaRepository,
+            @Qualifier("mongoBookRepository") BookRepository mongoRepository,
+            @Qualifier("localBookRepository") BookRepository localRepository,
+            SnapshotProperties properties,
+            PaginationProperties pagination,
+            StartupProperties startup) {
+        this.repositories = Map.of(DataSources.MYSQL, jpaRepository, DataSources.MONGO, mongoRepository,
+                DataSources.LOCAL, localRepository);
+        this.holders = Map.of(DataSources.MYSQL, new SnapshotHolder(), DataSources.MONGO, new SnapshotHolder(),
+                DataSources.LOCAL, new SnapshotHolder());
+        this.properties = properties;
+        this.pagination = pagination;
+        this.startup = startup;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildSnapshots() {
+        if (!properties.enabled()) {
+            logger.info("Catalog snapshots are disabled (library.snapshot.enabled=false)");
+            return;
+        }
+        ExecutorService builders = Executors.newFixedThreadPool(
+                startup.dataSources().size(), new CustomizableThreadFactory("SnapshotBuilder-"));
+        for (String dataSource : startup.dataSources()) {
+            builders.execute(() -> rebuild(dataSource));
+        }
+        builders.shutdown();
+    }
+
+    /**
+     * Builds a fresh snapshot for the data source and swaps it in.
+     * Reads keep using the previous snapshot (if any) until the new one is complete.
+     */
+    public void rebuild(String dataSource) {
+        SnapshotHolder holder = holders.get(dataSource);
+        synchronized (holder) {
+            if (holder.pending != null) {
+                logger.info("Catalog snapshot for {} is already being built", dataSource);
+                return;
+            }
+            holder.pending = new ArrayList<>();
+        }
+        long startNanos = System.nanoTime();
+        CatalogSnapshot fresh = new CatalogSnapshot(properties.mergeThreshold());
+        try {
+            repositories.get(dataSource).exportAll(fresh::append);
+            fresh.seal();
+            int replayed;
+            synchronized (holder) {
+                replayed = holder.pending.size();
+                holder.pending.forEach(event -> apply(fresh, event));
+                holder.snapshot = fresh;
+                holder.pending = null;
+            }
+            SnapshotStats stats = fresh.stats(dataSource, true);
+            logger.info("Built catalog snapshot for {}: {} books, {} authors, {} KiB ({} KiB as List<Book>) in {} ms ({} changes replayed)",
+                    dataSource, stats.books(), stats.authors(), stats.footprintBytes() / 1024,
+                    stats.listEquivalentBytes() / 1024, (System.nanoTime() - startNanos) / 1_000_000, replayed);
+        } catch (RuntimeException e) {
+            synchronized (holder) {
+                holder.pending = null;
+            }
+            logger.warn("Failed to build catalog snapshot for {}: {}", dataSource, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Applies a committed change to the snapshot. Runs after the publishing transaction commits,
+     * or immediately when the change was made outside a transaction.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        SnapshotHolder holder = holders.get(event.dataSource());
+        if (holder == null) {
+            return;
+        }
+        CatalogSnapshot snapshot;
+        synchronized (holder) {
+            if (holder.pending != null) {
+                holder.pending.add(event);
+                return;
+            }
+            snapshot = holder.snapshot;
+        }
+        if (snapshot != null) {
+            apply(snapshot, event);
+        }
+    }
+
+    /**
+     * @throws SnapshotUnavailableException if the data source's snapshot has not been built.
+     */
+    public CatalogSnapshot snapshot(String dataSource) {
+        CatalogSnapshot snapshot = holders.get(DataSources.resolve(dataSource)).snapshot;
+        if (snapshot == null) {
+            throw new SnapshotUnavailableException(dataSource);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Clamps a requested page size the same way the keyset listing does.
+     */
+    public int pageSize(Integer limit) {
+        return limit == null ? pagination.defaultPageSize() : Math.max(1, Math.min(limit, pagination.maxPageSize()));
+    }
+
+    public List<SnapshotStats> stats() {
+        List<SnapshotStats> stats = new ArrayList<>();
+        for (String dataSource : DataSources.ALL) {
+            CatalogSnapshot snapshot = holders.get(dataSource).snapshot;
+            stats.add(snapshot == null
+                    ? new SnapshotStats(dataSource, false, 0, 0, 0, 0, 0, 0)
+                    : snapshot.stats(dataSource, true));
+        }
+        return stats;
+    }
+
+    private static void apply(CatalogSnapshot snapshot, BookChangedEvent event) {
+        if (event.type() == BookChangedEvent.Type.SAVED) {
+            snapshot.put(event.book());
+        } else {
+            snapshot.remove(event.bookId());
+        }
+    }
+
+    private static final class SnapshotHolder {
+        volatile CatalogSnapshot snapshot;
+        // Non-null while a build is running; guarded by the holder's monitor.
+        List<BookChangedEvent> pending;
+    }
+}
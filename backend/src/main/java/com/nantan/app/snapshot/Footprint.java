@@ -0,0 +1,67 @@
+package com.nantan.app.snapshot;
+
+/**
+ * Heap sizes under the default layout of a 64-bit HotSpot JVM: compressed object pointers
+ * (4-byte references, 12-byte object headers, 16-byte array headers), 8-byte alignment and
+ * compact strings (one byte per char when every char is Latin-1, two otherwise).
+ */
+final class Footprint {
+
+    static final int OBJECT_HEADER = 12;
+    static final int REFERENCE = 4;
+
+    /** {@code String}: header, value reference, hash, coder and hashIsZero. */
+    static final int STRING = 24;
+    /** {@code Integer} outside the -128..127 cache. */
+    static final int INTEGER = 16;
+    /** {@code Book}: header and three references. */
+    static final int BOOK = 24;
+    /** {@code ArrayList}: header, size, modCount and elementData. */
+    static final int ARRAY_LIST = 24;
+    /** {@code TreeMap}: header, comparator, root, size, modCount and five cached view references. */
+    static final int TREE_MAP = 48;
+    /** {@code TreeMap.Entry}: header, key, value, left, right, parent and color. */
+    static final int TREE_MAP_ENTRY = 40;
+    /** {@code BitSet}: header, words reference, wordsInUse and sizeIsSticky. */
+    static final int BIT_SET = 24;
+
+    private Footprint() {
+    }
+
+    static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    static long array(int length, int elementBytes) {
+        return align(16L + (long) length * elementBytes);
+    }
+
+    static long string(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0xFF) {
+                return STRING + array(value.length(), 2);
+            }
+        }
+        return STRING + array(value.length(), 1);
+    }
+
+    /**
+     * Retained size of the String that decoding the UTF-8 bytes would produce, without decoding them.
+     */
+    static long utf8String(byte[] utf8, int offset, int length) {
+        int chars = 0;
+        boolean latin1 = true;
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            int b = utf8[i] & 0xFF;
+            if (b < 0x80) {
+                chars++;
+            } else if (b >= 0xC0) {
+                // Lead byte: 0xC2/0xC3 start U+0080..U+00FF; four-byte sequences become a surrogate pair
+                latin1 &= b < 0xC4;
+                chars += b >= 0xF0 ? 2 : 1;
+            }
+        }
+        return STRING + array(chars, latin1 ? 1 : 2);
+    }
+}
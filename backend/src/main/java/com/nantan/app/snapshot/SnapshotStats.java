@@ -0,0 +1,25 @@
+package com.nantan.app.snapshot;
+
+/**
+ * Size of one data source's catalog snapshot, next to the {@code List<Book>} it replaces.
+ *
+ * @param dataSource          the data source the snapshot covers.
+ * @param ready               false while the initial build is still running.
+ * @param books               number of books in the snapshot.
+ * @param authors             number of distinct authors in the dictionary.
+ * @param pendingChanges      writes held in the delta and shadowed base rows, not yet merged.
+ * @param merges              number of times the delta has been merged into the base segment.
+ * @param footprintBytes      heap held by the snapshot's arrays, dictionary and delta.
+ * @param listEquivalentBytes heap an {@code ArrayList<Book>} of the same books would hold,
+ *                            with one {@code Integer} and two {@code String}s per book.
+ */
+public record SnapshotStats(
+        String dataSource,
+        boolean ready,
+        int books,
+        int authors,
+        int pendingChanges,
+        long merges,
+        long footprintBytes,
+        long listEquivalentBytes) {
+}
@@ -0,0 +1,168 @@
+package com.nantan.app.stats;
+
+import com.nantan.app.Book;
+import com.nantan.app.util.IntIntHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Books-per-author counts of one data source, maintained by delta.
+ * <p>
+ * Each author gets a dense int code; the author of every book is remembered as a code in a primitive
+ * map, which is what lets an update or delete take one off the right author without a lookup in the
+ * data source. Authors with at least one book are also kept in a ranking ordered by count, so the
+ * top {@code k} is read by walking its first {@code k} entries. Every method is synchronized.
+ */
+final class AuthorAggregates {
+
+    static final int NO_AUTHOR = -1;
+    private static final int ABSENT = Integer.MIN_VALUE;
+
+    private final IntIntHashMap authorOfBook;
+    private final Map<String, Integer> codes = new HashMap<>();
+    private String[] names = new String[16];
+    private int[] counts = new int[16];
+    private int authors;
+    private int booksWithoutAuthor;
+
+    // Codes of authors with at least one book: most books first, then by name. A code is taken out
+    // before its count changes and put back afterwards, so the tree never sees a key move.
+    private final TreeSet<Integer> ranking = new TreeSet<>(this::compareRank);
+
+    AuthorAggregates() {
+        this(1024);
+    }
+
+    AuthorAggregates(int expectedBooks) {
+        this.authorOfBook = new IntIntHashMap(ABSENT, expectedBooks);
+    }
+
+    synchronized void save(Book book) {
+        int code = encode(book.getAuthor());
+        int previous = authorOfBook.put(book.getId(), code);
+        if (previous == code) {
+            return;
+        }
+        if (previous != ABSENT) {
+            decrement(previous);
+        }
+        increment(code);
+    }
+
+    synchronized void remove(int bookId) {
+        int previous = authorOfBook.remove(bookId);
+        if (previous != ABSENT) {
+            decrement(previous);
+        }
+    }
+
+    synchronized int books() {
+        return authorOfBook.size();
+    }
+
+    synchronized int authors() {
+        return authors;
+    }
+
+    synchronized int booksWithoutAuthor() {
+        return booksWithoutAuthor;
+    }
+
+    synchronized int count(String author) {
+        Integer code = codes.get(author);
+        return code == null ? 0 : counts[code];
+    }
+
+    synchronized List<AuthorCount> top(int limit) {
+        List<AuthorCount> top = new ArrayList<>(Math.min(limit, authors));
+        Iterator<Integer> it = ranking.iterator();
+        while (top.size() < limit && it.hasNext()) {
+            int code = it.next();
+            top.add(new AuthorCount(names[code], counts[code]));
+        }
+        return top;
+    }
+
+    /**
+     * Number of books by which the two aggregates disagree: for every author, and for the books without
+     * one, the difference of the two counts, summed. Zero when both hold the same counts.
+     */
+    long driftFrom(AuthorAggregates other) {
+        Map<String, Integer> theirs = other.countsByAuthor();
+        int theirsWithoutAuthor = other.booksWithoutAuthor();
+        long drift;
+        synchronized (this) {
+            drift = Math.abs((long) booksWithoutAuthor - theirsWithoutAuthor);
+            for (Map.Entry<String, Integer> entry : codes.entrySet()) {
+                Integer their = theirs.remove(entry.getKey());
+                drift += Math.abs(counts[entry.getValue()] - (their == null ? 0 : their));
+            }
+        }
+        for (int their : theirs.values()) {
+            drift += their;
+        }
+        return drift;
+    }
+
+    private synchronized Map<String, Integer> countsByAuthor() {
+        Map<String, Integer> byAuthor = new HashMap<>(codes.size() * 2);
+        codes.forEach((author, code) -> byAuthor.put(author, counts[code]));
+        return byAuthor;
+    }
+
+    private int encode(String author) {
+        if (author == null) {
+            return NO_AUTHOR;
+        }
+        Integer code = codes.get(author);
+        if (code != null) {
+            return code;
+        }
+        int next = codes.size();
+        if (next == names.length) {
+            names = Arrays.copyOf(names, next * 2);
+            counts = Arrays.copyOf(counts, next * 2);
+        }
+        names[next] = author;
+        codes.put(author, next);
+        return next;
+    }
+
+    private void increment(int code) {
+        if (code == NO_AUTHOR) {
+            booksWithoutAuthor++;
+            return;
+        }
+        if (counts[code] == 0) {
+            authors++;
+        } else {
+            ranking.remove(code);
+        }
+        counts[code]++;
+        ranking.add(code);
+    }
+
+    private void decrement(int code) {
+        if (code == NO_AUTHOR) {
+            booksWithoutAuthor--;
+            return;
+        }
+        ranking.remove(code);
+        if (--counts[code] == 0) {
+            authors--;
+        } else {
+            ranking.add(code);
+        }
+    }
+
+    private int compareRank(Integer a, Integer b) {
+        int byCount = Integer.compare(counts[b], counts[a]);
+        return byCount != 0 ? byCount : names[a].compareTo(names[b]);
+    }
+}
@@ -0,0 +1,10 @@
+package com.nantan.app.stats;
+
+/**
+ * Number of books by one author in one data source.
+ *
+ * @param author the author's name.
+ * @param books  number of books currently attributed to the author.
+ */
+public record AuthorCount(String author, int books) {
+}
@@ -0,0 +1,218 @@
+package com.nantan.app.stats;
+
+import com.nantan.app.BookRepository;
+import com.nantan.app.DataSources;
+import com.nantan.app.config.AuthorStatsProperties;
+import com.nantan.app.config.StartupProperties;
+import com.nantan.app.event.BookChangedEvent;
+import com.nantan.app.exception.AuthorStatsUnavailableException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Owns the {@link AuthorAggregates} of each data source.
+ * <p>
+ * The aggregates are seeded once the application is ready, both data sources scanned in parallel from
+ * the undecorated repositories, and then follow every committed {@link BookChangedEvent}, so reads never
+ * touch the data source. Writes that bypass the service (a manual fix in the database, a lost event)
+ * would leave the counts wrong for good; a periodic reconciliation therefore rescans each data source
+ * into fresh aggregates, records how far the live ones had drifted and swaps the fresh ones in.
+ * <p>
+ * While a scan runs, changes keep being applied to the live aggregates and are also queued, then
+ * replayed onto the fresh ones before the swap. Replaying is idempotent (a save sets the book's author,
+ * a delete removes it), so a change the scan already saw does no harm.
+ */
+@Component
+public class AuthorStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthorStatsService.class);
+
+    private final Map<String, BookRepository> repositories;
+    private final Map<String, Holder> holders;
+    private final AuthorStatsProperties properties;
+    private final StartupProperties startup;
+
+    private ScheduledExecutorService reconciler;
+
+    public AuthorStatsService(
+            @Qualifier("jpaBookRepository") BookRepository jpaRepository,
+            @Qualifier("mongoBookRepository") BookRepository mongoRepository,
+            @Qualifier("localBookRepository") BookRepository localRepository,
+            AuthorStatsProperties properties,
+            StartupProperties startup) {
+        this.repositories = Map.of(DataSources.MYSQL, jpaRepository, DataSources.MONGO, mongoRepository,
+                DataSources.LOCAL, localRepository);
+        this.holders = Map.of(DataSources.MYSQL, new Holder(), DataSources.MONGO, new Holder(),
+                DataSources.LOCAL, new Holder());
+        this.properties = properties;
+        this.startup = startup;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!properties.enabled()) {
+            logger.info("Author statistics are disabled (library.author-stats.enabled=false)");
+            return;
+        }
+        ExecutorService builders = Executors.newFixedThreadPool(
+                startup.dataSources().size(), new CustomizableThreadFactory("AuthorStatsBuilder-"));
+        for (String dataSource : startup.dataSources()) {
+            builders.execute(() -> rebuild(dataSource));
+        }
+        builders.shutdown();
+        long interval = properties.reconcileInterval().toMillis();
+        if (interval > 0) {
+            reconciler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("AuthorStatsReconciler-"));
+            reconciler.scheduleWithFixedDelay(() -> startup.dataSources().forEach(this::rebuild), interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+        if (reconciler != null) {
+            reconciler.shutdownNow();
+            reconciler.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Scans the data source into fresh aggregates and swaps them in. The first scan seeds the statistics;
+     * later ones are reconciliations and record the drift they corrected.
+     */
+    public void rebuild(String dataSource) {
+        Holder holder = holders.get(dataSource);
+        synchronized (holder) {
+            if (holder.pending != null) {
+                logger.info("Author statistics for {} are already being rebuilt", dataSource);
+                return;
+            }
+            holder.pending = new ArrayList<>();
+        }
+        long startNanos = System.nanoTime();
+        AuthorAggregates live = holder.aggregates;
+        AuthorAggregates fresh = new AuthorAggregates(live == null ? 1024 : live.books());
+        try {
+            long scanned = repositories.get(dataSource).exportAll(fresh::save);
+            long drift;
+            synchronized (holder) {
+                holder.pending.forEach(event -> apply(fresh, event));
+                drift = live == null ? 0 : live.driftFrom(fresh);
+                holder.aggregates = fresh;
+                holder.pending = null;
+                if (live != null) {
+                    holder.reconciliations++;
+                    holder.lastReconciledAt = Instant.now();
+                    holder.lastDrift = drift;
+                }
+            }
+            long elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+            if (live == null) {
+                logger.info("Built author statistics for {}: {} books by {} authors in {} ms",
+                        dataSource, scanned, fresh.authors(), elapsedMillis);
+            } else if (drift > 0) {
+                logger.warn("Reconciled author statistics for {} in {} ms: {} books had been miscounted", dataSource, elapsedMillis, drift);
+            } else {
+                logger.info("Reconciled author statistics for {} in {} ms: no drift", dataSource, elapsedMillis);
+            }
+        } catch (RuntimeException e) {
+            synchronized (holder) {
+                holder.pending = null;
+            }
+            logger.warn("Failed to scan author statistics for {}: {}", dataSource, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Applies a committed change. Runs after the publishing transaction commits,
+     * or immediately when the change was made outside a transaction.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        Holder holder = holders.get(event.dataSource());
+        if (holder == null) {
+            return;
+        }
+        AuthorAggregates aggregates;
+        synchronized (holder) {
+            if (holder.pending != null) {
+                holder.pending.add(event);
+            }
+            aggregates = holder.aggregates;
+            if (aggregates != null) {
+                // Under the holder's monitor, so a change cannot reach the live aggregates after the swap
+                apply(aggregates, event);
+            }
+        }
+    }
+
+    /**
+     * The authors with the most books, most first; authors with equal counts are ordered by name.
+     *
+     * @throws AuthorStatsUnavailableException if the data source's statistics have not been built.
+     */
+    public List<AuthorCount> top(String dataSource, Integer limit) {
+        int top = limit == null ? properties.defaultTop() : Math.max(1, Math.min(limit, properties.maxTop()));
+        return aggregates(dataSource).top(top);
+    }
+
+    /**
+     * @throws AuthorStatsUnavailableException if the data source's statistics have not been built.
+     */
+    public AuthorCount count(String dataSource, String author) {
+        return new AuthorCount(author, aggregates(dataSource).count(author));
+    }
+
+    public AuthorStatsSummary summary(String dataSource) {
+        String resolved = DataSources.resolve(dataSource);
+        Holder holder = holders.get(resolved);
+        synchronized (holder) {
+            AuthorAggregates aggregates = holder.aggregates;
+            return aggregates == null
+                    ? new AuthorStatsSummary(resolved, false, 0, 0, 0, holder.reconciliations, holder.lastReconciledAt, holder.lastDrift)
+                    : new AuthorStatsSummary(resolved, true, aggregates.books(), aggregates.authors(), aggregates.booksWithoutAuthor(),
+                    holder.reconciliations, holder.lastReconciledAt, holder.lastDrift);
+        }
+    }
+
+    private AuthorAggregates aggregates(String dataSource) {
+        String resolved = DataSources.resolve(dataSource);
+        AuthorAggregates aggregates = holders.get(resolved).aggregates;
+        if (aggregates == null) {
+            throw new AuthorStatsUnavailableException(resolved);
+        }
+        return aggregates;
+    }
+
+    private static void apply(AuthorAggregates aggregates, BookChangedEvent event) {
+        if (event.type() == BookChangedEvent.Type.SAVED) {
+            aggregates.save(event.book());
+        } else {
+            aggregates.remove(event.bookId());
+        }
+    }
+
+    private static final class Holder {
+        volatile AuthorAggregates aggregates;
+        // Non-null while a scan is running; this and the reconciliation fields are guarded by the holder's monitor.
+        List<BookChangedEvent> pending;
+        long reconciliations;
+        Instant lastReconciledAt;
+        long lastDrift;
+    }
+}
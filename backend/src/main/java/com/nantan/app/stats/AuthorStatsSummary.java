@@ -0,0 +1,26 @@
+package com.nantan.app.stats;
+
+import java.time.Instant;
+
+/**
+ * Totals of one data source's author statistics and the outcome of their last reconciliation.
+ *
+ * @param dataSource         the data source the statistics cover.
+ * @param ready              false until the initial scan has completed.
+ * @param books              number of books counted.
+ * @param authors            number of distinct authors with at least one book.
+ * @param booksWithoutAuthor number of books that have no author.
+ * @param reconciliations    number of completed reconciliations, not counting the initial scan.
+ * @param lastReconciledAt   when the last reconciliation completed, or null if none has yet.
+ * @param lastDrift          books the last reconciliation found miscounted; 0 means the deltas had kept up.
+ */
+public record AuthorStatsSummary(
+        String dataSource,
+        boolean ready,
+        int books,
+        int authors,
+        int booksWithoutAuthor,
+        long reconciliations,
+        Instant lastReconciledAt,
+        long lastDrift) {
+}
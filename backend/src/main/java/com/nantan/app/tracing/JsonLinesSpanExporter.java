@@ -0,0 +1,104 @@
+package com.nantan.app.tracing;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.SpanId;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends finished spans to a local file, one JSON object per line, for when no OTLP collector is running.
+ * Spring Boot hands every {@link SpanExporter} bean to its batch span processor, so this is called in
+ * batches from the processor's own thread, never on a request thread.
+ */
+public class JsonLinesSpanExporter implements SpanExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(JsonLinesSpanExporter.class);
+
+    private final Path file;
+    private final BufferedWriter writer;
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public JsonLinesSpanExporter(Path file) throws IOException {
+        this.file = file;
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public synchronized CompletableResultCode export(Collection<SpanData> spans) {
+        try {
+            for (SpanData span : spans) {
+                writeSpan(span);
+                writer.newLine();
+            }
+            writer.flush();
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            logger.warn("Could not write {} spans to {}: {}", spans.size(), file, e.getMessage());
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    @Override
+    public synchronized CompletableResultCode flush() {
+        try {
+            writer.flush();
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    @Override
+    public synchronized CompletableResultCode shutdown() {
+        try {
+            writer.close();
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    private void writeSpan(SpanData span) throws IOException {
+        // The generator must not close the shared writer
+        try (JsonGenerator json = jsonFactory.createGenerator(writer).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            json.writeStartObject();
+            json.writeStringField("traceId", span.getTraceId());
+            json.writeStringField("spanId", span.getSpanId());
+            if (SpanId.isValid(span.getParentSpanId())) {
+                json.writeStringField("parentSpanId", span.getParentSpanId());
+            }
+            json.writeStringField("name", span.getName());
+            json.writeStringField("kind", span.getKind().name());
+            json.writeNumberField("startEpochMicros", TimeUnit.NANOSECONDS.toMicros(span.getStartEpochNanos()));
+            json.writeNumberField("durationMicros",
+                    TimeUnit.NANOSECONDS.toMicros(span.getEndEpochNanos() - span.getStartEpochNanos()));
+            json.writeStringField("status", span.getStatus().getStatusCode().name());
+            json.writeObjectFieldStart("attributes");
+            for (Map.Entry<AttributeKey<?>, Object> attribute : span.getAttributes().asMap().entrySet()) {
+                json.writeStringField(attribute.getKey().getKey(), String.valueOf(attribute.getValue()));
+            }
+            json.writeEndObject();
+            json.writeEndObject();
+        }
+    }
+}
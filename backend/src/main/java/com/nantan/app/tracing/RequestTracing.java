@@ -0,0 +1,133 @@
+package com.nantan.app.tracing;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Spans for the stages of a book request that the HTTP server span cannot see on its own: the wait for a
+ * {@code taskExecutor} thread and the execution on it, each call to a data source, the controller's
+ * {@code thenApply} continuation and the serialization of the response body.
+ * <p>
+ * Spring Boot opens the {@code http.server.requests} span and decides whether the trace is sampled
+ * ({@code management.tracing.sampling.probability}). Every span here is a child of the current one and is
+ * skipped when there is no current span or it is not sampled, so an unsampled request costs one
+ * thread-local read per stage. The trace context itself always crosses the {@code @Async} hop, sampled or not,
+ * so log lines written on the executor thread carry the request's trace ID.
+ */
+@Component
+public class RequestTracing implements TaskDecorator {
+
+    public static final String QUEUE_SPAN = "async queue wait";
+    public static final String EXECUTE_SPAN = "async execute";
+
+    private final Tracer tracer;
+
+    @Autowired
+    public RequestTracing(ObjectProvider<Tracer> tracer) {
+        // No Tracer bean when management.tracing.enabled=false
+        this(tracer.getIfAvailable(() -> Tracer.NOOP));
+    }
+
+    public RequestTracing(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    /**
+     * Runs the task on the executor thread inside the submitting thread's trace context, recording the time
+     * it spent queued and the time it ran as two spans.
+     */
+    @Override
+    public Runnable decorate(Runnable task) {
+        Span parent = tracer.currentSpan();
+        if (parent == null) {
+            return task;
+        }
+        if (parent.isNoop()) {
+            return () -> {
+                try (Tracer.SpanInScope ignored = tracer.withSpan(parent)) {
+                    task.run();
+                }
+            };
+        }
+        Span queued = tracer.nextSpan(parent).name(QUEUE_SPAN).start();
+        return () -> {
+            queued.end();
+            inChild(parent, EXECUTE_SPAN, null, () -> {
+                task.run();
+                return null;
+            });
+        };
+    }
+
+    /**
+     * Runs a call to a data source in a child span of the current one.
+     */
+    public <T> T dataSourceCall(String name, String dataSource, Supplier<T> call) {
+        Span parent = tracer.currentSpan();
+        if (parent == null || parent.isNoop()) {
+            return call.get();
+        }
+        return inChild(parent, name, dataSource, call);
+    }
+
+    /**
+     * Wraps a {@code thenApply} stage so that it runs in a child span of the span current when the stage was
+     * attached, whichever thread ends up completing the future.
+     */
+    public <T, R> Function<T, R> continuation(String name, Function<T, R> stage) {
+        Span parent = tracer.currentSpan();
+        if (parent == null || parent.isNoop()) {
+            return stage;
+        }
+        return value -> inChild(parent, name, null, () -> stage.apply(value));
+    }
+
+    /**
+     * Writes a response body in a child span of the current one.
+     */
+    public void serialize(String format, BodyWriter writer) throws IOException {
+        Span parent = tracer.currentSpan();
+        if (parent == null || parent.isNoop()) {
+            writer.write();
+            return;
+        }
+        Span span = tracer.nextSpan(parent).name("serialize " + format).start();
+        try (Tracer.SpanInScope ignored = tracer.withSpan(span)) {
+            writer.write();
+        } catch (IOException | RuntimeException | Error e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    private <T> T inChild(Span parent, String name, String dataSource, Supplier<T> call) {
+        Span span = tracer.nextSpan(parent).name(name);
+        if (dataSource != null) {
+            span.tag("dataSource", dataSource);
+        }
+        span.start();
+        try (Tracer.SpanInScope ignored = tracer.withSpan(span)) {
+            return call.get();
+        } catch (RuntimeException | Error e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    @FunctionalInterface
+    public interface BodyWriter {
+        void write() throws IOException;
+    }
+}
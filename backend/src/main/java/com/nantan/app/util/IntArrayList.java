@@ -0,0 +1,153 @@
+package com.nantan.app.util;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * A growable list of primitive ints. Used where a {@code List<Integer>} would box every element.
+ * Not thread-safe; callers guard it with their own lock.
+ */
+public final class IntArrayList {
+
+    private static final int[] EMPTY = new int[0];
+
+    private int[] elements;
+    private int size;
+
+    public IntArrayList() {
+        this.elements = EMPTY;
+    }
+
+    public IntArrayList(int initialCapacity) {
+        this.elements = initialCapacity == 0 ? EMPTY : new int[initialCapacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return elements[index];
+    }
+
+    public void add(int value) {
+        ensureCapacity(size + 1);
+        elements[size++] = value;
+    }
+
+    /**
+     * Inserts the value at its sorted position, assuming the list is sorted ascending.
+     *
+     * @return false if the value was already present.
+     */
+    public boolean addSorted(int value) {
+        if (size > 0 && elements[size - 1] < value) {
+            add(value);
+            return true;
+        }
+        int index = Arrays.binarySearch(elements, 0, size, value);
+        if (index >= 0) {
+            return false;
+        }
+        int insertAt = -index - 1;
+        ensureCapacity(size + 1);
+        System.arraycopy(elements, insertAt, elements, insertAt + 1, size - insertAt);
+        elements[insertAt] = value;
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes the value, assuming the list is sorted ascending.
+     *
+     * @return false if the value was not present.
+     */
+    public boolean removeSorted(int value) {
+        int index = Arrays.binarySearch(elements, 0, size, value);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+        return true;
+    }
+
+    public boolean containsSorted(int value) {
+        return Arrays.binarySearch(elements, 0, size, value) >= 0;
+    }
+
+    /**
+     * Sorts the list ascending and drops duplicates.
+     */
+    public void sortDistinct() {
+        if (size < 2) {
+            return;
+        }
+        Arrays.sort(elements, 0, size);
+        int write = 1;
+        for (int read = 1; read < size; read++) {
+            if (elements[read] != elements[write - 1]) {
+                elements[write++] = elements[read];
+            }
+        }
+        size = write;
+    }
+
+    /**
+     * Keeps only the elements for which the filter returns true, preserving order.
+     */
+    public void retainIf(IntPredicate filter) {
+        int write = 0;
+        for (int read = 0; read < size; read++) {
+            if (filter.test(elements[read])) {
+                elements[write++] = elements[read];
+            }
+        }
+        size = write;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Shrinks the backing array to the current size.
+     */
+    public void trimToSize() {
+        if (elements.length != size) {
+            elements = size == 0 ? EMPTY : Arrays.copyOf(elements, size);
+        }
+    }
+
+    /**
+     * Returns the backing array. Only the first {@link #size()} elements are valid.
+     */
+    public int[] rawArray() {
+        return elements;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    /**
+     * Bytes used by the backing array, including the array header.
+     */
+    public long footprintBytes() {
+        return 16L + 4L * elements.length;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required > elements.length) {
+            int newCapacity = Math.max(required, elements.length == 0 ? 4 : elements.length + (elements.length >> 1));
+            elements = Arrays.copyOf(elements, newCapacity);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.nantan.app.util;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash set of primitive ints with linear probing.
+ * Not thread-safe; callers guard it with their own lock.
+ */
+public final class IntHashSet {
+
+    private static final int FREE = 0;
+
+    private int[] keys;
+    private boolean containsZero;
+    private int size;
+    private int mask;
+    private int resizeAt;
+
+    public IntHashSet() {
+        this(16);
+    }
+
+    public IntHashSet(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int key) {
+        if (key == FREE) {
+            return containsZero;
+        }
+        int slot = mix(key) & mask;
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public boolean add(int key) {
+        if (key == FREE) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int slot = mix(key) & mask;
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        if (++size >= resizeAt) {
+            rehash(keys.length * 2);
+        }
+        return true;
+    }
+
+    public boolean remove(int key) {
+        if (key == FREE) {
+            if (!containsZero) {
+                return false;
+            }
+            containsZero = false;
+            size--;
+            return true;
+        }
+        int slot = mix(key) & mask;
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                keys[slot] = FREE;
+                size--;
+                shiftDown(slot);
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        containsZero = false;
+        size = 0;
+    }
+
+    /**
+     * Bytes used by the backing table, including the array header.
+     */
+    public long footprintBytes() {
+        return 16L + 4L * keys.length;
+    }
+
+    // Backward-shift deletion keeps probe chains intact without tombstones.
+    private void shiftDown(int freed) {
+        int slot = (freed + 1) & mask;
+        while (keys[slot] != FREE) {
+            int home = mix(keys[slot]) & mask;
+            if (((slot - home) & mask) >= ((slot - freed) & mask)) {
+                keys[freed] = keys[slot];
+                keys[slot] = FREE;
+                freed = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        int[] old = keys;
+        allocate(newCapacity);
+        for (int key : old) {
+            if (key != FREE) {
+                int slot = mix(key) & mask;
+                while (keys[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * 0.75f);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / 0.75f) + 1) - 1) << 1;
+        return Math.max(capacity, 4);
+    }
+
+    static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,165 @@
+package com.nantan.app.util;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash map from primitive int keys to primitive int values, with linear probing.
+ * Lookups of an absent key return the {@code missingValue} given at construction, which therefore
+ * cannot be stored as a value. Not thread-safe; callers guard it with their own lock.
+ */
+public final class IntIntHashMap {
+
+    private static final int FREE = 0;
+
+    private final int missingValue;
+    private int[] keys;
+    private int[] values;
+    private boolean containsZero;
+    private int zeroValue;
+    private int size;
+    private int mask;
+    private int resizeAt;
+
+    public IntIntHashMap(int missingValue) {
+        this(missingValue, 16);
+    }
+
+    public IntIntHashMap(int missingValue, int expectedSize) {
+        this.missingValue = missingValue;
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int get(int key) {
+        if (key == FREE) {
+            return containsZero ? zeroValue : missingValue;
+        }
+        int slot = IntHashSet.mix(key) & mask;
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return missingValue;
+    }
+
+    /**
+     * @return the value previously mapped to the key, or the missing value.
+     */
+    public int put(int key, int value) {
+        if (value == missingValue) {
+            throw new IllegalArgumentException("Cannot store the missing value " + value);
+        }
+        if (key == FREE) {
+            int previous = containsZero ? zeroValue : missingValue;
+            if (!containsZero) {
+                containsZero = true;
+                size++;
+            }
+            zeroValue = value;
+            return previous;
+        }
+        int slot = IntHashSet.mix(key) & mask;
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                int previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size >= resizeAt) {
+            rehash(keys.length * 2);
+        }
+        return missingValue;
+    }
+
+    /**
+     * @return the value that was mapped to the key, or the missing value.
+     */
+    public int remove(int key) {
+        if (key == FREE) {
+            if (!containsZero) {
+                return missingValue;
+            }
+            containsZero = false;
+            size--;
+            return zeroValue;
+        }
+        int slot = IntHashSet.mix(key) & mask;
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                int previous = values[slot];
+                keys[slot] = FREE;
+                size--;
+                shiftDown(slot);
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return missingValue;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        containsZero = false;
+        size = 0;
+    }
+
+    /**
+     * Bytes used by the two backing tables, including their array headers.
+     */
+    public long footprintBytes() {
+        return 2 * (16L + 4L * keys.length);
+    }
+
+    // Backward-shift deletion, as in IntHashSet; values move with their keys.
+    private void shiftDown(int freed) {
+        int slot = (freed + 1) & mask;
+        while (keys[slot] != FREE) {
+            int home = IntHashSet.mix(keys[slot]) & mask;
+            if (((slot - home) & mask) >= ((slot - freed) & mask)) {
+                keys[freed] = keys[slot];
+                values[freed] = values[slot];
+                keys[slot] = FREE;
+                freed = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            int key = oldKeys[i];
+            if (key != FREE) {
+                int slot = IntHashSet.mix(key) & mask;
+                while (keys[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * 0.75f);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / 0.75f) + 1) - 1) << 1;
+        return Math.max(capacity, 4);
+    }
+}
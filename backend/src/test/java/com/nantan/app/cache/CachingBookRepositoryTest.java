@@ -0,0 +1,80 @@
+package com.nantan.app.cache;
+
+import com.nantan.app.Book;
+import com.nantan.app.BookRepository;
+import com.nantan.app.config.BookCacheProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingBookRepositoryTest {
+
+    @Mock
+    private BookRepository delegate;
+
+    private CachingBookRepository cache;
+
+    private Book book1;
+    private Book book2;
+
+    @BeforeEach
+    void setUp() {
+        cache = new CachingBookRepository("mysql", delegate, new BookCacheProperties(true, 2, 3, Duration.ofMinutes(1)));
+        book1 = new Book(1, "The Lord of the Rings", "J.R.R. Tolkien");
+        book2 = new Book(2, "The Hobbit", "J.R.R. Tolkien");
+    }
+
+    @Test
+    @DisplayName("repeated page reads should hit the database once")
+    void findPage_whenCalledTwice_shouldLoadOnce() {
+        when(delegate.findPage(0, 10)).thenReturn(List.of(book1, book2));
+
+        assertEquals(2, cache.findPage(0, 10).size());
+        assertEquals(2, cache.findPage(0, 10).size());
+
+        verify(delegate, times(1)).findPage(0, 10);
+        CacheStats stats = cache.stats();
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+    }
+
+    @Test
+    @DisplayName("a write should invalidate the region")
+    void deleteById_shouldInvalidateCachedPages() {
+        when(delegate.findPage(0, 10)).thenReturn(List.of(book1, book2), List.of(book2));
+        when(delegate.deleteById(1)).thenReturn(true);
+
+        cache.findPage(0, 10);
+        assertTrue(cache.deleteById(1));
+
+        assertEquals(List.of(book2), cache.findPage(0, 10));
+        verify(delegate, times(2)).findPage(0, 10);
+    }
+
+    @Test
+    @DisplayName("entries beyond the book budget should evict the least recently used entry")
+    void findPage_whenBookBudgetExceeded_shouldEvictEldest() {
+        when(delegate.findPage(0, 2)).thenReturn(List.of(book1, book2));
+        when(delegate.findPage(2, 2)).thenReturn(List.of(book2));
+        when(delegate.findPage(5, 2)).thenReturn(List.of(book1));
+
+        cache.findPage(0, 2);
+        cache.findPage(2, 2);
+        cache.findPage(5, 2);
+
+        CacheStats stats = cache.stats();
+        assertEquals(2, stats.entries());
+        assertEquals(2, stats.books());
+        assertEquals(1, stats.evictions());
+    }
+}
@@ -0,0 +1,66 @@
+package com.nantan.app.cache;
+
+import com.nantan.app.Book;
+import com.nantan.app.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VersionedBookRepositoryTest {
+
+    @Mock
+    private BookRepository delegate;
+
+    private CollectionVersions versions;
+    private VersionedBookRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        versions = new CollectionVersions();
+        repository = new VersionedBookRepository("mysql", delegate, versions);
+    }
+
+    @Test
+    @DisplayName("reads leave the version alone; every write, even a failed one, bumps it")
+    void writes_shouldBumpOnlyTheirDataSource() {
+        String initial = versions.token("mysql");
+
+        repository.findPage(0, 10);
+        assertEquals(initial, versions.token("mysql"));
+
+        repository.save(new Book(1, "Dune", "Frank Herbert"));
+        when(delegate.deleteById(2)).thenThrow(new IllegalStateException("down"));
+        assertThrows(IllegalStateException.class, () -> repository.deleteById(2));
+
+        assertEquals(2, versions.current("mysql"));
+        assertEquals(0, versions.current("mongo"));
+        assertNotEquals(initial, versions.token("mysql"));
+    }
+
+    @Test
+    @DisplayName("inside a transaction the version is bumped again once it completes")
+    void write_inTransaction_shouldBumpAfterCompletion() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            repository.removeAllById(List.of(1, 2));
+            assertEquals(1, versions.current("mysql"));
+
+            TransactionSynchronizationUtils.invokeAfterCompletion(
+                    TransactionSynchronizationManager.getSynchronizations(), 0);
+            assertEquals(2, versions.current("mysql"));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.nantan.app.coalesce;
+
+import com.nantan.app.Book;
+import com.nantan.app.config.WriteCoalescingProperties;
+import com.nantan.app.exception.BulkInsertException;
+import com.nantan.app.service.BookService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WriteCoalescerTest {
+
+    @Mock
+    private BookService bookService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private WriteCoalescer coalescer;
+
+    private final Book dune = new Book(1, "Dune", "Frank Herbert");
+    private final Book emma = new Book(2, "Emma", "Jane Austen");
+    private final Book walden = new Book(3, "Walden", "Henry David Thoreau");
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        // 窗口足够长，测试线程提交的几本书一定落在同一批次
+        coalescer = new WriteCoalescer(bookService,
+                new WriteCoalescingProperties(true, Duration.ofMillis(200), 10, 100), meterRegistry);
+        coalescer.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        coalescer.stop();
+    }
+
+    @Test
+    @DisplayName("adds within the window are written with one addBooks call and completed individually")
+    void submit_withinWindow_shouldWriteOneBatch() throws ExecutionException, InterruptedException {
+        when(bookService.addBooks(anyList(), eq("mysql"))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        CompletableFuture<Book> first = coalescer.submit(dune, "mysql");
+        CompletableFuture<Book> second = coalescer.submit(emma, "mysql");
+
+        assertSame(dune, first.get());
+        assertSame(emma, second.get());
+        verify(bookService, times(1)).addBooks(List.of(dune, emma), "mysql");
+        assertEquals(2.0, meterRegistry.get(WriteCoalescer.BATCH_SIZE_METRIC).tag("dataSource", "mysql").summary().totalAmount());
+    }
+
+    @Test
+    @DisplayName("a failed batch is retried book by book, so only the bad book fails")
+    void submit_whenBatchFails_shouldIsolateTheBadBook() throws Exception {
+        when(bookService.addBooks(List.of(dune, emma, walden), "mongo")).thenThrow(new IllegalArgumentException("bad title"));
+        when(bookService.addBooks(List.of(dune), "mongo")).thenReturn(List.of(dune));
+        when(bookService.addBooks(List.of(emma), "mongo")).thenThrow(new IllegalArgumentException("bad title"));
+        when(bookService.addBooks(List.of(walden), "mongo")).thenReturn(List.of(walden));
+
+        CompletableFuture<Book> first = coalescer.submit(dune, "mongo");
+        CompletableFuture<Book> second = coalescer.submit(emma, "mongo");
+        CompletableFuture<Book> third = coalescer.submit(walden, "mongo");
+
+        assertSame(dune, first.get(5, TimeUnit.SECONDS));
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, failure.getCause());
+        assertSame(walden, third.get(5, TimeUnit.SECONDS));
+        assertEquals(3.0, meterRegistry.get(WriteCoalescer.ISOLATED_METRIC).tag("dataSource", "mongo").counter().count());
+    }
+
+    @Test
+    @DisplayName("books given an ID by the failed batch are retried without it")
+    void submit_whenBatchFails_shouldRetryWithoutTheAssignedIds() throws Exception {
+        Book first = new Book(null, "Dune", "Frank Herbert");
+        Book second = new Book(null, "Emma", "Jane Austen");
+        List<Integer> retriedWith = new ArrayList<>();
+        AtomicInteger nextId = new AtomicInteger(10);
+        when(bookService.addBooks(anyList(), eq("mysql"))).thenAnswer(invocation -> {
+            List<Book> books = invocation.getArgument(0);
+            if (books.size() > 1) {
+                books.forEach(book -> book.setId(nextId.getAndIncrement()));
+                throw new IllegalStateException("deadlock");
+            }
+            retriedWith.add(books.get(0).getId());
+            books.get(0).setId(nextId.getAndIncrement());
+            return books;
+        });
+
+        CompletableFuture<Book> firstSaved = coalescer.submit(first, "mysql");
+        CompletableFuture<Book> secondSaved = coalescer.submit(second, "mysql");
+
+        assertEquals(12, firstSaved.get(5, TimeUnit.SECONDS).getId());
+        assertEquals(13, secondSaved.get(5, TimeUnit.SECONDS).getId());
+        assertEquals(Arrays.asList(null, null), retriedWith);
+    }
+
+    @Test
+    @DisplayName("books a partial bulk insert did write keep their ID on retry, the rejected ones lose it")
+    void submit_whenBulkInsertPartlyFails_shouldKeepTheWrittenIds() throws Exception {
+        Book written = new Book(null, "Dune", "Frank Herbert");
+        Book rejected = new Book(null, "Emma", "Jane Austen");
+        List<Integer> retriedWith = new ArrayList<>();
+        when(bookService.addBooks(anyList(), eq("mongo"))).thenAnswer(invocation -> {
+            List<Book> books = invocation.getArgument(0);
+            if (books.size() > 1) {
+                books.get(0).setId(10);
+                books.get(1).setId(11);
+                throw new BulkInsertException(1, List.of(1), "1 of 2 documents rejected", null);
+            }
+            retriedWith.add(books.get(0).getId());
+            if (books.get(0).getId() == null) {
+                books.get(0).setId(12);
+            }
+            return books;
+        });
+
+        coalescer.submit(written, "mongo");
+        coalescer.submit(rejected, "mongo").get(5, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList(10, null), retriedWith);
+        assertEquals(10, written.getId());
+        assertEquals(12, rejected.getId());
+    }
+
+    @Test
+    @DisplayName("a second add of the same ID starts the next batch, so the last add wins")
+    void submit_sameIdTwice_shouldSplitBatches() throws Exception {
+        Book renamed = new Book(1, "Dune Messiah", "Frank Herbert");
+        when(bookService.addBooks(anyList(), eq("mysql"))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        coalescer.submit(dune, "mysql");
+        coalescer.submit(renamed, "mysql").get(5, TimeUnit.SECONDS);
+
+        verify(bookService).addBooks(List.of(dune), "mysql");
+        verify(bookService).addBooks(List.of(renamed), "mysql");
+    }
+}
@@ -0,0 +1,62 @@
+package com.nantan.app.concurrent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchLoaderTest {
+
+    private final List<List<Integer>> batches = new ArrayList<>();
+    private BatchLoader<Integer, String> loader;
+
+    @AfterEach
+    void tearDown() {
+        loader.close();
+    }
+
+    @Test
+    @DisplayName("keys requested within the window are loaded with one call")
+    void loadMany_withinWindow_shouldLoadOneBatch() throws Exception {
+        // 窗口足够长，只有批次满了才会发送
+        loader = newLoader(Duration.ofMinutes(1), 3);
+
+        CompletableFuture<Map<Integer, String>> first = loader.loadMany(List.of(2, 1));
+        CompletableFuture<Map<Integer, String>> second = loader.loadMany(List.of(1, 3, 1));
+
+        assertEquals(List.of(List.of(2, 1, 3)), batches);
+        assertEquals(List.of(2, 1), List.copyOf(first.get(1, TimeUnit.SECONDS).keySet()));
+        assertEquals(Map.of(1, "1", 3, "3"), second.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("a partial batch is sent when the window closes and missing keys are left out")
+    void loadMany_whenWindowCloses_shouldSendPartialBatch() throws Exception {
+        loader = newLoader(Duration.ofMillis(5), 100);
+
+        Map<Integer, String> found = loader.loadMany(List.of(4, -1)).get(1, TimeUnit.SECONDS);
+
+        assertEquals(Map.of(4, "4"), found);
+        assertEquals(List.of(List.of(4, -1)), batches);
+    }
+
+    private BatchLoader<Integer, String> newLoader(Duration window, int maxBatchSize) {
+        return new BatchLoader<>("test-", ids -> {
+            synchronized (batches) {
+                batches.add(List.copyOf(ids));
+            }
+            return ids.stream().filter(id -> id > 0).collect(Collectors.toMap(Function.identity(), String::valueOf));
+        }, new TaskExecutorAdapter(Runnable::run), window, maxBatchSize);
+    }
+}
@@ -0,0 +1,63 @@
+package com.nantan.app.concurrent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedVirtualThreadExecutorTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private BoundedVirtualThreadExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        // Platform threads stand in for virtual threads; the admission logic is the same
+        executor = new BoundedVirtualThreadExecutor(new SimpleAsyncTaskExecutor("test-"), 1, 1, Duration.ofMillis(200));
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.close();
+    }
+
+    @Test
+    @DisplayName("tasks beyond running + queued are rejected on the caller's thread")
+    void submit_whenSaturated_shouldRejectImmediately() throws Exception {
+        CompletableFuture<String> running = executor.submitCompletable(this::blockUntilReleased);
+        CompletableFuture<String> queued = executor.submitCompletable(() -> "queued");
+
+        assertThrows(TaskRejectedException.class, () -> executor.submitCompletable(() -> "rejected"));
+
+        release.countDown();
+        assertEquals("released", running.get(1, TimeUnit.SECONDS));
+        assertEquals("queued", queued.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("a queued task that does not get a slot in time fails its future")
+    void submit_whenQueueTimeoutExpires_shouldFailFuture() {
+        executor.submitCompletable(this::blockUntilReleased);
+        CompletableFuture<String> queued = executor.submitCompletable(() -> "queued");
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> queued.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(TaskRejectedException.class, e.getCause());
+        assertEquals(1, executor.getActiveCount());
+    }
+
+    private String blockUntilReleased() throws InterruptedException {
+        release.await(5, TimeUnit.SECONDS);
+        return "released";
+    }
+}
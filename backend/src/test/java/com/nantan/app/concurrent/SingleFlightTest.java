@@ -0,0 +1,58 @@
+package com.nantan.app.concurrent;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private final SingleFlight<String, String> flights = new SingleFlight<>();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    @DisplayName("callers that arrive while a call is in flight share its result")
+    void execute_whileInFlight_shouldShareOneCall() {
+        CompletableFuture<String> result = new CompletableFuture<>();
+
+        CompletableFuture<String> first = flights.execute("a", () -> start(result));
+        CompletableFuture<String> second = flights.execute("a", () -> start(result));
+        CompletableFuture<String> other = flights.execute("b", () -> start(CompletableFuture.completedFuture("b")));
+
+        assertEquals(2, calls.get());
+        // 一个调用者取消自己的副本，不影响其他调用者
+        first.cancel(false);
+        result.complete("a");
+        assertEquals("a", second.join());
+        assertEquals("b", other.join());
+        assertEquals(0, flights.inFlight());
+    }
+
+    @Test
+    @DisplayName("a call that has completed is not reused")
+    void execute_afterCompletion_shouldStartNewCall() {
+        assertEquals("1", flights.execute("a", () -> start(CompletableFuture.completedFuture("1"))).join());
+        assertEquals("2", flights.execute("a", () -> start(CompletableFuture.completedFuture("2"))).join());
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    @DisplayName("a call that throws releases its key")
+    void execute_whenCallThrows_shouldReleaseKey() {
+        assertThrows(IllegalStateException.class, () -> flights.execute("a", () -> {
+            throw new IllegalStateException("rejected");
+        }));
+
+        assertEquals(0, flights.inFlight());
+        assertEquals("ok", flights.execute("a", () -> start(CompletableFuture.completedFuture("ok"))).join());
+    }
+
+    private CompletableFuture<String> start(CompletableFuture<String> result) {
+        calls.incrementAndGet();
+        return result;
+    }
+}
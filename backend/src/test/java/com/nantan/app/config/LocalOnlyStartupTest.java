@@ -0,0 +1,60 @@
+package com.nantan.app.config;
+
+import com.nantan.app.Book;
+import com.nantan.app.DataSources;
+import com.nantan.app.exception.DataSourceDisabledException;
+import com.nantan.app.service.BookService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Boots the whole application with only the local store, as an instance without any database server would.
+ */
+@SpringBootTest(properties = {
+        "library.startup.mysql-enabled=false",
+        "library.startup.mongo-enabled=false",
+        "library.startup.local-enabled=true"})
+class LocalOnlyStartupTest {
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private BookService bookService;
+
+    @DynamicPropertySource
+    static void localStore(DynamicPropertyRegistry registry) throws IOException {
+        String directory = Files.createTempDirectory("local-only-").toString();
+        registry.add("library.local-store.directory", () -> directory);
+    }
+
+    @Test
+    @DisplayName("with MySQL and MongoDB disabled, books are added to the local store and get IDs from it")
+    void addBook_withOnlyLocalEnabled_shouldWorkWithoutDatabases() throws Exception {
+        assertEquals(0, context.getBeanNamesForType(DataSource.class).length);
+
+        Book first = bookService.addBook(new Book(null, "Offline", "Local"), DataSources.LOCAL).get();
+        Book second = bookService.addBook(new Book(null, "Offline too", "Local"), DataSources.LOCAL).get();
+
+        assertEquals(1, first.getId());
+        assertEquals(2, second.getId());
+        assertEquals(List.of("Offline", "Offline too"), bookService.getBooksByIds(List.of(1, 2), DataSources.LOCAL).get()
+                .stream().map(Book::getTitle).toList());
+        ExecutionException mysql = assertThrows(ExecutionException.class,
+                () -> bookService.addBook(new Book(null, "Nowhere", "MySQL"), DataSources.MYSQL).get());
+        assertInstanceOf(DataSourceDisabledException.class, mysql.getCause());
+    }
+}
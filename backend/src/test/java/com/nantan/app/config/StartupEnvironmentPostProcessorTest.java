@@ -0,0 +1,66 @@
+package com.nantan.app.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.data.jpa.JpaRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.mongo.MongoDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.mongo.MongoRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StartupEnvironmentPostProcessorTest {
+
+    private final StartupEnvironmentPostProcessor postProcessor = new StartupEnvironmentPostProcessor();
+
+    @Test
+    @DisplayName("disabling mongo excludes its auto-configuration and keeps exclusions configured elsewhere")
+    void postProcess_withMongoDisabled_shouldAddExclusions() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty(StartupConfig.MONGO_ENABLED_PROPERTY, "false")
+                .withProperty("spring.autoconfigure.exclude", R2dbcAutoConfiguration.class.getName());
+
+        postProcessor.postProcessEnvironment(environment, new SpringApplication());
+
+        List<String> excluded = excluded(environment);
+        assertEquals(List.of(R2dbcAutoConfiguration.class.getName(), MongoAutoConfiguration.class.getName(),
+                MongoDataAutoConfiguration.class.getName(), MongoRepositoriesAutoConfiguration.class.getName()), excluded);
+    }
+
+    @Test
+    @DisplayName("disabling mysql excludes the JDBC, Hibernate and JPA auto-configuration but not MongoDB's")
+    void postProcess_withMysqlDisabled_shouldExcludeJdbcAndJpa() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty(StartupConfig.MYSQL_ENABLED_PROPERTY, "false");
+
+        postProcessor.postProcessEnvironment(environment, new SpringApplication());
+
+        List<String> excluded = excluded(environment);
+        assertTrue(excluded.containsAll(List.of(DataSourceAutoConfiguration.class.getName(),
+                HibernateJpaAutoConfiguration.class.getName(), JpaRepositoriesAutoConfiguration.class.getName())));
+        assertFalse(excluded.contains(MongoAutoConfiguration.class.getName()));
+    }
+
+    @Test
+    @DisplayName("by default nothing is excluded")
+    void postProcess_byDefault_shouldLeaveEnvironmentAlone() {
+        MockEnvironment environment = new MockEnvironment();
+
+        postProcessor.postProcessEnvironment(environment, new SpringApplication());
+
+        assertTrue(excluded(environment).isEmpty());
+    }
+
+    private static List<String> excluded(MockEnvironment environment) {
+        return Binder.get(environment).bind("spring.autoconfigure.exclude", Bindable.listOf(String.class)).orElse(List.of());
+    }
+}
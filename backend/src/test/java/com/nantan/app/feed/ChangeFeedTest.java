@@ -0,0 +1,129 @@
+package com.nantan.app.feed;
+
+import com.nantan.app.Book;
+import com.nantan.app.config.ChangeFeedProperties;
+import com.nantan.app.event.BookChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeFeedTest {
+
+    private ChangeFeed feed;
+
+    @BeforeEach
+    void setUp() {
+        // 回放缓冲 4 条，每个订阅者最多积压 2 条; 心跳间隔足够长，不干扰断言
+        feed = new ChangeFeed(new ChangeFeedProperties(4, 2, 10, Duration.ofHours(1), Duration.ofMinutes(1)));
+        feed.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        feed.stop();
+    }
+
+    @Test
+    @DisplayName("a client resuming with Last-Event-ID gets the changes it missed, or a reset once they left the buffer")
+    void subscribe_withLastEventId_shouldReplayOrReset() throws InterruptedException {
+        RecordingSink first = new RecordingSink();
+        ChangeFeed.Subscription subscription = feed.subscribe("mysql", null, first);
+        String readyId = first.next().id();
+        feed.onBookChanged(BookChangedEvent.saved("mysql", new Book(1, "Dune", "Frank Herbert")));
+        String seenId = first.next().id();
+        subscription.cancel();
+
+        feed.onBookChanged(BookChangedEvent.saved("mysql", new Book(2, "Emma", "Jane Austen")));
+        feed.onBookChanged(BookChangedEvent.deleted("mysql", 1));
+        feed.onBookChanged(BookChangedEvent.saved("mongo", new Book(3, "Walden", "Henry David Thoreau")));
+
+        RecordingSink resumed = new RecordingSink();
+        feed.subscribe("mysql", seenId, resumed);
+        assertEquals("saved", resumed.next().name());
+        FeedMessage deleted = resumed.next();
+        assertEquals("deleted", deleted.name());
+        assertEquals(1, ((BookChangedEvent) deleted.data()).bookId());
+        assertEquals("ready", resumed.next().name());
+
+        // 再写 4 条后，readyId 之后的变更已被环形缓冲覆盖
+        for (int id = 10; id < 14; id++) {
+            feed.onBookChanged(BookChangedEvent.saved("mysql", new Book(id, "Title " + id, null)));
+        }
+        RecordingSink stale = new RecordingSink();
+        feed.subscribe("mysql", readyId, stale);
+        assertEquals("reset", stale.next().name());
+        assertEquals("ready", stale.next().name());
+
+        RecordingSink foreign = new RecordingSink();
+        feed.subscribe("mysql", "otherepoch-1", foreign);
+        assertEquals("reset", foreign.next().name());
+    }
+
+    @Test
+    @DisplayName("a client that stops reading is disconnected while publishers carry on without waiting")
+    void publish_whenSubscriberIsStuck_shouldDropItWithoutBlocking() throws InterruptedException {
+        CountDownLatch unblock = new CountDownLatch(1);
+        CountDownLatch closed = new CountDownLatch(1);
+        feed.subscribe("mysql", null, new FeedSink() {
+            @Override
+            public void send(FeedMessage message) {
+                try {
+                    unblock.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void close() {
+                closed.countDown();
+            }
+        });
+        RecordingSink healthy = new RecordingSink();
+        feed.subscribe("mysql", null, healthy);
+        healthy.next();
+
+        // 卡住的订阅者的发送线程阻塞在第一条消息上: 这个循环若等待它就永远不会结束
+        for (int id = 1; id <= 5; id++) {
+            feed.onBookChanged(BookChangedEvent.saved("mysql", new Book(id, "Title " + id, null)));
+            assertEquals(id, ((BookChangedEvent) healthy.next().data()).bookId());
+        }
+
+        // 队列满 (2 条) 后第 3 条变更使它被断开; 断开由发送线程完成
+        unblock.countDown();
+        assertTrue(closed.await(5, TimeUnit.SECONDS));
+        FeedStats stats = feed.stats().get(0);
+        assertEquals(1, stats.laggardsDisconnected());
+        assertEquals(1, stats.subscribers());
+        assertEquals(5, stats.published());
+    }
+
+    private static final class RecordingSink implements FeedSink {
+
+        final BlockingQueue<FeedMessage> messages = new LinkedBlockingQueue<>();
+
+        @Override
+        public void send(FeedMessage message) {
+            messages.add(message);
+        }
+
+        @Override
+        public void close() {
+        }
+
+        FeedMessage next() throws InterruptedException {
+            FeedMessage message = messages.poll(5, TimeUnit.SECONDS);
+            assertNotNull(message, "no message within 5s");
+            return message;
+        }
+    }
+}
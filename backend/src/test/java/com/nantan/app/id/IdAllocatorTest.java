@@ -0,0 +1,77 @@
+package com.nantan.app.id;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdAllocatorTest {
+
+    private final ExecutorService callers = Executors.newFixedThreadPool(8);
+    private IdAllocator allocator;
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        allocator.close();
+    }
+
+    @Test
+    @DisplayName("concurrent callers get distinct IDs, with one reservation per block")
+    void next_fromManyThreads_shouldNeverRepeatAnId() throws Exception {
+        AtomicLong sequence = new AtomicLong(1);
+        AtomicInteger reservations = new AtomicInteger();
+        allocator = new IdAllocator("books", size -> {
+            reservations.incrementAndGet();
+            return sequence.getAndAdd(size);
+        }, 10);
+
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            results.add(callers.submit(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    assertTrue(ids.add(allocator.next()));
+                }
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+
+        assertEquals(8000, ids.size());
+        // 预取最多领先一个号段
+        assertTrue(reservations.get() <= 801, "reservations: " + reservations.get());
+    }
+
+    @Test
+    @DisplayName("a failed reservation is reported to the caller, and the next call reserves again")
+    void next_whenReservationFails_shouldRetryOnNextCall() {
+        AtomicBoolean failNext = new AtomicBoolean(true);
+        AtomicLong sequence = new AtomicLong(500);
+        allocator = new IdAllocator("books", size -> {
+            if (failNext.getAndSet(false)) {
+                throw new IllegalStateException("database unavailable");
+            }
+            return sequence.getAndAdd(size);
+        }, 4);
+
+        IllegalStateException error = assertThrows(IllegalStateException.class, allocator::next);
+        assertEquals("database unavailable", error.getMessage());
+        // 失败的预留不会跳过或重复任何 ID
+        assertEquals(500, allocator.next());
+        assertEquals(501, allocator.next());
+    }
+}
@@ -0,0 +1,58 @@
+package com.nantan.app.importer;
+
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.nantan.app.Book;
+import com.nantan.app.config.WireFormats;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookRecordReaderTest {
+
+    private final WireFormats wireFormats = new WireFormats(Jackson2ObjectMapperBuilder.json().build(),
+            Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build(),
+            Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).build());
+
+    @Test
+    @DisplayName("a CBOR body is read as a sequence of concatenated book values")
+    void open_cbor_shouldReadEveryValue() throws IOException {
+        List<Book> books = List.of(new Book(1, "Dune", "Frank Herbert"), new Book(2, "Emma", "Jane Austen"));
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (SequenceWriter writer = wireFormats.cbor().writerFor(Book.class).writeValues(body)) {
+            writer.writeAll(books);
+        }
+
+        List<Book> read = new ArrayList<>();
+        try (BookRecordReader reader = BookRecordReader.open(MediaType.APPLICATION_CBOR,
+                new ByteArrayInputStream(body.toByteArray()), wireFormats)) {
+            reader.forEachRemaining(read::add);
+        }
+
+        // Book 没有实现 equals，逐字段比较
+        assertEquals(2, read.size());
+        assertEquals(2, read.get(1).getId());
+        assertEquals("Emma", read.get(1).getTitle());
+        assertEquals("Jane Austen", read.get(1).getAuthor());
+    }
+
+    @Test
+    @DisplayName("negotiate should honour quality values and fall back to JSON")
+    void negotiate_shouldFollowAcceptPreference() {
+        assertEquals(MediaType.APPLICATION_JSON, wireFormats.negotiate(null));
+        assertEquals(MediaType.APPLICATION_JSON, wireFormats.negotiate("*/*"));
+        assertEquals(MediaType.APPLICATION_JSON, wireFormats.negotiate("text/html"));
+        assertEquals(MediaType.APPLICATION_CBOR, wireFormats.negotiate("application/json;q=0.5, application/cbor"));
+        assertEquals(WireFormats.APPLICATION_SMILE, wireFormats.negotiate("application/x-jackson-smile, application/cbor"));
+    }
+}
@@ -0,0 +1,126 @@
+package com.nantan.app.jpa;
+
+import com.nantan.app.Book;
+import com.nantan.app.BookQuery;
+import com.nantan.app.config.ExportProperties;
+import com.nantan.app.config.JpaConfig;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the filtered queries against H2 and checks the plan of the SQL that Hibernate actually sent,
+ * so that a change to the query or to the declared indexes cannot quietly turn a filter into a table scan.
+ */
+@DataJpaTest
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.nantan.app.jpa.BookQueryPlanTest$CapturingInspector")
+class BookQueryPlanTest {
+
+    @Autowired
+    private BookJpaRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        List<Book> books = new ArrayList<>();
+        for (int id = 1; id <= 500; id++) {
+            books.add(new Book(id, "Title " + id, "Author " + id % 50));
+        }
+        repository.insertAll(books);
+        CapturingInspector.statements.clear();
+    }
+
+    @Test
+    @DisplayName("author filter seeks the author index and returns only the selected columns")
+    void findMatching_byAuthor_shouldUseAuthorIndex() {
+        List<Book> books = repository.findMatching(query("Author 7", null, null, null, BookQuery.Order.ID), 100);
+
+        assertEquals(10, books.size());
+        assertNull(books.get(0).getAuthor());
+        String sql = lastSelect();
+        String selectList = sql.toLowerCase(Locale.ROOT).substring(0, sql.toLowerCase(Locale.ROOT).indexOf(" from "));
+        assertFalse(selectList.contains("author"), "author should not be selected: " + sql);
+        assertPlanUses(sql, Book.AUTHOR_INDEX, "Author 7");
+    }
+
+    @Test
+    @DisplayName("title prefix is a range on the title index, with LIKE wildcards in the prefix escaped")
+    void findMatching_byTitlePrefix_shouldUseTitleIndex() {
+        List<Book> books = repository.findMatching(query(null, "Title 4", null, null, BookQuery.Order.TITLE), 5);
+
+        assertEquals(List.of(4, 40, 400, 401, 402), books.stream().map(Book::getId).toList());
+        assertTrue(repository.findMatching(query(null, "Title_4", null, null, BookQuery.Order.ID), 5).isEmpty());
+        assertPlanUses(lastSelect(), Book.TITLE_INDEX, "Title 4%");
+    }
+
+    @Test
+    @DisplayName("ID range seeks the primary key")
+    void findMatching_byIdRange_shouldUsePrimaryKey() {
+        List<Book> books = repository.findMatching(query(null, null, 100, 104, BookQuery.Order.ID_DESC), 100);
+
+        assertEquals(List.of(104, 103, 102, 101, 100), books.stream().map(Book::getId).toList());
+        assertPlanUses(lastSelect(), "primary_key", 100, 104);
+    }
+
+    private static BookQuery query(String author, String titlePrefix, Integer minId, Integer maxId, BookQuery.Order order) {
+        return new BookQuery(author, titlePrefix, minId, maxId, order, Set.of(BookQuery.Field.ID, BookQuery.Field.TITLE));
+    }
+
+    private String lastSelect() {
+        List<String> selects = CapturingInspector.statements.stream()
+                .filter(sql -> sql.toLowerCase(Locale.ROOT).startsWith("select"))
+                .toList();
+        assertFalse(selects.isEmpty(), "no SELECT was captured");
+        return selects.get(selects.size() - 1);
+    }
+
+    /**
+     * EXPLAINs the statement with the filter values bound in order; any remaining parameter is the row limit.
+     */
+    private void assertPlanUses(String sql, String index, Object... filterValues) {
+        String plan = jdbcTemplate.query("EXPLAIN " + sql, statement -> {
+            int parameters = (int) sql.chars().filter(c -> c == '?').count();
+            for (int i = 0; i < parameters; i++) {
+                statement.setObject(i + 1, i < filterValues.length ? filterValues[i] : 10);
+            }
+        }, rows -> rows.next() ? rows.getString(1) : "").toLowerCase(Locale.ROOT);
+        assertFalse(plan.contains("tablescan"), "query scans the table:\n" + plan);
+        assertTrue(plan.contains(index.toLowerCase(Locale.ROOT)), "query does not use " + index + ":\n" + plan);
+    }
+
+    @TestConfiguration
+    @EnableConfigurationProperties(ExportProperties.class)
+    @Import(JpaConfig.class)
+    static class Config {
+    }
+
+    public static class CapturingInspector implements StatementInspector {
+
+        static final List<String> statements = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.nantan.app.limit;
+
+import com.nantan.app.config.ConcurrencyLimitProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long MILLIS = 1_000_000L;
+
+    private final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("mysql",
+            new ConcurrencyLimitProperties(true, 4, 2, 50, 4, 1.5, 0.5, 0.5, Duration.ofSeconds(1)));
+
+    @Test
+    @DisplayName("calls beyond the limit are shed without blocking")
+    void tryAcquire_whenLimitReached_shouldReject() {
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(i, limiter.tryAcquire());
+        }
+        assertEquals(-1, limiter.tryAcquire());
+        assertEquals(1, limiter.stats().rejected());
+
+        limiter.onIgnore();
+        assertEquals(4, limiter.tryAcquire());
+    }
+
+    @Test
+    @DisplayName("the limit grows while latency is steady and shrinks when it climbs")
+    void onSuccess_shouldFollowLatency() {
+        runWindows(5, 10 * MILLIS);
+        int grown = limiter.getLimit();
+        assertTrue(grown > 4, "limit should grow under steady latency, was " + grown);
+
+        runWindows(5, 100 * MILLIS);
+        assertTrue(limiter.getLimit() < grown, "limit should shrink when latency climbs");
+    }
+
+    @Test
+    @DisplayName("a timeout cuts the limit multiplicatively, but not below the minimum")
+    void onTimeout_shouldBackOff() {
+        limiter.tryAcquire();
+        limiter.onTimeout();
+        assertEquals(2, limiter.getLimit());
+
+        limiter.tryAcquire();
+        limiter.onTimeout();
+        assertEquals(2, limiter.getLimit());
+        assertEquals(2, limiter.stats().timeouts());
+    }
+
+    /**
+     * Completes {@code windows} full windows with every slot busy, so the windows are limit-bound.
+     */
+    private void runWindows(int windows, long rttNanos) {
+        for (int w = 0; w < windows; w++) {
+            int limit = limiter.getLimit();
+            int[] inFlight = new int[limit];
+            for (int i = 0; i < limit; i++) {
+                inFlight[i] = limiter.tryAcquire();
+            }
+            for (int i = 0; i < limit; i++) {
+                limiter.onSuccess(rttNanos, inFlight[i]);
+            }
+        }
+    }
+}
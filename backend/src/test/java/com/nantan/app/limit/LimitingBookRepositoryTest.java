@@ -0,0 +1,92 @@
+package com.nantan.app.limit;
+
+import com.nantan.app.Book;
+import com.nantan.app.BookRepository;
+import com.nantan.app.ForwardingBookRepository;
+import com.nantan.app.config.ConcurrencyLimitProperties;
+import com.nantan.app.exception.ConcurrencyLimitExceededException;
+import com.nantan.app.memory.InMemoryBookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LimitingBookRepositoryTest {
+
+    private static final int CHUNK = 4;
+
+    private final InMemoryBookRepository store = new InMemoryBookRepository();
+    private final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("mysql",
+            new ConcurrencyLimitProperties(true, 2, 2, 2, 4, 1.5, 0.5, 0.5, Duration.ofSeconds(1)));
+    private final LimitingBookRepository repository =
+            new LimitingBookRepository("mysql", store, limiter, Duration.ofSeconds(1), CHUNK);
+
+    @BeforeEach
+    void saturate() {
+        // 占满限流器, 受限的调用会被立即拒绝
+        limiter.tryAcquire();
+        limiter.tryAcquire();
+    }
+
+    @Test
+    @DisplayName("inserts and upserts smaller than an import chunk are limited like save")
+    void smallBulkWrites_shouldBeLimited() {
+        assertThrows(ConcurrencyLimitExceededException.class, () -> repository.insertAll(List.of(book(1))));
+        assertThrows(ConcurrencyLimitExceededException.class, () -> repository.upsertAll(books(CHUNK - 1)));
+        assertEquals(0, store.findAll().size());
+    }
+
+    @Test
+    @DisplayName("a full import chunk passes straight through")
+    void importChunk_shouldNotBeLimited() {
+        assertEquals(CHUNK, repository.insertAll(books(CHUNK)));
+        assertEquals(CHUNK, store.findAll().size());
+    }
+
+    @Test
+    @DisplayName("limited calls run under the operation deadline, pass-through chunks and other callers do not")
+    void deadline_shouldCoverOnlyLimitedCalls() {
+        limiter.onIgnore();
+        List<OptionalLong> seen = new ArrayList<>();
+        BookRepository recording = new ForwardingBookRepository(store) {
+            @Override
+            public List<Book> findAll() {
+                seen.add(OperationDeadline.remainingMillis());
+                return delegate.findAll();
+            }
+
+            @Override
+            public int insertAll(List<Book> batch) {
+                seen.add(OperationDeadline.remainingMillis());
+                return delegate.insertAll(batch);
+            }
+        };
+        LimitingBookRepository limited = new LimitingBookRepository("mysql", recording, limiter, Duration.ofSeconds(1), CHUNK);
+
+        limited.findAll();
+        limited.insertAll(books(CHUNK));
+
+        assertTrue(seen.get(0).isPresent());
+        assertTrue(seen.get(0).getAsLong() <= 1000);
+        assertTrue(seen.get(1).isEmpty());
+        assertTrue(OperationDeadline.remainingMillis().isEmpty());
+    }
+
+    private static List<Book> books(int count) {
+        List<Book> books = new ArrayList<>();
+        for (int id = 1; id <= count; id++) {
+            books.add(book(id));
+        }
+        return books;
+    }
+
+    private static Book book(int id) {
+        return new Book(id, "Title " + id, "Author " + id);
+    }
+}
@@ -0,0 +1,283 @@
+package com.nantan.app.local;
+
+import com.nantan.app.Book;
+import com.nantan.app.BookQuery;
+import com.nantan.app.config.LocalStoreProperties;
+import com.nantan.app.exception.BulkInsertException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogStructuredBookStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<LogStructuredBookStore> opened = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        opened.forEach(LogStructuredBookStore::close);
+    }
+
+    @Test
+    @DisplayName("reads merge the checkpointed index with the changes made since")
+    void reads_acrossCheckpoint_shouldSeeLatestState() throws IOException {
+        LogStructuredBookStore store = open(directory);
+        store.upsertAll(IntStream.rangeClosed(1, 5).mapToObj(LogStructuredBookStoreTest::book).toList());
+        store.checkpoint();
+        // 检查点之后的改动: 覆盖、删除、新增
+        store.save(new Book(2, "Second edition", "Author 2"));
+        assertTrue(store.deleteById(3));
+        assertFalse(store.deleteById(3));
+        store.save(book(7));
+
+        assertEquals(List.of(1, 2, 4, 5, 7), ids(store.findAll()));
+        assertEquals(List.of(4, 5), ids(store.findPage(2, 2)));
+        assertEquals("Second edition", store.findAllById(List.of(2)).get(0).getTitle());
+        assertTrue(store.findAllById(List.of(3, 99)).isEmpty());
+        assertEquals(7, store.findMaxId());
+        assertEquals(List.of(1, 4), store.removeAllById(List.of(4, 1, 4, 99)));
+        assertEquals(List.of(2, 5, 7), ids(store.findAll()));
+    }
+
+    @Test
+    @DisplayName("insertAll rejects existing IDs and repeats within the batch by position")
+    void insertAll_withDuplicates_shouldReportRejectedPositions() throws IOException {
+        LogStructuredBookStore store = open(directory);
+        store.save(book(1));
+
+        BulkInsertException rejected = assertThrows(BulkInsertException.class,
+                () -> store.insertAll(List.of(book(1), book(2), book(2), book(3))));
+
+        assertEquals(2, rejected.getInsertedCount());
+        assertEquals(List.of(0, 2), rejected.getRejectedIndexes());
+        assertEquals(List.of(1, 2, 3), ids(store.findAll()));
+    }
+
+    @Test
+    @DisplayName("findMatching filters the ID range and sorts by title")
+    void findMatching_shouldFilterAndOrder() throws IOException {
+        LogStructuredBookStore store = open(directory);
+        store.upsertAll(List.of(new Book(1, "Walden", "Thoreau"), new Book(2, "Emma", "Austen"),
+                new Book(3, "Persuasion", "Austen"), new Book(4, "Dune", "Herbert")));
+
+        List<Book> byAuthor = store.findMatching(new BookQuery("Austen", null, null, null,
+                BookQuery.Order.TITLE_DESC, Set.of(BookQuery.Field.TITLE)), 10);
+        List<Book> range = store.findMatching(new BookQuery(null, null, 2, 4, BookQuery.Order.ID_DESC, null), 2);
+
+        assertEquals(List.of("Persuasion", "Emma"), byAuthor.stream().map(Book::getTitle).toList());
+        assertNull(byAuthor.get(0).getAuthor());
+        assertEquals(List.of(4, 3), ids(range));
+    }
+
+    @Test
+    @DisplayName("books without a title sort first by title and never match a title prefix")
+    void findMatching_withNullTitle_shouldSortItFirst() throws IOException {
+        LogStructuredBookStore store = open(directory);
+        store.upsertAll(List.of(new Book(1, "Walden", "Thoreau"), new Book(2, null, "Anonymous"),
+                new Book(3, "Emma", "Austen")));
+
+        List<Book> ascending = store.findMatching(new BookQuery(null, null, null, null, BookQuery.Order.TITLE, null), 10);
+        List<Book> descending = store.findMatching(new BookQuery(null, null, null, null,
+                BookQuery.Order.TITLE_DESC, null), 2);
+        List<Book> prefixed = store.findMatching(new BookQuery(null, "W", null, null, BookQuery.Order.TITLE, null), 10);
+
+        assertEquals(List.of(2, 3, 1), ids(ascending));
+        assertEquals(List.of(1, 3), ids(descending));
+        assertEquals(List.of(1), ids(prefixed));
+    }
+
+    @Test
+    @DisplayName("after a crash the log tail is replayed on top of the last checkpoint and a torn record is cut off")
+    void open_afterCrash_shouldReplayTailAndTruncateTornRecord() throws IOException {
+        LogStructuredBookStore store = open(directory);
+        store.upsertAll(IntStream.rangeClosed(1, 100).mapToObj(LogStructuredBookStoreTest::book).toList());
+        store.checkpoint();
+        store.removeAllById(List.of(10, 20));
+        store.save(new Book(30, "Rewritten", "Someone"));
+        store.save(book(101));
+
+        // 进程崩溃: 不关闭 store, 直接拿走磁盘上的文件, 再在日志末尾留下半条记录
+        Path crashed = crashCopy(directory);
+        Path log = crashed.resolve("books-1.log");
+        long intact = Files.size(log);
+        Files.write(log, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+        LogStructuredBookStore recovered = open(crashed);
+
+        assertEquals(4, recovered.stats().recoveredRecords());
+        assertEquals(intact, Files.size(log));
+        assertEquals(99, recovered.findAll().size());
+        assertTrue(recovered.findAllById(List.of(10, 20)).isEmpty());
+        assertEquals("Rewritten", recovered.findAllById(List.of(30)).get(0).getTitle());
+        assertEquals(101, recovered.findMaxId());
+        // 截断之后可以照常追加
+        recovered.save(book(102));
+        assertEquals(102, recovered.findMaxId());
+    }
+
+    @Test
+    @DisplayName("a write whose fsync fails never becomes visible and the store refuses writes until reopened")
+    void save_whenFsyncFails_shouldDropTheWriteAndFailTheStore() throws IOException {
+        AtomicBoolean failing = new AtomicBoolean();
+        LogStructuredBookStore store = new LogStructuredBookStore(properties(directory)) {
+            @Override
+            void force(BookLog log) throws IOException {
+                if (failing.get()) {
+                    throw new IOException("disk gone");
+                }
+                super.force(log);
+            }
+        };
+        opened.add(store);
+        store.save(book(1));
+
+        failing.set(true);
+        assertThrows(UncheckedIOException.class, () -> store.save(book(2)));
+        failing.set(false);
+
+        assertEquals(List.of(1), ids(store.findAll()));
+        assertTrue(store.findAllById(List.of(2)).isEmpty());
+        assertThrows(IllegalStateException.class, () -> store.save(book(3)));
+        assertEquals(List.of(1), ids(store.findAll()));
+        store.close();
+
+        // 日志截回到最后一条落盘的记录, 重新打开也看不到失败的写入
+        LogStructuredBookStore reopened = open(directory);
+        assertEquals(List.of(1), ids(reopened.findAll()));
+        reopened.save(book(3));
+        assertEquals(List.of(1, 3), ids(reopened.findAll()));
+    }
+
+    @Test
+    @DisplayName("compaction keeps only live records and the store reopens from the new generation")
+    void compact_shouldReclaimGarbageAndSurviveRestart() throws IOException {
+        LogStructuredBookStore store = open(directory);
+        store.upsertAll(IntStream.rangeClosed(1, 200).mapToObj(LogStructuredBookStoreTest::book).toList());
+        store.checkpoint();
+        store.removeAllById(IntStream.rangeClosed(1, 150).boxed().toList());
+        store.save(new Book(160, "Changed", "Someone"));
+        long before = store.stats().logBytes();
+        assertTrue(store.stats().garbageBytes() > before / 2);
+
+        store.compact();
+        store.save(book(201));
+
+        LocalStoreStats stats = store.stats();
+        assertEquals(2, stats.generation());
+        assertTrue(stats.logBytes() < before / 3);
+        assertEquals(0, stats.garbageBytes());
+        assertEquals(List.of("books-2.idx", "books-2.log"), storeFiles(directory));
+        store.close();
+
+        LogStructuredBookStore reopened = open(directory);
+        assertEquals(IntStream.rangeClosed(151, 201).boxed().toList(), ids(reopened.findAll()));
+        assertEquals("Changed", reopened.findAllById(List.of(160)).get(0).getTitle());
+        assertEquals(0, reopened.stats().recoveredRecords());
+    }
+
+    @Test
+    @DisplayName("ID reservations start above stored books and survive a crash, a checkpoint and a compaction")
+    void reserve_shouldNeverHandOutAnIdTwice() throws IOException {
+        LogStructuredBookStore store = open(directory);
+        store.save(book(41));
+        assertEquals(42, store.reserve(10));
+        assertEquals(52, store.reserve(10));
+
+        // 崩溃后只能从日志里的预留记录恢复
+        LogStructuredBookStore crashed = open(crashCopy(directory));
+        assertEquals(62, crashed.reserve(10));
+        crashed.close();
+
+        store.save(book(100));
+        assertEquals(101, store.reserve(5));
+        store.removeAllById(List.of(41, 100));
+        store.checkpoint();
+        assertEquals(106, store.reserve(5));
+        store.compact();
+        assertEquals(111, store.reserve(5));
+        store.close();
+
+        LogStructuredBookStore reopened = open(directory);
+        assertEquals(0, reopened.stats().recoveredRecords());
+        assertEquals(116, reopened.reserve(5));
+    }
+
+    @Test
+    @DisplayName("concurrent writers share fsyncs and every acknowledged write is visible")
+    void save_concurrently_shouldGroupCommit() throws Exception {
+        LogStructuredBookStore store = open(directory);
+        ExecutorService writers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int writer = 0; writer < 8; writer++) {
+                int first = writer * 50 + 1;
+                done.add(writers.submit(() -> IntStream.range(first, first + 50).forEach(id -> store.save(book(id)))));
+            }
+            for (Future<?> future : done) {
+                future.get();
+            }
+        } finally {
+            writers.shutdown();
+        }
+
+        LocalStoreStats stats = store.stats();
+        assertEquals(400, store.findAll().size());
+        assertEquals(400, stats.appendedRecords());
+        assertTrue(stats.syncs() <= stats.appendedRecords());
+    }
+
+    private LogStructuredBookStore open(Path path) throws IOException {
+        LogStructuredBookStore store = new LogStructuredBookStore(properties(path));
+        opened.add(store);
+        return store;
+    }
+
+    private static LocalStoreProperties properties(Path path) {
+        return new LocalStoreProperties(path, true, Duration.ZERO, 100_000, 0.5, 0, Duration.ZERO);
+    }
+
+    private static Path crashCopy(Path source) throws IOException {
+        Path target = Files.createDirectories(source.resolve("crashed"));
+        for (String name : storeFiles(source)) {
+            Files.copy(source.resolve(name), target.resolve(name));
+        }
+        return target;
+    }
+
+    private static List<String> storeFiles(Path path) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(path, "books-*")) {
+            files.forEach(file -> names.add(file.getFileName().toString()));
+        }
+        names.sort(null);
+        return names;
+    }
+
+    private static Book book(int id) {
+        return new Book(id, "Title " + id, "Author " + id);
+    }
+
+    private static List<Integer> ids(List<Book> books) {
+        return books.stream().map(Book::getId).toList();
+    }
+}
@@ -0,0 +1,37 @@
+package com.nantan.app.memory;
+
+import com.nantan.app.Book;
+import com.nantan.app.BookQuery;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryBookRepositoryTest {
+
+    private final InMemoryBookRepository repository = new InMemoryBookRepository();
+
+    @Test
+    @DisplayName("books without a title sort first by title and never match a title prefix")
+    void findMatching_withNullTitle_shouldSortItFirst() {
+        repository.upsertAll(List.of(new Book(1, "Walden", "Thoreau"), new Book(2, null, "Anonymous"),
+                new Book(3, "Emma", "Austen")));
+
+        List<Book> ascending = repository.findMatching(
+                new BookQuery(null, null, null, null, BookQuery.Order.TITLE, null), 10);
+        List<Book> descending = repository.findMatching(
+                new BookQuery(null, null, null, null, BookQuery.Order.TITLE_DESC, null), 10);
+        List<Book> prefixed = repository.findMatching(
+                new BookQuery(null, "W", null, null, BookQuery.Order.TITLE, null), 10);
+
+        assertEquals(List.of(2, 3, 1), ids(ascending));
+        assertEquals(List.of(1, 3, 2), ids(descending));
+        assertEquals(List.of(1), ids(prefixed));
+    }
+
+    private static List<Integer> ids(List<Book> books) {
+        return books.stream().map(Book::getId).toList();
+    }
+}
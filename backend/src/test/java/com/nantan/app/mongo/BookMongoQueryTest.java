@@ -0,0 +1,73 @@
+package com.nantan.app.mongo;
+
+import com.nantan.app.Book;
+import com.nantan.app.BookQuery;
+import org.bson.Document;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * There is no MongoDB server in the test environment, so instead of reading {@code explain()} output this checks
+ * the property the planner needs to pick an index scan: the first key of one of the declared indexes
+ * (or of {@code _id}) is constrained by the filter.
+ */
+class BookMongoQueryTest {
+
+    private final List<List<String>> indexes = declaredIndexes();
+
+    @Test
+    @DisplayName("every filter leads with the first key of an index")
+    void toQuery_eachFilter_shouldBeAnsweredByAnIndex() {
+        assertLeadsWithIndex(query("Craig Walls", null, null, null), List.of("author", "_id"));
+        assertLeadsWithIndex(query(null, "Spring", null, null), List.of("title", "_id"));
+        assertLeadsWithIndex(query(null, null, 100, 200), List.of("_id"));
+    }
+
+    @Test
+    @DisplayName("the title prefix is an anchored regex with metacharacters escaped, and only selected fields are read")
+    void toQuery_titlePrefix_shouldBeLiteralPrefix() {
+        Query query = BookMongoRepositoryCustomImpl.toQuery(query(null, "C++ (2nd.", null, null), 10);
+
+        Pattern regex = (Pattern) query.getQueryObject().get("title");
+        assertEquals("^C\\+\\+ \\(2nd\\.", regex.pattern());
+        assertTrue(regex.matcher("C++ (2nd. ed)").find());
+        assertFalse(regex.matcher("CCC (2nd ed)").find());
+        assertEquals(new Document("id", 1).append("title", 1), query.getFieldsObject());
+        assertEquals(10, query.getLimit());
+    }
+
+    private void assertLeadsWithIndex(BookQuery bookQuery, List<String> expectedIndex) {
+        Query query = BookMongoRepositoryCustomImpl.toQuery(bookQuery, 10);
+        // 查询对象里用的是属性名, id 对应 _id
+        Set<String> filtered = query.getQueryObject().keySet();
+        List<List<String>> usable = indexes.stream()
+                .filter(keys -> filtered.contains(keys.get(0).equals("_id") ? "id" : keys.get(0)))
+                .toList();
+        assertTrue(usable.contains(expectedIndex), "no index leads with a filtered field of " + query.getQueryObject());
+    }
+
+    private static BookQuery query(String author, String titlePrefix, Integer minId, Integer maxId) {
+        return new BookQuery(author, titlePrefix, minId, maxId, BookQuery.Order.ID, Set.of(BookQuery.Field.TITLE));
+    }
+
+    private static List<List<String>> declaredIndexes() {
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        List<List<String>> indexes = new ArrayList<>();
+        indexes.add(List.of("_id"));
+        for (IndexDefinition index : new MongoPersistentEntityIndexResolver(mappingContext).resolveIndexFor(Book.class)) {
+            indexes.add(List.copyOf(index.getIndexKeys().keySet()));
+        }
+        return indexes;
+    }
+}
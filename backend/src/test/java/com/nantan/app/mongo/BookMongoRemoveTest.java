@@ -0,0 +1,45 @@
+package com.nantan.app.mongo;
+
+import com.mongodb.client.result.DeleteResult;
+import com.nantan.app.Book;
+import com.nantan.app.config.ExportProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.CollectionCallback;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class BookMongoRemoveTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final BookMongoRepositoryCustomImpl repository =
+            new BookMongoRepositoryCustomImpl(mongoTemplate, new ExportProperties(500));
+
+    @Test
+    @DisplayName("removeAllById reports the IDs it found and removes them with one delete")
+    void removeAllById_shouldReportFoundIds() {
+        when(mongoTemplate.find(any(Query.class), eq(Book.class)))
+                .thenReturn(List.of(new Book(1, null, null), new Book(3, null, null)));
+        when(mongoTemplate.remove(any(Query.class), eq(Book.class))).thenReturn(DeleteResult.acknowledged(2));
+
+        assertEquals(List.of(1, 3), repository.removeAllById(List.of(1, 2, 3)));
+        verify(mongoTemplate, times(1)).remove(any(Query.class), eq(Book.class));
+    }
+
+    @Test
+    @DisplayName("a single ID is removed with deleteOne, so a concurrently deleted book is not reported")
+    void removeAllById_singleId_shouldUseDeleteOne() {
+        when(mongoTemplate.execute(eq(Book.class), any(CollectionCallback.class)))
+                .thenReturn(DeleteResult.acknowledged(0));
+
+        assertEquals(List.of(), repository.removeAllById(List.of(7)));
+        verify(mongoTemplate, never()).find(any(Query.class), eq(Book.class));
+    }
+}
@@ -0,0 +1,49 @@
+package com.nantan.app.query;
+
+import com.nantan.app.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdbcBookIndexesTest {
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        // 每个测试一个独立的内存库; 建表时不带二级索引, 就像按 README 手动建的表
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE books (id INT PRIMARY KEY, title VARCHAR(255) NOT NULL, author VARCHAR(255))");
+    }
+
+    @Test
+    @DisplayName("missing indexes are created once, then found")
+    void ensure_whenMissing_shouldCreateThemOnce() {
+        JdbcBookIndexes indexes = new JdbcBookIndexes(dataSource);
+
+        assertEquals(List.of(Book.AUTHOR_INDEX, Book.TITLE_INDEX), indexes.ensure(true));
+        assertEquals(List.of(), indexes.ensure(false));
+    }
+
+    @Test
+    @DisplayName("a missing index fails when it may not be created, and so does one with other columns")
+    void ensure_whenMissingOrDifferent_shouldFail() {
+        JdbcBookIndexes indexes = new JdbcBookIndexes(dataSource);
+
+        IllegalStateException missing = assertThrows(IllegalStateException.class, () -> indexes.ensure(false));
+        assertTrue(missing.getMessage().contains("missing index " + Book.AUTHOR_INDEX));
+
+        jdbcTemplate.execute("CREATE INDEX " + Book.AUTHOR_INDEX + " ON books (author)");
+        IllegalStateException different = assertThrows(IllegalStateException.class, () -> indexes.ensure(true));
+        assertTrue(different.getMessage().contains("has columns [author], expected [author, id]"), different.getMessage());
+    }
+}
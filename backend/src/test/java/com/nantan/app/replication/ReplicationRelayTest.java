@@ -0,0 +1,92 @@
+package com.nantan.app.replication;
+
+import com.nantan.app.Book;
+import com.nantan.app.BookRepository;
+import com.nantan.app.config.ReplicationProperties;
+import com.nantan.app.event.BookChangedEvent;
+import com.nantan.app.jpa.BookOutboxEntry;
+import com.nantan.app.jpa.BookOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReplicationRelayTest {
+
+    @Mock
+    private BookOutboxRepository outbox;
+
+    @Mock
+    private BookRepository mongoRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private ReplicationRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        relay = new ReplicationRelay(outbox, mongoRepository,
+                new ReplicationProperties(true, 10, Duration.ofMillis(200), Duration.ofSeconds(1), Duration.ofMinutes(1)),
+                eventPublisher, new SimpleMeterRegistry());
+    }
+
+    @Test
+    @DisplayName("only each book's last change is applied, as one bulk upsert and one bulk delete")
+    void drainOnce_shouldCoalesceChangesPerBook() {
+        Book first = new Book(1, "Draft", "A");
+        Book revised = new Book(1, "Final", "A");
+        Book other = new Book(2, "Other", "B");
+        when(outbox.findAllByOrderByIdAsc(Limit.of(10))).thenReturn(List.of(
+                entry(10, BookChangedEvent.saved("mysql", first)),
+                entry(11, BookChangedEvent.saved("mysql", other)),
+                entry(12, BookChangedEvent.saved("mysql", revised)),
+                entry(13, BookChangedEvent.deleted("mysql", 2))));
+        when(mongoRepository.removeAllById(List.of(2))).thenReturn(List.of(2));
+
+        assertEquals(4, relay.drainOnce());
+
+        verify(mongoRepository).upsertAll(argThat(books -> books.size() == 1
+                && books.get(0).getId() == 1 && books.get(0).getTitle().equals("Final")));
+        verify(mongoRepository).removeAllById(List.of(2));
+        verify(outbox).deleteAllByIdIn(List.of(10L, 11L, 12L, 13L));
+        verify(eventPublisher).publishEvent(BookChangedEvent.deleted("mongo", 2));
+        assertEquals(4, relay.stats().applied());
+    }
+
+    @Test
+    @DisplayName("a failed bulk write keeps the entries in the outbox for the next attempt")
+    void drainOnce_whenTargetFails_shouldKeepEntries() {
+        when(outbox.findAllByOrderByIdAsc(Limit.of(10))).thenReturn(List.of(
+                entry(1, BookChangedEvent.saved("mysql", new Book(5, "T", "A")))));
+        when(mongoRepository.upsertAll(anyList())).thenThrow(new IllegalStateException("mongo down"));
+
+        assertThrows(IllegalStateException.class, () -> relay.drainOnce());
+
+        verify(outbox, never()).deleteAllByIdIn(any());
+        verify(eventPublisher, never()).publishEvent(any());
+        assertEquals(0, relay.stats().applied());
+    }
+
+    private static BookOutboxEntry entry(long id, BookChangedEvent event) {
+        BookOutboxEntry entry = new BookOutboxEntry(event, Instant.now());
+        ReflectionTestUtils.setField(entry, "id", id);
+        return entry;
+    }
+}
@@ -0,0 +1,88 @@
+package com.nantan.app.search;
+
+import com.nantan.app.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookSearchIndexTest {
+
+    private BookSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookSearchIndex(2);
+        index.append(new Book(3, "Java Concurrency in Practice", "Brian Goetz"));
+        index.append(new Book(1, "Effective Java", "Joshua Bloch"));
+        index.append(new Book(2, "Javanese Cooking", "Java Jones"));
+        index.append(new Book(4, "三体", "刘慈欣"));
+        index.seal();
+    }
+
+    @Test
+    @DisplayName("title matches rank above author matches, exact words above prefixes")
+    void search_shouldRankByFieldAndMatchKind() {
+        assertArrayEquals(new int[]{1, 3, 2}, index.search("java", 10));
+        assertArrayEquals(new int[]{1, 3}, index.search("java", 2));
+    }
+
+    @Test
+    @DisplayName("every query word must match, in any order")
+    void search_shouldIntersectQueryWords() {
+        assertArrayEquals(new int[]{3}, index.search("goetz JAVA", 10));
+        assertArrayEquals(new int[0], index.search("goetz bloch", 10));
+        assertArrayEquals(new int[]{4}, index.search("三", 10));
+    }
+
+    @Test
+    @DisplayName("a prefix expanding to many terms still finds and ranks all of their books")
+    void search_withShortPrefix_shouldMergeEveryExpandedTerm() {
+        BookSearchIndex wide = new BookSearchIndex(2);
+        // 第一本书的词在词典里排在最后
+        wide.append(new Book(1, "Termzz", "Someone"));
+        for (int id = 2; id <= 201; id++) {
+            wide.append(new Book(id, String.format("Term%03d", id), "Someone"));
+        }
+        wide.seal();
+
+        assertEquals(201, wide.search("term", 500).length);
+        assertArrayEquals(new int[]{1, 2}, wide.search("term", 2));
+        assertArrayEquals(new int[]{1}, wide.search("termz", 10));
+    }
+
+    @Test
+    @DisplayName("equal scores rank by ascending ID, negative IDs included")
+    void search_withNegativeIds_shouldBreakTiesByAscendingId() {
+        BookSearchIndex signed = new BookSearchIndex(2);
+        signed.append(new Book(7, "Dune", "Frank Herbert"));
+        signed.append(new Book(-3, "Dune", "Frank Herbert"));
+        signed.append(new Book(Integer.MIN_VALUE, "Dune", "Frank Herbert"));
+        signed.append(new Book(0, "Dune", "Frank Herbert"));
+        signed.append(new Book(Integer.MAX_VALUE, "Dune", "Frank Herbert"));
+        signed.seal();
+
+        assertArrayEquals(new int[]{Integer.MIN_VALUE, -3, 0, 7, Integer.MAX_VALUE}, signed.search("dune", 10));
+        assertArrayEquals(new int[]{Integer.MIN_VALUE, -3}, signed.search("dune", 2));
+    }
+
+    @Test
+    @DisplayName("removed books disappear immediately and stay gone after compaction")
+    void remove_shouldHideBooksBeforeAndAfterCompaction() {
+        index.remove(1);
+        assertArrayEquals(new int[]{3, 2}, index.search("java", 10));
+
+        index.remove(3);
+        index.add(new Book(5, "Java Puzzlers", "Joshua Bloch"));
+        assertArrayEquals(new int[]{5, 2}, index.search("java", 10));
+        assertEquals(0, index.stats("mysql", true).tombstones());
+    }
+
+    @Test
+    @DisplayName("matches re-checks a hit against the book's current words")
+    void matches_shouldRequireEveryWordAsPrefix() {
+        assertTrue(BookSearchIndex.matches(new Book(1, "Effective Java", "Joshua Bloch"), "eff blo"));
+        assertFalse(BookSearchIndex.matches(new Book(1, "Effective Java", "Joshua Bloch"), "eff goetz"));
+    }
+}
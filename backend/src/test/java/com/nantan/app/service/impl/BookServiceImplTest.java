@@ -1,14 +1,32 @@
 package com.nantan.app.service.impl;
 
 import com.nantan.app.Book;
+import com.nantan.app.BookQuery;
 import com.nantan.app.BookRepository;
+import com.nantan.app.cache.CollectionVersions;
+import com.nantan.app.config.ImportProperties;
+import com.nantan.app.config.PaginationProperties;
+import com.nantan.app.config.ReadCollapsingProperties;
+import com.nantan.app.config.SearchProperties;
+import com.nantan.app.dto.BookPage;
+import com.nantan.app.dto.DeleteReport;
+import com.nantan.app.dto.ImportReport;
+import com.nantan.app.event.BookChangedEvent;
+import com.nantan.app.exception.BulkInsertException;
+import com.nantan.app.id.IdAllocator;
+import com.nantan.app.search.BookSearchService;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.transaction.support.TransactionOperations;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
@@ -17,6 +35,7 @@ import java.util.concurrent.ExecutionException;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -28,6 +47,21 @@ class BookServiceImplTest {
     @Mock
     private BookRepository mongoRepository;
 
+    @Mock
+    private BookRepository localRepository;
+
+    @Mock
+    private BookSearchService searchService;
+
+    @Mock
+    private IdAllocator idAllocator;
+
+    @Mock
+    private IdAllocator localIdAllocator;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     // 移除 @InjectMocks
     private BookServiceImpl bookServiceImpl;
 
@@ -37,17 +71,25 @@ class BookServiceImplTest {
     @BeforeEach
     void setUp() {
         // 手动创建被测试类的实例，并传入 mock 对象
-        bookServiceImpl = new BookServiceImpl(jpaRepository, mongoRepository);
+        bookServiceImpl = new BookServiceImpl(jpaRepository, mongoRepository, localRepository, new PaginationProperties(2, 10, 100),
+                new ImportProperties(2, 10), new SearchProperties(true, 20, 100, 4096), searchService, new CollectionVersions(), idAllocator,
+                localIdAllocator, TransactionOperations.withoutTransaction(),
+                new ReadCollapsingProperties(true, Duration.ofMillis(2), 1000, 100), new TaskExecutorAdapter(Runnable::run), eventPublisher);
 
         book1 = new Book(1, "The Lord of the Rings", "J.R.R. Tolkien");
         book2 = new Book(2, "The Hobbit", "J.R.R. Tolkien");
     }
 
+    @AfterEach
+    void tearDown() {
+        bookServiceImpl.stop();
+    }
+
     @Test
     @DisplayName("getAllBooks should return list of books from MySQL")
     void getAllBooks_whenDataSourceIsMysql_shouldReturnBookList() throws ExecutionException, InterruptedException {
         // Given
-        when(jpaRepository.findAll()).thenReturn(List.of(book1, book2));
+        when(jpaRepository.findPage(BookServiceImpl.FIRST_PAGE_CURSOR, 101)).thenReturn(List.of(book1, book2));
         // **重要**: 确保 mongoRepository 在此测试中不被调用时返回空列表，避免交叉影响
         // when(mongoRepository.findAll()).thenReturn(Collections.emptyList());
 
@@ -60,15 +102,15 @@ class BookServiceImplTest {
         assertEquals(2, books.size()); // <-- 修复点：这个断言现在应该能通过
         assertEquals("The Lord of the Rings", books.get(0).getTitle());
 
-        verify(jpaRepository, times(1)).findAll();
-        verify(mongoRepository, never()).findAll();
+        verify(jpaRepository, times(1)).findPage(BookServiceImpl.FIRST_PAGE_CURSOR, 101);
+        verify(mongoRepository, never()).findPage(anyInt(), anyInt());
     }
 
     @Test
     @DisplayName("getAllBooks should return list of books from MongoDB")
     void getAllBooks_whenDataSourceIsMongo_shouldReturnBookList() throws ExecutionException, InterruptedException {
         // Given
-        when(mongoRepository.findAll()).thenReturn(List.of(book1));
+        when(mongoRepository.findPage(BookServiceImpl.FIRST_PAGE_CURSOR, 101)).thenReturn(List.of(book1));
 
         // When
         CompletableFuture<List<Book>> futureBooks = bookServiceImpl.getAllBooks("mongo");
@@ -79,8 +121,141 @@ class BookServiceImplTest {
         assertEquals(1, books.size());
         assertEquals(1, books.get(0).getId());
 
-        verify(mongoRepository, times(1)).findAll();
-        verify(jpaRepository, never()).findAll();
+        verify(mongoRepository, times(1)).findPage(BookServiceImpl.FIRST_PAGE_CURSOR, 101);
+        verify(jpaRepository, never()).findPage(anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("getAllBooks should read from the local store when dataSource is local")
+    void getAllBooks_whenDataSourceIsLocal_shouldUseLocalStore() throws ExecutionException, InterruptedException {
+        // Given
+        when(localRepository.findPage(BookServiceImpl.FIRST_PAGE_CURSOR, 101)).thenReturn(List.of(book2));
+
+        // When
+        List<Book> books = bookServiceImpl.getAllBooks("LOCAL").get();
+
+        // Then
+        assertEquals(List.of(book2), books);
+        verify(jpaRepository, never()).findPage(anyInt(), anyInt());
+        verify(mongoRepository, never()).findPage(anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("getBooksPage should return a next cursor when more books remain")
+    void getBooksPage_whenMoreBooksRemain_shouldReturnNextCursor() throws ExecutionException, InterruptedException {
+        // Given
+        Book book3 = new Book(3, "Silmarillion", "J.R.R. Tolkien");
+        when(jpaRepository.findPage(0, 3)).thenReturn(List.of(book1, book2, book3));
+
+        // When
+        BookPage page = bookServiceImpl.getBooksPage(0, 2, "mysql").get();
+
+        // Then
+        assertEquals(2, page.getItems().size());
+        assertEquals(2, page.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("getBooksPage should clamp the limit and end with a null cursor")
+    void getBooksPage_whenLastPage_shouldReturnNullCursor() throws ExecutionException, InterruptedException {
+        // Given
+        when(mongoRepository.findPage(2, 11)).thenReturn(Collections.emptyList());
+
+        // When
+        BookPage page = bookServiceImpl.getBooksPage(2, 500, "mongo").get();
+
+        // Then
+        assertTrue(page.getItems().isEmpty());
+        assertNull(page.getNextCursor());
+        verify(mongoRepository, times(1)).findPage(2, 11);
+    }
+
+    @Test
+    @DisplayName("findBooks should pass the query to the repository with the limit capped")
+    void findBooks_shouldCapLimit() throws ExecutionException, InterruptedException {
+        // Given
+        BookQuery query = new BookQuery("J.R.R. Tolkien", null, null, null, BookQuery.Order.TITLE, null);
+        when(mongoRepository.findMatching(query, 100)).thenReturn(List.of(book2, book1));
+
+        // When
+        List<Book> books = bookServiceImpl.findBooks(query, 5000, "mongo").get();
+
+        // Then
+        assertEquals(List.of(book2, book1), books);
+        verify(jpaRepository, never()).findMatching(any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("getBooksByIds should return the books found in the order requested")
+    void getBooksByIds_shouldKeepRequestOrderAndSkipMissing() throws ExecutionException, InterruptedException {
+        // Given
+        when(jpaRepository.findAllById(any())).thenReturn(List.of(book1, book2));
+
+        // When
+        List<Book> books = bookServiceImpl.getBooksByIds(List.of(2, 99, 1), "mysql").get();
+
+        // Then
+        assertEquals(List.of(2, 1), books.stream().map(Book::getId).toList());
+        verify(jpaRepository, times(1)).findAllById(any());
+        verify(mongoRepository, never()).findAllById(any());
+    }
+
+    @Test
+    @DisplayName("exportBooks should stream from the selected repository only")
+    void exportBooks_whenDataSourceIsMongo_shouldUseMongoCursor() {
+        // Given
+        when(mongoRepository.exportAll(any())).thenReturn(2L);
+
+        // When
+        long exported = bookServiceImpl.exportBooks("mongo", book -> { });
+
+        // Then
+        assertEquals(2L, exported);
+        verify(mongoRepository, times(1)).exportAll(any());
+        verify(jpaRepository, never()).exportAll(any());
+    }
+
+    @Test
+    @DisplayName("importBooks should write in chunks and report a failed chunk without stopping")
+    void importBooks_whenOneChunkFails_shouldReportItAndContinue() {
+        // Given
+        Book book3 = new Book(3, "Silmarillion", "J.R.R. Tolkien");
+        when(mongoRepository.insertAll(List.of(book1, book2)))
+                .thenThrow(new BulkInsertException(1, List.of(0), "1 of 2 documents rejected", null));
+        when(mongoRepository.insertAll(List.of(book3))).thenReturn(1);
+
+        // When
+        ImportReport report = bookServiceImpl.importBooks(List.of(book1, book2, book3).iterator(), "mongo");
+
+        // Then
+        assertEquals(3, report.getReceived());
+        assertEquals(2, report.getInserted());
+        assertEquals(2, report.getChunks());
+        assertEquals(1, report.getFailures().size());
+        assertEquals(1, report.getFailures().get(0).getFirstRecord());
+        assertNull(report.getError());
+        verify(jpaRepository, never()).insertAll(any());
+        verify(eventPublisher, never()).publishEvent(BookChangedEvent.saved("mongo", book1));
+        verify(eventPublisher).publishEvent(BookChangedEvent.saved("mongo", book2));
+        verify(eventPublisher).publishEvent(BookChangedEvent.saved("mongo", book3));
+    }
+
+    @Test
+    @DisplayName("searchBooks should return books in index rank order and drop stale hits")
+    void searchBooks_shouldKeepRankOrderAndDropStaleHits() throws ExecutionException, InterruptedException {
+        // Given
+        Book renamed = new Book(3, "Unrelated Title", "Someone Else");
+        when(searchService.search("mysql", "hobbit", 20)).thenReturn(new int[]{2, 3, 1});
+        when(jpaRepository.findAllById(List.of(2, 3, 1))).thenReturn(List.of(book1, renamed, book2));
+        when(searchService.matches(any(Book.class), eq("hobbit")))
+                .thenAnswer(invocation -> invocation.<Book>getArgument(0) != renamed);
+
+        // When
+        List<Book> books = bookServiceImpl.searchBooks("hobbit", 10, "mysql").get();
+
+        // Then
+        assertEquals(List.of(book2, book1), books);
+        verify(mongoRepository, never()).findAllById(any());
     }
 
     @Test
@@ -102,6 +277,24 @@ class BookServiceImplTest {
 
         verify(jpaRepository, times(1)).save(newBook);
         verify(mongoRepository, never()).save(any(Book.class));
+        verify(idAllocator, never()).next();
+    }
+
+    @Test
+    @DisplayName("addBook without an ID should insert the book under an allocated ID instead of saving it")
+    void addBook_whenIdIsMissing_shouldInsertWithAllocatedId() throws ExecutionException, InterruptedException {
+        // Given
+        Book newBook = new Book(null, "New Book", "New Author");
+        when(idAllocator.next()).thenReturn(1001);
+
+        // When
+        Book savedBook = bookServiceImpl.addBook(newBook, "mongo").get();
+
+        // Then: 新分配的 ID 一定不存在，直接插入，不走 save 的先查后写
+        assertEquals(1001, savedBook.getId());
+        verify(mongoRepository).insertAll(List.of(newBook));
+        verify(mongoRepository, never()).save(any(Book.class));
+        verify(eventPublisher).publishEvent(BookChangedEvent.saved("mongo", newBook));
     }
 
     @Test
@@ -136,4 +329,21 @@ class BookServiceImplTest {
         assertFalse(result);
         verify(jpaRepository, times(1)).deleteById(bookIdToDelete);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("deleteBooksByIds should delete distinct ids in one call and report the missing ones")
+    void deleteBooksByIds_shouldReportRemovedAndMissing() throws ExecutionException, InterruptedException {
+        // Given
+        when(mongoRepository.removeAllById(List.of(1, 2, 99))).thenReturn(List.of(1, 2));
+
+        // When
+        DeleteReport report = bookServiceImpl.deleteBooksByIds(List.of(2, 99, 1, 2), "mongo").get();
+
+        // Then
+        assertEquals(List.of(1, 2), report.getRemoved());
+        assertEquals(List.of(99), report.getNotFound());
+        verify(eventPublisher).publishEvent(BookChangedEvent.deleted("mongo", 1));
+        verify(eventPublisher).publishEvent(BookChangedEvent.deleted("mongo", 2));
+        verify(jpaRepository, never()).removeAllById(any());
+    }
+}
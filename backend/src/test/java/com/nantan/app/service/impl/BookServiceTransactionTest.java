@@ -0,0 +1,171 @@
+package com.nantan.app.service.impl;
+
+import com.nantan.app.Book;
+import com.nantan.app.BookRepository;
+import com.nantan.app.DataSources;
+import com.nantan.app.cache.CollectionVersions;
+import com.nantan.app.config.AsyncConfig;
+import com.nantan.app.config.ExportProperties;
+import com.nantan.app.config.ImportProperties;
+import com.nantan.app.config.JpaConfig;
+import com.nantan.app.config.PaginationProperties;
+import com.nantan.app.config.ReadCollapsingProperties;
+import com.nantan.app.config.ReplicationProperties;
+import com.nantan.app.config.SearchProperties;
+import com.nantan.app.dto.ImportReport;
+import com.nantan.app.event.BookChangedEvent;
+import com.nantan.app.id.IdAllocator;
+import com.nantan.app.jpa.BookJpaRepository;
+import com.nantan.app.jpa.BookOutboxRepository;
+import com.nantan.app.jpa.SequenceTableIdBlockSource;
+import com.nantan.app.memory.InMemoryBookRepository;
+import com.nantan.app.replication.OutboxWriter;
+import com.nantan.app.search.BookSearchService;
+import com.nantan.app.service.BookService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Runs the write paths of {@link BookServiceImpl} against H2 behind a real Hikari pool, the real ID sequence
+ * and the outbox writer, to check how they use connections and transactions.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:book-service-tx;DB_CLOSE_DELAY=-1",
+        "spring.datasource.hikari.maximum-pool-size=1",
+        "spring.datasource.hikari.connection-timeout=1000"})
+class BookServiceTransactionTest {
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookJpaRepository books;
+
+    @Autowired
+    private BookOutboxRepository outbox;
+
+    @BeforeEach
+    void setUp() {
+        books.deleteAllInBatch();
+        outbox.deleteAllInBatch();
+    }
+
+    @Test
+    @DisplayName("adds without an ID never wait for an ID block while holding the only pooled connection")
+    void addBook_withSingleConnectionPool_shouldReserveBlocksOutsideTheTransaction() throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        // 号段大小为 2: 第一次调用和之后每隔一次调用都要等待预留
+        for (int i = 0; i < 5; i++) {
+            ids.add(bookService.addBook(new Book(null, "Single " + i, "Pool"), DataSources.MYSQL).get().getId());
+        }
+        List<Book> batch = List.of(new Book(null, "Batch 1", "Pool"), new Book(null, "Batch 2", "Pool"),
+                new Book(null, "Batch 3", "Pool"));
+        bookService.addBooks(batch, DataSources.MYSQL).forEach(book -> ids.add(book.getId()));
+
+        assertEquals(8, ids.stream().distinct().count());
+        assertEquals(8, books.count());
+    }
+
+    @Test
+    @DisplayName("an import chunk whose outbox write fails is rolled back with it")
+    void importBooks_whenOutboxWriteFails_shouldRollBackTheChunk() {
+        List<Book> records = List.of(new Book(1, "First", "A"), new Book(2, "Second", "A"),
+                new Book(3, FailingOutbox.TITLE, "B"), new Book(4, "Fourth", "B"));
+
+        ImportReport report = bookService.importBooks(records.iterator(), DataSources.MYSQL);
+
+        assertEquals(2, report.getInserted());
+        assertEquals(1, report.getFailures().size());
+        assertEquals(List.of(1, 2), books.findAll().stream().map(Book::getId).sorted().toList());
+        // 第二块的发件箱记录和图书一起回滚, 没有留下孤立的记录
+        assertEquals(2, outbox.count());
+    }
+
+    /**
+     * Fails the outbox write of one book, after {@link OutboxWriter} has written the rows before it.
+     */
+    static class FailingOutbox {
+
+        static final String TITLE = "Outbox fails";
+
+        @EventListener
+        public void onBookChanged(BookChangedEvent event) {
+            if (event.book() != null && TITLE.equals(event.book().getTitle())) {
+                throw new IllegalStateException("outbox unavailable");
+            }
+        }
+    }
+
+    @TestConfiguration
+    @EnableConfigurationProperties(ExportProperties.class)
+    @Import(JpaConfig.class)
+    static class Config {
+
+        @Bean
+        SequenceTableIdBlockSource bookIdBlockSource(BookJpaRepository books) {
+            return new SequenceTableIdBlockSource("books", books::findMaxId);
+        }
+
+        @Bean
+        IdAllocator bookIdAllocator(SequenceTableIdBlockSource bookIdBlockSource) {
+            return new IdAllocator("books", bookIdBlockSource, 2);
+        }
+
+        @Bean
+        OutboxWriter outboxWriter(BookOutboxRepository outbox) {
+            return new OutboxWriter(outbox, new ReplicationProperties(true, 500, Duration.ofMillis(200),
+                    Duration.ofSeconds(1), Duration.ofMinutes(1)));
+        }
+
+        @Bean
+        FailingOutbox failingOutbox() {
+            return new FailingOutbox();
+        }
+
+        // 同步执行 @Async 方法, 测试线程就是调用者
+        @Bean(AsyncConfig.TASK_EXECUTOR_NAME)
+        AsyncTaskExecutor taskExecutor() {
+            return new TaskExecutorAdapter(Runnable::run);
+        }
+
+        @Bean
+        BookService bookService(BookJpaRepository books, IdAllocator bookIdAllocator,
+                                TransactionOperations transactions, AsyncTaskExecutor taskExecutor,
+                                ApplicationEventPublisher eventPublisher) {
+            BookRepository mongoBooks = new InMemoryBookRepository();
+            BookRepository localBooks = new InMemoryBookRepository();
+            return new BookServiceImpl(books, mongoBooks, localBooks, new PaginationProperties(50, 1000, 1000),
+                    new ImportProperties(2, 10), new SearchProperties(false, 20, 100, 4096),
+                    mock(BookSearchService.class), new CollectionVersions(), bookIdAllocator, mock(IdAllocator.class),
+                    transactions,
+                    new ReadCollapsingProperties(false, Duration.ofMillis(2), 1000, 100),
+                    taskExecutor, eventPublisher);
+        }
+    }
+}
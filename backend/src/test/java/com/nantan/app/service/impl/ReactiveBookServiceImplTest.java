@@ -0,0 +1,98 @@
+package com.nantan.app.service.impl;
+
+import com.nantan.app.Book;
+import com.nantan.app.config.ImportProperties;
+import com.nantan.app.config.PaginationProperties;
+import com.nantan.app.dto.BookPage;
+import com.nantan.app.dto.ImportReport;
+import com.nantan.app.event.BookChangedEvent;
+import com.nantan.app.exception.BulkInsertException;
+import com.nantan.app.reactive.ReactiveBookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveBookServiceImplTest {
+
+    @Mock
+    private ReactiveBookRepository mysqlRepository;
+
+    @Mock
+    private ReactiveBookRepository mongoRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private ReactiveBookServiceImpl service;
+
+    private final Book dune = new Book(1, "Dune", "Frank Herbert");
+    private final Book emma = new Book(2, "Emma", "Jane Austen");
+    private final Book walden = new Book(3, "Walden", "Henry David Thoreau");
+
+    @BeforeEach
+    void setUp() {
+        service = new ReactiveBookServiceImpl(mysqlRepository, mongoRepository, new PaginationProperties(2, 10, 100),
+                new ImportProperties(2, 10), eventPublisher);
+    }
+
+    @Test
+    @DisplayName("getBooksPage fetches one extra book to tell whether another page follows")
+    void getBooksPage_whenMoreBooksExist_shouldReturnNextCursor() {
+        when(mongoRepository.findPage(BookServiceImpl.FIRST_PAGE_CURSOR, 3)).thenReturn(Flux.just(dune, emma, walden));
+
+        BookPage page = service.getBooksPage(null, null, "mongo").block();
+
+        assertNotNull(page);
+        assertEquals(List.of(dune, emma), page.getItems());
+        assertEquals(2, page.getNextCursor());
+        verifyNoInteractions(mysqlRepository);
+    }
+
+    @Test
+    @DisplayName("importBooks reports a failed chunk and still writes the chunks after it")
+    void importBooks_whenOneChunkFails_shouldContinueWithTheNextChunk() {
+        Book hamlet = new Book(4, "Hamlet", "William Shakespeare");
+        when(mysqlRepository.insertAll(List.of(dune, emma)))
+                .thenReturn(Mono.error(new BulkInsertException(1, List.of(0), "1 of 2 books rejected as duplicates", null)));
+        when(mysqlRepository.insertAll(List.of(walden, hamlet))).thenReturn(Mono.just(2));
+
+        ImportReport report = service.importBooks(Flux.just(dune, emma, walden, hamlet), "mysql").block();
+
+        assertNotNull(report);
+        assertEquals(4, report.getReceived());
+        assertEquals(3, report.getInserted());
+        assertEquals(2, report.getChunks());
+        assertEquals(1, report.getFailures().size());
+        assertNull(report.getError());
+        // 第一块只有被拒绝位置之外的那本书会发布事件
+        verify(eventPublisher).publishEvent(BookChangedEvent.saved("mysql", emma));
+        verify(eventPublisher, never()).publishEvent(BookChangedEvent.saved("mysql", dune));
+        verify(eventPublisher).publishEvent(BookChangedEvent.saved("mysql", walden));
+        verify(eventPublisher).publishEvent(BookChangedEvent.saved("mysql", hamlet));
+    }
+
+    @Test
+    @DisplayName("deleteBookById publishes a change event only when a book was removed")
+    void deleteBookById_whenBookIsMissing_shouldNotPublish() {
+        when(mysqlRepository.deleteById(1)).thenReturn(Mono.just(true));
+        when(mysqlRepository.deleteById(9)).thenReturn(Mono.just(false));
+
+        assertEquals(Boolean.TRUE, service.deleteBookById(1, "mysql").block());
+        assertEquals(Boolean.FALSE, service.deleteBookById(9, "mysql").block());
+
+        verify(eventPublisher).publishEvent(BookChangedEvent.deleted("mysql", 1));
+        verifyNoMoreInteractions(eventPublisher);
+    }
+}
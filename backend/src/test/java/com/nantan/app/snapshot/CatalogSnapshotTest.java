@@ -0,0 +1,71 @@
+package com.nantan.app.snapshot;
+
+import com.nantan.app.Book;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogSnapshotTest {
+
+    @Test
+    @DisplayName("pages merge the base segment with pending writes, before and after the delta is merged")
+    void page_shouldReflectWritesAcrossMerges() {
+        CatalogSnapshot snapshot = new CatalogSnapshot(5);
+        // 乱序追加且 ID 3 出现两次: seal() 排序，后追加的记录生效
+        snapshot.append(new Book(3, "Old Title", "Nobody"));
+        snapshot.append(new Book(1, "The Hobbit", "J.R.R. Tolkien"));
+        snapshot.append(new Book(3, "The Silmarillion", "J.R.R. Tolkien"));
+        snapshot.append(new Book(5, "Emma", "Jane Austen"));
+        snapshot.seal();
+
+        snapshot.put(new Book(2, "Dune", "Frank Herbert"));
+        snapshot.put(new Book(5, "Persuasion", "Jane Austen"));
+        snapshot.remove(1);
+
+        assertEquals(List.of("2 Dune", "3 The Silmarillion", "5 Persuasion"), rows(snapshot, Integer.MIN_VALUE, 10));
+        assertEquals(List.of("3 The Silmarillion"), rows(snapshot, 2, 1));
+        assertNull(snapshot.find(1));
+        assertEquals("Persuasion", snapshot.find(5).getTitle());
+        assertEquals(0, snapshot.stats("mysql", true).merges());
+
+        // 待合并的变更 = delta 中的 3 行 + 被遮蔽的 2 行基础行，达到阈值触发合并
+        snapshot.put(new Book(4, "Walden", null));
+        SnapshotStats stats = snapshot.stats("mysql", true);
+        assertEquals(1, stats.merges());
+        assertEquals(0, stats.pendingChanges());
+        assertEquals(4, stats.books());
+        // "Nobody" 不再被引用，合并时从字典中移除
+        assertEquals(3, stats.authors());
+        assertEquals(List.of("2 Dune", "3 The Silmarillion", "4 Walden", "5 Persuasion"), rows(snapshot, Integer.MIN_VALUE, 10));
+        assertNull(snapshot.find(4).getAuthor());
+    }
+
+    @Test
+    @DisplayName("repeated authors are stored once, so the snapshot is smaller than the equivalent List<Book>")
+    void stats_shouldReportSmallerFootprintThanList() {
+        CatalogSnapshot snapshot = new CatalogSnapshot(4096);
+        for (int id = 1; id <= 10_000; id++) {
+            snapshot.append(new Book(id, "Title number " + id, "Author " + (id % 50)));
+        }
+        snapshot.seal();
+
+        SnapshotStats stats = snapshot.stats("mongo", true);
+
+        assertEquals(10_000, stats.books());
+        assertEquals(50, stats.authors());
+        assertTrue(stats.footprintBytes() * 3 < stats.listEquivalentBytes(),
+                stats.footprintBytes() + " vs " + stats.listEquivalentBytes());
+    }
+
+    private static List<String> rows(CatalogSnapshot snapshot, int afterId, int limit) {
+        List<String> rows = new ArrayList<>();
+        snapshot.page(afterId, limit, (id, title, offset, length, author) ->
+                rows.add(id + " " + new String(title, offset, length, StandardCharsets.UTF_8)));
+        return rows;
+    }
+}
@@ -0,0 +1,87 @@
+package com.nantan.app.stats;
+
+import com.nantan.app.Book;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthorAggregatesTest {
+
+    @Test
+    @DisplayName("updates move a book to its new author and the ranking follows the counts")
+    void save_whenAuthorChanges_shouldMoveTheBook() {
+        AuthorAggregates aggregates = new AuthorAggregates();
+        aggregates.save(new Book(1, "The Hobbit", "J.R.R. Tolkien"));
+        aggregates.save(new Book(2, "Emma", "Jane Austen"));
+        aggregates.save(new Book(3, "Persuasion", "Jane Austen"));
+        aggregates.save(new Book(4, "Anonymous", null));
+
+        assertEquals(List.of(new AuthorCount("Jane Austen", 2), new AuthorCount("J.R.R. Tolkien", 1)), aggregates.top(10));
+
+        // 作者改变: 从 Austen 移到 Tolkien, 并列时按名字排序
+        aggregates.save(new Book(3, "The Silmarillion", "J.R.R. Tolkien"));
+        aggregates.save(new Book(3, "The Silmarillion", "J.R.R. Tolkien"));
+        aggregates.remove(2);
+        aggregates.remove(2);
+
+        assertEquals(List.of(new AuthorCount("J.R.R. Tolkien", 2)), aggregates.top(10));
+        assertEquals(0, aggregates.count("Jane Austen"));
+        assertEquals(3, aggregates.books());
+        assertEquals(1, aggregates.authors());
+        assertEquals(1, aggregates.booksWithoutAuthor());
+    }
+
+    @Test
+    @DisplayName("after random writes the counts equal a recount of the final books")
+    void randomWrites_shouldMatchARecount() {
+        Random random = new Random(42);
+        AuthorAggregates aggregates = new AuthorAggregates(16);
+        Map<Integer, String> books = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            // 负数和 0 也作为 ID, 覆盖主键表里的特殊槽位
+            int id = random.nextInt(2_000) - 100;
+            if (random.nextInt(4) == 0) {
+                aggregates.remove(id);
+                books.remove(id);
+            } else {
+                String author = random.nextInt(10) == 0 ? null : "Author " + random.nextInt(50);
+                aggregates.save(new Book(id, "Title " + id, author));
+                books.put(id, author);
+            }
+        }
+
+        Map<String, Integer> recount = new HashMap<>();
+        books.values().forEach(author -> recount.merge(String.valueOf(author), 1, Integer::sum));
+        assertEquals(books.size(), aggregates.books());
+        assertEquals(recount.getOrDefault("null", 0), aggregates.booksWithoutAuthor());
+        for (AuthorCount count : aggregates.top(100)) {
+            assertEquals(recount.get(count.author()), count.books(), count.author());
+        }
+        assertEquals(recount.size() - (recount.containsKey("null") ? 1 : 0), aggregates.authors());
+    }
+
+    @Test
+    @DisplayName("driftFrom sums how many books each author is miscounted by")
+    void driftFrom_shouldCountMiscountedBooks() {
+        AuthorAggregates live = new AuthorAggregates();
+        AuthorAggregates scanned = new AuthorAggregates();
+        for (AuthorAggregates aggregates : List.of(live, scanned)) {
+            aggregates.save(new Book(1, "Emma", "Jane Austen"));
+            aggregates.save(new Book(2, "Walden", "Henry David Thoreau"));
+        }
+        assertEquals(0, live.driftFrom(scanned));
+
+        // 绕过事件直接改库: 扫描结果里 2 号书换了作者, 另有一本新书
+        scanned.save(new Book(2, "Walden", "Jane Austen"));
+        scanned.save(new Book(3, "Untitled", null));
+
+        assertEquals(3, live.driftFrom(scanned));
+        assertEquals(3, scanned.driftFrom(live));
+    }
+}
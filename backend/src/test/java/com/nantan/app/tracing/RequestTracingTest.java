@@ -0,0 +1,115 @@
+package com.nantan.app.tracing;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.otel.bridge.OtelCurrentTraceContext;
+import io.micrometer.tracing.otel.bridge.OtelTracer;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestTracingTest {
+
+    private final List<SpanData> finished = new CopyOnWriteArrayList<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private SdkTracerProvider provider;
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        provider.close();
+    }
+
+    @Test
+    @DisplayName("a task submitted in a sampled request runs in its trace, with queue wait, execution and data source call as spans")
+    void decorate_inSampledTrace_shouldRecordSpansOnExecutorThread() throws Exception {
+        Tracer tracer = tracer(Sampler.alwaysOn());
+        RequestTracing tracing = new RequestTracing(tracer);
+
+        Span request = tracer.nextSpan().name("http get /api/books").start();
+        AtomicReference<String> traceIdOnExecutor = new AtomicReference<>();
+        try (Tracer.SpanInScope ignored = tracer.withSpan(request)) {
+            Runnable task = tracing.decorate(() -> tracing.dataSourceCall("repository findAll", "mysql", () -> {
+                traceIdOnExecutor.set(tracer.currentSpan().context().traceId());
+                return List.of();
+            }));
+            executor.submit(task).get(5, TimeUnit.SECONDS);
+        }
+        request.end();
+
+        assertEquals(request.context().traceId(), traceIdOnExecutor.get());
+        Map<String, SpanData> spans = finished.stream().collect(Collectors.toMap(SpanData::getName, Function.identity()));
+        assertEquals(request.context().spanId(), spans.get(RequestTracing.QUEUE_SPAN).getParentSpanId());
+        assertEquals(request.context().spanId(), spans.get(RequestTracing.EXECUTE_SPAN).getParentSpanId());
+        SpanData repository = spans.get("repository findAll");
+        assertEquals(spans.get(RequestTracing.EXECUTE_SPAN).getSpanId(), repository.getParentSpanId());
+        assertEquals("mysql", repository.getAttributes().asMap().entrySet().stream()
+                .filter(e -> e.getKey().getKey().equals("dataSource")).findFirst().orElseThrow().getValue());
+    }
+
+    @Test
+    @DisplayName("an unsampled request still carries its trace ID across the hop but records no spans")
+    void decorate_inUnsampledTrace_shouldOnlyPropagateContext() throws Exception {
+        Tracer tracer = tracer(Sampler.alwaysOff());
+        RequestTracing tracing = new RequestTracing(tracer);
+
+        Span request = tracer.nextSpan().start();
+        AtomicReference<String> traceIdOnExecutor = new AtomicReference<>();
+        Function<String, String> stage = String::trim;
+        try (Tracer.SpanInScope ignored = tracer.withSpan(request)) {
+            assertSame(stage, tracing.continuation("getAllBooks response", stage));
+            executor.submit(tracing.decorate(() -> traceIdOnExecutor.set(tracer.currentSpan().context().traceId())))
+                    .get(5, TimeUnit.SECONDS);
+        }
+        request.end();
+
+        assertEquals(request.context().traceId(), traceIdOnExecutor.get());
+        assertTrue(finished.isEmpty());
+    }
+
+    private Tracer tracer(Sampler sampler) {
+        provider = SdkTracerProvider.builder()
+                .setSampler(sampler)
+                .addSpanProcessor(SimpleSpanProcessor.create(new CollectingExporter()))
+                .build();
+        return new OtelTracer(provider.get("test"), new OtelCurrentTraceContext(), event -> {
+        });
+    }
+
+    private final class CollectingExporter implements SpanExporter {
+        @Override
+        public CompletableResultCode export(Collection<SpanData> spans) {
+            finished.addAll(spans);
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode flush() {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode shutdown() {
+            return CompletableResultCode.ofSuccess();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.nantan.benchmarks;
+
+import com.nantan.app.BookRepository;
+import com.nantan.app.DataSources;
+import com.nantan.app.cache.CollectionVersions;
+import com.nantan.app.config.AsyncConfig;
+import com.nantan.app.config.AsyncProperties;
+import com.nantan.app.config.ImportProperties;
+import com.nantan.app.config.PaginationProperties;
+import com.nantan.app.config.ReadCollapsingProperties;
+import com.nantan.app.config.SearchProperties;
+import com.nantan.app.config.StartupProperties;
+import com.nantan.app.dto.BookPage;
+import com.nantan.app.id.IdAllocator;
+import com.nantan.app.memory.InMemoryBookRepository;
+import com.nantan.app.metrics.ServiceMetricsAspect;
+import com.nantan.app.search.BookSearchService;
+import com.nantan.app.service.BookService;
+import com.nantan.app.service.impl.BookServiceImpl;
+import com.nantan.app.tracing.RequestTracing;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What a controller pays to call the book service: the call through the metrics proxy and the hop onto
+ * the executor and back, against calling the same bean directly. Reads dispatch themselves so that identical
+ * concurrent ones can be collapsed, so the direct call still pays for the hop; the difference is the proxy.
+ * The repositories are in memory so the numbers are dominated by dispatch rather than I/O.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AsyncDispatchBenchmark {
+
+    private static final int BOOKS = 10_000;
+    private static final int PAGE_SIZE = 50;
+
+    private AnnotationConfigApplicationContext context;
+    private BookService proxied;
+    private BookService direct;
+
+    @Setup
+    public void setUp() throws Exception {
+        context = new AnnotationConfigApplicationContext(ServiceContext.class);
+        proxied = context.getBean(BookService.class);
+        direct = AopUtils.isAopProxy(proxied) ? (BookService) ((Advised) proxied).getTargetSource().getTarget() : proxied;
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public BookPage viaAsyncProxy() {
+        return proxied.getBooksPage(null, PAGE_SIZE, DataSources.MYSQL).join();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public BookPage viaAsyncProxyContended() {
+        return proxied.getBooksPage(null, PAGE_SIZE, DataSources.MYSQL).join();
+    }
+
+    @Benchmark
+    public BookPage directCall() {
+        return direct.getBooksPage(null, PAGE_SIZE, DataSources.MYSQL).join();
+    }
+
+    /**
+     * Just the beans on the service call path, wired as the application wires them.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @EnableAsync
+    @EnableAspectJAutoProxy
+    @Import({AsyncConfig.class, ServiceMetricsAspect.class, RequestTracing.class})
+    static class ServiceContext {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        AsyncProperties asyncProperties() {
+            return new AsyncProperties(AsyncProperties.Mode.PLATFORM, 4, 10, 25, 0, Duration.ofSeconds(2), Duration.ofSeconds(1));
+        }
+
+        @Bean
+        SearchProperties searchProperties() {
+            return new SearchProperties(false, 20, 100, 4096);
+        }
+
+        @Bean
+        InMemoryBookRepository mysqlBooks() {
+            InMemoryBookRepository books = new InMemoryBookRepository();
+            books.insertAll(SampleBooks.books(1, BOOKS));
+            return books;
+        }
+
+        @Bean
+        InMemoryBookRepository mongoBooks() {
+            return new InMemoryBookRepository();
+        }
+
+        @Bean
+        InMemoryBookRepository localBooks() {
+            return new InMemoryBookRepository();
+        }
+
+        @Bean
+        BookSearchService bookSearchService(@Qualifier("mysqlBooks") BookRepository mysqlBooks,
+                                            @Qualifier("mongoBooks") BookRepository mongoBooks,
+                                            @Qualifier("localBooks") BookRepository localBooks,
+                                            SearchProperties searchProperties) {
+            return new BookSearchService(mysqlBooks, mongoBooks, localBooks, searchProperties,
+                    new StartupProperties(true, true, false, false));
+        }
+
+        @Bean
+        IdAllocator bookIdAllocator() {
+            AtomicLong sequence = new AtomicLong(BOOKS + 1);
+            return new IdAllocator("books", sequence::getAndAdd, 100);
+        }
+
+        @Bean
+        BookService bookService(@Qualifier("mysqlBooks") BookRepository mysqlBooks,
+                                @Qualifier("mongoBooks") BookRepository mongoBooks,
+                                @Qualifier("localBooks") BookRepository localBooks,
+                                SearchProperties searchProperties,
+                                BookSearchService searchService,
+                                IdAllocator idAllocator,
+                                @Qualifier(AsyncConfig.TASK_EXECUTOR_NAME) AsyncTaskExecutor taskExecutor,
+                                ApplicationEventPublisher eventPublisher) {
+            return new BookServiceImpl(mysqlBooks, mongoBooks, localBooks, new PaginationProperties(50, 1000, 1000),
+                    new ImportProperties(500, 100), searchProperties, searchService, new CollectionVersions(),
+                    idAllocator, idAllocator, TransactionOperations.withoutTransaction(), new ReadCollapsingProperties(true, Duration.ofMillis(2), 1000, 100), taskExecutor,
+                    eventPublisher);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.nantan.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+
+/**
+ * Entry point for the benchmark suite.
+ * The first argument is the result file; everything after it is passed to JMH unchanged
+ * (benchmark name filters, {@code -wi}, {@code -i}, {@code -f}, {@code -p size=100}, ...).
+ * Results are always written as JSON so that two runs can be diffed with {@link CompareResults}.
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: BenchmarkMain <result.json> [JMH options]");
+            System.exit(2);
+        }
+        String resultFile = args[0];
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(Arrays.copyOfRange(args, 1, args.length)))
+                .result(resultFile)
+                .resultFormat(ResultFormatType.JSON)
+                .build();
+        new Runner(options).run();
+        System.out.println("Benchmark results written to " + resultFile);
+    }
+}
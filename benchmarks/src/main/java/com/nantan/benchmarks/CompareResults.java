@@ -0,0 +1,78 @@
+package com.nantan.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares two JMH JSON result files, e.g. one from the last release and one from the current build.
+ * Every benchmark present in both files is printed with its relative change; the process exits with
+ * status 1 if any of them got worse by more than the threshold (10% unless a third argument is given).
+ * Throughput benchmarks regress when the score drops, time-based ones when it rises.
+ */
+public final class CompareResults {
+
+    private static final double DEFAULT_THRESHOLD_PERCENT = 10.0;
+
+    private CompareResults() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: CompareResults <baseline.json> <candidate.json> [threshold-percent]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD_PERCENT;
+        Map<String, Score> baseline = read(new File(args[0]));
+        Map<String, Score> candidate = read(new File(args[1]));
+
+        int regressions = 0;
+        System.out.printf("%-80s %14s %14s %9s%n", "Benchmark", "Baseline", "Candidate", "Change");
+        for (Map.Entry<String, Score> entry : candidate.entrySet()) {
+            Score before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-80s %14s %14.3f %9s%n", entry.getKey(), "-", entry.getValue().value(), "new");
+                continue;
+            }
+            Score after = entry.getValue();
+            double change = (after.value() - before.value()) / before.value() * 100.0;
+            // For throughput a higher score is better; for average/sample/single-shot time a lower one is
+            double worse = "thrpt".equals(after.mode()) ? -change : change;
+            boolean regressed = worse > threshold;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-80s %14.3f %14.3f %+8.1f%% %s %s%n", entry.getKey(), before.value(), after.value(),
+                    change, after.unit(), regressed ? "REGRESSION" : "");
+        }
+        if (regressions > 0) {
+            System.out.printf("%d benchmark(s) regressed by more than %.1f%%%n", regressions, threshold);
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, Score> read(File file) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(run.path("benchmark").asText());
+            Iterator<Map.Entry<String, JsonNode>> params = run.path("params").fields();
+            while (params.hasNext()) {
+                Map.Entry<String, JsonNode> param = params.next();
+                key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+            }
+            key.append(" [").append(run.path("threads").asInt()).append("t]");
+            JsonNode metric = run.path("primaryMetric");
+            scores.put(key.toString(), new Score(run.path("mode").asText(),
+                    metric.path("score").asDouble(), metric.path("scoreUnit").asText()));
+        }
+        return scores;
+    }
+
+    private record Score(String mode, double value, String unit) {
+    }
+}
@@ -0,0 +1,103 @@
+package com.nantan.benchmarks;
+
+import com.nantan.app.Book;
+import com.nantan.app.config.LocalStoreProperties;
+import com.nantan.app.local.LogStructuredBookStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes and point reads against the embedded local store holding a million books. Writes overwrite existing
+ * books, so the log accumulates garbage and the background checkpoints and compactions run as they would in
+ * production. With fsync on, the contended variant shows how far group commit spreads one fsync over many writers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocalStoreBenchmark {
+
+    static final int SEED_CHUNK = 10_000;
+
+    private static final int BOOKS = 1_000_000;
+    private static final int BATCH = 50;
+
+    @Param({"true", "false"})
+    public boolean fsync;
+
+    private Path directory;
+    private LogStructuredBookStore store;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("local-store-bench");
+        store = new LogStructuredBookStore(new LocalStoreProperties(
+                directory, fsync, Duration.ZERO, 100_000, 0.5, 64L << 20, Duration.ofSeconds(1)));
+        seed(store, 1, BOOKS);
+        store.checkpoint();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        store.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public Book save() {
+        return store.save(SampleBooks.book(randomId()));
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Book saveContended() {
+        return store.save(SampleBooks.book(randomId()));
+    }
+
+    @Benchmark
+    public List<Book> findById() {
+        return store.findAllById(List.of(randomId()));
+    }
+
+    @Benchmark
+    public List<Book> findAllById() {
+        List<Integer> ids = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            ids.add(randomId());
+        }
+        return store.findAllById(ids);
+    }
+
+    static void seed(LogStructuredBookStore store, int firstId, int count) {
+        for (int first = firstId; first < firstId + count; first += SEED_CHUNK) {
+            store.upsertAll(SampleBooks.books(first, Math.min(SEED_CHUNK, firstId + count - first)));
+        }
+    }
+
+    private static int randomId() {
+        return 1 + ThreadLocalRandom.current().nextInt(BOOKS);
+    }
+}
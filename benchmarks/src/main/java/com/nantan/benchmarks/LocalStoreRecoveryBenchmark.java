@@ -0,0 +1,107 @@
+package com.nantan.benchmarks;
+
+import com.nantan.app.config.LocalStoreProperties;
+import com.nantan.app.local.LogStructuredBookStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to open the local store after a crash. The store is built once per trial and its files are copied
+ * while it is still open, as a killed process would leave them; every invocation recovers a fresh copy.
+ * {@code replayed} is the number of changes written after the last checkpoint, which recovery has to read
+ * back from the log; the mapped index itself is opened without reading it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LocalStoreRecoveryBenchmark {
+
+    private static final int CHECKPOINT_EVERY = 500_000;
+
+    @Param({"1000000", "4000000"})
+    public int records;
+
+    @Param({"0", "100000"})
+    public int replayed;
+
+    private Path template;
+    private Path directory;
+    private LogStructuredBookStore recovered;
+
+    @Setup
+    public void buildCrashedStore() throws IOException {
+        Path source = Files.createTempDirectory("local-store-source");
+        template = Files.createTempDirectory("local-store-crashed");
+        LogStructuredBookStore store = new LogStructuredBookStore(properties(source, false));
+        try {
+            for (int first = 1; first <= records; first += CHECKPOINT_EVERY) {
+                LocalStoreBenchmark.seed(store, first, Math.min(CHECKPOINT_EVERY, records - first + 1));
+                store.checkpoint();
+            }
+            // 检查点之后的改动覆盖已有的书, 恢复时要从日志重放
+            LocalStoreBenchmark.seed(store, 1, replayed);
+            copyStoreFiles(source, template);
+        } finally {
+            store.close();
+            FileSystemUtils.deleteRecursively(source);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void copyCrashedStore() throws IOException {
+        directory = Files.createTempDirectory("local-store-recovery");
+        copyStoreFiles(template, directory);
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeRecoveredStore() throws IOException {
+        recovered.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @TearDown
+    public void deleteTemplate() throws IOException {
+        FileSystemUtils.deleteRecursively(template);
+    }
+
+    @Benchmark
+    public LogStructuredBookStore recover() throws IOException {
+        recovered = new LogStructuredBookStore(properties(directory, true));
+        return recovered;
+    }
+
+    private static LocalStoreProperties properties(Path directory, boolean fsync) {
+        return new LocalStoreProperties(directory, fsync, Duration.ZERO, Integer.MAX_VALUE, 0.5, Long.MAX_VALUE,
+                Duration.ZERO);
+    }
+
+    private static void copyStoreFiles(Path from, Path to) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(from, "books-*")) {
+            for (Path file : files) {
+                Files.copy(file, to.resolve(file.getFileName()));
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.nantan.benchmarks;
+
+import com.nantan.app.Book;
+import com.nantan.app.BookRepository;
+import com.nantan.app.config.ExportProperties;
+import com.nantan.app.jpa.BookJpaRepository;
+import com.nantan.app.memory.InMemoryBookRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.mongo.MongoDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.mongo.MongoRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BookRepository} operations against the in-memory store and against the real JPA repository
+ * on embedded H2. The in-memory numbers are the floor any decorator or service overhead sits on;
+ * the H2 numbers include Hibernate and JDBC without network latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    private static final int BOOKS = 10_000;
+    private static final int SEED_CHUNK = 500;
+    private static final int BATCH = 50;
+
+    @Param({"memory", "h2"})
+    public String store;
+
+    private ConfigurableApplicationContext context;
+    private BookRepository repository;
+    private final SplittableRandom random = new SplittableRandom(42);
+    private int nextId = BOOKS;
+
+    @Setup
+    public void setUp() {
+        if ("h2".equals(store)) {
+            context = new SpringApplicationBuilder(H2Context.class)
+                    .properties(
+                            "spring.main.web-application-type=none",
+                            "spring.main.banner-mode=off",
+                            "spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+                            "spring.jpa.hibernate.ddl-auto=create-drop",
+                            "spring.jpa.open-in-view=false")
+                    .run();
+            repository = context.getBean(BookJpaRepository.class);
+        } else {
+            repository = new InMemoryBookRepository();
+        }
+        for (int first = 1; first <= BOOKS; first += SEED_CHUNK) {
+            repository.insertAll(SampleBooks.books(first, Math.min(SEED_CHUNK, BOOKS - first + 1)));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public List<Book> findPage() {
+        return repository.findPage(random.nextInt(BOOKS - BATCH), BATCH);
+    }
+
+    @Benchmark
+    public List<Book> findAllById() {
+        List<Integer> ids = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            ids.add(1 + random.nextInt(BOOKS));
+        }
+        return repository.findAllById(ids);
+    }
+
+    @Benchmark
+    public Book updateExisting() {
+        return repository.save(SampleBooks.book(1 + random.nextInt(BOOKS)));
+    }
+
+    /** Adds a new book and removes it again, so the table size stays constant across iterations. */
+    @Benchmark
+    public boolean insertThenDelete() {
+        int id = ++nextId;
+        repository.save(SampleBooks.book(id));
+        return repository.deleteById(id);
+    }
+
+    /**
+     * Only the JPA side of the application: no web server, no MongoDB.
+     */
+    @SpringBootConfiguration
+    @EnableAutoConfiguration(exclude = {
+            MongoAutoConfiguration.class, MongoDataAutoConfiguration.class, MongoRepositoriesAutoConfiguration.class})
+    @EnableJpaRepositories(basePackageClasses = BookJpaRepository.class)
+    @EntityScan(basePackageClasses = Book.class)
+    @EnableConfigurationProperties(ExportProperties.class)
+    static class H2Context {
+    }
+}
@@ -0,0 +1,27 @@
+package com.nantan.benchmarks;
+
+import com.nantan.app.Book;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deterministic test data shared by the benchmarks, with titles and authors of a realistic length.
+ */
+final class SampleBooks {
+
+    private SampleBooks() {
+    }
+
+    static Book book(int id) {
+        return new Book(id, "The Collected Works, Volume " + id, "Author " + (id % 997));
+    }
+
+    static List<Book> books(int firstId, int count) {
+        List<Book> books = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            books.add(book(firstId + i));
+        }
+        return books;
+    }
+}
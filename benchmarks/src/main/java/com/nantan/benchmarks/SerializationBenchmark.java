@@ -0,0 +1,65 @@
+package com.nantan.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.nantan.app.Book;
+import com.nantan.app.dto.ApiResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning a book list response into JSON, as the MVC message converter does for
+ * {@code GET /api/books}. The mapper is built the same way Spring Boot builds its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int size;
+
+    private ObjectWriter writer;
+    private ApiResponse<List<Book>> response;
+    private ByteArrayOutputStream buffer;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+        writer = mapper.writerFor(mapper.getTypeFactory().constructParametricType(ApiResponse.class,
+                mapper.getTypeFactory().constructCollectionType(List.class, Book.class)));
+        response = ApiResponse.success(SampleBooks.books(1, size));
+        buffer = new ByteArrayOutputStream(size * 64);
+    }
+
+    @Benchmark
+    public byte[] writeValueAsBytes() throws IOException {
+        return writer.writeValueAsBytes(response);
+    }
+
+    /** Streams into a reused buffer, like writing straight to the servlet output stream. */
+    @Benchmark
+    public int writeToStream() throws IOException {
+        buffer.reset();
+        writer.writeValue(buffer, response);
+        return buffer.size();
+    }
+}
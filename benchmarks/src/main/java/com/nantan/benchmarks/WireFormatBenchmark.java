@@ -0,0 +1,68 @@
+package com.nantan.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.nantan.app.Book;
+import com.nantan.app.dto.ApiResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode cost of a book list in each wire format the API negotiates.
+ * Encoding writes the {@code GET /api/books} response; decoding reads a plain list of books,
+ * which is what an import or a client of the list endpoint parses. Run {@link WireFormatSizes}
+ * for the payload sizes, raw and gzip-compressed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    @Param({"100", "1000", "10000"})
+    public int size;
+
+    private ObjectWriter responseWriter;
+    private ApiResponse<List<Book>> response;
+    private ObjectReader listReader;
+    private byte[] encodedList;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper mapper = WireFormatSizes.mapper(WireFormatSizes.wireFormats(), format);
+        responseWriter = mapper.writerFor(mapper.getTypeFactory().constructParametricType(ApiResponse.class,
+                mapper.getTypeFactory().constructCollectionType(List.class, Book.class)));
+        response = ApiResponse.success(SampleBooks.books(1, size));
+        listReader = mapper.readerForListOf(Book.class);
+        encodedList = mapper.writeValueAsBytes(response.getData());
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return responseWriter.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public List<Book> decode() throws IOException {
+        return listReader.readValue(encodedList);
+    }
+}
@@ -0,0 +1,64 @@
+package com.nantan.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.nantan.app.config.WireFormats;
+import com.nantan.app.dto.ApiResponse;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Prints the size of a {@code GET /api/books} response in each wire format, raw and gzip-compressed
+ * (what Tomcat sends with {@code server.compression.enabled}). Sizes are deterministic, so this is a
+ * plain main rather than a JMH benchmark.
+ */
+public final class WireFormatSizes {
+
+    private static final String[] FORMATS = {"json", "cbor", "smile"};
+    private static final int[] SIZES = {10, 100, 1000, 10000};
+
+    private WireFormatSizes() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        WireFormats wireFormats = wireFormats();
+        System.out.printf("%-6s %7s %10s %10s %8s%n", "format", "books", "raw bytes", "gzip bytes", "vs json");
+        for (int size : SIZES) {
+            ApiResponse<?> response = ApiResponse.success(SampleBooks.books(1, size));
+            int jsonBytes = wireFormats.json().writeValueAsBytes(response).length;
+            for (String format : FORMATS) {
+                byte[] raw = mapper(wireFormats, format).writeValueAsBytes(response);
+                System.out.printf("%-6s %7d %10d %10d %7.0f%%%n",
+                        format, size, raw.length, gzip(raw).length, 100.0 * raw.length / jsonBytes);
+            }
+        }
+    }
+
+    /** Built the way {@code WireFormatConfig} builds them, without starting a context. */
+    static WireFormats wireFormats() {
+        return new WireFormats(Jackson2ObjectMapperBuilder.json().build(),
+                Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build(),
+                Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).build());
+    }
+
+    static ObjectMapper mapper(WireFormats wireFormats, String format) {
+        return switch (format) {
+            case "json" -> wireFormats.json();
+            case "cbor" -> wireFormats.cbor();
+            case "smile" -> wireFormats.smile();
+            default -> throw new IllegalArgumentException("Unknown format: " + format);
+        };
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(bytes.length / 2);
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(bytes);
+        }
+        return buffer.toByteArray();
+    }
+}
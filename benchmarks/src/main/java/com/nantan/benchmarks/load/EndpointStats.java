@@ -0,0 +1,60 @@
+package com.nantan.benchmarks.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outcomes of one operation against one data source during the measured window.
+ * Latencies are kept in an HdrHistogram, in microseconds, so percentiles are exact to three
+ * significant digits however long the run.
+ */
+final class EndpointStats {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final Operation operation;
+    private final String dataSource;
+    private final Histogram latencies = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    EndpointStats(Operation operation, String dataSource) {
+        this.operation = operation;
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Records a completed exchange. A 503 is the server shedding load, which is counted apart from errors.
+     */
+    void record(int status, long latencyNanos) {
+        latencies.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_TRACKABLE_MICROS));
+        if (status >= 200 && status < 300) {
+            succeeded.increment();
+        } else if (status == 503) {
+            rejected.increment();
+        } else {
+            failed.increment();
+        }
+    }
+
+    /** Records a request that never got a response (connection refused, timeout, ...). */
+    void recordFailure() {
+        failed.increment();
+    }
+
+    LoadReport.Row toRow(double seconds) {
+        long requests = succeeded.sum() + rejected.sum() + failed.sum();
+        return new LoadReport.Row(operation.endpoint(), dataSource, requests, requests / seconds,
+                failed.sum(), rejected.sum(),
+                millis(latencies.getValueAtPercentile(50)), millis(latencies.getValueAtPercentile(95)),
+                millis(latencies.getValueAtPercentile(99)), millis(latencies.getMaxValue()));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
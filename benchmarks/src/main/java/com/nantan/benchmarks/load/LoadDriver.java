@@ -0,0 +1,187 @@
+package com.nantan.benchmarks.load;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Drives the mixed workload with a fixed number of client threads.
+ * <p>
+ * Without a target rate every client sends its next request as soon as the previous one returns
+ * (closed loop). With a rate, each client sends on a fixed schedule and latency is measured from the
+ * time the request was <em>due</em>, not from when it was sent, so a stalled server shows up in the
+ * percentiles instead of silently lowering the request rate (coordinated omission).
+ */
+final class LoadDriver {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final int PAGE_SIZE = 50;
+
+    private final HttpClient client;
+    private final URI base;
+    private final LoadTestOptions options;
+    private final Operation[] weightedOperations;
+    private final Map<String, EndpointStats> stats = new LinkedHashMap<>();
+    private final Map<String, Queue<Integer>> deletable = new LinkedHashMap<>();
+    private final AtomicInteger nextId;
+
+    LoadDriver(HttpClient client, URI base, LoadTestOptions options) {
+        this.client = client;
+        this.base = base;
+        this.options = options;
+        this.weightedOperations = options.mix().entrySet().stream()
+                .flatMap(e -> Stream.generate(e::getKey).limit(e.getValue()))
+                .toArray(Operation[]::new);
+        for (String dataSource : options.dataSources()) {
+            for (Operation operation : options.mix().keySet()) {
+                stats.put(key(operation, dataSource), new EndpointStats(operation, dataSource));
+            }
+            deletable.put(dataSource, new ConcurrentLinkedQueue<>());
+        }
+        this.nextId = new AtomicInteger(options.seed());
+    }
+
+    /**
+     * Imports {@code seed} books into every data source through the regular import endpoint.
+     */
+    void seed() throws IOException, InterruptedException {
+        StringBuilder ndjson = new StringBuilder(options.seed() * 64);
+        for (int id = 1; id <= options.seed(); id++) {
+            ndjson.append(bookJson(id)).append('\n');
+        }
+        for (String dataSource : options.dataSources()) {
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(base.resolve("api/books/import?dataSource=" + dataSource))
+                    .header("Content-Type", "application/x-ndjson")
+                    .POST(HttpRequest.BodyPublishers.ofString(ndjson.toString()))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() / 100 != 2) {
+                throw new IllegalStateException("Seeding " + dataSource + " failed with HTTP " + response.statusCode()
+                        + ": " + response.body());
+            }
+            System.out.printf("Seeded %d books into %s%n", options.seed(), dataSource);
+        }
+    }
+
+    LoadReport run() throws InterruptedException {
+        long start = System.nanoTime();
+        long recordFrom = start + options.warmup().toNanos();
+        long end = recordFrom + options.duration().toNanos();
+        long intervalNanos = options.rate() > 0 ? (long) (options.concurrency() * 1e9 / options.rate()) : 0;
+
+        ExecutorService clients = Executors.newFixedThreadPool(options.concurrency(), runnable -> {
+            Thread thread = new Thread(runnable, "LoadClient");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < options.concurrency(); i++) {
+            // Stagger the clients' schedules so a fixed rate is spread evenly over each interval
+            long firstDue = start + intervalNanos * i / options.concurrency();
+            clients.execute(() -> drive(firstDue, intervalNanos, recordFrom, end));
+        }
+        clients.shutdown();
+        if (!clients.awaitTermination(options.warmup().plus(options.duration()).plus(REQUEST_TIMEOUT).toMillis(),
+                TimeUnit.MILLISECONDS)) {
+            clients.shutdownNow();
+        }
+
+        double seconds = options.duration().toNanos() / 1e9;
+        List<LoadReport.Row> rows = new ArrayList<>();
+        for (EndpointStats endpoint : stats.values()) {
+            rows.add(endpoint.toRow(seconds));
+        }
+        rows.sort(Comparator.comparing(LoadReport.Row::endpoint).thenComparing(LoadReport.Row::dataSource));
+        String mix = options.mix().entrySet().stream()
+                .map(e -> e.getKey().name().toLowerCase() + ":" + e.getValue())
+                .collect(Collectors.joining(","));
+        return new LoadReport(options.concurrency(), options.rate(), seconds, mix, rows);
+    }
+
+    private void drive(long firstDue, long intervalNanos, long recordFrom, long end) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long due = firstDue;
+        while (true) {
+            long now = System.nanoTime();
+            if (intervalNanos > 0) {
+                if (due > now) {
+                    LockSupport.parkNanos(due - now);
+                }
+            } else {
+                due = now;
+            }
+            if (due >= end) {
+                return;
+            }
+            String dataSource = options.dataSources().get(random.nextInt(options.dataSources().size()));
+            Operation operation = weightedOperations[random.nextInt(weightedOperations.length)];
+            Integer deleteId = null;
+            if (operation == Operation.DELETE) {
+                deleteId = deletable.get(dataSource).poll();
+                if (deleteId == null) {
+                    // Nothing of ours left to delete yet; add instead so the mix stays write-heavy as configured
+                    operation = Operation.ADD;
+                }
+            }
+            int addId = operation == Operation.ADD ? nextId.incrementAndGet() : 0;
+            EndpointStats endpoint = stats.get(key(operation, dataSource));
+            boolean measured = due >= recordFrom;
+            try {
+                HttpResponse<Void> response = client.send(request(operation, dataSource, addId, deleteId, random),
+                        HttpResponse.BodyHandlers.discarding());
+                if (measured) {
+                    endpoint.record(response.statusCode(), System.nanoTime() - due);
+                }
+                if (operation == Operation.ADD && response.statusCode() / 100 == 2) {
+                    deletable.get(dataSource).add(addId);
+                }
+            } catch (IOException e) {
+                if (measured) {
+                    endpoint.recordFailure();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            due += intervalNanos;
+        }
+    }
+
+    private HttpRequest request(Operation operation, String dataSource, int addId, Integer deleteId, ThreadLocalRandom random) {
+        String query = "?dataSource=" + dataSource;
+        HttpRequest.Builder request = switch (operation) {
+            case PAGE -> HttpRequest.newBuilder(base.resolve("api/books/page" + query
+                    + "&limit=" + PAGE_SIZE + "&afterId=" + random.nextInt(Math.max(1, options.seed()))));
+            case LIST -> HttpRequest.newBuilder(base.resolve("api/books" + query));
+            case ADD -> HttpRequest.newBuilder(base.resolve("api/books" + query))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(bookJson(addId)));
+            case DELETE -> HttpRequest.newBuilder(base.resolve("api/books/" + deleteId + query)).DELETE();
+        };
+        return request.timeout(REQUEST_TIMEOUT).build();
+    }
+
+    private static String bookJson(int id) {
+        return "{\"id\":" + id + ",\"title\":\"Load Test Volume " + id + "\",\"author\":\"Author " + (id % 997) + "\"}";
+    }
+
+    private static String key(Operation operation, String dataSource) {
+        return operation.name() + '/' + dataSource;
+    }
+}
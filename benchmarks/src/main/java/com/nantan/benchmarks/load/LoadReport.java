@@ -0,0 +1,55 @@
+package com.nantan.benchmarks.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Result of a load-test run: one row per endpoint and data source, plus the settings it ran with
+ * so that two JSON reports can be compared knowingly.
+ */
+record LoadReport(
+        int concurrency,
+        double targetRate,
+        double measuredSeconds,
+        String mix,
+        List<Row> rows) {
+
+    record Row(
+            String endpoint,
+            String dataSource,
+            long requests,
+            double rps,
+            long errors,
+            long rejected,
+            double p50Ms,
+            double p95Ms,
+            double p99Ms,
+            double maxMs) {
+    }
+
+    void print(PrintStream out) {
+        out.printf("%nConcurrency %d, %s, measured %.1fs, mix %s%n", concurrency,
+                targetRate > 0 ? String.format("target %.0f req/s", targetRate) : "closed loop", measuredSeconds, mix);
+        out.printf("%-24s %-8s %9s %9s %7s %8s %9s %9s %9s %9s%n",
+                "Endpoint", "Source", "Requests", "RPS", "Errors", "Rejected", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (Row row : rows) {
+            out.printf("%-24s %-8s %9d %9.1f %7d %8d %9.2f %9.2f %9.2f %9.2f%n",
+                    row.endpoint(), row.dataSource(), row.requests(), row.rps(), row.errors(), row.rejected(),
+                    row.p50Ms(), row.p95Ms(), row.p99Ms(), row.maxMs());
+        }
+        out.printf("%-33s %9d %9.1f%n", "Total", rows.stream().mapToLong(Row::requests).sum(),
+                rows.stream().mapToDouble(Row::rps).sum());
+    }
+
+    void write(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file, this);
+    }
+}
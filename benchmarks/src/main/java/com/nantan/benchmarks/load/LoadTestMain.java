@@ -0,0 +1,92 @@
+package com.nantan.benchmarks.load;
+
+import com.nantan.app.DataSources;
+import com.nantan.app.LibraryManagerSystemApplication;
+import com.nantan.app.config.LoadTestConfig;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * End-to-end load test of the {@code /api/books} endpoints.
+ * <p>
+ * Unless {@code --target} points at a running server, the application is booted in this JVM with the
+ * {@code loadtest} profile (embedded H2 for mysql, an in-memory store for mongo) on a random port;
+ * when {@code local} is among the data sources, the local store is enabled in a temporary directory.
+ * The data sources are seeded through the import endpoint, then read, add and delete requests are
+ * mixed at the configured concurrency. The report gives sustained RPS and p50/p95/p99/max latency per
+ * endpoint and data source; warm-up requests are not recorded.
+ * <p>
+ * {@code --profiles=reactive} boots the WebFlux implementation instead of the servlet one, so the two
+ * stacks can be compared with the same options.
+ */
+public final class LoadTestMain {
+
+    private LoadTestMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options;
+        try {
+            options = LoadTestOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        ConfigurableApplicationContext application = null;
+        Path localStore = null;
+        URI base = options.target();
+        if (base == null) {
+            SpringApplication app = new SpringApplication(LibraryManagerSystemApplication.class);
+            List<String> profiles = new ArrayList<>();
+            profiles.add(LoadTestConfig.PROFILE);
+            profiles.addAll(options.profiles());
+            app.setAdditionalProfiles(profiles.toArray(String[]::new));
+            List<String> appArgs = new ArrayList<>(List.of("--server.port=0"));
+            if (options.dataSources().contains(DataSources.LOCAL)) {
+                localStore = Files.createTempDirectory("loadtest-local-store");
+                appArgs.add("--library.startup.local-enabled=true");
+                appArgs.add("--library.local-store.directory=" + localStore);
+            }
+            application = app.run(appArgs.toArray(String[]::new));
+            int port = ((WebServerApplicationContext) application).getWebServer().getPort();
+            base = URI.create("http://localhost:" + port + "/");
+        }
+
+        try {
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+            LoadDriver driver = new LoadDriver(client, base, options);
+            driver.seed();
+            System.out.printf("Driving %s with %d clients: %s warm-up, %s measured%n",
+                    base, options.concurrency(), options.warmup(), options.duration());
+            LoadReport report = driver.run();
+            report.print(System.out);
+            if (options.result() != null) {
+                report.write(new File(options.result()));
+                System.out.println("Report written to " + options.result());
+            }
+        } finally {
+            if (application != null) {
+                application.close();
+            }
+            if (localStore != null) {
+                FileSystemUtils.deleteRecursively(localStore);
+            }
+        }
+    }
+}
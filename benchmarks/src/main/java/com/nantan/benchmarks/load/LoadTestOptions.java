@@ -0,0 +1,102 @@
+package com.nantan.benchmarks.load;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command-line options of {@link LoadTestMain}, all given as {@code --name=value}.
+ *
+ * @param target      base URL of a running server, or null to boot the application in-process
+ *                    with the {@code loadtest} profile
+ * @param profiles    further profiles for the in-process application, e.g. {@code reactive} for the WebFlux stack
+ * @param concurrency number of concurrent clients
+ * @param rate        total requests per second to aim for; 0 runs every client in a closed loop
+ * @param warmup      how long to drive load before recording
+ * @param duration    how long to record
+ * @param seed        books imported into each data source before the run
+ * @param mix         relative weight of each operation
+ * @param dataSources the data sources to spread the load over
+ * @param result      JSON file the report is written to, or null
+ */
+record LoadTestOptions(
+        URI target,
+        List<String> profiles,
+        int concurrency,
+        double rate,
+        Duration warmup,
+        Duration duration,
+        int seed,
+        Map<Operation, Integer> mix,
+        List<String> dataSources,
+        String result) {
+
+    static final String USAGE = """
+            Usage: LoadTestMain [--target=http://host:8080 | --profiles=reactive] [--concurrency=16] [--rate=0]
+                                [--warmup=10s] [--duration=30s] [--seed=10000]
+                                [--mix=page:55,list:5,add:20,delete:20] [--data-sources=mysql,mongo,local]
+                                [--result=target/loadtest-results.json]
+            """;
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new LinkedHashMap<>();
+        values.put("target", null);
+        values.put("profiles", "");
+        values.put("concurrency", "16");
+        values.put("rate", "0");
+        values.put("warmup", "10s");
+        values.put("duration", "30s");
+        values.put("seed", "10000");
+        values.put("mix", "page:55,list:5,add:20,delete:20");
+        values.put("data-sources", "mysql,mongo");
+        values.put("result", "target/loadtest-results.json");
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0 || !values.containsKey(arg.substring(2, eq))) {
+                throw new IllegalArgumentException("Unknown option '" + arg + "'\n" + USAGE);
+            }
+            values.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        String target = values.get("target");
+        return new LoadTestOptions(
+                target == null ? null : URI.create(target.endsWith("/") ? target : target + "/"),
+                Arrays.stream(values.get("profiles").split(",")).map(String::trim).filter(p -> !p.isEmpty()).toList(),
+                Integer.parseInt(values.get("concurrency")),
+                Double.parseDouble(values.get("rate")),
+                parseDuration(values.get("warmup")),
+                parseDuration(values.get("duration")),
+                Integer.parseInt(values.get("seed")),
+                parseMix(values.get("mix")),
+                Arrays.stream(values.get("data-sources").split(",")).map(String::trim).toList(),
+                values.get("result").isEmpty() ? null : values.get("result"));
+    }
+
+    /** Accepts {@code 500ms}, {@code 30s} and {@code 2m}. */
+    private static Duration parseDuration(String value) {
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        if (value.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        if (value.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        throw new IllegalArgumentException("Invalid duration '" + value + "', expected e.g. 500ms, 30s or 2m");
+    }
+
+    private static Map<Operation, Integer> parseMix(String value) {
+        Map<Operation, Integer> mix = new LinkedHashMap<>();
+        for (String part : value.split(",")) {
+            String[] weight = part.trim().split(":");
+            if (weight.length != 2) {
+                throw new IllegalArgumentException("Invalid mix entry '" + part + "', expected operation:weight");
+            }
+            mix.put(Operation.valueOf(weight[0].trim().toUpperCase()), Integer.parseInt(weight[1].trim()));
+        }
+        return mix;
+    }
+}
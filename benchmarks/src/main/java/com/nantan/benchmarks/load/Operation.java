@@ -0,0 +1,29 @@
+package com.nantan.benchmarks.load;
+
+/**
+ * The requests the load test mixes, one per {@code /api/books} endpoint under test.
+ */
+enum Operation {
+
+    /** {@code GET /api/books/page} from a random cursor. */
+    PAGE("GET /api/books/page"),
+
+    /** {@code GET /api/books}, the capped unpaged listing. */
+    LIST("GET /api/books"),
+
+    /** {@code POST /api/books} with a fresh ID. */
+    ADD("POST /api/books"),
+
+    /** {@code DELETE /api/books/{id}} of a book this load test added. */
+    DELETE("DELETE /api/books/{id}");
+
+    private final String endpoint;
+
+    Operation(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    String endpoint() {
+        return endpoint;
+    }
+}
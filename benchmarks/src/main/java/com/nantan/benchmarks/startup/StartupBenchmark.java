@@ -0,0 +1,154 @@
+package com.nantan.benchmarks.startup;
+
+import com.nantan.app.LibraryManagerSystemApplication;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold-start benchmark: launches the application in a fresh JVM per run and reports the time from launching
+ * the JVM until the first {@code GET /api/books} that answers 200.
+ * <p>
+ * {@code --cds-archive=target/app.jsa} adds an AppCDS training run when the archive does not exist yet: the
+ * application is started with {@code -XX:ArchiveClassesAtExit}, serves one request and is shut down, and the
+ * measured runs then use {@code -XX:SharedArchiveFile}. An archive is only valid for the JDK and the class path
+ * it was created with, so delete it after rebuilding. {@code --jvm-args=-Dspring.aot.enabled=true} measures a
+ * build made with {@code mvn -Paot}.
+ * <p>
+ * The child JVM gets this JVM's class path without its directories (AppCDS only archives classes from jars), so run
+ * it through {@code mvn -f benchmarks exec:exec@startup} after {@code mvn install}.
+ */
+public final class StartupBenchmark {
+
+    static final String USAGE = """
+            Usage: StartupBenchmark [--runs=5] [--profiles=loadtest] [--data-source=mysql] [--jvm-args="-Xshare:auto ..."]
+                                    [--cds-archive=target/app.jsa] [--timeout=120s]
+            """;
+
+    private StartupBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("runs", "5");
+        options.put("profiles", "loadtest");
+        options.put("data-source", "mysql");
+        options.put("jvm-args", "");
+        options.put("cds-archive", "");
+        options.put("timeout", "120s");
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0 || !options.containsKey(arg.substring(2, eq))) {
+                System.err.println("Unknown option '" + arg + "'\n" + USAGE);
+                System.exit(2);
+                return;
+            }
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        int runs = Integer.parseInt(options.get("runs"));
+        Duration timeout = Duration.ofSeconds(Long.parseLong(options.get("timeout").replace("s", "")));
+        List<String> jvmArgs = Arrays.stream(options.get("jvm-args").split("\\s+")).filter(a -> !a.isEmpty()).toList();
+        String appArgs = "--spring.profiles.active=" + options.get("profiles");
+        String path = "api/books?dataSource=" + options.get("data-source");
+
+        String archive = options.get("cds-archive");
+        if (!archive.isEmpty()) {
+            if (!Files.exists(Path.of(archive))) {
+                System.out.println("Training run: writing the AppCDS archive " + archive);
+                List<String> training = new ArrayList<>(jvmArgs);
+                training.add("-XX:ArchiveClassesAtExit=" + archive);
+                long millis = timeToFirstResponse(training, appArgs, path, timeout);
+                System.out.printf("  training run answered after %d ms%n", millis);
+                if (!Files.exists(Path.of(archive))) {
+                    throw new IllegalStateException("The JVM did not write " + archive + "; see its output above");
+                }
+            }
+            List<String> withArchive = new ArrayList<>(jvmArgs);
+            withArchive.add("-XX:SharedArchiveFile=" + archive);
+            jvmArgs = withArchive;
+        }
+
+        System.out.printf("Measuring %d cold starts, JVM options %s, %s%n", runs, jvmArgs, appArgs);
+        long[] results = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            results[i] = timeToFirstResponse(jvmArgs, appArgs, path, timeout);
+            System.out.printf("  run %d: first successful GET /%s after %d ms%n", i + 1, path, results[i]);
+        }
+        Arrays.sort(results);
+        System.out.printf("Time to first successful GET: min %d ms, median %d ms, max %d ms%n",
+                results[0], results[runs / 2], results[runs - 1]);
+    }
+
+    /**
+     * Launches the application and polls until it answers 200, then shuts it down and waits for the JVM to exit
+     * (which is when a CDS archive is written).
+     */
+    private static long timeToFirstResponse(List<String> jvmArgs, String appArgs, String path, Duration timeout)
+            throws IOException, InterruptedException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.add("-cp");
+        command.add(jarClassPath());
+        command.add(LibraryManagerSystemApplication.class.getName());
+        command.add(appArgs);
+        command.add("--server.port=" + port);
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/" + path)).GET().build();
+
+        long startNanos = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            long deadline = startNanos + timeout.toNanos();
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("The application exited with status " + process.exitValue()
+                            + " before answering; command: " + String.join(" ", command));
+                }
+                try {
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+                    }
+                } catch (IOException notListeningYet) {
+                    // Tomcat has not bound the port yet
+                }
+                Thread.sleep(10);
+            }
+            throw new IllegalStateException("No successful response within " + timeout);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private static String jarClassPath() {
+        return Arrays.stream(System.getProperty("java.class.path").split(File.pathSeparator))
+                .filter(entry -> !Files.isDirectory(Path.of(entry)))
+                .reduce((a, b) -> a + File.pathSeparator + b)
+                .orElseThrow();
+    }
+}